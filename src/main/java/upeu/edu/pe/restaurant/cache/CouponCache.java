@@ -0,0 +1,381 @@
+package upeu.edu.pe.restaurant.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import upeu.edu.pe.restaurant.entity.Coupon;
+import upeu.edu.pe.restaurant.repository.CouponRepository;
+import upeu.edu.pe.restaurant.repository.CouponUsageRepository;
+import upeu.edu.pe.restaurant.repository.CouponUsageRepository.CouponUsageCount;
+import upeu.edu.pe.restaurant.service.CouponRule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de lectura de cupones para la validación del carrito.
+ *
+ * - Código normalizado -> CouponRule inmutable + contador global de usos
+ * - (usuario, cupón) -> usos del usuario
+ *
+ * Las entradas expiran por TTL y el tamaño está acotado. Los contadores se cargan de la base
+ * de datos en el primer acceso y luego se incrementan localmente con cada canje confirmado;
+ * el canje en sí siempre se decide en la base de datos (CouponRedemptionService).
+ *
+ * Delante de la caché hay un filtro de Bloom con todos los códigos conocidos: un código que el
+ * filtro descarta se responde como inexistente sin consultar la base de datos. El filtro se
+ * reconstruye periódicamente para soltar los códigos vencidos hace más de expired-grace-days.
+ */
+@Slf4j
+@Component
+public class CouponCache {
+    
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final long ttlMillis;
+    private final double filterFalsePositiveRate;
+    private final int expiredGraceDays;
+    
+    // LRU acotados a max-size: al llenarse se descarta el menos usado, sin recorrer el mapa
+    private final Map<String, CouponEntry> byCode;
+    private final Map<UserCouponKey, UsageEntry> userUsage;
+    
+    // Cupones sugeribles para la búsqueda del mejor cupón (null = recargar)
+    private volatile SuggestableCoupons suggestable;
+    
+    // null hasta la primera construcción: sin filtro, todo pasa a la base de datos
+    private volatile BloomFilter filter;
+    private volatile long filterCapacity;
+    private final AtomicInteger filterSize = new AtomicInteger();
+    
+    // Códigos creados mientras se reconstruye el filtro (la consulta puede no verlos); null fuera de una reconstrucción
+    private final Object rebuildLock = new Object();
+    private List<String> addedDuringRebuild;
+    
+    private final LongAdder filterRejected = new LongAdder();
+    private final LongAdder filterPassed = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+    
+    public CouponCache(
+            CouponRepository couponRepository,
+            CouponUsageRepository couponUsageRepository,
+            @Value("${coupons.cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${coupons.cache.max-size:10000}") int maxSize,
+            @Value("${coupons.filter.false-positive-rate:0.01}") double filterFalsePositiveRate,
+            @Value("${coupons.filter.expired-grace-days:30}") int expiredGraceDays) {
+        this.couponRepository = couponRepository;
+        this.couponUsageRepository = couponUsageRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.byCode = lruMap(Math.max(1, maxSize));
+        this.userUsage = lruMap(Math.max(1, maxSize));
+        this.filterFalsePositiveRate = filterFalsePositiveRate;
+        this.expiredGraceDays = expiredGraceDays;
+    }
+    
+    /**
+     * Construir el filtro de Bloom con los códigos existentes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${coupons.filter.rebuild-cron:0 15 4 * * *}")
+    public void rebuildFilter() {
+        // Antes de la consulta: lo que se cree durante ella también entra al filtro nuevo
+        synchronized (rebuildLock) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<String> codes = couponRepository.findCodesExpiringAfter(
+                    LocalDateTime.now().minusDays(expiredGraceDays));
+            
+            // Holgura para los códigos que se creen hasta la próxima reconstrucción
+            long capacity = Math.max(1024, codes.size() * 2L);
+            BloomFilter next = new BloomFilter(capacity, filterFalsePositiveRate);
+            for (String code : codes) {
+                next.put(normalize(code));
+            }
+            
+            int added;
+            synchronized (rebuildLock) {
+                added = addedDuringRebuild.size();
+                addedDuringRebuild.forEach(next::put);
+                filter = next;
+                filterCapacity = capacity;
+                addedDuringRebuild = null;
+            }
+            filterSize.set(codes.size() + added);
+            
+            log.info("🎫 Filtro de cupones construido: {} códigos (+{} creados durante la carga), {} bits, {} hashes en {} ms",
+                    codes.size(), added, next.bitCount(), next.hashCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (rebuildLock) {
+                addedDuringRebuild = null;
+            }
+            log.error("Error al construir el filtro de cupones: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Registrar un código nuevo en el filtro (antes del commit: un rollback solo deja un falso positivo)
+     */
+    public void addCode(String code) {
+        String key = normalize(code);
+        synchronized (rebuildLock) {
+            BloomFilter current = filter;
+            if (current != null) {
+                current.put(key);
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(key);
+            }
+        }
+        filterSize.incrementAndGet();
+    }
+    
+    /**
+     * true si el filtro ya tiene más códigos de los previstos al construirlo (la tasa de falsos
+     * positivos supera la configurada); conviene reconstruirlo
+     */
+    public boolean isFilterSaturated() {
+        return filter != null && filterSize.get() > filterCapacity;
+    }
+    
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    /**
+     * Obtener las reglas de un cupón (carga desde la base de datos si no está o expiró)
+     */
+    public Optional<CouponRule> get(String code) {
+        CouponEntry entry = entry(code);
+        return entry != null ? Optional.of(entry.rule) : Optional.empty();
+    }
+    
+    /**
+     * Usos globales conocidos del cupón
+     */
+    public int usageCount(String code) {
+        CouponEntry entry = entry(code);
+        return entry != null ? entry.usageCount.get() : 0;
+    }
+    
+    /**
+     * Usos del cupón por un usuario
+     */
+    public long userUsageCount(Long userId, Long couponId) {
+        UserCouponKey key = new UserCouponKey(userId, couponId);
+        long now = System.currentTimeMillis();
+        
+        UsageEntry entry = userUsage.get(key);
+        if (entry == null || entry.isExpired(now, ttlMillis)) {
+            long count = couponUsageRepository.countByUserIdAndCouponId(userId, couponId);
+            entry = new UsageEntry(count, now);
+            userUsage.put(key, entry);
+        }
+        return entry.count.get();
+    }
+    
+    /**
+     * Usos de varios cupones por un usuario; los que no están en caché se cargan en una sola consulta
+     */
+    public Map<Long, Long> userUsageCounts(Long userId, Collection<Long> couponIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, Long> counts = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long couponId : couponIds) {
+            UsageEntry entry = userUsage.get(new UserCouponKey(userId, couponId));
+            if (entry == null || entry.isExpired(now, ttlMillis)) {
+                missing.add(couponId);
+            } else {
+                counts.put(couponId, entry.count.get());
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            Map<Long, Long> loaded = new HashMap<>();
+            for (CouponUsageCount row : couponUsageRepository.countByUserIdGroupedByCoupon(userId, missing)) {
+                loaded.put(row.getCouponId(), row.getUsageCount());
+            }
+            for (Long couponId : missing) {
+                long count = loaded.getOrDefault(couponId, 0L);
+                userUsage.put(new UserCouponKey(userId, couponId), new UsageEntry(count, now));
+                counts.put(couponId, count);
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Registrar un canje confirmado (después del commit)
+     */
+    public void recordRedemption(String code, Long couponId, Long userId) {
+        CouponEntry entry = byCode.get(normalize(code));
+        if (entry != null) {
+            entry.usageCount.incrementAndGet();
+        }
+        UsageEntry usage = userUsage.get(new UserCouponKey(userId, couponId));
+        if (usage != null) {
+            usage.count.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Cupones vigentes que se pueden sugerir para un carrito
+     */
+    public List<CouponRule> suggestable() {
+        long now = System.currentTimeMillis();
+        SuggestableCoupons current = suggestable;
+        if (current != null && !current.isExpired(now, ttlMillis)) {
+            return current.rules;
+        }
+        
+        List<CouponRule> rules = new ArrayList<>();
+        for (Coupon coupon : couponRepository.findSuggestableCoupons(LocalDateTime.now())) {
+            CouponEntry entry = new CouponEntry(CouponRule.from(coupon), coupon.getUsageCount(), now);
+            byCode.put(normalize(coupon.getCode()), entry);
+            rules.add(entry.rule);
+        }
+        
+        suggestable = new SuggestableCoupons(List.copyOf(rules), now);
+        return suggestable.rules;
+    }
+    
+    /**
+     * Quitar un cupón de la caché (creación, cambio de estado)
+     */
+    public void invalidate(String code) {
+        byCode.remove(normalize(code));
+        suggestable = null;
+    }
+    
+    public int size() {
+        return byCode.size();
+    }
+    
+    /**
+     * Métricas del filtro de Bloom
+     */
+    public Map<String, Object> getFilterStats() {
+        BloomFilter current = filter;
+        long rejected = filterRejected.sum();
+        long passed = filterPassed.sum();
+        long falsePositives = filterFalsePositives.sum();
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("codes", filterSize.get());
+        stats.put("capacity", filterCapacity);
+        stats.put("bits", current != null ? current.bitCount() : 0);
+        stats.put("hashes", current != null ? current.hashCount() : 0);
+        stats.put("rejected", rejected);
+        stats.put("passed", passed);
+        stats.put("falsePositives", falsePositives);
+        stats.put("falsePositiveRate", rejected + falsePositives > 0
+                ? (double) falsePositives / (rejected + falsePositives) : 0.0);
+        stats.put("cachedCoupons", byCode.size());
+        return stats;
+    }
+    
+    private CouponEntry entry(String code) {
+        String key = normalize(code);
+        long now = System.currentTimeMillis();
+        
+        CouponEntry entry = byCode.get(key);
+        if (entry != null && !entry.isExpired(now, ttlMillis)) {
+            return entry;
+        }
+        
+        BloomFilter current = filter;
+        if (current != null) {
+            if (!current.mightContain(key)) {
+                filterRejected.increment();
+                return null;
+            }
+            filterPassed.increment();
+        }
+        
+        CouponEntry loaded = couponRepository.findByCodeIgnoreCase(key)
+                .map(coupon -> new CouponEntry(CouponRule.from(coupon), coupon.getUsageCount(), now))
+                .orElse(null);
+        if (loaded == null) {
+            if (current != null) {
+                filterFalsePositives.increment();
+            }
+            byCode.remove(key);
+            return null;
+        }
+        
+        byCode.put(key, loaded);
+        return loaded;
+    }
+    
+    /**
+     * Mapa sincronizado en orden de acceso que descarta la entrada menos usada al pasar de maxSize
+     */
+    private static <K, V> Map<K, V> lruMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+    
+    private interface Timestamped {
+        long loadedAt();
+        
+        default boolean isExpired(long now, long ttlMillis) {
+            return now - loadedAt() > ttlMillis;
+        }
+    }
+    
+    private static final class CouponEntry implements Timestamped {
+        private final CouponRule rule;
+        private final AtomicInteger usageCount;
+        private final long loadedAt;
+        
+        CouponEntry(CouponRule rule, Integer usageCount, long loadedAt) {
+            this.rule = rule;
+            this.usageCount = new AtomicInteger(usageCount != null ? usageCount : 0);
+            this.loadedAt = loadedAt;
+        }
+        
+        @Override
+        public long loadedAt() {
+            return loadedAt;
+        }
+    }
+    
+    private static final class UsageEntry implements Timestamped {
+        private final AtomicLong count;
+        private final long loadedAt;
+        
+        UsageEntry(long count, long loadedAt) {
+            this.count = new AtomicLong(count);
+            this.loadedAt = loadedAt;
+        }
+        
+        @Override
+        public long loadedAt() {
+            return loadedAt;
+        }
+    }
+    
+    private record SuggestableCoupons(List<CouponRule> rules, long loadedAt) implements Timestamped {}
+    
+    private record UserCouponKey(Long userId, Long couponId) {}
+}
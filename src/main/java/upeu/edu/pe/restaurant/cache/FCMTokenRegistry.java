@@ -0,0 +1,199 @@
+package upeu.edu.pe.restaurant.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import upeu.edu.pe.restaurant.repository.FCMTokenRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tokens FCM activos por usuario en memoria, para resolver destinatarios sin consultar la base de
+ * datos en cada notificación.
+ *
+ * Cada usuario guarda un String[] inmutable (se reemplaza entero al cambiar) y la tabla es un LRU
+ * acotado a {@code max-size} usuarios. FCMTokenService la actualiza al confirmar cada alta, baja o
+ * desactivación; un índice token -> usuario permite quitar los tokens que FCM rechaza sin saber de
+ * quién son. Una carga que se cruza con un cambio no se guarda, así nunca queda una lista vieja.
+ */
+@Slf4j
+@Component
+public class FCMTokenRegistry {
+    
+    private static final String[] EMPTY = new String[0];
+    
+    private final FCMTokenRepository fcmTokenRepository;
+    private final int maxSize;
+    
+    // Acceso protegido por el monitor de la instancia
+    private final LinkedHashMap<Long, String[]> byUser;
+    private final Map<String, Long> owners = new HashMap<>();
+    
+    // Sube con cada cambio: una carga iniciada antes no se guarda
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public FCMTokenRegistry(
+            FCMTokenRepository fcmTokenRepository,
+            @Value("${notifications.token-registry.max-size:100000}") int maxSize) {
+        this.fcmTokenRepository = fcmTokenRepository;
+        this.maxSize = Math.max(1, maxSize);
+        this.byUser = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+                if (size() <= FCMTokenRegistry.this.maxSize) {
+                    return false;
+                }
+                for (String token : eldest.getValue()) {
+                    owners.remove(token);
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Tokens activos del usuario; solo consulta la base de datos si no están en memoria.
+     * El arreglo devuelto es compartido y no debe modificarse.
+     */
+    public String[] get(Long userId) {
+        synchronized (this) {
+            String[] tokens = byUser.get(userId);
+            if (tokens != null) {
+                hits.increment();
+                return tokens;
+            }
+        }
+        
+        loads.increment();
+        long startGeneration = generation.get();
+        List<String> active = fcmTokenRepository.findActiveTokenValuesByUserId(userId);
+        String[] tokens = active.isEmpty() ? EMPTY : active.toArray(String[]::new);
+        
+        synchronized (this) {
+            if (generation.get() == startGeneration) {
+                store(userId, tokens);
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Token activado para un usuario (si el token era de otro usuario, se le quita)
+     */
+    public synchronized void add(Long userId, String token) {
+        generation.incrementAndGet();
+        Long previousOwner = owners.get(token);
+        if (previousOwner != null && !previousOwner.equals(userId)) {
+            removeFrom(previousOwner, token);
+        }
+        
+        String[] current = byUser.get(userId);
+        if (current == null || contains(current, token)) {
+            // Usuario no cargado: lo verá la próxima carga
+            return;
+        }
+        String[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = token;
+        store(userId, next);
+    }
+    
+    /**
+     * Token desactivado o eliminado
+     */
+    public synchronized void remove(String token) {
+        generation.incrementAndGet();
+        Long owner = owners.get(token);
+        if (owner != null) {
+            removeFrom(owner, token);
+        }
+    }
+    
+    /**
+     * Varios tokens desactivados (p. ej. los rechazados por FCM)
+     */
+    public synchronized void removeAll(Collection<String> tokens) {
+        generation.incrementAndGet();
+        for (String token : tokens) {
+            Long owner = owners.get(token);
+            if (owner != null) {
+                removeFrom(owner, token);
+            }
+        }
+    }
+    
+    /**
+     * Olvidar los tokens del usuario (se recargan en el próximo envío)
+     */
+    public synchronized void invalidate(Long userId) {
+        generation.incrementAndGet();
+        String[] tokens = byUser.remove(userId);
+        if (tokens != null) {
+            for (String token : tokens) {
+                owners.remove(token);
+            }
+        }
+    }
+    
+    /**
+     * Métricas del registro
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", byUser.size());
+        stats.put("tokens", owners.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+    
+    private void store(Long userId, String[] tokens) {
+        String[] previous = byUser.put(userId, tokens);
+        if (previous != null) {
+            for (String token : previous) {
+                owners.remove(token);
+            }
+        }
+        for (String token : tokens) {
+            owners.put(token, userId);
+        }
+    }
+    
+    private void removeFrom(Long userId, String token) {
+        owners.remove(token);
+        String[] current = byUser.get(userId);
+        if (current == null || !contains(current, token)) {
+            return;
+        }
+        String[] next = current.length == 1 ? EMPTY : new String[current.length - 1];
+        int i = 0;
+        for (String value : current) {
+            if (!value.equals(token)) {
+                next[i++] = value;
+            }
+        }
+        byUser.put(userId, next);
+    }
+    
+    private static boolean contains(String[] tokens, String token) {
+        for (String value : tokens) {
+            if (value.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+package upeu.edu.pe.restaurant.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import upeu.edu.pe.restaurant.entity.MenuItem;
+import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.repository.MenuItemRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla de precios en memoria por restaurante: datos de delivery y promoción del restaurante
+ * y precio, categoría y disponibilidad de cada producto.
+ *
+ * Se carga con dos consultas la primera vez que se cotiza un pedido del restaurante y se
+ * invalida cuando cambian sus productos o sus datos (además de un TTL como red de seguridad).
+ */
+@Slf4j
+@Component
+public class MenuPriceCache {
+    
+    private final RestaurantRepository restaurantRepository;
+    private final MenuItemRepository menuItemRepository;
+    private final long ttlMillis;
+    
+    private final Map<Long, RestaurantMenu> menus = new ConcurrentHashMap<>();
+    
+    public MenuPriceCache(
+            RestaurantRepository restaurantRepository,
+            MenuItemRepository menuItemRepository,
+            @Value("${pricing.menu-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.restaurantRepository = restaurantRepository;
+        this.menuItemRepository = menuItemRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+    
+    /**
+     * Menú con precios de un restaurante (vacío si el restaurante no existe)
+     */
+    public Optional<RestaurantMenu> get(Long restaurantId) {
+        long now = System.currentTimeMillis();
+        RestaurantMenu menu = menus.get(restaurantId);
+        if (menu != null && now - menu.loadedAt() <= ttlMillis) {
+            return Optional.of(menu);
+        }
+        
+        Optional<RestaurantMenu> loaded = restaurantRepository.findById(restaurantId)
+                .map(restaurant -> load(restaurant, now));
+        loaded.ifPresentOrElse(m -> menus.put(restaurantId, m), () -> menus.remove(restaurantId));
+        return loaded;
+    }
+    
+    /**
+     * Descartar el menú de un restaurante; si hay una transacción en curso, también al confirmarla
+     */
+    public void invalidate(Long restaurantId) {
+        menus.remove(restaurantId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    menus.remove(restaurantId);
+                }
+            });
+        }
+    }
+    
+    private RestaurantMenu load(Restaurant restaurant, long now) {
+        Map<Long, MenuPrice> items = new HashMap<>();
+        for (MenuItem item : menuItemRepository.findByRestaurantId(restaurant.getId())) {
+            items.put(item.getId(), new MenuPrice(
+                    item.getId(),
+                    item.getName(),
+                    item.getPrice(),
+                    item.getCategory() != null ? item.getCategory().trim().toLowerCase(Locale.ROOT) : null,
+                    Boolean.TRUE.equals(item.getIsAvailable())));
+        }
+        
+        log.debug("Menú de restaurante {} cargado: {} productos", restaurant.getId(), items.size());
+        
+        return new RestaurantMenu(
+                restaurant.getId(),
+                Boolean.TRUE.equals(restaurant.getIsActive()),
+                restaurant.getDeliveryFee(),
+                restaurant.getLatitude(),
+                restaurant.getLongitude(),
+                Boolean.TRUE.equals(restaurant.getHasPromotion()) ? restaurant.getDiscountPercentage() : null,
+                restaurant.getPromotionStartDate(),
+                restaurant.getPromotionEndDate(),
+                Map.copyOf(items),
+                now);
+    }
+    
+    /**
+     * Precio de un producto
+     */
+    public record MenuPrice(long id, String name, BigDecimal price, String category, boolean available) {}
+    
+    /**
+     * Instantánea inmutable del menú de un restaurante
+     */
+    public record RestaurantMenu(long restaurantId, boolean active, BigDecimal deliveryFee,
+                                 Double latitude, Double longitude,
+                                 Integer discountPercentage, LocalDateTime promotionStart, LocalDateTime promotionEnd,
+                                 Map<Long, MenuPrice> items, long loadedAt) {
+        
+        /**
+         * Porcentaje de promoción vigente en un momento (0 si no hay)
+         */
+        public int promotionPercentage(LocalDateTime time) {
+            if (discountPercentage == null || discountPercentage <= 0) {
+                return 0;
+            }
+            if (promotionStart != null && time.isBefore(promotionStart)) {
+                return 0;
+            }
+            if (promotionEnd != null && time.isAfter(promotionEnd)) {
+                return 0;
+            }
+            return Math.min(discountPercentage, 100);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package upeu.edu.pe.restaurant.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import upeu.edu.pe.restaurant.repository.NotificationLogRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de notificaciones no leídas por usuario (badge de la app).
+ *
+ * El contador de un usuario se carga con un COUNT en su primer acceso y después se mantiene en
+ * memoria: sube con cada notificación registrada y baja al marcarlas como leídas. Como el log se
+ * escribe por lotes, una carga puede no ver filas aún en el buffer; la reconciliación periódica
+ * corrige esas diferencias con un COUNT agrupado, solo para contadores que no cambiaron en los
+ * últimos {@code quiet-ms}.
+ */
+@Slf4j
+@Component
+public class UnreadCountCache {
+
+    private static final int RECONCILE_CHUNK = 1000;
+
+    private final NotificationLogRepository notificationLogRepository;
+    private final long quietMillis;
+
+    // LRU acotado a max-size: al llenarse se descarta el usuario menos consultado, sin recorrer el mapa
+    private final Map<Long, Counter> counters;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    public UnreadCountCache(
+            NotificationLogRepository notificationLogRepository,
+            @Value("${notifications.unread-cache.max-size:100000}") int maxSize,
+            @Value("${notifications.unread-cache.quiet-ms:5000}") long quietMillis) {
+        this.notificationLogRepository = notificationLogRepository;
+        this.quietMillis = quietMillis;
+        int capacity = Math.max(1, maxSize);
+        this.counters = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Counter> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * No leídas del usuario; solo consulta la base de datos la primera vez
+     */
+    public long get(Long userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            hits.increment();
+            return Math.max(0, counter.value.get());
+        }
+
+        // El COUNT va fuera del monitor del mapa; si dos hilos cargan a la vez, gana el primero
+        loads.increment();
+        Counter loaded = new Counter(notificationLogRepository.countByUserIdAndReadAtIsNull(userId));
+        counter = counters.putIfAbsent(userId, loaded);
+        return Math.max(0, (counter != null ? counter : loaded).value.get());
+    }
+
+    /**
+     * Nueva notificación para el usuario (si su contador no está cargado, se contará al cargarlo)
+     */
+    public void increment(Long userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.add(1);
+        }
+    }
+
+    /**
+     * Notificaciones marcadas como leídas
+     */
+    public void decrement(Long userId, long count) {
+        Counter counter = counters.get(userId);
+        if (counter != null && count > 0) {
+            counter.add(-count);
+        }
+    }
+
+    /**
+     * Todas las notificaciones del usuario quedaron leídas
+     */
+    public void reset(Long userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.set(0);
+        }
+    }
+
+    /**
+     * Olvidar el contador (se recarga en el próximo acceso)
+     */
+    public void invalidate(Long userId) {
+        counters.remove(userId);
+    }
+
+    /**
+     * Corregir los contadores cargados contra la base de datos
+     */
+    @Scheduled(fixedDelayString = "${notifications.unread-cache.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long now = System.currentTimeMillis();
+        List<Long> userIds = new ArrayList<>();
+        Map<Long, Long> versions = new HashMap<>();
+        counters.forEach((userId, counter) -> {
+            if (now - counter.modifiedAt >= quietMillis) {
+                userIds.add(userId);
+                versions.put(userId, counter.version.get());
+            }
+        });
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int fixed = 0;
+        try {
+            for (int from = 0; from < userIds.size(); from += RECONCILE_CHUNK) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + RECONCILE_CHUNK, userIds.size()));
+                Map<Long, Long> actual = new HashMap<>();
+                for (Object[] row : notificationLogRepository.countUnreadByUserIds(chunk)) {
+                    actual.put((Long) row[0], (Long) row[1]);
+                }
+                for (Long userId : chunk) {
+                    Counter counter = counters.get(userId);
+                    long expected = actual.getOrDefault(userId, 0L);
+                    // Si cambió durante la consulta se deja para la próxima vuelta
+                    if (counter != null && counter.value.get() != expected
+                            && counter.compareAndSet(versions.get(userId), expected)) {
+                        fixed++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error al reconciliar contadores de no leídas: {}", e.getMessage());
+            return;
+        }
+
+        corrections.add(fixed);
+        log.info("🔔 Contadores de no leídas reconciliados: {} usuarios, {} corregidos en {} ms",
+                userIds.size(), fixed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Métricas de la caché
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", counters.size());
+        stats.put("hits", hits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("corrections", corrections.sum());
+        return stats;
+    }
+
+    /**
+     * Contador con versión: la reconciliación solo lo reemplaza si nadie lo tocó mientras consultaba
+     */
+    private static final class Counter {
+        private final AtomicLong value;
+        private final AtomicLong version = new AtomicLong();
+        private volatile long modifiedAt = System.currentTimeMillis();
+
+        private Counter(long initial) {
+            this.value = new AtomicLong(initial);
+        }
+
+        synchronized void add(long delta) {
+            value.addAndGet(delta);
+            touch();
+        }
+
+        synchronized void set(long newValue) {
+            value.set(newValue);
+            touch();
+        }
+
+        synchronized boolean compareAndSet(long expectedVersion, long newValue) {
+            if (version.get() != expectedVersion) {
+                return false;
+            }
+            value.set(newValue);
+            version.incrementAndGet();
+            return true;
+        }
+
+        private void touch() {
+            version.incrementAndGet();
+            modifiedAt = System.currentTimeMillis();
+        }
+    }
+}
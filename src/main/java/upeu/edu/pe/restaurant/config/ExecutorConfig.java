@@ -0,0 +1,53 @@
+package upeu.edu.pe.restaurant.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Pools de hilos acotados para trabajo en paralelo o en segundo plano.
+ *
+ * Las llamadas a servicios externos (Stripe, Firebase) pasan casi todo el tiempo esperando la red,
+ * así que se usan pools de tamaño fijo con cola acotada; si la cola se llena, la tarea se ejecuta
+ * en el hilo que la envió en lugar de perderse.
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * Llamadas a Stripe durante el checkout
+     */
+    @Bean(name = "checkoutExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor checkoutExecutor(
+            @Value("${checkout.executor.threads:16}") int threads,
+            @Value("${checkout.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("checkout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Envíos a Firebase (bloques de broadcast)
+     */
+    @Bean(name = "notificationExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor notificationExecutor(
+            @Value("${notifications.executor.threads:8}") int threads,
+            @Value("${notifications.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("notification-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
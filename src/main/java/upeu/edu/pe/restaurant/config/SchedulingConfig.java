@@ -0,0 +1,14 @@
+package upeu.edu.pe.restaurant.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita tareas programadas (reconstrucción de índices en memoria, limpiezas).
+ * El pool del scheduler se dimensiona con spring.task.scheduling.pool.size: con el hilo único por
+ * defecto, un job largo retrasa los flush periódicos (log, tokens inválidos, topics).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
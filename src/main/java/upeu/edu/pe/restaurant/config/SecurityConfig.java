@@ -66,6 +66,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/products/**").permitAll()       // Listar/Buscar productos
                         .requestMatchers("/api/coupons/active").permitAll()    // Cupones activos (público)
                         .requestMatchers("/api/reviews/restaurant/**").permitAll() // Reseñas de restaurante (público)
+                        .requestMatchers("/api/reviews/search").permitAll()    // Búsqueda en reseñas (público)
                         .requestMatchers("/health").permitAll()                // Health check
                         .requestMatchers("/error").permitAll()                 // Manejo de errores
                         // Todos los demás endpoints requieren autenticación
@@ -0,0 +1,70 @@
+package upeu.edu.pe.restaurant.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import upeu.edu.pe.restaurant.dto.CheckoutRequest;
+import upeu.edu.pe.restaurant.dto.CheckoutResponse;
+import upeu.edu.pe.restaurant.dto.OrderPricingDTO;
+import upeu.edu.pe.restaurant.dto.response.ApiResponse;
+import upeu.edu.pe.restaurant.security.UserPrincipal;
+import upeu.edu.pe.restaurant.service.CheckoutService;
+
+/**
+ * Checkout en una sola llamada (reemplaza validate + payments + orders + uso del cupón)
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/checkout")
+@RequiredArgsConstructor
+public class CheckoutController {
+    
+    private final CheckoutService checkoutService;
+    
+    /**
+     * POST /api/checkout
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<CheckoutResponse>> checkout(
+            @Valid @RequestBody CheckoutRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        log.info("📥 POST /api/checkout - Usuario: {}, Restaurante: {}", 
+                currentUser.getId(), request.getRestaurantId());
+        
+        CheckoutResponse response = checkoutService.checkout(currentUser.getId(), request);
+        
+        return ResponseEntity.ok(
+                ApiResponse.success(
+                        "Pedido realizado exitosamente", 
+                        response
+                )
+        );
+    }
+    
+    /**
+     * Cotizar el pedido (precios del menú, promoción, cupón y delivery) sin crearlo
+     * POST /api/checkout/quote
+     */
+    @PostMapping("/quote")
+    public ResponseEntity<ApiResponse<OrderPricingDTO>> quote(
+            @Valid @RequestBody CheckoutRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        log.info("📥 POST /api/checkout/quote - Usuario: {}, Restaurante: {}", 
+                currentUser.getId(), request.getRestaurantId());
+        
+        return ResponseEntity.ok(
+                ApiResponse.success(
+                        "Cotización calculada", 
+                        checkoutService.quote(currentUser.getId(), request)
+                )
+        );
+    }
+}
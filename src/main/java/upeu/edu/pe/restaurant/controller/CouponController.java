@@ -1,20 +1,30 @@
 package upeu.edu.pe.restaurant.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import upeu.edu.pe.restaurant.dto.CouponDTO;
+import upeu.edu.pe.restaurant.dto.request.BestCouponRequest;
+import upeu.edu.pe.restaurant.dto.request.BulkCouponRequest;
 import upeu.edu.pe.restaurant.dto.request.ValidateCouponRequest;
 import upeu.edu.pe.restaurant.dto.response.ApiResponse;
 import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
 import upeu.edu.pe.restaurant.security.UserPrincipal;
+import upeu.edu.pe.restaurant.service.CouponBulkService;
+import upeu.edu.pe.restaurant.service.CouponCodeGenerator;
 import upeu.edu.pe.restaurant.service.CouponService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador para gestión de cupones
@@ -26,6 +36,8 @@ import java.util.List;
 public class CouponController {
     
     private final CouponService couponService;
+    private final CouponBulkService couponBulkService;
+    private final ObjectMapper objectMapper;
     
     /**
      * Validar un cupón
@@ -62,6 +74,28 @@ public class CouponController {
         }
     }
     
+    /**
+     * Buscar el mejor cupón aplicable al carrito
+     * POST /api/coupons/best
+     */
+    @PostMapping("/best")
+    public ResponseEntity<ApiResponse<CouponValidationResponse>> findBestCoupon(
+            @Valid @RequestBody BestCouponRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        log.info("📥 POST /api/coupons/best - Usuario: {}", currentUser.getId());
+        
+        CouponValidationResponse response = couponService.findBestCoupon(request, currentUser.getId());
+        
+        return ResponseEntity.ok(
+                ApiResponse.<CouponValidationResponse>builder()
+                        .success(response.getValid())
+                        .message(response.getMessage())
+                        .data(response)
+                        .build()
+        );
+    }
+    
     /**
      * Obtener historial de cupones del usuario
      * GET /api/coupons/history
@@ -121,6 +155,36 @@ public class CouponController {
         );
     }
     
+    /**
+     * Generar cupones de un solo uso en lote (SOLO ADMIN)
+     * POST /api/coupons/bulk
+     *
+     * Responde con NDJSON: una línea de avance por bloque insertado
+     */
+    @PostMapping(value = "/bulk", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> generateBulkCoupons(
+            @Valid @RequestBody BulkCouponRequest request) {
+        
+        log.info("📥 POST /api/coupons/bulk - Generando {} cupones", request.getQuantity());
+        
+        CouponCodeGenerator generator = couponBulkService.prepare(request);
+        
+        StreamingResponseBody body = out -> couponBulkService.generate(request, generator, progress -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(progress));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+    
     /**
      * Activar/Desactivar un cupón (SOLO ADMIN)
      * PUT /api/coupons/{id}/toggle
@@ -139,4 +203,21 @@ public class CouponController {
                 )
         );
     }
+    
+    /**
+     * Métricas del filtro de códigos (SOLO ADMIN)
+     * GET /api/coupons/filter-stats
+     */
+    @GetMapping("/filter-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFilterStats() {
+        log.info("📥 GET /api/coupons/filter-stats");
+        
+        return ResponseEntity.ok(
+                ApiResponse.success(
+                        "Métricas del filtro de cupones", 
+                        couponService.getFilterStats()
+                )
+        );
+    }
 }
@@ -3,11 +3,13 @@ package upeu.edu.pe.restaurant.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import upeu.edu.pe.restaurant.dto.FCMTokenDTO;
 import upeu.edu.pe.restaurant.security.UserPrincipal;
 import upeu.edu.pe.restaurant.service.FCMTokenService;
+import upeu.edu.pe.restaurant.service.InvalidTokenQueue;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +20,7 @@ import java.util.Map;
 public class FCMTokenController {
     
     private final FCMTokenService fcmTokenService;
+    private final InvalidTokenQueue invalidTokenQueue;
     
     /**
      * POST /api/fcm/token - Registrar token FCM
@@ -69,4 +72,30 @@ public class FCMTokenController {
         
         return ResponseEntity.ok(response);
     }
+    
+    /**
+     * GET /api/fcm/registry/stats - Métricas del registro de tokens en memoria (Admin)
+     */
+    @GetMapping("/registry/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRegistryStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", fcmTokenService.getRegistryStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/fcm/invalid-tokens/stats - Métricas de la desactivación diferida de tokens (Admin)
+     */
+    @GetMapping("/invalid-tokens/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getInvalidTokenStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", invalidTokenQueue.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
 }
@@ -0,0 +1,108 @@
+package upeu.edu.pe.restaurant.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import upeu.edu.pe.restaurant.dto.FollowDTO;
+import upeu.edu.pe.restaurant.security.UserPrincipal;
+import upeu.edu.pe.restaurant.service.FollowService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/follows")
+@RequiredArgsConstructor
+public class FollowController {
+    
+    private final FollowService followService;
+    
+    /**
+     * GET /api/follows - Restaurantes y categorías que sigo
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMyFollows(
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        List<FollowDTO> follows = followService.getFollows(currentUser.getId());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", follows);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * POST /api/follows/restaurants/{restaurantId} - Seguir un restaurante
+     */
+    @PostMapping("/restaurants/{restaurantId}")
+    public ResponseEntity<Map<String, Object>> followRestaurant(
+            @PathVariable Long restaurantId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        FollowDTO follow = followService.followRestaurant(currentUser.getId(), restaurantId);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Ahora sigues este restaurante");
+        response.put("data", follow);
+        
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
+    /**
+     * DELETE /api/follows/restaurants/{restaurantId} - Dejar de seguir un restaurante
+     */
+    @DeleteMapping("/restaurants/{restaurantId}")
+    public ResponseEntity<Map<String, Object>> unfollowRestaurant(
+            @PathVariable Long restaurantId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        followService.unfollowRestaurant(currentUser.getId(), restaurantId);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Dejaste de seguir este restaurante");
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * POST /api/follows/categories/{category} - Seguir una categoría
+     */
+    @PostMapping("/categories/{category}")
+    public ResponseEntity<Map<String, Object>> followCategory(
+            @PathVariable String category,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        FollowDTO follow = followService.followCategory(currentUser.getId(), category);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Ahora sigues esta categoría");
+        response.put("data", follow);
+        
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+    
+    /**
+     * DELETE /api/follows/categories/{category} - Dejar de seguir una categoría
+     */
+    @DeleteMapping("/categories/{category}")
+    public ResponseEntity<Map<String, Object>> unfollowCategory(
+            @PathVariable String category,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        followService.unfollowCategory(currentUser.getId(), category);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Dejaste de seguir esta categoría");
+        
+        return ResponseEntity.ok(response);
+    }
+}
@@ -6,9 +6,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import upeu.edu.pe.restaurant.dto.BroadcastJobDTO;
 import upeu.edu.pe.restaurant.dto.NotificationDTO;
-import upeu.edu.pe.restaurant.entity.NotificationLog;
+import upeu.edu.pe.restaurant.dto.NotificationPageDTO;
+import upeu.edu.pe.restaurant.dto.request.FollowerOfferRequest;
+import upeu.edu.pe.restaurant.entity.NotificationDailySummary;
+import upeu.edu.pe.restaurant.entity.NotificationDeadLetter;
 import upeu.edu.pe.restaurant.security.UserPrincipal;
+import upeu.edu.pe.restaurant.service.NotificationRetentionService;
 import upeu.edu.pe.restaurant.service.NotificationService;
 
 import java.util.HashMap;
@@ -21,64 +26,151 @@ import java.util.Map;
 public class NotificationController {
     
     private final NotificationService notificationService;
+    private final NotificationRetentionService retentionService;
     
     /**
      * POST /api/notifications/send - Enviar notificación (Admin)
+     * Sin userId es un broadcast: se encola y responde 202 con el id del envío
      */
     @PostMapping("/send")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> sendNotification(
             @Valid @RequestBody NotificationDTO notificationDTO) {
         
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        
+        if (notificationDTO.getUserId() == null) {
+            BroadcastJobDTO job = notificationService.submitBroadcast(notificationDTO);
+            response.put("message", "Notificación encolada para todos los usuarios");
+            response.put("data", job);
+            return ResponseEntity.accepted().body(response);
+        }
+        
         notificationService.sendNotification(notificationDTO);
+        response.put("message", "Notificación enviada exitosamente");
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/broadcasts/{jobId} - Estado de un envío masivo (Admin)
+     */
+    @GetMapping("/broadcasts/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getBroadcastJob(@PathVariable String jobId) {
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("message", "Notificación enviada exitosamente");
+        response.put("data", notificationService.getBroadcastJob(jobId));
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * POST /api/notifications/restaurants/{restaurantId}/offer - Anunciar una oferta a los seguidores del restaurante (Admin)
+     */
+    @PostMapping("/restaurants/{restaurantId}/offer")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> notifyRestaurantFollowers(
+            @PathVariable Long restaurantId,
+            @Valid @RequestBody FollowerOfferRequest request) {
+        
+        long followers = notificationService.notifyRestaurantFollowers(
+                restaurantId, request.getTitle(), request.getDescription(), request.getCouponId());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Oferta enviada a los seguidores del restaurante");
+        response.put("followers", followers);
         
         return ResponseEntity.ok(response);
     }
     
     /**
-     * GET /api/notifications/my - Obtener mis notificaciones
+     * GET /api/notifications/my - Primera página de mis notificaciones
+     * @deprecated usar /inbox; ya no devuelve la lista completa, solo la primera página (?limit=)
      */
+    @Deprecated
     @GetMapping("/my")
     public ResponseEntity<Map<String, Object>> getMyNotifications(
-            @AuthenticationPrincipal UserPrincipal currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam(required = false) Integer limit) {
         
-        List<NotificationLog> notifications = notificationService.getUserNotifications(currentUser.getId());
+        NotificationPageDTO page = notificationService.getInbox(currentUser.getId(), null, limit, false);
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("data", notifications);
+        response.put("data", page.getItems());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasMore", page.getHasMore());
         
         return ResponseEntity.ok(response);
     }
     
     /**
-     * GET /api/notifications/unread - Obtener notificaciones no leídas
+     * GET /api/notifications/inbox - Bandeja paginada por cursor (?cursor=&limit=&unreadOnly=)
      */
+    @GetMapping("/inbox")
+    public ResponseEntity<Map<String, Object>> getInbox(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean unreadOnly) {
+        
+        NotificationPageDTO page = notificationService.getInbox(currentUser.getId(), cursor, limit, unreadOnly);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", page);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/unread - Primera página de notificaciones no leídas
+     * @deprecated usar /inbox?unreadOnly=true; solo devuelve la primera página (?limit=)
+     */
+    @Deprecated
     @GetMapping("/unread")
     public ResponseEntity<Map<String, Object>> getUnreadNotifications(
-            @AuthenticationPrincipal UserPrincipal currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam(required = false) Integer limit) {
         
-        List<NotificationLog> notifications = notificationService.getUnreadNotifications(currentUser.getId());
+        NotificationPageDTO page = notificationService.getInbox(currentUser.getId(), null, limit, true);
         long unreadCount = notificationService.countUnread(currentUser.getId());
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("data", notifications);
+        response.put("data", page.getItems());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasMore", page.getHasMore());
         response.put("unreadCount", unreadCount);
         
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/notifications/unread-count - Cantidad de no leídas (badge)
+     */
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Object>> getUnreadCount(
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("unreadCount", notificationService.countUnread(currentUser.getId()));
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * POST /api/notifications/{id}/read - Marcar como leída
      */
     @PostMapping("/{id}/read")
-    public ResponseEntity<Map<String, Object>> markAsRead(@PathVariable Long id) {
-        notificationService.markAsRead(id);
+    public ResponseEntity<Map<String, Object>> markAsRead(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @PathVariable Long id) {
+        notificationService.markAsRead(currentUser.getId(), id);
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -86,4 +178,135 @@ public class NotificationController {
         
         return ResponseEntity.ok(response);
     }
+    
+    /**
+     * POST /api/notifications/read-all - Marcar todas como leídas (o hasta ?upToId= inclusive)
+     */
+    @PostMapping("/read-all")
+    public ResponseEntity<Map<String, Object>> markAllAsRead(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam(required = false) Long upToId) {
+        int updated = notificationService.markAllAsRead(currentUser.getId(), upToId);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Notificaciones marcadas como leídas");
+        response.put("updated", updated);
+        response.put("unreadCount", notificationService.countUnread(currentUser.getId()));
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/history - Conteos diarios por tipo de notificaciones ya archivadas (?days=)
+     */
+    @GetMapping("/history")
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam(defaultValue = "90") int days) {
+        List<NotificationDailySummary> summary = retentionService.getDailySummary(currentUser.getId(), days);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", summary);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * POST /api/notifications/retention/run - Lanzar la retención del log en segundo plano (Admin)
+     * Responde 202; el avance se consulta en /retention/stats
+     */
+    @PostMapping("/retention/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> runRetention() {
+        boolean started = retentionService.start();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", started);
+        response.put("message", started ? "Retención iniciada" : "La retención ya está en curso");
+        response.put("data", retentionService.getStats());
+        
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    /**
+     * GET /api/notifications/retention/stats - Métricas de la retención del log (Admin)
+     */
+    @GetMapping("/retention/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRetentionStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", retentionService.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/dispatcher/stats - Métricas de la cola de envíos (Admin)
+     */
+    @GetMapping("/dispatcher/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDispatcherStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", notificationService.getDispatcherStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/coalescer/stats - Métricas del agrupador de notificaciones de pedidos (Admin)
+     */
+    @GetMapping("/coalescer/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCoalescerStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", notificationService.getCoalescerStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/log-writer/stats - Métricas de la escritura por lotes del log (Admin)
+     */
+    @GetMapping("/log-writer/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getLogWriterStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", notificationService.getLogWriterStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/unread-cache/stats - Métricas de los contadores de no leídas (Admin)
+     */
+    @GetMapping("/unread-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getUnreadCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", notificationService.getUnreadCacheStats());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * GET /api/notifications/dead-letters - Notificaciones no entregadas (Admin)
+     */
+    @GetMapping("/dead-letters")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDeadLetters() {
+        List<NotificationDeadLetter> deadLetters = notificationService.getDeadLetters();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", deadLetters);
+        
+        return ResponseEntity.ok(response);
+    }
 }
@@ -141,6 +141,26 @@ public class RestaurantController {
         );
     }
     
+    /**
+     * GET /api/restaurants/top-rated?category=peruana&priceRange=$$&lat=-12.04&lng=-77.04&radius=5&limit=10
+     * Mejor calificados (puntaje bayesiano) por categoría, rango de precio o cercanía
+     */
+    @GetMapping("/top-rated")
+    public ResponseEntity<ApiResponse<List<RestaurantDTO>>> getTopRatedRestaurants(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String priceRange,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false, defaultValue = "10") Integer limit) {
+        int size = Math.max(1, Math.min(limit, 50));
+        List<RestaurantDTO> restaurants = restaurantService.getTopRatedRestaurants(
+                category, priceRange, lat, lng, radius, size);
+        return ResponseEntity.ok(
+                new ApiResponse<>(true, "Restaurantes mejor calificados obtenidos", restaurants)
+        );
+    }
+    
     /**
      * GET /api/restaurants/open-now
      * Obtener solo restaurantes que están abiertos ahora
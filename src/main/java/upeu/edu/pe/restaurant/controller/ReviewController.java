@@ -7,10 +7,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import upeu.edu.pe.restaurant.dto.ReviewDTO;
+import upeu.edu.pe.restaurant.dto.ReviewPageDTO;
+import upeu.edu.pe.restaurant.dto.ReviewSearchHitDTO;
 import upeu.edu.pe.restaurant.dto.ReviewStatisticsDTO;
 import upeu.edu.pe.restaurant.security.UserPrincipal;
 import upeu.edu.pe.restaurant.service.ReviewService;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +64,25 @@ public class ReviewController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/reviews/restaurant/{restaurantId}/page?cursor=&limit=20 - Reseñas paginadas por cursor
+     */
+    @GetMapping("/restaurant/{restaurantId}/page")
+    public ResponseEntity<Map<String, Object>> getRestaurantReviewPage(
+            @PathVariable Long restaurantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        ReviewPageDTO page = reviewService.getRestaurantReviewPage(restaurantId, cursor, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Reseñas obtenidas exitosamente");
+        response.put("data", page);
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * GET /api/reviews/restaurant/{restaurantId}/statistics - Obtener estadísticas
      */
@@ -78,6 +100,27 @@ public class ReviewController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/reviews/search?q=ceviche&restaurantId=1&minRating=4&limit=20 - Buscar en comentarios
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchReviews(
+            @RequestParam String q,
+            @RequestParam(required = false) Long restaurantId,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(required = false) BigDecimal maxRating,
+            @RequestParam(required = false) Integer limit) {
+        
+        List<ReviewSearchHitDTO> hits = reviewService.searchReviews(q, restaurantId, minRating, maxRating, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Búsqueda completada");
+        response.put("data", hits);
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * GET /api/reviews/my - Obtener mis reseñas
      */
@@ -95,6 +138,25 @@ public class ReviewController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/reviews/my/page?cursor=&limit=20 - Mis reseñas paginadas por cursor
+     */
+    @GetMapping("/my/page")
+    public ResponseEntity<Map<String, Object>> getMyReviewPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        
+        ReviewPageDTO page = reviewService.getUserReviewPage(currentUser.getId(), cursor, limit);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Reseñas obtenidas exitosamente");
+        response.put("data", page);
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * GET /api/reviews/order/{orderId}/check - Verificar si pedido tiene reseña
      */
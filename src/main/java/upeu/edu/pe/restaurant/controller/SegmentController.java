@@ -0,0 +1,83 @@
+package upeu.edu.pe.restaurant.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import upeu.edu.pe.restaurant.dto.BroadcastJobDTO;
+import upeu.edu.pe.restaurant.dto.request.SegmentOfferRequest;
+import upeu.edu.pe.restaurant.service.NotificationService;
+import upeu.edu.pe.restaurant.service.SegmentService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/segments")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class SegmentController {
+    
+    private final SegmentService segmentService;
+    private final NotificationService notificationService;
+    
+    /**
+     * GET /api/segments/preview?include=customers&exclude=ordered:14 - Tamaño de un segmento sin enviar nada
+     */
+    @GetMapping("/preview")
+    public ResponseEntity<Map<String, Object>> preview(
+            @RequestParam List<String> include,
+            @RequestParam(required = false) List<String> require,
+            @RequestParam(required = false) List<String> exclude) {
+        
+        SegmentService.Resolution resolution = segmentService.resolve(include, require, exclude);
+        
+        Map<String, Object> data = new HashMap<>();
+        data.put("users", resolution.size());
+        data.put("resolveMicros", resolution.elapsedMicros());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * POST /api/segments/offer - Enviar una oferta a los usuarios de un segmento
+     * El segmento se resuelve al momento; el envío se encola y responde 202 con el id
+     * (estado en GET /api/notifications/broadcasts/{jobId})
+     */
+    @PostMapping("/offer")
+    public ResponseEntity<Map<String, Object>> sendOffer(@Valid @RequestBody SegmentOfferRequest request) {
+        
+        SegmentService.Resolution resolution = segmentService.resolve(
+                request.getInclude(), request.getRequire(), request.getExclude());
+        BroadcastJobDTO job = notificationService.submitUsersOffer(resolution.users().iterator(),
+                request.getTitle(), request.getDescription(), request.getCouponId());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Oferta encolada para el segmento");
+        response.put("segmentUsers", resolution.size());
+        response.put("resolveMicros", resolution.elapsedMicros());
+        response.put("data", job);
+        
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    /**
+     * GET /api/segments/stats - Métricas de los segmentos
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", segmentService.getStats());
+        
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,28 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Estado de un envío masivo que corre en segundo plano
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastJobDTO {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+    
+    private String id;
+    private String type;                // "broadcast", "segment-offer"
+    private Status status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private BroadcastResultDTO result;  // null hasta que termina
+    private String error;               // Motivo si falló
+}
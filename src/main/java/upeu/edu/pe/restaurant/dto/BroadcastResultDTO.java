@@ -0,0 +1,24 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de un envío broadcast
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BroadcastResultDTO {
+    
+    private long tokens;
+    private long chunks;
+    private long success;
+    private long failure;
+    private long invalidTokens;
+    private long users;
+    private long elapsedMs;
+}
@@ -0,0 +1,23 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Avance de una generación de cupones en lote (una línea por bloque insertado)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCouponProgressDTO {
+    
+    private Integer requested;
+    private Integer inserted;
+    private Integer duplicates; // Códigos que ya existían (de otra campaña) y se reemplazaron
+    private Long elapsedMs;
+    private Boolean done;
+    private String error; // Motivo si la generación se cortó antes de terminar (los bloques ya insertados quedan)
+}
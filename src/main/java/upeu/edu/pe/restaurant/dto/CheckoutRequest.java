@@ -0,0 +1,36 @@
+package upeu.edu.pe.restaurant.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Checkout en una sola llamada: precio, cupón, pago y orden.
+ * Los precios se toman del menú; el precio de cada item, si se envía, se ignora.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    
+    @NotNull(message = "El ID del restaurante es requerido")
+    private Long restaurantId;
+    
+    @Valid
+    @NotEmpty(message = "Los items de la orden son requeridos")
+    private List<CreateOrderRequest.OrderItemRequest> items;
+    
+    private String couponCode;
+    private String deliveryAddress;
+    private Double deliveryLatitude;
+    private Double deliveryLongitude;
+    private String notes;
+    
+    private String paymentMethod; // "card" (Stripe) o "cash"
+    private String currency;      // usd, pen, etc.
+}
@@ -0,0 +1,24 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Resultado del checkout
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutResponse {
+    
+    private OrderDTO order;
+    private PaymentIntentResponse payment; // null si el pago es en efectivo
+    private OrderPricingDTO pricing;       // Desglose: subtotal, promoción, cupón, delivery
+    
+    private Map<String, Long> timingsMs; // Duración de cada etapa
+}
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 /**
  * DTO para Cupón
@@ -29,5 +30,10 @@ public class CouponDTO {
     private Integer usageLimit;
     private Integer usageCount;
     private Integer userUsageLimit;
+    private Long restaurantId;
+    private String categories; // Separadas por coma
+    private Boolean firstOrderOnly;
+    private LocalTime validFromTime;
+    private LocalTime validUntilTime;
     private LocalDateTime createdAt;
 }
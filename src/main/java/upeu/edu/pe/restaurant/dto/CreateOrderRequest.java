@@ -20,16 +20,14 @@ public class CreateOrderRequest {
     @NotEmpty(message = "Los items de la orden son requeridos")
     private List<OrderItemRequest> items;
     
-    @NotNull(message = "El subtotal es requerido")
+    // Montos informativos del cliente: el servidor los recalcula (OrderPricingService)
     private BigDecimal subtotal;
-    
-    @NotNull(message = "El costo de delivery es requerido")
     private BigDecimal deliveryFee;
-    
-    @NotNull(message = "El total es requerido")
     private BigDecimal totalAmount;
     
     private String deliveryAddress;
+    private Double deliveryLatitude;
+    private Double deliveryLongitude;
     private String notes;
     
     // ✅ Nuevos campos para pagos con Stripe
@@ -47,7 +45,6 @@ public class CreateOrderRequest {
         @NotNull(message = "La cantidad es requerida")
         private Integer quantity;
         
-        @NotNull(message = "El precio es requerido")
-        private BigDecimal price;
+        private BigDecimal price; // Ignorado: se usa el precio del menú
     }
 }
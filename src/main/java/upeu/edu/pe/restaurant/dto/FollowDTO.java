@@ -0,0 +1,22 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Restaurante o categoría que sigue el usuario
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowDTO {
+    
+    private Long id;
+    private String targetType; // RESTAURANT, CATEGORY
+    private String targetKey;  // id del restaurante o nombre de la categoría
+    private String topic;
+    private LocalDateTime createdAt;
+}
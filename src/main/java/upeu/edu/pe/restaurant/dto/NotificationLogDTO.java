@@ -0,0 +1,24 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificación de la bandeja del usuario
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogDTO {
+    
+    private Long id;
+    private String type;
+    private String title;
+    private String body;
+    private String data; // JSON con datos adicionales
+    private LocalDateTime sentAt;
+    private LocalDateTime readAt;
+}
@@ -0,0 +1,23 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de la bandeja de notificaciones paginada por cursor (keyset)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPageDTO {
+    
+    private List<NotificationLogDTO> items;
+    
+    // Cursor opaco para pedir la siguiente página (null si no hay más)
+    private String nextCursor;
+    
+    private Boolean hasMore;
+}
@@ -20,6 +20,7 @@ public class OrderDTO {
     private String restaurantImage;
     private String status;
     private BigDecimal subtotal;
+    private BigDecimal discount;
     private BigDecimal deliveryFee;
     private BigDecimal totalAmount;
     private String deliveryAddress;
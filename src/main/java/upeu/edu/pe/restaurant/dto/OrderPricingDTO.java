@@ -0,0 +1,50 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Desglose del precio de un pedido calculado en el servidor
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPricingDTO {
+    
+    private Long restaurantId;
+    private List<Line> items;
+    
+    private BigDecimal subtotal;
+    private Integer promotionPercentage;
+    private BigDecimal promotionDiscount;
+    private CouponValidationResponse coupon; // null si no se envió cupón
+    private BigDecimal couponDiscount;
+    private Double distanceKm;               // null si no se conoce la ubicación de entrega
+    private BigDecimal deliveryFee;
+    private BigDecimal total;
+    
+    /**
+     * Descuento total (promoción + cupón)
+     */
+    public BigDecimal getDiscount() {
+        return promotionDiscount.add(couponDiscount);
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private String productName;
+        private BigDecimal unitPrice;
+        private Integer quantity;
+        private BigDecimal lineTotal;
+    }
+}
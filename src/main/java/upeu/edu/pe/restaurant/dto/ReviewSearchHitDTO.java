@@ -0,0 +1,19 @@
+package upeu.edu.pe.restaurant.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de búsqueda de texto en reseñas
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSearchHitDTO {
+    
+    private ReviewDTO review;
+    
+    // Relevancia BM25 (mayor = más relevante)
+    private Double score;
+}
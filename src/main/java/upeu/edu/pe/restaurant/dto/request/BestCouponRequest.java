@@ -0,0 +1,28 @@
+package upeu.edu.pe.restaurant.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Request para buscar el mejor cupón aplicable a un carrito
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BestCouponRequest {
+    
+    @NotNull(message = "El total del carrito es requerido")
+    @Positive(message = "El total debe ser mayor a 0")
+    private BigDecimal cartTotal;
+    
+    private Long restaurantId;
+    private List<Long> productIds;
+}
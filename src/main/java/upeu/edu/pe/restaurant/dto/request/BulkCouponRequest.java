@@ -0,0 +1,60 @@
+package upeu.edu.pe.restaurant.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Request para generar cupones de un solo uso en lote
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCouponRequest {
+    
+    @NotNull(message = "La cantidad es requerida")
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    private Integer quantity;
+    
+    @Pattern(regexp = "[A-Z0-9-]{0,20}", message = "El prefijo solo admite A-Z, 0-9 y guiones (máx. 20)")
+    private String prefix; // "VERANO-"
+    
+    @Min(value = 4, message = "La longitud mínima es 4")
+    @Max(value = 20, message = "La longitud máxima es 20")
+    @Builder.Default
+    private Integer codeLength = 8;
+    
+    @Pattern(regexp = "[A-Z0-9]{2,36}", message = "El alfabeto solo admite A-Z y 0-9")
+    private String alphabet; // null = sin caracteres ambiguos (0/O, 1/I)
+    
+    @NotBlank(message = "La descripción es requerida")
+    private String description;
+    
+    @NotBlank(message = "El tipo de descuento es requerido")
+    private String discountType; // "FIXED" o "PERCENTAGE"
+    
+    @NotNull(message = "El valor del descuento es requerido")
+    @Positive(message = "El valor del descuento debe ser mayor a 0")
+    private BigDecimal discountValue;
+    
+    private BigDecimal minimumAmount;
+    private BigDecimal maximumDiscount;
+    private LocalDateTime expiresAt;
+    
+    @Builder.Default
+    private Integer usageLimit = 1;
+    
+    @Builder.Default
+    private Integer userUsageLimit = 1;
+}
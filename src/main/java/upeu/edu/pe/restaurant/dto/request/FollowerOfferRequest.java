@@ -0,0 +1,25 @@
+package upeu.edu.pe.restaurant.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request para anunciar una oferta a los seguidores de un restaurante
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowerOfferRequest {
+    
+    @NotBlank(message = "El título es requerido")
+    private String title;
+    
+    @NotBlank(message = "La descripción es requerida")
+    private String description;
+    
+    private String couponId;
+}
@@ -0,0 +1,36 @@
+package upeu.edu.pe.restaurant.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request para enviar una oferta a un segmento de usuarios:
+ * (OR de include) AND (cada require) ANDNOT (OR de exclude)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentOfferRequest {
+    
+    @NotEmpty(message = "Se requiere al menos un segmento")
+    private List<String> include;
+    
+    private List<String> require;
+    
+    private List<String> exclude;
+    
+    @NotBlank(message = "El título es requerido")
+    private String title;
+    
+    @NotBlank(message = "La descripción es requerida")
+    private String description;
+    
+    private String couponId;
+}
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * Request para validar un cupón
@@ -25,4 +26,8 @@ public class ValidateCouponRequest {
     @NotNull(message = "El total del carrito es requerido")
     @Positive(message = "El total debe ser mayor a 0")
     private BigDecimal cartTotal;
+    
+    // Contenido del carrito, para cupones con condiciones de restaurante o categoría
+    private Long restaurantId;
+    private List<Long> productIds;
 }
@@ -5,6 +5,7 @@ import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 /**
  * Entidad Coupon para sistema de cupones de descuento
@@ -58,6 +59,23 @@ public class Coupon {
     @Column
     private Integer userUsageLimit; // Veces que un usuario puede usarlo (null = ilimitado)
     
+    // Condiciones de aplicación (null = sin restricción)
+    @Column(name = "restaurant_id")
+    private Long restaurantId; // Solo para pedidos de este restaurante
+    
+    @Column(name = "target_categories", length = 500)
+    private String categories; // "pizzas,bebidas": el carrito debe incluir alguna
+    
+    @Column(name = "first_order_only")
+    @Builder.Default
+    private Boolean firstOrderOnly = false; // Solo para el primer pedido del usuario
+    
+    @Column(name = "valid_from_time")
+    private LocalTime validFromTime; // Happy hour: inicio de la franja diaria
+    
+    @Column(name = "valid_until_time")
+    private LocalTime validUntilTime; // Happy hour: fin de la franja diaria
+    
     @Column(nullable = false, updatable = false)
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
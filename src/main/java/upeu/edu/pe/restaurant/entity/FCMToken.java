@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "fcm_tokens", indexes = {
     @Index(name = "idx_user_id_fcm", columnList = "user_id"),
-    @Index(name = "idx_is_active", columnList = "is_active")
+    @Index(name = "idx_fcm_user_id_id", columnList = "user_id, id"),
+    @Index(name = "idx_is_active", columnList = "is_active"),
+    @Index(name = "idx_fcm_inactive_updated", columnList = "is_active, updated_at")
 }, uniqueConstraints = {
     @UniqueConstraint(name = "unique_token", columnNames = {"token"})
 })
@@ -0,0 +1,49 @@
+package upeu.edu.pe.restaurant.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Suscripción de un usuario a las novedades de un restaurante o de una categoría.
+ * Cada destino corresponde a un topic de FCM (ver FollowService.topicFor).
+ */
+@Entity
+@Table(name = "follows", indexes = {
+    @Index(name = "idx_follows_target", columnList = "target_type, target_key, id")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_follows_user_target", columnNames = {"user_id", "target_type", "target_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Follow {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false, length = 20)
+    private TargetType targetType;
+    
+    // Id del restaurante o nombre normalizado de la categoría
+    @Column(name = "target_key", nullable = false, length = 100)
+    private String targetKey;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum TargetType {
+        RESTAURANT,
+        CATEGORY
+    }
+}
@@ -0,0 +1,45 @@
+package upeu.edu.pe.restaurant.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen diario por usuario y tipo de las notificaciones que ya se borraron de notifications_log
+ * (lo mantiene NotificationRetentionService al purgar)
+ */
+@Entity
+@Table(name = "notification_daily_summaries", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_notification_summary_user_type_day",
+            columnNames = {"user_id", "notification_type", "day"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDailySummary {
+    
+    // user_id de los resúmenes de notificaciones del log sin usuario
+    public static final long NO_USER = 0L;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "notification_type", nullable = false)
+    private String notificationType;
+    
+    @Column(nullable = false)
+    private LocalDate day;
+    
+    @Column(name = "notification_count", nullable = false)
+    private Long notificationCount = 0L;
+    
+    @Column(name = "read_count", nullable = false)
+    private Long readCount = 0L;
+}
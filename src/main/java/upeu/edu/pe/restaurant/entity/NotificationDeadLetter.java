@@ -0,0 +1,57 @@
+package upeu.edu.pe.restaurant.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificación push que no se pudo entregar después de los reintentos (o por un error no recuperable)
+ */
+@Entity
+@Table(name = "notification_dead_letters", indexes = {
+    @Index(name = "idx_dead_letter_failed_at", columnList = "failed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDeadLetter {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "notification_type")
+    private String notificationType;
+    
+    @Column(nullable = false)
+    private String title;
+    
+    @Column(columnDefinition = "TEXT")
+    private String body;
+    
+    @Column(columnDefinition = "TEXT")
+    private String data; // JSON con datos adicionales
+    
+    @Column(columnDefinition = "TEXT")
+    private String tokens; // Tokens no entregados, uno por línea
+    
+    @Column(name = "token_count")
+    private Integer tokenCount;
+    
+    @Column(nullable = false)
+    private Integer attempts;
+    
+    @Column(length = 500)
+    private String error;
+    
+    @CreationTimestamp
+    @Column(name = "failed_at", nullable = false, updatable = false)
+    private LocalDateTime failedAt;
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "notifications_log", indexes = {
     @Index(name = "idx_user_id_notif", columnList = "user_id"),
-    @Index(name = "idx_sent_at", columnList = "sent_at")
+    @Index(name = "idx_sent_at", columnList = "sent_at"),
+    @Index(name = "idx_notifications_user_inbox", columnList = "user_id, sent_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -36,6 +36,16 @@ public class Order {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal totalAmount;
     
+    // Desglose calculado en el servidor (null en órdenes anteriores al cálculo de precios)
+    @Column(precision = 10, scale = 2)
+    private BigDecimal subtotal;
+    
+    @Column(name = "discount_amount", precision = 10, scale = 2)
+    private BigDecimal discountAmount;
+    
+    @Column(name = "delivery_fee", precision = 10, scale = 2)
+    private BigDecimal deliveryFee;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
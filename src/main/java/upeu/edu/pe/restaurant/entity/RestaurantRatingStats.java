@@ -0,0 +1,89 @@
+package upeu.edu.pe.restaurant.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Agregado de calificaciones por restaurante, mantenido incrementalmente
+ * desde ReviewService (suma, total y histograma de 6 cubetas: 0..5 estrellas)
+ */
+@Entity
+@Table(name = "restaurant_rating_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestaurantRatingStats {
+
+    public static final int BUCKETS = 6;
+
+    @Id
+    @Column(name = "restaurant_id")
+    private Long restaurantId;
+
+    @Column(name = "rating_sum", nullable = false, precision = 14, scale = 1)
+    private BigDecimal ratingSum = BigDecimal.ZERO;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount = 0L;
+
+    // Histograma: FLOOR(rating) -> cantidad de reseñas
+    @Column(name = "stars_0", nullable = false)
+    private Long stars0 = 0L;
+
+    @Column(name = "stars_1", nullable = false)
+    private Long stars1 = 0L;
+
+    @Column(name = "stars_2", nullable = false)
+    private Long stars2 = 0L;
+
+    @Column(name = "stars_3", nullable = false)
+    private Long stars3 = 0L;
+
+    @Column(name = "stars_4", nullable = false)
+    private Long stars4 = 0L;
+
+    @Column(name = "stars_5", nullable = false)
+    private Long stars5 = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Cubeta del histograma para un rating (FLOOR, acotado a 0..5)
+     */
+    public static int bucketOf(BigDecimal rating) {
+        int bucket = rating.setScale(0, RoundingMode.FLOOR).intValue();
+        return Math.max(0, Math.min(BUCKETS - 1, bucket));
+    }
+
+    /**
+     * Promedio con la escala indicada (0 si no hay reseñas)
+     */
+    public BigDecimal average(int scale) {
+        if (reviewCount == null || reviewCount == 0) {
+            return BigDecimal.ZERO;
+        }
+        return ratingSum.divide(BigDecimal.valueOf(reviewCount), scale, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Cantidad de reseñas en una cubeta del histograma
+     */
+    public long countForBucket(int bucket) {
+        return switch (bucket) {
+            case 0 -> stars0;
+            case 1 -> stars1;
+            case 2 -> stars2;
+            case 3 -> stars3;
+            case 4 -> stars4;
+            case 5 -> stars5;
+            default -> 0L;
+        };
+    }
+}
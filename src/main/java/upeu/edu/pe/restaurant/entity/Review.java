@@ -17,7 +17,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_restaurant_id", columnList = "restaurant_id"),
     @Index(name = "idx_user_id", columnList = "user_id"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_order_id", columnList = "order_id")
+    @Index(name = "idx_order_id", columnList = "order_id"),
+    @Index(name = "idx_reviews_restaurant_feed", columnList = "restaurant_id, created_at, id"),
+    @Index(name = "idx_reviews_user_feed", columnList = "user_id, created_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -0,0 +1,21 @@
+package upeu.edu.pe.restaurant.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado por FCMTokenService cuando un token se activa o deja de usarse.
+ * FollowService lo consume después del commit para mantener las suscripciones a topics.
+ */
+@Getter
+@AllArgsConstructor
+public class FCMTokenChangedEvent {
+    
+    public enum Type {
+        ACTIVATED, REMOVED
+    }
+    
+    private final Type type;
+    private final Long userId;
+    private final String token;
+}
@@ -0,0 +1,22 @@
+package upeu.edu.pe.restaurant.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Evento publicado por OrderService al crear un pedido.
+ * SegmentService lo consume después del commit para actualizar los segmentos de usuarios.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+    
+    private final Long orderId;
+    private final Long userId;
+    private final Long restaurantId;
+    private final List<String> categories; // categorías del restaurante al momento del pedido
+    private final LocalDateTime createdAt;
+}
@@ -0,0 +1,15 @@
+package upeu.edu.pe.restaurant.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Evento publicado por RestaurantService al crear, editar, desactivar o eliminar un restaurante.
+ * El ranking lo consume después del commit para releer el restaurante o sacarlo del índice.
+ */
+@Getter
+@AllArgsConstructor
+public class RestaurantChangedEvent {
+    
+    private final Long restaurantId;
+}
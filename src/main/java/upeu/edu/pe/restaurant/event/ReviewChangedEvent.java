@@ -0,0 +1,27 @@
+package upeu.edu.pe.restaurant.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Evento publicado por ReviewService al crear, editar o eliminar una reseña.
+ * Los índices en memoria (búsqueda, ranking, segmentos) lo consumen después del commit.
+ */
+@Getter
+@AllArgsConstructor
+public class ReviewChangedEvent {
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+    
+    private final Type type;
+    private final Long reviewId;
+    private final Long userId;
+    private final Long restaurantId;
+    private final BigDecimal oldRating; // null en CREATED
+    private final BigDecimal newRating; // null en DELETED
+    private final String comment;       // comentario vigente (null en DELETED)
+}
@@ -2,7 +2,9 @@ package upeu.edu.pe.restaurant.repository;
 
 import upeu.edu.pe.restaurant.entity.Coupon;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -28,8 +30,39 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
     @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND (c.expiresAt IS NULL OR c.expiresAt > :now)")
     List<Coupon> findActiveCoupons(LocalDateTime now);
     
+    /**
+     * Cupones vigentes que se pueden sugerir (excluye los códigos de un solo uso de campañas)
+     */
+    @Query("SELECT c FROM Coupon c WHERE c.isActive = true AND (c.expiresAt IS NULL OR c.expiresAt > :now) " +
+           "AND (c.usageLimit IS NULL OR c.usageLimit > 1)")
+    List<Coupon> findSuggestableCoupons(@Param("now") LocalDateTime now);
+    
     /**
      * Verificar si un código existe
      */
     boolean existsByCodeIgnoreCase(String code);
+    
+    /**
+     * Códigos vigentes o vencidos después de una fecha (para el filtro de Bloom)
+     */
+    @Query("SELECT c.code FROM Coupon c WHERE c.expiresAt IS NULL OR c.expiresAt > :since")
+    List<String> findCodesExpiringAfter(@Param("since") LocalDateTime since);
+    
+    /**
+     * Reservar usos de forma atómica: solo incrementa si el cupón está vigente
+     * y el incremento no supera usageLimit. Devuelve 1 si se reservó, 0 si no.
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usageCount = c.usageCount + :slots, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.isActive = true " +
+           "AND (c.expiresAt IS NULL OR c.expiresAt > :now) " +
+           "AND (c.usageLimit IS NULL OR c.usageCount + :slots <= c.usageLimit)")
+    int reserveUsage(@Param("id") Long id, @Param("slots") int slots, @Param("now") LocalDateTime now);
+    
+    /**
+     * Devolver usos reservados y no consumidos
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usageCount = c.usageCount - :slots WHERE c.id = :id AND c.usageCount >= :slots")
+    int releaseUsage(@Param("id") Long id, @Param("slots") int slots);
 }
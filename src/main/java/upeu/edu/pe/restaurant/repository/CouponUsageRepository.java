@@ -4,18 +4,43 @@ import upeu.edu.pe.restaurant.entity.Coupon;
 import upeu.edu.pe.restaurant.entity.CouponUsage;
 import upeu.edu.pe.restaurant.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long> {
     
+    /**
+     * Usos de un cupón por un usuario
+     */
+    interface CouponUsageCount {
+        Long getCouponId();
+        Long getUsageCount();
+    }
+    
     /**
      * Contar usos de un cupón por un usuario
      */
     long countByUserAndCoupon(User user, Coupon coupon);
     
+    /**
+     * Contar usos de un cupón por un usuario (sin cargar las entidades)
+     */
+    @Query("SELECT COUNT(u) FROM CouponUsage u WHERE u.user.id = :userId AND u.coupon.id = :couponId")
+    long countByUserIdAndCouponId(@Param("userId") Long userId, @Param("couponId") Long couponId);
+    
+    /**
+     * Contar usos de varios cupones por un usuario en una sola consulta (los cupones sin usos no aparecen)
+     */
+    @Query("SELECT u.coupon.id AS couponId, COUNT(u) AS usageCount FROM CouponUsage u " +
+           "WHERE u.user.id = :userId AND u.coupon.id IN :couponIds GROUP BY u.coupon.id")
+    List<CouponUsageCount> countByUserIdGroupedByCoupon(@Param("userId") Long userId,
+                                                        @Param("couponIds") Collection<Long> couponIds);
+    
     /**
      * Obtener historial de cupones de un usuario
      */
@@ -1,27 +1,64 @@
 package upeu.edu.pe.restaurant.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import upeu.edu.pe.restaurant.entity.FCMToken;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FCMTokenRepository extends JpaRepository<FCMToken, Long> {
     
+    /**
+     * Vista mínima de un token para envíos masivos
+     */
+    interface ActiveTokenView {
+        Long getId();
+        Long getUserId();
+        String getToken();
+    }
+    
     // Buscar token específico
     Optional<FCMToken> findByToken(String token);
     
     // Obtener todos los tokens activos de un usuario
     List<FCMToken> findByUserIdAndIsActiveTrue(Long userId);
     
+    // Solo el valor de los tokens activos de un usuario (para envíos)
+    @Query("SELECT t.token FROM FCMToken t WHERE t.userId = :userId AND t.isActive = true")
+    List<String> findActiveTokenValuesByUserId(@Param("userId") Long userId);
+    
     // Obtener todos los tokens de un usuario (activos e inactivos)
     List<FCMToken> findByUserId(Long userId);
     
+    // Primera página de tokens activos en orden (usuario, id): los tokens de un usuario quedan contiguos
+    List<ActiveTokenView> findByIsActiveTrueOrderByUserIdAscIdAsc(Limit limit);
+    
+    // Página siguiente de tokens activos (keyset: después de usuario/id del último visto)
+    @Query("SELECT t.id AS id, t.userId AS userId, t.token AS token FROM FCMToken t " +
+           "WHERE t.isActive = true AND (t.userId > :userId OR (t.userId = :userId AND t.id > :id)) " +
+           "ORDER BY t.userId ASC, t.id ASC")
+    List<ActiveTokenView> findActivePageAfter(@Param("userId") Long userId, @Param("id") Long id, Limit limit);
+    
+    // Tokens activos de un lote de usuarios (envíos a segmentos), en orden (usuario, id)
+    List<ActiveTokenView> findByIsActiveTrueAndUserIdInOrderByUserIdAscIdAsc(Collection<Long> userIds);
+    
     // Verificar si existe un token
     boolean existsByToken(String token);
     
-    // Eliminar tokens inactivos antiguos (opcional, para limpieza)
-    void deleteByIsActiveFalse();
+    // Eliminar un lote de tokens desactivados antes de la fecha indicada
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM fcm_tokens WHERE id IN (" +
+            "SELECT id FROM fcm_tokens WHERE is_active = false AND updated_at < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteInactiveBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 }
@@ -0,0 +1,32 @@
+package upeu.edu.pe.restaurant.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import upeu.edu.pe.restaurant.entity.Follow;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, Long> {
+    
+    /**
+     * Vista mínima de un seguidor para recorrer la audiencia de un destino
+     */
+    interface FollowerView {
+        Long getId();
+        Long getUserId();
+    }
+    
+    // Suscripciones de un usuario (pantalla para dejar de seguir)
+    List<Follow> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    Optional<Follow> findByUserIdAndTargetTypeAndTargetKey(Long userId, Follow.TargetType targetType, String targetKey);
+    
+    // Página de seguidores de un destino con id mayor al último visto (keyset)
+    List<FollowerView> findByTargetTypeAndTargetKeyAndIdGreaterThanOrderByIdAsc(
+            Follow.TargetType targetType, String targetKey, Long afterId, Limit limit);
+    
+    long countByTargetTypeAndTargetKey(Follow.TargetType targetType, String targetKey);
+}
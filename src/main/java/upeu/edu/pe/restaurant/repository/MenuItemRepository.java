@@ -2,8 +2,11 @@ package upeu.edu.pe.restaurant.repository;
 
 import upeu.edu.pe.restaurant.entity.MenuItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +14,7 @@ public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
     List<MenuItem> findByRestaurantId(Long restaurantId);
     List<MenuItem> findByRestaurantIdAndIsAvailableTrue(Long restaurantId);
     List<MenuItem> findByCategory(String category);
+    
+    @Query("SELECT DISTINCT LOWER(m.category) FROM MenuItem m WHERE m.id IN :ids AND m.category IS NOT NULL")
+    List<String> findCategoriesByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,15 @@
+package upeu.edu.pe.restaurant.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import upeu.edu.pe.restaurant.entity.NotificationDailySummary;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface NotificationDailySummaryRepository extends JpaRepository<NotificationDailySummary, Long> {
+    
+    // Historial resumido de un usuario desde una fecha
+    List<NotificationDailySummary> findByUserIdAndDayGreaterThanEqualOrderByDayDesc(Long userId, LocalDate from);
+}
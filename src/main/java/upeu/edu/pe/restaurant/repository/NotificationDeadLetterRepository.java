@@ -0,0 +1,14 @@
+package upeu.edu.pe.restaurant.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import upeu.edu.pe.restaurant.entity.NotificationDeadLetter;
+
+import java.util.List;
+
+@Repository
+public interface NotificationDeadLetterRepository extends JpaRepository<NotificationDeadLetter, Long> {
+    
+    // Últimas notificaciones no entregadas
+    List<NotificationDeadLetter> findTop100ByOrderByFailedAtDesc();
+}
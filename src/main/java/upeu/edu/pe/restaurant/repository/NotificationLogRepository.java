@@ -1,23 +1,71 @@
 package upeu.edu.pe.restaurant.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import upeu.edu.pe.restaurant.entity.NotificationLog;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificationLogRepository extends JpaRepository<NotificationLog, Long> {
     
-    // Obtener notificaciones de un usuario
-    List<NotificationLog> findByUserIdOrderBySentAtDesc(Long userId);
+    // Primera página de la bandeja (índice user_id, sent_at, id)
+    List<NotificationLog> findByUserIdOrderBySentAtDescIdDesc(Long userId, Pageable pageable);
     
-    // Obtener notificaciones no leídas de un usuario
-    List<NotificationLog> findByUserIdAndReadAtIsNullOrderBySentAtDesc(Long userId);
+    // Primera página de no leídas
+    List<NotificationLog> findByUserIdAndReadAtIsNullOrderBySentAtDescIdDesc(Long userId, Pageable pageable);
+    
+    // Página siguiente de la bandeja (keyset: después de sentAt/id del cursor)
+    @Query("SELECT n FROM NotificationLog n WHERE n.userId = :userId " +
+           "AND (n.sentAt < :sentAt OR (n.sentAt = :sentAt AND n.id < :id)) " +
+           "ORDER BY n.sentAt DESC, n.id DESC")
+    List<NotificationLog> findInboxAfter(@Param("userId") Long userId,
+                                         @Param("sentAt") LocalDateTime sentAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+    
+    // Página siguiente de no leídas
+    @Query("SELECT n FROM NotificationLog n WHERE n.userId = :userId AND n.readAt IS NULL " +
+           "AND (n.sentAt < :sentAt OR (n.sentAt = :sentAt AND n.id < :id)) " +
+           "ORDER BY n.sentAt DESC, n.id DESC")
+    List<NotificationLog> findUnreadInboxAfter(@Param("userId") Long userId,
+                                               @Param("sentAt") LocalDateTime sentAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+    
+    boolean existsByIdAndUserId(Long id, Long userId);
+    
+    // Marcar como leída una notificación del usuario (1 si estaba sin leer)
+    @Modifying
+    @Query("UPDATE NotificationLog n SET n.readAt = :now " +
+           "WHERE n.id = :id AND n.userId = :userId AND n.readAt IS NULL")
+    int markAsRead(@Param("userId") Long userId, @Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    // Marcar como leídas todas las notificaciones del usuario
+    @Modifying
+    @Query("UPDATE NotificationLog n SET n.readAt = :now WHERE n.userId = :userId AND n.readAt IS NULL")
+    int markAllAsRead(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    // Marcar como leídas las notificaciones del usuario hasta un id (inclusive)
+    @Modifying
+    @Query("UPDATE NotificationLog n SET n.readAt = :now " +
+           "WHERE n.userId = :userId AND n.readAt IS NULL AND n.id <= :upToId")
+    int markAsReadUpTo(@Param("userId") Long userId, @Param("upToId") Long upToId, @Param("now") LocalDateTime now);
     
     // Contar notificaciones no leídas
     long countByUserIdAndReadAtIsNull(Long userId);
     
+    // Contar no leídas de varios usuarios: filas [userId, count]
+    @Query("SELECT n.userId, COUNT(n) FROM NotificationLog n " +
+           "WHERE n.userId IN :userIds AND n.readAt IS NULL GROUP BY n.userId")
+    List<Object[]> countUnreadByUserIds(@Param("userIds") Collection<Long> userIds);
+    
     // Obtener notificaciones por tipo
     List<NotificationLog> findByNotificationTypeOrderBySentAtDesc(String notificationType);
 }
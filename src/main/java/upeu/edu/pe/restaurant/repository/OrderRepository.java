@@ -6,11 +6,22 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    /**
+     * Vista mínima de un pedido para construir segmentos de usuarios
+     */
+    interface OrderActivityView {
+        Long getId();
+        Long getUserId();
+        Long getRestaurantId();
+        LocalDateTime getCreatedAt();
+    }
+    
     // Obtener pedidos por usuario (relación ManyToOne)
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC")
     List<Order> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
@@ -56,4 +67,13 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     @Query("SELECT o FROM Order o WHERE o.paymentIntentId = :paymentIntentId")
     java.util.Optional<Order> findByPaymentIntentId(@Param("paymentIntentId") String paymentIntentId);
+    
+    /**
+     * Recorrer los pedidos en lotes por id, sin los de un estado (construcción de segmentos)
+     */
+    @Query("SELECT o.id AS id, o.user.id AS userId, o.restaurant.id AS restaurantId, o.createdAt AS createdAt " +
+           "FROM Order o WHERE o.id > :afterId AND o.status <> :excluded ORDER BY o.id")
+    List<OrderActivityView> findActivityAfter(@Param("afterId") Long afterId,
+                                              @Param("excluded") Order.Status excluded,
+                                              org.springframework.data.domain.Pageable pageable);
 }
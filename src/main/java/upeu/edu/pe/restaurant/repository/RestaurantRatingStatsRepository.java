@@ -0,0 +1,120 @@
+package upeu.edu.pe.restaurant.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+@Repository
+public interface RestaurantRatingStatsRepository extends JpaRepository<RestaurantRatingStats, Long> {
+
+    /**
+     * Aplicar un delta al agregado de un restaurante (upsert atómico en una sola sentencia)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO restaurant_rating_stats " +
+            "(restaurant_id, rating_sum, review_count, stars_0, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at) " +
+            "VALUES (:restaurantId, :sumDelta, :countDelta, :d0, :d1, :d2, :d3, :d4, :d5, NOW()) " +
+            "ON CONFLICT (restaurant_id) DO UPDATE SET " +
+            "rating_sum = restaurant_rating_stats.rating_sum + EXCLUDED.rating_sum, " +
+            "review_count = restaurant_rating_stats.review_count + EXCLUDED.review_count, " +
+            "stars_0 = restaurant_rating_stats.stars_0 + EXCLUDED.stars_0, " +
+            "stars_1 = restaurant_rating_stats.stars_1 + EXCLUDED.stars_1, " +
+            "stars_2 = restaurant_rating_stats.stars_2 + EXCLUDED.stars_2, " +
+            "stars_3 = restaurant_rating_stats.stars_3 + EXCLUDED.stars_3, " +
+            "stars_4 = restaurant_rating_stats.stars_4 + EXCLUDED.stars_4, " +
+            "stars_5 = restaurant_rating_stats.stars_5 + EXCLUDED.stars_5, " +
+            "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int applyDelta(@Param("restaurantId") Long restaurantId,
+                   @Param("sumDelta") BigDecimal sumDelta,
+                   @Param("countDelta") long countDelta,
+                   @Param("d0") long d0, @Param("d1") long d1, @Param("d2") long d2,
+                   @Param("d3") long d3, @Param("d4") long d4, @Param("d5") long d5);
+
+    /**
+     * Suma y total vigentes de un restaurante, leídos de la tabla (no del contexto de persistencia)
+     */
+    @Query(value = "SELECT rating_sum AS \"ratingSum\", review_count AS \"reviewCount\" " +
+            "FROM restaurant_rating_stats WHERE restaurant_id = :restaurantId",
+            nativeQuery = true)
+    Optional<RatingTotals> findTotals(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * Copiar el promedio del agregado a restaurants.rating
+     */
+    @Modifying
+    @Query(value = "UPDATE restaurants SET rating = COALESCE(" +
+            "(SELECT ROUND(s.rating_sum / NULLIF(s.review_count, 0), 2) " +
+            "FROM restaurant_rating_stats s WHERE s.restaurant_id = :restaurantId), 0) " +
+            "WHERE id = :restaurantId",
+            nativeQuery = true)
+    int syncRestaurantRating(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * Bloquear los agregados contra applyDelta hasta el fin de la transacción: las reseñas que
+     * estaban por aplicar su delta esperan, y las que ya lo aplicaron quedan confirmadas antes
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE restaurant_rating_stats IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForBackfill();
+
+    /**
+     * Recalcular desde reviews los agregados que faltan o que no coinciden (p. ej. una fila creada
+     * por applyDelta antes del backfill, que solo tiene las reseñas posteriores)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO restaurant_rating_stats " +
+            "(restaurant_id, rating_sum, review_count, stars_0, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at) " +
+            "SELECT r.restaurant_id, SUM(r.rating), COUNT(*), " +
+            "SUM(CASE WHEN FLOOR(r.rating) <= 0 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN FLOOR(r.rating) = 1 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN FLOOR(r.rating) = 2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN FLOOR(r.rating) = 3 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN FLOOR(r.rating) = 4 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN FLOOR(r.rating) >= 5 THEN 1 ELSE 0 END), NOW() " +
+            "FROM reviews r GROUP BY r.restaurant_id " +
+            "ON CONFLICT (restaurant_id) DO UPDATE SET " +
+            "rating_sum = EXCLUDED.rating_sum, " +
+            "review_count = EXCLUDED.review_count, " +
+            "stars_0 = EXCLUDED.stars_0, " +
+            "stars_1 = EXCLUDED.stars_1, " +
+            "stars_2 = EXCLUDED.stars_2, " +
+            "stars_3 = EXCLUDED.stars_3, " +
+            "stars_4 = EXCLUDED.stars_4, " +
+            "stars_5 = EXCLUDED.stars_5, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "WHERE restaurant_rating_stats.review_count <> EXCLUDED.review_count " +
+            "OR restaurant_rating_stats.rating_sum <> EXCLUDED.rating_sum " +
+            "OR restaurant_rating_stats.stars_0 <> EXCLUDED.stars_0 " +
+            "OR restaurant_rating_stats.stars_1 <> EXCLUDED.stars_1 " +
+            "OR restaurant_rating_stats.stars_2 <> EXCLUDED.stars_2 " +
+            "OR restaurant_rating_stats.stars_3 <> EXCLUDED.stars_3 " +
+            "OR restaurant_rating_stats.stars_4 <> EXCLUDED.stars_4 " +
+            "OR restaurant_rating_stats.stars_5 <> EXCLUDED.stars_5",
+            nativeQuery = true)
+    int backfillFromReviews();
+
+    /**
+     * Sincronizar restaurants.rating con todos los agregados existentes
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE restaurants r SET rating = ROUND(s.rating_sum / s.review_count, 2) " +
+            "FROM restaurant_rating_stats s " +
+            "WHERE s.restaurant_id = r.id AND s.review_count > 0",
+            nativeQuery = true)
+    int syncAllRestaurantRatings();
+
+    interface RatingTotals {
+        BigDecimal getRatingSum();
+
+        Long getReviewCount();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,10 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
     List<Restaurant> findByIsActiveTrue();
     List<Restaurant> findByNameContainingIgnoreCase(String name);
     
+    // Resolver nombres en lote: filas [id, name]
+    @Query("SELECT r.id, r.name FROM Restaurant r WHERE r.id IN :ids")
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Long> ids);
+    
     // Consultas para promociones
     List<Restaurant> findByHasPromotionTrueAndIsActiveTrue();
     
@@ -43,4 +48,8 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
     @Query("SELECT DISTINCT r FROM Restaurant r JOIN r.categories c " +
            "WHERE LOWER(c) LIKE LOWER(CONCAT('%', :category, '%')) AND r.isActive = true")
     List<Restaurant> findByCategoryContainingIgnoreCase(@Param("category") String category);
+    
+    // Pares (restaurantId, categoría) de todos los restaurantes
+    @Query("SELECT r.id, c FROM Restaurant r JOIN r.categories c")
+    List<Object[]> findAllCategoryPairs();
 }
@@ -1,5 +1,6 @@
 package upeu.edu.pe.restaurant.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -7,12 +8,24 @@ import org.springframework.stereotype.Repository;
 import upeu.edu.pe.restaurant.entity.Review;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     
+    /**
+     * Vista mínima de una reseña para construir segmentos de usuarios
+     */
+    interface ReviewActivityView {
+        Long getId();
+        Long getUserId();
+        Long getRestaurantId();
+        BigDecimal getRating();
+        LocalDateTime getCreatedAt();
+    }
+    
     // Verificar si existe reseña para un pedido
     boolean existsByOrderId(Long orderId);
     
@@ -25,6 +38,30 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     // Obtener reseñas de un usuario
     List<Review> findByUserIdOrderByCreatedAtDesc(Long userId);
     
+    // Primera página del feed de un restaurante (índice restaurant_id, created_at, id)
+    List<Review> findByRestaurantIdOrderByCreatedAtDescIdDesc(Long restaurantId, Pageable pageable);
+    
+    // Página siguiente del feed de un restaurante (keyset: después de createdAt/id del cursor)
+    @Query("SELECT r FROM Review r WHERE r.restaurantId = :restaurantId " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findRestaurantFeedAfter(@Param("restaurantId") Long restaurantId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+    
+    // Primera página del feed de un usuario (índice user_id, created_at, id)
+    List<Review> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+    
+    // Página siguiente del feed de un usuario
+    @Query("SELECT r FROM Review r WHERE r.userId = :userId " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findUserFeedAfter(@Param("userId") Long userId,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+    
     // Contar reseñas de un restaurante
     long countByRestaurantId(Long restaurantId);
     
@@ -44,6 +81,14 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE r.restaurantId = :restaurantId AND r.rating >= :minRating ORDER BY r.createdAt DESC")
     List<Review> findByRestaurantIdAndMinRating(@Param("restaurantId") Long restaurantId, @Param("minRating") BigDecimal minRating);
     
+    // Recorrer todas las reseñas en lotes por id (construcción de índices en memoria)
+    List<Review> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // Solo usuario, restaurante, calificación y fecha, en lotes por id (construcción de segmentos)
+    @Query("SELECT r.id AS id, r.userId AS userId, r.restaurantId AS restaurantId, r.rating AS rating, " +
+           "r.createdAt AS createdAt FROM Review r WHERE r.id > :afterId ORDER BY r.id")
+    List<ReviewActivityView> findActivityAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
     // Obtener reseñas sin pedido asociado (reseñas generales)
     List<Review> findByOrderIdIsNull();
     
@@ -2,12 +2,20 @@ package upeu.edu.pe.restaurant.repository;
 
 import upeu.edu.pe.restaurant.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByEmail(String email);
+    
+    // Resolver nombres en lote: filas [id, name]
+    @Query("SELECT u.id, u.name FROM User u WHERE u.id IN :ids")
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Long> ids);
 }
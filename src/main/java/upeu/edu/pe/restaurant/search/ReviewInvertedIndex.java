@@ -0,0 +1,303 @@
+package upeu.edu.pe.restaurant.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre comentarios de reseñas con puntaje BM25.
+ *
+ * Cada reseña recibe un docId interno creciente; las listas de postings guardan los
+ * docIds como deltas junto a la frecuencia del término, ambos en varint (7 bits por byte):
+ * un posting típico ocupa 2 bytes en lugar de 8. Una edición
+ * marca el documento anterior como eliminado y agrega uno nuevo; los documentos
+ * eliminados se descartan al reconstruir el índice.
+ */
+public class ReviewInvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> docByReviewId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    // Datos por documento, indexados por docId
+    private long[] reviewIds = new long[INITIAL_CAPACITY];
+    private long[] restaurantIds = new long[INITIAL_CAPACITY];
+    private float[] ratings = new float[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    // Listas de postings de cada documento vivo, para descontarlo de su frecuencia al eliminarlo
+    private Postings[][] docPostings = new Postings[INITIAL_CAPACITY][];
+
+    private int nextDocId;
+    private int liveDocs;
+    private long liveLength;
+
+    /**
+     * Resultado de búsqueda
+     */
+    public record Hit(long reviewId, long restaurantId, double score) {}
+
+    /**
+     * Indexar (o reindexar) una reseña
+     */
+    public void upsert(long reviewId, long restaurantId, double rating, String comment) {
+        List<String> tokens = SpanishTokenizer.tokenize(comment);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(reviewId);
+            if (tokens.isEmpty()) {
+                return;
+            }
+
+            int docId = nextDocId++;
+            ensureCapacity(docId + 1);
+            reviewIds[docId] = reviewId;
+            restaurantIds[docId] = restaurantId;
+            ratings[docId] = (float) rating;
+            lengths[docId] = tokens.size();
+
+            Postings[] terms = new Postings[frequencies.size()];
+            int t = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings list = postings.computeIfAbsent(entry.getKey(), k -> new Postings());
+                list.add(docId, entry.getValue());
+                terms[t++] = list;
+            }
+            docPostings[docId] = terms;
+
+            docByReviewId.put(reviewId, docId);
+            liveDocs++;
+            liveLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quitar una reseña del índice
+     */
+    public void remove(long reviewId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(reviewId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Buscar reseñas por texto con filtros opcionales de restaurante y rango de calificación
+     */
+    public List<Hit> search(String query, Long restaurantId, Double minRating, Double maxRating, int limit) {
+        Set<String> terms = new LinkedHashSet<>(SpanishTokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+
+            double avgLength = (double) liveLength / liveDocs;
+            Map<Integer, Double> scores = new HashMap<>();
+
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null || list.live == 0) {
+                    continue;
+                }
+                // Frecuencia de documentos vivos: los eliminados siguen en la lista hasta reconstruir
+                double idf = Math.log(1 + (liveDocs - list.live + 0.5) / (list.live + 0.5));
+
+                Postings.Cursor cursor = list.cursor();
+                while (cursor.next()) {
+                    int docId = cursor.docId();
+                    if (deleted.get(docId) || !matches(docId, restaurantId, minRating, maxRating)) {
+                        continue;
+                    }
+                    int tf = cursor.frequency();
+                    double norm = tf + K1 * (1 - B + B * lengths[docId] / avgLength);
+                    scores.merge(docId, idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+
+            // Top-k con un min-heap de tamaño limit
+            PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                heap.offer(entry);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                Map.Entry<Integer, Double> entry = heap.poll();
+                int docId = entry.getKey();
+                hits.add(new Hit(reviewIds[docId], restaurantIds[docId], entry.getValue()));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de reseñas indexadas (vivas)
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de términos distintos
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(int docId, Long restaurantId, Double minRating, Double maxRating) {
+        if (restaurantId != null && restaurantIds[docId] != restaurantId) {
+            return false;
+        }
+        if (minRating != null && ratings[docId] < minRating) {
+            return false;
+        }
+        return maxRating == null || ratings[docId] <= maxRating;
+    }
+
+    private void removeInternal(long reviewId) {
+        Integer docId = docByReviewId.remove(reviewId);
+        if (docId != null) {
+            deleted.set(docId);
+            liveDocs--;
+            liveLength -= lengths[docId];
+            for (Postings list : docPostings[docId]) {
+                list.live--;
+            }
+            docPostings[docId] = null;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= reviewIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, reviewIds.length * 2);
+        reviewIds = Arrays.copyOf(reviewIds, newCapacity);
+        restaurantIds = Arrays.copyOf(restaurantIds, newCapacity);
+        ratings = Arrays.copyOf(ratings, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        docPostings = Arrays.copyOf(docPostings, newCapacity);
+    }
+
+    /**
+     * Lista de postings: pares (delta de docId, frecuencia) codificados en varint
+     */
+    static final class Postings {
+        private byte[] data = new byte[8];
+        private int length;
+        private int size;
+        private int lastDocId;
+        // Documentos de la lista que no están eliminados
+        private int live;
+
+        void add(int docId, int frequency) {
+            // Dos varints de hasta 5 bytes cada uno
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            // Los docIds se asignan en orden creciente, así que el delta siempre es positivo
+            writeVarInt(size == 0 ? docId : docId - lastDocId);
+            writeVarInt(frequency);
+            lastDocId = docId;
+            size++;
+            live++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Bytes ocupados por la lista codificada
+         */
+        int byteSize() {
+            return length;
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Recorrido en orden de docId decodificando la lista
+         */
+        final class Cursor {
+            private int position;
+            private int remaining = size;
+            private int docId;
+            private int frequency;
+
+            boolean next() {
+                if (remaining == 0) {
+                    return false;
+                }
+                remaining--;
+                docId += readVarInt();
+                frequency = readVarInt();
+                return true;
+            }
+
+            int docId() {
+                return docId;
+            }
+
+            int frequency() {
+                return frequency;
+            }
+
+            private int readVarInt() {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package upeu.edu.pe.restaurant.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizador para texto en español: minúsculas, sin tildes ("café" = "cafe"),
+ * sin palabras vacías y con plurales simples reducidos ("platos" = "plato")
+ */
+public final class SpanishTokenizer {
+    
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "algo", "ante", "aqui", "asi", "como", "con", "cual", "de", "del", "desde",
+            "donde", "el", "ella", "ellos", "en", "entre", "era", "es", "esa", "ese", "eso", "esta",
+            "este", "esto", "fue", "ha", "hay", "la", "las", "le", "les", "lo", "los", "me", "mi",
+            "mas", "muy", "nos", "o", "para", "pero", "por", "que", "se", "sea", "si", "sin", "sobre",
+            "son", "su", "sus", "tambien", "te", "tu", "un", "una", "uno", "unos", "unas", "y", "ya", "yo"
+    );
+    
+    private static final int MIN_TOKEN_LENGTH = 2;
+    
+    private SpanishTokenizer() {
+    }
+    
+    /**
+     * Convertir un texto en la lista de términos indexables (con repeticiones)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        
+        String folded = fold(text);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                addToken(tokens, current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            addToken(tokens, current.toString());
+        }
+        return tokens;
+    }
+    
+    /**
+     * Minúsculas y eliminación de diacríticos (á -> a, ñ -> n, ü -> u)
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static void addToken(List<String> tokens, String token) {
+        if (token.length() < MIN_TOKEN_LENGTH || STOPWORDS.contains(token)) {
+            return;
+        }
+        tokens.add(stem(token));
+    }
+    
+    /**
+     * Reducción mínima de plurales terminados en vocal + s: "platos" -> "plato", "postres" -> "postre"
+     */
+    private static String stem(String token) {
+        int length = token.length();
+        if (length > 4 && token.endsWith("s") && isVowel(token.charAt(length - 2))) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+    
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
@@ -0,0 +1,154 @@
+package upeu.edu.pe.restaurant.segment;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de actividad de usuarios para segmentar campañas.
+ *
+ * Por cada dimensión ("ordered", "restaurant:15", "category:pizza", ...) guarda un UserBitmap
+ * por día con los usuarios que tuvieron esa actividad ese día. "Actividad en los últimos N días"
+ * es el OR de los N bitmaps diarios; {@code customers} acumula a todos los usuarios vistos.
+ * Las altas se aplican de forma incremental; nada se elimina hasta la próxima reconstrucción.
+ *
+ * Los días anteriores a hoy casi no cambian, así que el OR de esos días se guarda por
+ * dimensión y ventana y en cada consulta solo se le suma el bitmap de hoy. Un alta en un día
+ * pasado descarta las ventanas guardadas de su dimensión.
+ */
+public class SegmentIndex {
+
+    private static final int MAX_CACHED_WINDOWS = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TreeMap<Long, UserBitmap>> days = new HashMap<>();
+    private final UserBitmap customers = new UserBitmap();
+
+    // OR de los días cerrados [since, today) por dimensión; today en la clave invalida al cambiar de día
+    private final Map<WindowKey, UserBitmap> closedWindows = new ConcurrentHashMap<>();
+
+    private record WindowKey(String dimension, long since, long today) {}
+
+    /**
+     * Registrar actividad de un usuario en una dimensión y un día
+     */
+    public void add(String dimension, int userId, LocalDate day) {
+        lock.writeLock().lock();
+        try {
+            long epochDay = day.toEpochDay();
+            days.computeIfAbsent(dimension, d -> new TreeMap<>())
+                    .computeIfAbsent(epochDay, d -> new UserBitmap())
+                    .add(userId);
+            customers.add(userId);
+            if (!closedWindows.isEmpty() && epochDay < LocalDate.now().toEpochDay()) {
+                closedWindows.keySet().removeIf(key -> key.dimension().equals(dimension));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registrar un usuario como cliente sin actividad reciente
+     */
+    public void addCustomer(int userId) {
+        lock.writeLock().lock();
+        try {
+            customers.add(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Usuarios con actividad en la dimensión desde {@code since} (inclusive)
+     */
+    public UserBitmap activeSince(String dimension, LocalDate since) {
+        lock.readLock().lock();
+        try {
+            TreeMap<Long, UserBitmap> buckets = days.get(dimension);
+            if (buckets == null) {
+                return new UserBitmap();
+            }
+            long today = LocalDate.now().toEpochDay();
+            UserBitmap result = closedWindow(dimension, buckets, since.toEpochDay(), today).copy();
+            for (UserBitmap bucket : buckets.tailMap(Math.max(today, since.toEpochDay()), true).values()) {
+                result.orInPlace(bucket);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Todos los usuarios que alguna vez tuvieron actividad
+     */
+    public UserBitmap customers() {
+        lock.readLock().lock();
+        try {
+            return customers.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Métricas del índice
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long buckets = 0;
+            long bytes = customers.sizeInBytes();
+            for (TreeMap<Long, UserBitmap> dimension : days.values()) {
+                buckets += dimension.size();
+                for (UserBitmap bitmap : dimension.values()) {
+                    bytes += bitmap.sizeInBytes();
+                }
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("customers", customers.cardinality());
+            stats.put("dimensions", days.size());
+            stats.put("dailyBitmaps", buckets);
+            stats.put("bytes", bytes);
+            stats.put("cachedWindows", closedWindows.size());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * OR de los días de la dimensión entre since (inclusive) y hoy (exclusive); se llama con el
+     * read lock tomado, y las altas en días pasados (write lock) descartan lo guardado
+     */
+    private UserBitmap closedWindow(String dimension, TreeMap<Long, UserBitmap> buckets, long since, long today) {
+        WindowKey key = new WindowKey(dimension, since, today);
+        UserBitmap window = closedWindows.get(key);
+        if (window != null) {
+            return window;
+        }
+
+        window = new UserBitmap();
+        if (since < today) {
+            NavigableMap<Long, UserBitmap> closedDays = buckets.subMap(since, true, today, false);
+            for (UserBitmap bucket : closedDays.values()) {
+                window.orInPlace(bucket);
+            }
+        }
+
+        if (closedWindows.size() >= MAX_CACHED_WINDOWS) {
+            // Ventanas de días anteriores o demasiadas combinaciones: se vuelve a empezar
+            closedWindows.clear();
+        }
+        closedWindows.put(key, window);
+        return window;
+    }
+}
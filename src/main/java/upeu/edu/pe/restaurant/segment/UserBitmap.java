@@ -0,0 +1,599 @@
+package upeu.edu.pe.restaurant.segment;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto comprimido de ids de usuario (enteros no negativos) al estilo Roaring.
+ *
+ * El id se parte en 16 bits altos (clave del contenedor) y 16 bits bajos. Cada contenedor
+ * guarda sus valores bajos como arreglo ordenado de char mientras tenga hasta 4096 valores
+ * (8 KB como máximo) y como mapa de 65536 bits (8 KB fijos) cuando tiene más; así los
+ * segmentos dispersos ocupan poco y los densos se combinan palabra por palabra.
+ *
+ * No es seguro para hilos: SegmentIndex lo protege con su lock. Las operaciones and/or/andNot
+ * devuelven un conjunto nuevo sin modificar los operandos; orInPlace acumula sobre este conjunto
+ * (para unir muchos bitmaps sin crear uno intermedio por cada paso).
+ */
+public final class UserBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public UserBitmap() {
+    }
+
+    public static UserBitmap of(int... values) {
+        UserBitmap bitmap = new UserBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public void add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        int i = indexOf(key);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) value);
+        } else {
+            insert(-i - 1, key, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(int value) {
+        if (value < 0) {
+            return;
+        }
+        int i = indexOf((char) (value >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Container container = containers[i].remove((char) value);
+        if (container.cardinality() == 0) {
+            removeAt(i);
+        } else {
+            containers[i] = container;
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = indexOf((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].cardinality();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Bytes aproximados que ocupan los contenedores
+     */
+    public long sizeInBytes() {
+        long total = size * 2L;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].sizeInBytes();
+        }
+        return total;
+    }
+
+    public UserBitmap and(UserBitmap other) {
+        UserBitmap result = new UserBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public UserBitmap or(UserBitmap other) {
+        UserBitmap result = new UserBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Agregar a este conjunto todos los valores del otro
+     */
+    public void orInPlace(UserBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            int i = indexOf(other.keys[j]);
+            if (i >= 0) {
+                containers[i] = containers[i].orInPlace(other.containers[j]);
+            } else {
+                insert(-i - 1, other.keys[j], other.containers[j].copy());
+            }
+        }
+    }
+
+    public UserBitmap andNot(UserBitmap other) {
+        UserBitmap result = new UserBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    public UserBitmap copy() {
+        UserBitmap result = new UserBitmap();
+        for (int i = 0; i < size; i++) {
+            result.append(keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Recorrer los valores en orden ascendente
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Iterador ascendente (el conjunto no debe modificarse mientras se recorre)
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int container;
+            private int position;
+            private int next = advance();
+
+            private int advance() {
+                while (container < size) {
+                    int low = containers[container].nextValue(position);
+                    if (low >= 0) {
+                        position = low + 1;
+                        return (keys[container] << 16) | low;
+                    }
+                    container++;
+                    position = 0;
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int value = next;
+                next = advance();
+                return value;
+            }
+        };
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Id fuera de rango: " + value);
+        }
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private void append(char key, Container container) {
+        ensureCapacity(size + 1);
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void appendIfNotEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            append(key, container);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int newLength = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, newLength);
+            containers = Arrays.copyOf(containers, newLength);
+        }
+    }
+
+    /**
+     * Valores bajos (16 bits) de un contenedor
+     */
+    private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract long sizeInBytes();
+
+        /**
+         * Menor valor mayor o igual a {@code from}, o -1
+         */
+        abstract int nextValue(int from);
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract Container copy();
+
+        abstract BitmapContainer toBitmap();
+
+        Container and(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, true);
+            }
+            if (other instanceof ArrayContainer array) {
+                return array.filter(this, true);
+            }
+            long[] a = ((BitmapContainer) this).words;
+            long[] b = ((BitmapContainer) other).words;
+            long[] words = new long[BITMAP_WORDS];
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a[w] & b[w];
+            }
+            return BitmapContainer.of(words);
+        }
+
+        Container or(Container other) {
+            if (this instanceof ArrayContainer a && other instanceof ArrayContainer b) {
+                return a.union(b);
+            }
+            long[] a = toBitmap().words;
+            long[] b = other.toBitmap().words;
+            long[] words = new long[BITMAP_WORDS];
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a[w] | b[w];
+            }
+            return BitmapContainer.of(words);
+        }
+
+        /**
+         * OR que reutiliza este contenedor cuando ya es de bits
+         */
+        Container orInPlace(Container other) {
+            if (!(this instanceof BitmapContainer bitmap)) {
+                return or(other);
+            }
+            long[] words = bitmap.words;
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    words[value >>> 6] |= 1L << value;
+                }
+            } else {
+                long[] b = ((BitmapContainer) other).words;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] |= b[w];
+                }
+            }
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+
+        Container andNot(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, false);
+            }
+            long[] a = ((BitmapContainer) this).words;
+            long[] b = other.toBitmap().words;
+            long[] words = new long[BITMAP_WORDS];
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = a[w] & ~b[w];
+            }
+            return BitmapContainer.of(words);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            int index = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return values.length * 2L;
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            int index = i >= 0 ? i : -i - 1;
+            return index < cardinality ? values[index] : -1;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+
+        /**
+         * Valores presentes (keep = true) o ausentes (keep = false) en el otro contenedor
+         */
+        Container filter(Container other, boolean keep) {
+            char[] result = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == keep) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        Container union(ArrayContainer other) {
+            char[] result = new char[cardinality + other.cardinality];
+            int i = 0;
+            int j = 0;
+            int count = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j >= other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > other.values[j]) {
+                    result[count++] = other.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return count > ARRAY_MAX ? union.toBitmap() : union;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Contenedor para las palabras dadas; vuelve a arreglo si quedaron pocos valores
+         */
+        static Container of(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+        }
+
+        @Override
+        Container add(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0) {
+                words[value >>> 6] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long mask = 1L << value;
+            if ((words[value >>> 6] & mask) != 0) {
+                words[value >>> 6] &= ~mask;
+                cardinality--;
+                if (cardinality <= ARRAY_MAX) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return BITMAP_WORDS * 8L;
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[w];
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | ((w << 6) + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Envío de una notificación a todos los tokens activos.
+ *
+ * Los tokens se leen por páginas con keyset sobre (usuario, id), cada página es una
+ * solicitud multicast y como máximo {@code parallelism} páginas están en vuelo a la vez: la
+ * lectura se detiene hasta que se libera un permiso, así que la memoria usada no depende de
+ * cuántos tokens o usuarios haya. Como los tokens de un usuario llegan contiguos, un usuario
+ * solo puede repetirse al inicio de una página como el último de la anterior; así se cuenta
+ * cada usuario una vez sin guardar los ya alcanzados. Los tokens inválidos de cada bloque se entregan juntos a
+ * {@code invalidTokenSink} para desactivarlos en una sola operación.
+ */
+@Slf4j
+public final class BroadcastFanOut {
+
+    /**
+     * Token activo con su usuario
+     */
+    public record TokenRef(long id, long userId, String token) {}
+
+    /**
+     * Origen de los tokens: hasta {@code limit} tokens activos posteriores a {@code after} (null en
+     * la primera página), ordenados por usuario y luego por id
+     */
+    @FunctionalInterface
+    public interface TokenSource {
+        List<TokenRef> page(TokenRef after, int limit);
+    }
+
+    /**
+     * Tokens de una lista de usuarios en orden ascendente (por ejemplo, un segmento): lee los
+     * tokens de {@code batchSize} usuarios a la vez (ordenados por usuario) y los numera en
+     * secuencia, así un usuario con varios tokens puede quedar repartido entre dos páginas.
+     * Se recorre una sola vez, desde un único hilo (el que llama a run).
+     */
+    public static final class UserTokenSource implements TokenSource {
+
+        private final PrimitiveIterator.OfInt userIds;
+        private final Function<List<Long>, List<TokenRef>> tokensOf;
+        private final int batchSize;
+        private final ArrayDeque<TokenRef> pending = new ArrayDeque<>();
+        private long sequence;
+
+        public UserTokenSource(PrimitiveIterator.OfInt userIds, Function<List<Long>, List<TokenRef>> tokensOf,
+                               int batchSize) {
+            this.userIds = userIds;
+            this.tokensOf = tokensOf;
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        public List<TokenRef> page(TokenRef after, int limit) {
+            List<TokenRef> page = new ArrayList<>(limit);
+            while (page.size() < limit) {
+                TokenRef next = pending.poll();
+                if (next != null) {
+                    page.add(next);
+                    continue;
+                }
+                if (!userIds.hasNext()) {
+                    break;
+                }
+                List<Long> users = new ArrayList<>(batchSize);
+                while (users.size() < batchSize && userIds.hasNext()) {
+                    users.add((long) userIds.nextInt());
+                }
+                for (TokenRef ref : tokensOf.apply(users)) {
+                    pending.add(new TokenRef(++sequence, ref.userId(), ref.token()));
+                }
+            }
+            return page;
+        }
+    }
+
+    private final TokenSource source;
+    private final PushTransport transport;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Consumer<List<String>> invalidTokenSink;
+
+    public BroadcastFanOut(TokenSource source, PushTransport transport, Executor executor,
+                           int chunkSize, int parallelism, Consumer<List<String>> invalidTokenSink) {
+        this.source = source;
+        this.transport = transport;
+        this.executor = executor;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, PushTransport.MAX_TOKENS));
+        this.parallelism = Math.max(1, parallelism);
+        this.invalidTokenSink = invalidTokenSink;
+    }
+
+    /**
+     * Enviar a todos los tokens; {@code onChunkSent} recibe los usuarios de cada bloque enviado
+     * que no continúan desde el bloque anterior.
+     * Retorna cuando todos los bloques terminaron.
+     */
+    public BroadcastResultDTO run(String title, String body, Map<String, String> data,
+                                  Consumer<Set<Long>> onChunkSent) {
+        long start = System.nanoTime();
+        Counters counters = new Counters();
+        Semaphore inFlight = new Semaphore(parallelism);
+
+        TokenRef after = null;
+        while (true) {
+            List<TokenRef> page = source.page(after, chunkSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            // El último usuario de la página anterior ya se contó allí
+            Long continued = after != null ? after.userId() : null;
+            after = page.get(page.size() - 1);
+
+            inFlight.acquireUninterruptibly();
+            Runnable task = () -> {
+                try {
+                    sendChunk(page, continued, title, body, data, counters, onChunkSent);
+                } finally {
+                    inFlight.release();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+
+            if (page.size() < chunkSize) {
+                break;
+            }
+        }
+
+        // Esperar a que terminen los bloques en vuelo
+        inFlight.acquireUninterruptibly(parallelism);
+        inFlight.release(parallelism);
+
+        return BroadcastResultDTO.builder()
+                .tokens(counters.tokens.sum())
+                .chunks(counters.chunks.sum())
+                .success(counters.success.sum())
+                .failure(counters.failure.sum())
+                .invalidTokens(counters.invalid.sum())
+                .users(counters.users.sum())
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    private void sendChunk(List<TokenRef> page, Long continuedUser, String title, String body,
+                           Map<String, String> data, Counters counters, Consumer<Set<Long>> onChunkSent) {
+        List<String> tokens = new ArrayList<>(page.size());
+        Set<Long> users = new LinkedHashSet<>();
+        for (TokenRef ref : page) {
+            tokens.add(ref.token());
+            if (continuedUser == null || ref.userId() != continuedUser) {
+                users.add(ref.userId());
+            }
+        }
+        counters.tokens.add(tokens.size());
+        counters.chunks.increment();
+
+        PushTransport.Result result;
+        try {
+            result = transport.send(tokens, title, body, data);
+        } catch (RuntimeException e) {
+            log.error("❌ Error enviando bloque broadcast de {} tokens: {}", tokens.size(), e.getMessage());
+            result = PushTransport.Result.failed(tokens, e.getMessage());
+        }
+        counters.success.add(result.successCount());
+        counters.failure.add(result.failureCount());
+
+        if (!result.invalidTokens().isEmpty()) {
+            counters.invalid.add(result.invalidTokens().size());
+            try {
+                invalidTokenSink.accept(result.invalidTokens());
+            } catch (RuntimeException e) {
+                log.error("❌ Error desactivando {} tokens inválidos: {}", result.invalidTokens().size(), e.getMessage());
+            }
+        }
+
+        if (result.successCount() == 0) {
+            return;
+        }
+        counters.users.add(users.size());
+        if (onChunkSent != null && !users.isEmpty()) {
+            try {
+                onChunkSent.accept(users);
+            } catch (RuntimeException e) {
+                log.error("❌ Error registrando bloque broadcast: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder tokens = new LongAdder();
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder users = new LongAdder();
+    }
+}
@@ -0,0 +1,277 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.stripe.exception.StripeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import upeu.edu.pe.restaurant.dto.CheckoutRequest;
+import upeu.edu.pe.restaurant.dto.CheckoutResponse;
+import upeu.edu.pe.restaurant.dto.CreateOrderRequest;
+import upeu.edu.pe.restaurant.dto.OrderDTO;
+import upeu.edu.pe.restaurant.dto.OrderPricingDTO;
+import upeu.edu.pe.restaurant.dto.PaymentIntentRequest;
+import upeu.edu.pe.restaurant.dto.PaymentIntentResponse;
+import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
+import upeu.edu.pe.restaurant.entity.MenuItem;
+import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.entity.User;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.exception.InvalidOrderException;
+import upeu.edu.pe.restaurant.exception.ProductNotAvailableException;
+import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+import upeu.edu.pe.restaurant.repository.MenuItemRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+import upeu.edu.pe.restaurant.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Checkout en una sola llamada, como pipeline:
+ *
+ * 1. precio y cupón, en memoria (tabla de precios del menú y caché de cupones);
+ * 2. creación del Payment Intent de Stripe en paralelo con la validación del pedido
+ *    (usuario, restaurante y productos en pocas consultas);
+ * 3. orden, items y canje del cupón en una sola transacción.
+ *
+ * Si la validación o la transacción fallan, el Payment Intent ya creado se cancela.
+ */
+@Slf4j
+@Service
+public class CheckoutService {
+    
+    private static final long MIN_CARD_AMOUNT_CENTS = 50;
+    
+    private final UserRepository userRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final MenuItemRepository menuItemRepository;
+    private final OrderPricingService pricingService;
+    private final CouponService couponService;
+    private final OrderService orderService;
+    private final PaymentService paymentService;
+    private final TaskExecutor checkoutExecutor;
+    private final TransactionTemplate transactionTemplate;
+    
+    public CheckoutService(
+            UserRepository userRepository,
+            RestaurantRepository restaurantRepository,
+            MenuItemRepository menuItemRepository,
+            OrderPricingService pricingService,
+            CouponService couponService,
+            OrderService orderService,
+            PaymentService paymentService,
+            @Qualifier("checkoutExecutor") TaskExecutor checkoutExecutor,
+            PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.menuItemRepository = menuItemRepository;
+        this.pricingService = pricingService;
+        this.couponService = couponService;
+        this.orderService = orderService;
+        this.paymentService = paymentService;
+        this.checkoutExecutor = checkoutExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    public CheckoutResponse checkout(Long userId, CheckoutRequest request) {
+        Map<String, Long> timings = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        
+        // 1. Precio y cupón (tabla de precios y caché de cupones en memoria)
+        OrderPricingDTO pricing = pricingService.price(userId, request.getRestaurantId(), request.getItems(),
+                request.getCouponCode(), request.getDeliveryLatitude(), request.getDeliveryLongitude());
+        CouponValidationResponse coupon = pricing.getCoupon();
+        if (coupon != null && !coupon.getValid()) {
+            throw new BadRequestException("couponCode", request.getCouponCode(), coupon.getMessage());
+        }
+        BigDecimal total = pricing.getTotal();
+        long stageStart = mark(timings, "pricing", start);
+        
+        // 2. Pago (Stripe) en paralelo con la validación del pedido
+        boolean card = "card".equalsIgnoreCase(request.getPaymentMethod());
+        CompletableFuture<TimedIntent> payment = card
+                ? CompletableFuture.supplyAsync(() -> createIntent(userId, request, total), checkoutExecutor)
+                : CompletableFuture.completedFuture(null);
+        
+        Validated validated;
+        try {
+            validated = validate(userId, request);
+        } catch (RuntimeException e) {
+            payment.thenAccept(this::cancelIntent);
+            throw e;
+        }
+        mark(timings, "validation", stageStart);
+        
+        TimedIntent intent = awaitIntent(payment);
+        if (intent != null) {
+            timings.put("payment", intent.elapsedMs());
+        }
+        stageStart = System.nanoTime();
+        
+        // 3. Orden + canje del cupón en una transacción
+        String paymentIntentId = intent != null ? intent.response().getPaymentIntentId() : null;
+        OrderDTO order;
+        try {
+            order = transactionTemplate.execute(status -> {
+                OrderDTO created = orderService.createCheckoutOrder(validated.user(), validated.restaurant(),
+                        validated.menuItems(), request, pricing, paymentIntentId);
+                if (hasCoupon(request)) {
+                    couponService.useCoupon(request.getCouponCode(), userId, created.getId(),
+                            pricing.getSubtotal().subtract(pricing.getPromotionDiscount()),
+                            request.getRestaurantId(), categories(validated.menuItems()));
+                }
+                return created;
+            });
+        } catch (RuntimeException e) {
+            cancelIntent(intent);
+            throw e;
+        }
+        mark(timings, "order", stageStart);
+        timings.put("total", (System.nanoTime() - start) / 1_000_000);
+        
+        log.info("🛒 Checkout completado: orden {} usuario {} total S/{} - tiempos {}",
+                order.getId(), userId, total, timings);
+        
+        return CheckoutResponse.builder()
+                .order(order)
+                .payment(intent != null ? intent.response() : null)
+                .pricing(pricing)
+                .timingsMs(timings)
+                .build();
+    }
+    
+    /**
+     * Cotizar el pedido sin crear pago ni orden
+     */
+    public OrderPricingDTO quote(Long userId, CheckoutRequest request) {
+        return pricingService.price(userId, request.getRestaurantId(), request.getItems(),
+                request.getCouponCode(), request.getDeliveryLatitude(), request.getDeliveryLongitude());
+    }
+    
+    /**
+     * Validar usuario, restaurante y productos (tres consultas, sin importar la cantidad de items)
+     */
+    private Validated validate(Long userId, CheckoutRequest request) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario", "id", userId));
+        
+        Restaurant restaurant = restaurantRepository.findById(request.getRestaurantId())
+                .orElseThrow(() -> new ResourceNotFoundException("Restaurante", "id", request.getRestaurantId()));
+        if (!Boolean.TRUE.equals(restaurant.getIsActive())) {
+            throw new InvalidOrderException("restaurantId", "El restaurante no está disponible");
+        }
+        
+        Map<Long, MenuItem> menuItems = new HashMap<>();
+        for (MenuItem menuItem : menuItemRepository.findAllById(productIds(request))) {
+            menuItems.put(menuItem.getId(), menuItem);
+        }
+        
+        for (CreateOrderRequest.OrderItemRequest item : request.getItems()) {
+            MenuItem menuItem = menuItems.get(item.getProductId());
+            if (menuItem == null) {
+                throw new ResourceNotFoundException("Producto", "id", item.getProductId());
+            }
+            if (!menuItem.getRestaurant().getId().equals(restaurant.getId())) {
+                throw new InvalidOrderException("items", "Todos los productos deben ser del mismo restaurante");
+            }
+            if (!Boolean.TRUE.equals(menuItem.getIsAvailable())) {
+                throw new ProductNotAvailableException(menuItem.getId(), menuItem.getName());
+            }
+        }
+        return new Validated(user, restaurant, menuItems);
+    }
+    
+    /**
+     * Categorías de los productos del pedido, normalizadas como en la tabla de precios
+     */
+    private static Set<String> categories(Map<Long, MenuItem> menuItems) {
+        Set<String> categories = new HashSet<>();
+        for (MenuItem menuItem : menuItems.values()) {
+            if (menuItem.getCategory() != null) {
+                categories.add(menuItem.getCategory().trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return categories;
+    }
+    
+    private TimedIntent createIntent(Long userId, CheckoutRequest request, BigDecimal total) {
+        long start = System.nanoTime();
+        long amount = PaymentService.toMinorUnits(total);
+        if (amount < MIN_CARD_AMOUNT_CENTS) {
+            throw new BadRequestException("El monto debe ser al menos 50 centavos");
+        }
+        
+        PaymentIntentRequest paymentRequest = new PaymentIntentRequest();
+        paymentRequest.setAmount(amount);
+        paymentRequest.setCurrency(request.getCurrency());
+        paymentRequest.setMetadata(Map.of(
+                "userId", userId.toString(),
+                "restaurantId", request.getRestaurantId().toString()));
+        try {
+            PaymentIntentResponse response = paymentService.createPaymentIntent(paymentRequest);
+            return new TimedIntent(response, (System.nanoTime() - start) / 1_000_000);
+        } catch (StripeException e) {
+            throw new BadRequestException("Error al procesar el pago: " + e.getMessage(), e);
+        }
+    }
+    
+    private TimedIntent awaitIntent(CompletableFuture<TimedIntent> payment) {
+        try {
+            return payment.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Cancelar en segundo plano un Payment Intent que no llegó a tener orden
+     */
+    private void cancelIntent(TimedIntent intent) {
+        if (intent == null) {
+            return;
+        }
+        String paymentIntentId = intent.response().getPaymentIntentId();
+        checkoutExecutor.execute(() -> {
+            try {
+                paymentService.cancelPaymentIntent(paymentIntentId);
+            } catch (Exception e) {
+                log.error("No se pudo cancelar el Payment Intent {}: {}", paymentIntentId, e.getMessage());
+            }
+        });
+    }
+    
+    private static boolean hasCoupon(CheckoutRequest request) {
+        return request.getCouponCode() != null && !request.getCouponCode().isBlank();
+    }
+    
+    private static List<Long> productIds(CheckoutRequest request) {
+        return request.getItems().stream()
+                .map(CreateOrderRequest.OrderItemRequest::getProductId)
+                .distinct()
+                .toList();
+    }
+    
+    private static long mark(Map<String, Long> timings, String stage, long stageStart) {
+        long now = System.nanoTime();
+        timings.put(stage, (now - stageStart) / 1_000_000);
+        return now;
+    }
+    
+    private record Validated(User user, Restaurant restaurant, Map<Long, MenuItem> menuItems) {}
+    
+    private record TimedIntent(PaymentIntentResponse response, long elapsedMs) {}
+}
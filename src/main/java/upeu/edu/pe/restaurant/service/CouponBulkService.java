@@ -0,0 +1,208 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.cache.CouponCache;
+import upeu.edu.pe.restaurant.dto.BulkCouponProgressDTO;
+import upeu.edu.pe.restaurant.dto.request.BulkCouponRequest;
+import upeu.edu.pe.restaurant.entity.Coupon;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Generación masiva de cupones de un solo uso.
+ *
+ * Los códigos salen de un CouponCodeGenerator (únicos dentro del lote, sin consultar la base de
+ * datos) y se insertan por bloques con un único INSERT ... SELECT FROM unnest(?) por bloque.
+ * Un código que ya exista de otra campaña se descarta con ON CONFLICT y se reemplaza con el
+ * siguiente valor del contador. Cada bloque se confirma por separado; si uno falla, la última
+ * línea de avance lleva el error y lo insertado hasta ahí se conserva.
+ */
+@Slf4j
+@Service
+public class CouponBulkService {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO coupons (code, description, discount_type, discount_value, minimum_amount, " +
+            "maximum_discount, is_active, expires_at, usage_limit, usage_count, user_usage_limit, " +
+            "created_at, updated_at) " +
+            "SELECT c, ?, ?, ?::numeric, ?::numeric, ?::numeric, true, ?::timestamp, ?::integer, 0, " +
+            "?::integer, ?::timestamp, ?::timestamp FROM unnest(?::text[]) AS c " +
+            "ON CONFLICT DO NOTHING";
+    
+    // Espacio de códigos mínimo respecto a la cantidad pedida, para que sigan siendo difíciles de adivinar
+    private static final long MIN_SPACE_FACTOR = 1000;
+    private static final int CODE_MAX_LENGTH = 50;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final CouponCache couponCache;
+    private final SecureRandom random = new SecureRandom();
+    private final int chunkSize;
+    private final int maxQuantity;
+    
+    public CouponBulkService(
+            JdbcTemplate jdbcTemplate,
+            CouponCache couponCache,
+            @Value("${coupons.bulk.chunk-size:10000}") int chunkSize,
+            @Value("${coupons.bulk.max-quantity:1000000}") int maxQuantity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.couponCache = couponCache;
+        this.chunkSize = chunkSize;
+        this.maxQuantity = maxQuantity;
+    }
+    
+    /**
+     * Validar la solicitud antes de empezar (los errores se informan como 400, no a mitad del stream)
+     */
+    public CouponCodeGenerator prepare(BulkCouponRequest request) {
+        if (request.getQuantity() > maxQuantity) {
+            throw new BadRequestException("quantity", request.getQuantity(),
+                    "La cantidad máxima por lote es " + maxQuantity);
+        }
+        
+        try {
+            Coupon.DiscountType.valueOf(request.getDiscountType());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("discountType", request.getDiscountType(),
+                    "Tipo de descuento inválido (FIXED o PERCENTAGE)");
+        }
+        
+        String prefix = request.getPrefix() != null ? request.getPrefix() : "";
+        if (prefix.length() + request.getCodeLength() > CODE_MAX_LENGTH) {
+            throw new BadRequestException("codeLength", request.getCodeLength(),
+                    "El código no puede superar " + CODE_MAX_LENGTH + " caracteres");
+        }
+        
+        String alphabet = request.getAlphabet() != null ? request.getAlphabet() : CouponCodeGenerator.DEFAULT_ALPHABET;
+        CouponCodeGenerator generator;
+        try {
+            generator = new CouponCodeGenerator(prefix, alphabet, request.getCodeLength(), random.nextLong());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("alphabet", alphabet, e.getMessage());
+        }
+        
+        if (generator.domainSize() / MIN_SPACE_FACTOR < request.getQuantity()) {
+            throw new BadRequestException("codeLength", request.getCodeLength(),
+                    "Longitud o alfabeto insuficiente para " + request.getQuantity() + " códigos");
+        }
+        return generator;
+    }
+    
+    /**
+     * Generar e insertar los cupones, informando el avance después de cada bloque.
+     * Un error a mitad de camino se informa como última línea (done = true, error = motivo).
+     */
+    public BulkCouponProgressDTO generate(BulkCouponRequest request, CouponCodeGenerator generator,
+                                          Consumer<BulkCouponProgressDTO> progress) {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        int quantity = request.getQuantity();
+        
+        log.info("🎫 Generando {} cupones con prefijo '{}'", quantity,
+                request.getPrefix() != null ? request.getPrefix() : "");
+        
+        long counter = 0;
+        int inserted = 0;
+        int duplicates = 0;
+        try {
+            while (inserted < quantity) {
+                int size = Math.min(chunkSize, quantity - inserted);
+                if (counter + size > generator.domainSize()) {
+                    throw new BadRequestException("Espacio de códigos agotado para este prefijo");
+                }
+                
+                String[] codes = new String[size];
+                for (int i = 0; i < size; i++) {
+                    codes[i] = generator.code(counter++);
+                }
+                
+                int rows = insertChunk(codes, request, now);
+                inserted += rows;
+                duplicates += size - rows;
+                for (String code : codes) {
+                    couponCache.addCode(code);
+                }
+                
+                progress.accept(progress(quantity, inserted, duplicates, start, inserted >= quantity));
+            }
+        } catch (UncheckedIOException e) {
+            // El cliente cerró la conexión: no hay a quién informar
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("❌ Generación de cupones interrumpida tras {} de {}: {}", inserted, quantity, e.getMessage());
+            BulkCouponProgressDTO failed = progress(quantity, inserted, duplicates, start, true);
+            failed.setError(e.getMessage());
+            progress.accept(failed);
+            return failed;
+        } finally {
+            // Muchos códigos nuevos saturan el filtro (más falsos positivos): se reconstruye a su medida
+            if (inserted > 0 && couponCache.isFilterSaturated()) {
+                couponCache.rebuildFilter();
+            }
+        }
+        
+        log.info("✅ {} cupones generados en {} ms ({} duplicados reemplazados)",
+                inserted, System.currentTimeMillis() - start, duplicates);
+        return progress(quantity, inserted, duplicates, start, true);
+    }
+    
+    private int insertChunk(String[] codes, BulkCouponRequest request, LocalDateTime now) {
+        Timestamp createdAt = Timestamp.valueOf(now);
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setString(1, request.getDescription());
+            ps.setString(2, request.getDiscountType());
+            ps.setBigDecimal(3, request.getDiscountValue());
+            setDecimal(ps, 4, request.getMinimumAmount());
+            setDecimal(ps, 5, request.getMaximumDiscount());
+            if (request.getExpiresAt() != null) {
+                ps.setTimestamp(6, Timestamp.valueOf(request.getExpiresAt()));
+            } else {
+                ps.setNull(6, Types.TIMESTAMP);
+            }
+            setInteger(ps, 7, request.getUsageLimit());
+            setInteger(ps, 8, request.getUserUsageLimit());
+            ps.setTimestamp(9, createdAt);
+            ps.setTimestamp(10, createdAt);
+            ps.setArray(11, connection.createArrayOf("text", codes));
+            return ps;
+        });
+    }
+    
+    private static void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            ps.setBigDecimal(index, value);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+    
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+    
+    private static BulkCouponProgressDTO progress(int requested, int inserted, int duplicates, long start, boolean done) {
+        return BulkCouponProgressDTO.builder()
+                .requested(requested)
+                .inserted(inserted)
+                .duplicates(duplicates)
+                .elapsedMs(System.currentTimeMillis() - start)
+                .done(done)
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Carrito contra el que se evalúan las condiciones de un cupón.
+ *
+ * Las categorías y la cantidad de pedidos del usuario se resuelven de forma perezosa y una sola
+ * vez: solo se consultan si algún cupón evaluado tiene una condición que las necesita.
+ */
+public final class CouponCart {
+    
+    private final Long restaurantId;
+    private final BigDecimal subtotal;
+    private final LocalDateTime time;
+    private final Supplier<Set<String>> categoriesSource;
+    private final LongSupplier orderCountSource;
+    
+    private Set<String> categories;
+    private Long orderCount;
+    
+    public CouponCart(Long restaurantId, BigDecimal subtotal, LocalDateTime time,
+                      Supplier<Set<String>> categories, LongSupplier orderCount) {
+        this.restaurantId = restaurantId;
+        this.subtotal = subtotal;
+        this.time = time;
+        this.categoriesSource = categories;
+        this.orderCountSource = orderCount;
+    }
+    
+    public Long getRestaurantId() {
+        return restaurantId;
+    }
+    
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+    
+    public LocalDateTime getTime() {
+        return time;
+    }
+    
+    /**
+     * Categorías de los productos del carrito (normalizadas en minúsculas)
+     */
+    public Set<String> getCategories() {
+        if (categories == null) {
+            categories = categoriesSource != null ? categoriesSource.get() : Set.of();
+        }
+        return categories;
+    }
+    
+    /**
+     * Pedidos previos del usuario
+     */
+    public long getOrderCount() {
+        if (orderCount == null) {
+            orderCount = orderCountSource != null ? orderCountSource.getAsLong() : 0L;
+        }
+        return orderCount;
+    }
+}
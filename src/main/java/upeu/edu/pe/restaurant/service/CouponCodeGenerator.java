@@ -0,0 +1,105 @@
+package upeu.edu.pe.restaurant.service;
+
+/**
+ * Generador de códigos de cupón únicos sin consultar la base de datos.
+ *
+ * Cada código es la imagen de un contador bajo una permutación con clave (red de Feistel de
+ * 4 rondas sobre el espacio alfabeto^longitud, con cycle-walking para no salir del rango).
+ * Al ser una permutación, contadores distintos producen códigos distintos; con otra clave
+ * el orden cambia por completo, así que los códigos no son adivinables a partir de otros.
+ */
+public final class CouponCodeGenerator {
+    
+    public static final String DEFAULT_ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    
+    private static final int ROUNDS = 4;
+    
+    private final String prefix;
+    private final char[] alphabet;
+    private final int length;
+    private final long domainSize;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+    
+    public CouponCodeGenerator(String prefix, String alphabet, int length, long key) {
+        if (alphabet.length() < 2 || alphabet.chars().distinct().count() != alphabet.length()) {
+            throw new IllegalArgumentException("El alfabeto debe tener al menos 2 caracteres distintos");
+        }
+        this.prefix = prefix != null ? prefix : "";
+        this.alphabet = alphabet.toCharArray();
+        this.length = length;
+        
+        long size = 1;
+        for (int i = 0; i < length; i++) {
+            if (size > (1L << 62) / alphabet.length()) {
+                throw new IllegalArgumentException("Espacio de códigos demasiado grande");
+            }
+            size *= alphabet.length();
+        }
+        this.domainSize = size;
+        
+        int bits = 64 - Long.numberOfLeadingZeros(size - 1);
+        this.halfBits = Math.max(1, (bits + 1) / 2);
+        this.halfMask = (1L << halfBits) - 1;
+        
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = mix(state + 0x9e3779b97f4a7c15L);
+            roundKeys[i] = state;
+        }
+    }
+    
+    /**
+     * Cantidad de códigos distintos que puede producir
+     */
+    public long domainSize() {
+        return domainSize;
+    }
+    
+    /**
+     * Código para un contador en [0, domainSize)
+     */
+    public String code(long counter) {
+        if (counter < 0 || counter >= domainSize) {
+            throw new IllegalArgumentException("Contador fuera de rango: " + counter);
+        }
+        long value = permute(counter);
+        
+        char[] chars = new char[length];
+        int radix = alphabet.length;
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = alphabet[(int) (value % radix)];
+            value /= radix;
+        }
+        return prefix + new String(chars);
+    }
+    
+    private long permute(long value) {
+        // Cycle-walking: el espacio de Feistel es a lo sumo 4 veces el dominio
+        do {
+            value = feistel(value);
+        } while (value >= domainSize);
+        return value;
+    }
+    
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long next = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+    
+    /**
+     * Mezcla de SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,197 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Condiciones de aplicación de un cupón, compiladas una vez en un árbol inmutable
+ * y evaluadas en memoria contra el carrito
+ */
+public interface CouponCondition {
+    
+    CouponCondition ALWAYS = new AllOf(List.of());
+    
+    /**
+     * Primera condición que el carrito no cumple, o null si las cumple todas
+     */
+    CouponCondition firstFailure(CouponCart cart);
+    
+    /**
+     * Código del motivo de rechazo (campo reason de la validación)
+     */
+    String reason();
+    
+    /**
+     * Mensaje para el usuario
+     */
+    String message();
+    
+    /**
+     * Compilar las condiciones de un cupón; las más baratas de evaluar van primero
+     */
+    static CouponCondition compile(Long restaurantId, String categories, Boolean firstOrderOnly,
+                                   LocalTime validFrom, LocalTime validUntil) {
+        List<CouponCondition> conditions = new ArrayList<>();
+        if (restaurantId != null) {
+            conditions.add(new RestaurantIs(restaurantId));
+        }
+        if (validFrom != null && validUntil != null) {
+            conditions.add(new TimeWindow(validFrom, validUntil));
+        }
+        Set<String> categorySet = parseCategories(categories);
+        if (!categorySet.isEmpty()) {
+            conditions.add(new AnyCategory(categorySet));
+        }
+        if (Boolean.TRUE.equals(firstOrderOnly)) {
+            conditions.add(new FirstOrder());
+        }
+        return conditions.isEmpty() ? ALWAYS
+                : conditions.size() == 1 ? conditions.get(0)
+                : new AllOf(List.copyOf(conditions));
+    }
+    
+    static Set<String> parseCategories(String categories) {
+        if (categories == null || categories.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(categories.split(","))
+                .map(category -> category.trim().toLowerCase(Locale.ROOT))
+                .filter(category -> !category.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+    
+    /**
+     * Hoja del árbol: una sola condición
+     */
+    interface Leaf extends CouponCondition {
+        boolean matches(CouponCart cart);
+        
+        @Override
+        default CouponCondition firstFailure(CouponCart cart) {
+            return matches(cart) ? null : this;
+        }
+    }
+    
+    /**
+     * Todas las condiciones deben cumplirse
+     */
+    record AllOf(List<CouponCondition> conditions) implements CouponCondition {
+        @Override
+        public CouponCondition firstFailure(CouponCart cart) {
+            for (CouponCondition condition : conditions) {
+                CouponCondition failure = condition.firstFailure(cart);
+                if (failure != null) {
+                    return failure;
+                }
+            }
+            return null;
+        }
+        
+        @Override
+        public String reason() {
+            return null;
+        }
+        
+        @Override
+        public String message() {
+            return null;
+        }
+    }
+    
+    /**
+     * Solo para pedidos de un restaurante
+     */
+    record RestaurantIs(long restaurantId) implements Leaf {
+        @Override
+        public boolean matches(CouponCart cart) {
+            return cart.getRestaurantId() != null && cart.getRestaurantId() == restaurantId;
+        }
+        
+        @Override
+        public String reason() {
+            return "restaurant_mismatch";
+        }
+        
+        @Override
+        public String message() {
+            return "Este cupón no es válido para este restaurante";
+        }
+    }
+    
+    /**
+     * El carrito debe incluir al menos un producto de alguna de las categorías
+     */
+    record AnyCategory(Set<String> categories) implements Leaf {
+        @Override
+        public boolean matches(CouponCart cart) {
+            for (String category : cart.getCategories()) {
+                if (categories.contains(category)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public String reason() {
+            return "category_mismatch";
+        }
+        
+        @Override
+        public String message() {
+            return "Este cupón no aplica a los productos del carrito";
+        }
+    }
+    
+    /**
+     * Solo para el primer pedido del usuario
+     */
+    record FirstOrder() implements Leaf {
+        @Override
+        public boolean matches(CouponCart cart) {
+            return cart.getOrderCount() == 0;
+        }
+        
+        @Override
+        public String reason() {
+            return "first_order_only";
+        }
+        
+        @Override
+        public String message() {
+            return "Este cupón es solo para tu primer pedido";
+        }
+    }
+    
+    /**
+     * Franja horaria diaria (happy hour); admite franjas que cruzan la medianoche
+     */
+    record TimeWindow(LocalTime from, LocalTime until) implements Leaf {
+        private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+        
+        @Override
+        public boolean matches(CouponCart cart) {
+            LocalTime time = cart.getTime().toLocalTime();
+            if (!from.isAfter(until)) {
+                return !time.isBefore(from) && time.isBefore(until);
+            }
+            return !time.isBefore(from) || time.isBefore(until);
+        }
+        
+        @Override
+        public String reason() {
+            return "outside_time_window";
+        }
+        
+        @Override
+        public String message() {
+            return String.format("Este cupón solo es válido de %s a %s", from.format(FORMAT), until.format(FORMAT));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import upeu.edu.pe.restaurant.repository.CouponRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Canje atómico de cupones sin bloqueos de fila.
+ *
+ * Ruta normal: UPDATE condicional usage_count = usage_count + 1 WHERE usage_count < usage_limit
+ * dentro de la transacción del llamador (el rollback devuelve el uso).
+ *
+ * Ruta para códigos calientes (coupons.hot-codes): usos reservados por bloques en una
+ * transacción propia y repartidos desde un CouponSlotPool en memoria. Los usos sin consumir
+ * vuelven a la base de datos cada {@code coupons.slot-release-interval-ms}, cuando el cupón
+ * cambia y al apagar; si el proceso muere, el cupón queda sub-vendido como mucho en lo que se
+ * reservó desde la última devolución (un bloque por franja).
+ */
+@Slf4j
+@Service
+public class CouponRedemptionService {
+    
+    private final CouponRepository couponRepository;
+    private final TransactionTemplate newTransaction;
+    private final Set<String> hotCodes;
+    private final int blockSize;
+    private final int stripes;
+    
+    private final Map<Long, CouponSlotPool> pools = new ConcurrentHashMap<>();
+    
+    public CouponRedemptionService(
+            CouponRepository couponRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${coupons.hot-codes:}") String hotCodes,
+            @Value("${coupons.slot-block-size:50}") int blockSize) {
+        this.couponRepository = couponRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.hotCodes = Arrays.stream(hotCodes.split(","))
+                .map(code -> code.trim().toUpperCase(Locale.ROOT))
+                .filter(code -> !code.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.blockSize = blockSize;
+        this.stripes = Runtime.getRuntime().availableProcessors();
+    }
+    
+    /**
+     * Consumir un uso del cupón; false si está agotado, inactivo o expirado
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean redeem(Long couponId, String code) {
+        if (!hotCodes.contains(code.toUpperCase(Locale.ROOT))) {
+            return couponRepository.reserveUsage(couponId, 1, LocalDateTime.now()) == 1;
+        }
+        
+        CouponSlotPool pool = pools.computeIfAbsent(couponId, this::createPool);
+        CouponSlotPool.Acquisition acquisition = pool.tryAcquire();
+        if (acquisition == CouponSlotPool.Acquisition.SOLD_OUT) {
+            return false;
+        }
+        if (acquisition == CouponSlotPool.Acquisition.DIRECT) {
+            // Tomado en esta transacción: el rollback lo devuelve
+            return true;
+        }
+        
+        // Si el pedido no llega a confirmarse, el uso vuelve al pool (o a la base de datos si ya se cerró)
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && !pool.release()) {
+                    returnToDatabase(couponId, 1);
+                }
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Descartar el pool de un cupón que cambió (desactivado, editado) y devolver sus usos
+     */
+    public void invalidate(Long couponId) {
+        CouponSlotPool pool = pools.remove(couponId);
+        if (pool != null) {
+            returnToDatabase(couponId, pool.close());
+        }
+    }
+    
+    /**
+     * Devolver periódicamente los usos sin consumir; acota lo que se pierde si el proceso muere
+     * y lo que se sigue repartiendo de un cupón que expiró
+     */
+    @Scheduled(fixedDelayString = "${coupons.slot-release-interval-ms:60000}")
+    public void releaseIdleSlots() {
+        pools.forEach((couponId, pool) -> returnToDatabase(couponId, pool.drain()));
+    }
+    
+    /**
+     * Devolver a la base de datos los usos reservados y no consumidos
+     */
+    @PreDestroy
+    public void releaseReservedSlots() {
+        pools.forEach((couponId, pool) -> returnToDatabase(couponId, pool.close()));
+    }
+    
+    private void returnToDatabase(Long couponId, int unused) {
+        if (unused <= 0) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> couponRepository.releaseUsage(couponId, unused));
+            log.info("🎫 Devueltos {} usos reservados del cupón ID: {}", unused, couponId);
+        } catch (Exception e) {
+            log.error("Error al devolver usos reservados del cupón ID {}: {}", couponId, e.getMessage());
+        }
+    }
+    
+    private CouponSlotPool createPool(Long couponId) {
+        return new CouponSlotPool(stripes, blockSize,
+                requested -> reserveBlock(couponId, requested),
+                requested -> couponRepository.reserveUsage(couponId, requested, LocalDateTime.now()));
+    }
+    
+    /**
+     * Reservar un bloque completo; cerca del límite, reservar de a uno
+     */
+    private int reserveBlock(Long couponId, int requested) {
+        Integer granted = newTransaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (requested > 1 && couponRepository.reserveUsage(couponId, requested, now) == 1) {
+                return requested;
+            }
+            return couponRepository.reserveUsage(couponId, 1, now);
+        });
+        return granted != null ? granted : 0;
+    }
+}
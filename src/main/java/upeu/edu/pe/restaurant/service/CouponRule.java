@@ -0,0 +1,85 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.Value;
+import upeu.edu.pe.restaurant.entity.Coupon;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Copia inmutable de las reglas de un cupón, segura para compartir entre hilos
+ */
+@Value
+public class CouponRule {
+    
+    Long id;
+    String code;
+    String description;
+    Coupon.DiscountType discountType;
+    BigDecimal discountValue;
+    BigDecimal minimumAmount;
+    BigDecimal maximumDiscount;
+    boolean active;
+    LocalDateTime expiresAt;
+    Integer usageLimit;
+    Integer userUsageLimit;
+    CouponCondition condition;
+    
+    public static CouponRule from(Coupon coupon) {
+        return new CouponRule(
+                coupon.getId(),
+                coupon.getCode(),
+                coupon.getDescription(),
+                coupon.getDiscountType(),
+                coupon.getDiscountValue(),
+                coupon.getMinimumAmount(),
+                coupon.getMaximumDiscount(),
+                Boolean.TRUE.equals(coupon.getIsActive()),
+                coupon.getExpiresAt(),
+                coupon.getUsageLimit(),
+                coupon.getUserUsageLimit(),
+                CouponCondition.compile(
+                        coupon.getRestaurantId(),
+                        coupon.getCategories(),
+                        coupon.getFirstOrderOnly(),
+                        coupon.getValidFromTime(),
+                        coupon.getValidUntilTime())
+        );
+    }
+    
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt != null && now.isAfter(expiresAt);
+    }
+    
+    public boolean hasReachedUsageLimit(int usageCount) {
+        return usageLimit != null && usageCount >= usageLimit;
+    }
+    
+    /**
+     * Primera condición de aplicación que el carrito no cumple (null si aplica)
+     */
+    public CouponCondition firstFailure(CouponCart cart) {
+        return condition.firstFailure(cart);
+    }
+    
+    /**
+     * Descuento para un monto (sin validar vigencia; eso lo hace el llamador)
+     */
+    public BigDecimal calculateDiscount(BigDecimal amount) {
+        if (amount.compareTo(minimumAmount) < 0) {
+            return BigDecimal.ZERO;
+        }
+        
+        BigDecimal discount;
+        if (discountType == Coupon.DiscountType.FIXED) {
+            discount = discountValue;
+        } else {
+            discount = amount.multiply(discountValue).divide(new BigDecimal(100));
+            if (maximumDiscount != null && discount.compareTo(maximumDiscount) > 0) {
+                discount = maximumDiscount;
+            }
+        }
+        
+        return discount.min(amount);
+    }
+}
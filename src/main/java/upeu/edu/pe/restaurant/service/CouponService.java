@@ -1,6 +1,8 @@
 package upeu.edu.pe.restaurant.service;
 
+import upeu.edu.pe.restaurant.cache.CouponCache;
 import upeu.edu.pe.restaurant.dto.CouponDTO;
+import upeu.edu.pe.restaurant.dto.request.BestCouponRequest;
 import upeu.edu.pe.restaurant.dto.request.ValidateCouponRequest;
 import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
 import upeu.edu.pe.restaurant.entity.Coupon;
@@ -10,15 +12,22 @@ import upeu.edu.pe.restaurant.exception.BadRequestException;
 import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
 import upeu.edu.pe.restaurant.repository.CouponRepository;
 import upeu.edu.pe.restaurant.repository.CouponUsageRepository;
+import upeu.edu.pe.restaurant.repository.MenuItemRepository;
+import upeu.edu.pe.restaurant.repository.OrderRepository;
 import upeu.edu.pe.restaurant.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,136 +41,144 @@ public class CouponService {
     private final CouponRepository couponRepository;
     private final CouponUsageRepository couponUsageRepository;
     private final UserRepository userRepository;
+    private final CouponRedemptionService redemptionService;
+    private final CouponCache couponCache;
+    private final MenuItemRepository menuItemRepository;
+    private final OrderRepository orderRepository;
     
     /**
-     * Validar un cupón para un usuario
+     * Validar un cupón para un usuario (desde la caché, sin cargar el usuario)
      */
-    @Transactional(readOnly = true)
     public CouponValidationResponse validateCoupon(ValidateCouponRequest request, Long userId) {
-        log.info("🎫 Validando cupón: {} para usuario: {}", request.getCode(), userId);
-        
-        // Buscar usuario
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario", "id", userId));
+        CouponCart cart = buildCart(request.getRestaurantId(), request.getProductIds(), request.getCartTotal(), userId);
+        return validate(request.getCode(), cart, userId);
+    }
+    
+    /**
+     * Validar un cupón contra un carrito ya cotizado (categorías conocidas, sin consultas extra)
+     */
+    public CouponValidationResponse validateCoupon(String code, BigDecimal subtotal, Long restaurantId,
+                                                   Set<String> categories, Long userId) {
+        CouponCart cart = new CouponCart(restaurantId, subtotal, LocalDateTime.now(),
+                () -> categories, () -> orderRepository.countByUserId(userId));
+        return validate(code, cart, userId);
+    }
+    
+    private CouponValidationResponse validate(String code, CouponCart cart, Long userId) {
+        log.info("🎫 Validando cupón: {} para usuario: {}", code, userId);
         
         // Buscar cupón por código
-        Coupon coupon = couponRepository.findByCodeIgnoreCase(request.getCode())
-                .orElse(null);
+        CouponRule coupon = couponCache.get(code).orElse(null);
         
         if (coupon == null) {
-            log.warn("❌ Cupón no encontrado: {}", request.getCode());
+            log.warn("❌ Cupón no encontrado: {}", code);
             return CouponValidationResponse.builder()
                     .valid(false)
-                    .code(request.getCode())
+                    .code(code)
                     .message("Cupón no válido")
                     .reason("not_found")
                     .build();
         }
         
-        // Validar si el cupón está activo
-        if (!coupon.getIsActive()) {
-            log.warn("❌ Cupón inactivo: {}", request.getCode());
-            return CouponValidationResponse.builder()
-                    .valid(false)
-                    .code(coupon.getCode())
-                    .message("Este cupón ya no está disponible")
-                    .reason("inactive")
-                    .build();
-        }
+        CouponValidationResponse response = evaluate(coupon, cart,
+                () -> couponCache.userUsageCount(userId, coupon.getId()));
         
-        // Validar si el cupón expiró
-        if (coupon.isExpired()) {
-            log.warn("❌ Cupón expirado: {}", request.getCode());
-            return CouponValidationResponse.builder()
-                    .valid(false)
-                    .code(coupon.getCode())
-                    .message("Este cupón ha expirado")
-                    .expiresAt(coupon.getExpiresAt())
-                    .reason("expired")
-                    .build();
+        if (response.getValid()) {
+            log.info("✅ Cupón válido: {} - Descuento: S/{}", coupon.getCode(), response.getDiscount());
+        } else {
+            log.warn("❌ Cupón rechazado: {} ({})", code, response.getReason());
         }
+        return response;
+    }
+    
+    /**
+     * Buscar el cupón con mayor descuento aplicable a un carrito
+     */
+    public CouponValidationResponse findBestCoupon(BestCouponRequest request, Long userId) {
+        CouponCart cart = buildCart(request.getRestaurantId(), request.getProductIds(), request.getCartTotal(), userId);
         
-        // Validar límite de usos global
-        if (coupon.hasReachedUsageLimit()) {
-            log.warn("❌ Cupón alcanzó límite de usos: {}", request.getCode());
-            return CouponValidationResponse.builder()
-                    .valid(false)
-                    .code(coupon.getCode())
-                    .message("Este cupón ya no está disponible")
-                    .reason("usage_limit_reached")
-                    .build();
-        }
+        List<CouponRule> candidates = couponCache.suggestable();
         
-        // Validar límite de usos por usuario
-        if (coupon.getUserUsageLimit() != null) {
-            long userUsageCount = couponUsageRepository.countByUserAndCoupon(user, coupon);
-            if (userUsageCount >= coupon.getUserUsageLimit()) {
-                log.warn("❌ Usuario alcanzó límite de usos del cupón: {}", request.getCode());
-                return CouponValidationResponse.builder()
-                        .valid(false)
-                        .code(coupon.getCode())
-                        .message("Ya has utilizado este cupón el máximo de veces permitido")
-                        .reason("user_usage_limit_reached")
-                        .build();
+        // Usos del usuario de todos los candidatos con límite en una sola consulta
+        List<Long> limitedIds = candidates.stream()
+                .filter(coupon -> coupon.getUserUsageLimit() != null)
+                .map(CouponRule::getId)
+                .toList();
+        Map<Long, Long> userUsage = limitedIds.isEmpty()
+                ? Map.of()
+                : couponCache.userUsageCounts(userId, limitedIds);
+        
+        CouponValidationResponse best = null;
+        for (CouponRule coupon : candidates) {
+            CouponValidationResponse response = evaluate(coupon, cart,
+                    () -> userUsage.getOrDefault(coupon.getId(), 0L));
+            if (response.getValid() && (best == null || response.getDiscount().compareTo(best.getDiscount()) > 0)) {
+                best = response;
             }
         }
         
-        // Validar monto mínimo
-        BigDecimal minimumAmount = coupon.getMinimumAmount();
-        if (request.getCartTotal().compareTo(minimumAmount) < 0) {
-            log.warn("❌ Monto mínimo no alcanzado: {} < {}", 
-                    request.getCartTotal(), minimumAmount);
+        if (best == null) {
+            log.info("🎫 Sin cupones aplicables para usuario: {}", userId);
             return CouponValidationResponse.builder()
                     .valid(false)
-                    .code(coupon.getCode())
-                    .message(String.format("Monto mínimo de compra: S/%.2f", minimumAmount))
-                    .reason("minimum_amount_not_met")
+                    .message("No hay cupones aplicables a este carrito")
+                    .reason("none_applicable")
                     .build();
         }
         
-        // Calcular descuento
-        BigDecimal discount = coupon.calculateDiscount(request.getCartTotal());
-        BigDecimal finalTotal = request.getCartTotal().subtract(discount);
-        
-        log.info("✅ Cupón válido: {} - Descuento: S/{}", coupon.getCode(), discount);
-        
-        return CouponValidationResponse.builder()
-                .valid(true)
-                .code(coupon.getCode())
-                .message("Cupón aplicado correctamente")
-                .discount(discount)
-                .discountType(coupon.getDiscountType().toString().toLowerCase())
-                .discountValue(coupon.getDiscountValue())
-                .finalTotal(finalTotal)
-                .expiresAt(coupon.getExpiresAt())
-                .build();
+        log.info("🎫 Mejor cupón para usuario {}: {} - Descuento: S/{}", userId, best.getCode(), best.getDiscount());
+        return best;
     }
     
     /**
-     * Registrar el uso de un cupón
+     * Registrar el uso de un cupón. Las condiciones se vuelven a evaluar contra el carrito al
+     * canjear: el cupón, la franja horaria o los pedidos del usuario pueden haber cambiado desde
+     * la cotización.
      */
     @Transactional
-    public void useCoupon(String code, Long userId, Long orderId) {
+    public void useCoupon(String code, Long userId, Long orderId, BigDecimal subtotal, Long restaurantId,
+                          Set<String> categories) {
         log.info("📝 Registrando uso de cupón: {} por usuario: {}", code, userId);
         
+        CouponRule coupon = couponCache.get(code)
+                .orElseThrow(() -> new ResourceNotFoundException("Cupón", "code", code));
+        
+        // La orden que canjea el cupón ya está guardada en esta transacción: no cuenta como pedido previo
+        long currentOrder = orderId != null ? 1 : 0;
+        CouponCart cart = new CouponCart(restaurantId, subtotal, LocalDateTime.now(),
+                () -> categories, () -> Math.max(0, orderRepository.countByUserId(userId) - currentOrder));
+        CouponValidationResponse check = evaluate(coupon, cart,
+                () -> couponCache.userUsageCount(userId, coupon.getId()));
+        if (!check.getValid()) {
+            log.warn("❌ Cupón rechazado al canjear: {} ({})", code, check.getReason());
+            throw new BadRequestException(check.getMessage());
+        }
+        
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario", "id", userId));
         
-        Coupon coupon = couponRepository.findByCodeIgnoreCase(code)
-                .orElseThrow(() -> new ResourceNotFoundException("Cupón", "code", code));
-        
-        // Incrementar contador de usos
-        coupon.setUsageCount(coupon.getUsageCount() + 1);
-        couponRepository.save(coupon);
+        // Incrementar contador de usos de forma atómica (sin leer-modificar-guardar)
+        if (!redemptionService.redeem(coupon.getId(), coupon.getCode())) {
+            log.warn("❌ Cupón sin usos disponibles: {}", code);
+            throw new BadRequestException("Este cupón ya no está disponible");
+        }
         
         // Registrar uso
         CouponUsage usage = CouponUsage.builder()
                 .user(user)
-                .coupon(coupon)
-                .order(null) // Se puede actualizar después con la orden
+                .coupon(couponRepository.getReferenceById(coupon.getId()))
+                .order(orderId != null ? orderRepository.getReferenceById(orderId) : null)
                 .build();
         
         couponUsageRepository.save(usage);
+        
+        // Reflejar el uso en la caché solo si la transacción se confirma
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                couponCache.recordRedemption(coupon.getCode(), coupon.getId(), userId);
+            }
+        });
         log.info("✅ Uso de cupón registrado correctamente");
     }
     
@@ -213,9 +230,16 @@ public class CouponService {
                 .usageLimit(dto.getUsageLimit())
                 .usageCount(0)
                 .userUsageLimit(dto.getUserUsageLimit())
+                .restaurantId(dto.getRestaurantId())
+                .categories(dto.getCategories())
+                .firstOrderOnly(Boolean.TRUE.equals(dto.getFirstOrderOnly()))
+                .validFromTime(dto.getValidFromTime())
+                .validUntilTime(dto.getValidUntilTime())
                 .build();
         
         Coupon saved = couponRepository.save(coupon);
+        couponCache.addCode(saved.getCode());
+        invalidateAfterCommit(saved.getCode());
         log.info("✅ Cupón creado: {}", saved.getCode());
         
         return convertToDTO(saved);
@@ -232,6 +256,8 @@ public class CouponService {
         // Alternar el estado
         coupon.setIsActive(!coupon.getIsActive());
         Coupon updated = couponRepository.save(coupon);
+        invalidateAfterCommit(updated.getCode());
+        releaseSlotsAfterCommit(updated.getId());
         
         log.info("✅ Estado del cupón {} actualizado a: {}", 
                 coupon.getCode(), updated.getIsActive() ? "ACTIVO" : "INACTIVO");
@@ -239,6 +265,140 @@ public class CouponService {
         return convertToDTO(updated);
     }
     
+    /**
+     * Evaluar un cupón contra un carrito; todo en memoria salvo los conteos perezosos del carrito
+     * y de los usos del usuario
+     */
+    private CouponValidationResponse evaluate(CouponRule coupon, CouponCart cart, LongSupplier userUsage) {
+        // Validar si el cupón está activo
+        if (!coupon.isActive()) {
+            return CouponValidationResponse.builder()
+                    .valid(false)
+                    .code(coupon.getCode())
+                    .message("Este cupón ya no está disponible")
+                    .reason("inactive")
+                    .build();
+        }
+        
+        // Validar si el cupón expiró
+        if (coupon.isExpired(cart.getTime())) {
+            return CouponValidationResponse.builder()
+                    .valid(false)
+                    .code(coupon.getCode())
+                    .message("Este cupón ha expirado")
+                    .expiresAt(coupon.getExpiresAt())
+                    .reason("expired")
+                    .build();
+        }
+        
+        // Validar límite de usos global
+        if (coupon.hasReachedUsageLimit(couponCache.usageCount(coupon.getCode()))) {
+            return CouponValidationResponse.builder()
+                    .valid(false)
+                    .code(coupon.getCode())
+                    .message("Este cupón ya no está disponible")
+                    .reason("usage_limit_reached")
+                    .build();
+        }
+        
+        // Validar condiciones de aplicación (restaurante, categorías, primer pedido, franja horaria)
+        CouponCondition failure = coupon.firstFailure(cart);
+        if (failure != null) {
+            return CouponValidationResponse.builder()
+                    .valid(false)
+                    .code(coupon.getCode())
+                    .message(failure.message())
+                    .reason(failure.reason())
+                    .build();
+        }
+        
+        // Validar límite de usos por usuario
+        if (coupon.getUserUsageLimit() != null) {
+            long userUsageCount = userUsage.getAsLong();
+            if (userUsageCount >= coupon.getUserUsageLimit()) {
+                return CouponValidationResponse.builder()
+                        .valid(false)
+                        .code(coupon.getCode())
+                        .message("Ya has utilizado este cupón el máximo de veces permitido")
+                        .reason("user_usage_limit_reached")
+                        .build();
+            }
+        }
+        
+        // Validar monto mínimo
+        BigDecimal minimumAmount = coupon.getMinimumAmount();
+        if (cart.getSubtotal().compareTo(minimumAmount) < 0) {
+            return CouponValidationResponse.builder()
+                    .valid(false)
+                    .code(coupon.getCode())
+                    .message(String.format("Monto mínimo de compra: S/%.2f", minimumAmount))
+                    .reason("minimum_amount_not_met")
+                    .build();
+        }
+        
+        // Calcular descuento
+        BigDecimal discount = coupon.calculateDiscount(cart.getSubtotal());
+        BigDecimal finalTotal = cart.getSubtotal().subtract(discount);
+        
+        return CouponValidationResponse.builder()
+                .valid(true)
+                .code(coupon.getCode())
+                .message("Cupón aplicado correctamente")
+                .discount(discount)
+                .discountType(coupon.getDiscountType().toString().toLowerCase())
+                .discountValue(coupon.getDiscountValue())
+                .finalTotal(finalTotal)
+                .expiresAt(coupon.getExpiresAt())
+                .build();
+    }
+    
+    /**
+     * Carrito para evaluar condiciones; categorías y pedidos previos solo se consultan si hacen falta
+     */
+    private CouponCart buildCart(Long restaurantId, List<Long> productIds, BigDecimal subtotal, Long userId) {
+        return new CouponCart(
+                restaurantId,
+                subtotal,
+                LocalDateTime.now(),
+                () -> productIds == null || productIds.isEmpty()
+                        ? Set.of()
+                        : Set.copyOf(menuItemRepository.findCategoriesByIds(productIds)),
+                () -> orderRepository.countByUserId(userId)
+        );
+    }
+    
+    /**
+     * Quitar el cupón de la caché una vez confirmado el cambio
+     */
+    private void invalidateAfterCommit(String code) {
+        couponCache.invalidate(code);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                couponCache.invalidate(code);
+            }
+        });
+    }
+    
+    /**
+     * Devolver los usos reservados en memoria de un cupón que cambió, una vez confirmado el cambio
+     */
+    private void releaseSlotsAfterCommit(Long couponId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                redemptionService.invalidate(couponId);
+            }
+        });
+    }
+    
+    /**
+     * Métricas del filtro de códigos de cupón (admin)
+     */
+    public Map<String, Object> getFilterStats() {
+        return couponCache.getFilterStats();
+    }
+    
     /**
      * Convertir entidad a DTO
      */
@@ -256,6 +416,11 @@ public class CouponService {
                 .usageLimit(coupon.getUsageLimit())
                 .usageCount(coupon.getUsageCount())
                 .userUsageLimit(coupon.getUserUsageLimit())
+                .restaurantId(coupon.getRestaurantId())
+                .categories(coupon.getCategories())
+                .firstOrderOnly(coupon.getFirstOrderOnly())
+                .validFromTime(coupon.getValidFromTime())
+                .validUntilTime(coupon.getValidUntilTime())
                 .createdAt(coupon.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,139 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reserva por bloques de usos de un cupón muy demandado.
+ *
+ * Los usos se reservan en la base de datos de a {@code blockSize} con un UPDATE condicional
+ * (nunca se supera usage_limit) y se reparten desde contadores en franjas (stripes) para que
+ * los hilos no compitan por la misma fila ni por el mismo contador. Los usos reservados y no
+ * consumidos se devuelven con {@link #drain()}; si el proceso muere sin devolverlos, el cupón
+ * queda sub-vendido, nunca sobre-vendido.
+ *
+ * Nadie espera a que llegue un bloque: mientras un hilo lo reserva, los demás toman su uso
+ * directamente de la base de datos ({@code directSource}, dentro de su propia transacción).
+ * Así ningún hilo retiene su conexión esperando a otro que necesita una conexión más.
+ */
+public final class CouponSlotPool {
+    
+    /**
+     * Origen de los usos: reserva hasta {@code requested} usos y devuelve cuántos concedió
+     */
+    @FunctionalInterface
+    public interface SlotSource {
+        int reserve(int requested);
+    }
+    
+    /**
+     * De dónde salió un uso: del pool (se devuelve con release), directo de la base de datos
+     * (lo devuelve el rollback de la transacción) o ninguno porque el cupón está agotado
+     */
+    public enum Acquisition { POOLED, DIRECT, SOLD_OUT }
+    
+    private final AtomicInteger[] stripes;
+    private final int blockSize;
+    private final SlotSource blockSource;
+    private final SlotSource directSource;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private volatile boolean closed;
+    
+    public CouponSlotPool(int stripeCount, int blockSize, SlotSource blockSource, SlotSource directSource) {
+        this.stripes = new AtomicInteger[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new AtomicInteger();
+        }
+        this.blockSize = Math.max(1, blockSize);
+        this.blockSource = blockSource;
+        this.directSource = directSource;
+    }
+    
+    /**
+     * Tomar un uso del pool, reservando un bloque nuevo si hace falta
+     */
+    public Acquisition tryAcquire() {
+        int start = stripeIndex();
+        if (!closed && takeFromStripes(start)) {
+            return Acquisition.POOLED;
+        }
+        
+        // Solo un hilo a la vez va a la base de datos por un bloque nuevo; los demás no lo esperan
+        if (!closed && refilling.compareAndSet(false, true)) {
+            try {
+                if (takeFromStripes(start)) {
+                    return Acquisition.POOLED;
+                }
+                int granted = blockSource.reserve(blockSize);
+                if (granted <= 0) {
+                    return Acquisition.SOLD_OUT;
+                }
+                stripes[start].addAndGet(granted - 1);
+                return Acquisition.POOLED;
+            } finally {
+                refilling.set(false);
+            }
+        }
+        return directSource.reserve(1) > 0 ? Acquisition.DIRECT : Acquisition.SOLD_OUT;
+    }
+    
+    /**
+     * Devolver un uso tomado del pool (p. ej. si la transacción del pedido hizo rollback);
+     * false si el pool ya se cerró y el uso hay que devolverlo a la base de datos
+     */
+    public boolean release() {
+        if (closed) {
+            return false;
+        }
+        stripes[stripeIndex()].incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Cerrar el pool (el cupón cambió) y vaciarlo; devuelve cuántos usos tenía
+     */
+    public int close() {
+        closed = true;
+        return drain();
+    }
+    
+    /**
+     * Vaciar todos los usos reservados y no consumidos; devuelve cuántos eran
+     */
+    public int drain() {
+        int total = 0;
+        for (AtomicInteger stripe : stripes) {
+            total += stripe.getAndSet(0);
+        }
+        return total;
+    }
+    
+    /**
+     * Usos reservados disponibles en memoria
+     */
+    public int available() {
+        int total = 0;
+        for (AtomicInteger stripe : stripes) {
+            total += stripe.get();
+        }
+        return total;
+    }
+    
+    private boolean takeFromStripes(int start) {
+        for (int i = 0; i < stripes.length; i++) {
+            AtomicInteger stripe = stripes[(start + i) % stripes.length];
+            int current;
+            while ((current = stripe.get()) > 0) {
+                if (stripe.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id ^ (id >>> 16)) & Integer.MAX_VALUE) % stripes.length;
+    }
+}
@@ -1,23 +1,58 @@
 package upeu.edu.pe.restaurant.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.cache.FCMTokenRegistry;
 import upeu.edu.pe.restaurant.dto.FCMTokenDTO;
 import upeu.edu.pe.restaurant.entity.FCMToken;
+import upeu.edu.pe.restaurant.event.FCMTokenChangedEvent;
 import upeu.edu.pe.restaurant.repository.FCMTokenRepository;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class FCMTokenService {
     
+    // Pares (token, rechazado en) desanidados: cada token se compara con su propio rechazo
+    private static final String DEACTIVATE_REJECTED_SQL =
+            "UPDATE fcm_tokens t SET is_active = false, updated_at = ? " +
+            "FROM unnest(?::text[], ?::timestamp[]) AS r(token, rejected_at) " +
+            "WHERE t.token = r.token AND t.is_active = true AND t.updated_at < r.rejected_at";
+    
     private final FCMTokenRepository fcmTokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final FCMTokenRegistry tokenRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionCallbacks transactionCallbacks;
+    private final int inactiveDays;
+    private final int cleanupBatchSize;
+    
+    public FCMTokenService(
+            FCMTokenRepository fcmTokenRepository,
+            JdbcTemplate jdbcTemplate,
+            FCMTokenRegistry tokenRegistry,
+            ApplicationEventPublisher eventPublisher,
+            TransactionCallbacks transactionCallbacks,
+            @Value("${notifications.token-cleanup.inactive-days:30}") int inactiveDays,
+            @Value("${notifications.token-cleanup.batch-size:1000}") int cleanupBatchSize) {
+        this.fcmTokenRepository = fcmTokenRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenRegistry = tokenRegistry;
+        this.eventPublisher = eventPublisher;
+        this.transactionCallbacks = transactionCallbacks;
+        this.inactiveDays = Math.max(0, inactiveDays);
+        this.cleanupBatchSize = Math.max(1, cleanupBatchSize);
+    }
     
     /**
      * Registrar o actualizar un token FCM
@@ -29,6 +64,11 @@ public class FCMTokenService {
         if (existingToken.isPresent()) {
             // Actualizar token existente
             FCMToken token = existingToken.get();
+            if (!userId.equals(token.getUserId())) {
+                // El dispositivo cambió de usuario: deja los topics del anterior
+                eventPublisher.publishEvent(new FCMTokenChangedEvent(
+                        FCMTokenChangedEvent.Type.REMOVED, token.getUserId(), token.getToken()));
+            }
             token.setUserId(userId);
             token.setDeviceType(tokenDTO.getDeviceType());
             token.setDeviceName(tokenDTO.getDeviceName());
@@ -36,6 +76,9 @@ public class FCMTokenService {
             token.setLastUsedAt(LocalDateTime.now());
             
             fcmTokenRepository.save(token);
+            transactionCallbacks.afterCommit(() -> tokenRegistry.add(userId, tokenDTO.getToken()));
+            eventPublisher.publishEvent(new FCMTokenChangedEvent(
+                    FCMTokenChangedEvent.Type.ACTIVATED, userId, tokenDTO.getToken()));
             
             log.info("Token FCM actualizado para usuario ID: {}", userId);
         } else {
@@ -49,6 +92,9 @@ public class FCMTokenService {
             newToken.setLastUsedAt(LocalDateTime.now());
             
             fcmTokenRepository.save(newToken);
+            transactionCallbacks.afterCommit(() -> tokenRegistry.add(userId, tokenDTO.getToken()));
+            eventPublisher.publishEvent(new FCMTokenChangedEvent(
+                    FCMTokenChangedEvent.Type.ACTIVATED, userId, tokenDTO.getToken()));
             
             log.info("Nuevo token FCM registrado para usuario ID: {}", userId);
         }
@@ -61,6 +107,14 @@ public class FCMTokenService {
         return fcmTokenRepository.findByUserIdAndIsActiveTrue(userId);
     }
     
+    /**
+     * Valores de los tokens activos de un usuario para enviarle notificaciones (registro en memoria).
+     * El arreglo es compartido y no debe modificarse.
+     */
+    public String[] getActiveTokenValues(Long userId) {
+        return tokenRegistry.get(userId);
+    }
+    
     /**
      * Desactivar un token (logout)
      */
@@ -72,11 +126,36 @@ public class FCMTokenService {
             FCMToken tokenEntity = fcmToken.get();
             tokenEntity.setIsActive(false);
             fcmTokenRepository.save(tokenEntity);
+            transactionCallbacks.afterCommit(() -> tokenRegistry.remove(token));
+            eventPublisher.publishEvent(new FCMTokenChangedEvent(
+                    FCMTokenChangedEvent.Type.REMOVED, tokenEntity.getUserId(), token));
             
             log.info("Token FCM desactivado: {}", token);
         }
     }
     
+    /**
+     * Desactivar varios tokens con un solo UPDATE (p. ej. los rechazados por FCM), cada uno con su
+     * momento de rechazo. Un token actualizado después de su rechazo (el usuario lo volvió a
+     * registrar) no se toca; quien lo rechazó ya lo quitó del registro en memoria.
+     */
+    @Transactional
+    public int deactivateTokens(Map<String, LocalDateTime> rejectedAtByToken) {
+        if (rejectedAtByToken == null || rejectedAtByToken.isEmpty()) {
+            return 0;
+        }
+        String[] tokens = rejectedAtByToken.keySet().toArray(String[]::new);
+        Timestamp[] rejectedAts = rejectedAtByToken.values().stream().map(Timestamp::valueOf).toArray(Timestamp[]::new);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = jdbcTemplate.update(DEACTIVATE_REJECTED_SQL, ps -> {
+            ps.setTimestamp(1, now);
+            ps.setArray(2, ps.getConnection().createArrayOf("text", tokens));
+            ps.setArray(3, ps.getConnection().createArrayOf("timestamp", rejectedAts));
+        });
+        log.info("Tokens FCM desactivados: {}", updated);
+        return updated;
+    }
+    
     /**
      * Eliminar un token
      */
@@ -86,6 +165,9 @@ public class FCMTokenService {
         
         if (fcmToken.isPresent()) {
             fcmTokenRepository.delete(fcmToken.get());
+            transactionCallbacks.afterCommit(() -> tokenRegistry.remove(token));
+            eventPublisher.publishEvent(new FCMTokenChangedEvent(
+                    FCMTokenChangedEvent.Type.REMOVED, fcmToken.get().getUserId(), token));
             log.info("Token FCM eliminado: {}", token);
         }
     }
@@ -98,11 +180,28 @@ public class FCMTokenService {
     }
     
     /**
-     * Limpiar tokens inactivos antiguos (puede ejecutarse periódicamente)
+     * Eliminar los tokens desactivados hace más de inactive-days, por lotes (cada lote en su
+     * propia transacción, para no bloquear la tabla con un solo DELETE gigante)
      */
-    @Transactional
-    public void cleanupInactiveTokens() {
-        fcmTokenRepository.deleteByIsActiveFalse();
-        log.info("Tokens inactivos eliminados");
+    @Scheduled(cron = "${notifications.token-cleanup.cron:0 0 4 * * *}")
+    public int cleanupInactiveTokens() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(inactiveDays);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = fcmTokenRepository.deleteInactiveBefore(cutoff, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+        
+        log.info("Tokens inactivos eliminados: {}", total);
+        return total;
     }
+    
+    /**
+     * Métricas del registro de tokens en memoria
+     */
+    public Map<String, Object> getRegistryStats() {
+        return tokenRegistry.getStats();
+    }
+    
 }
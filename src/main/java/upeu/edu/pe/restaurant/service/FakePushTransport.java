@@ -0,0 +1,138 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transporte push simulado en memoria, para medir el rendimiento sin llamar a Google.
+ *
+ * Cada solicitud de hasta 500 tokens espera {@code latency-ms} (± {@code jitter-ms}); cada token
+ * falla como inválido, transitorio o permanente según las tasas configuradas.
+ * Se activa con {@code notifications.transport=fake}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "notifications.transport", havingValue = "fake")
+public class FakePushTransport implements PushTransport {
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double invalidTokenRate;
+    private final double transientFailureRate;
+    private final double permanentFailureRate;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder topicSends = new LongAdder();
+    private final LongAdder topicSubscriptions = new LongAdder();
+
+    public FakePushTransport(
+            @Value("${notifications.fake.latency-ms:50}") long latencyMs,
+            @Value("${notifications.fake.jitter-ms:20}") long jitterMs,
+            @Value("${notifications.fake.invalid-token-rate:0.01}") double invalidTokenRate,
+            @Value("${notifications.fake.transient-failure-rate:0.01}") double transientFailureRate,
+            @Value("${notifications.fake.permanent-failure-rate:0.0}") double permanentFailureRate) {
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.invalidTokenRate = invalidTokenRate;
+        this.transientFailureRate = transientFailureRate;
+        this.permanentFailureRate = permanentFailureRate;
+        log.warn("🧪 Transporte push simulado activo: las notificaciones no salen a FCM");
+    }
+
+    @Override
+    public Result send(List<String> tokenList, String title, String body, Map<String, String> data) {
+        int success = 0;
+        List<String> invalid = new ArrayList<>();
+        List<String> retryable = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+
+        for (int from = 0; from < tokenList.size(); from += MAX_TOKENS) {
+            List<String> chunk = tokenList.subList(from, Math.min(from + MAX_TOKENS, tokenList.size()));
+            simulateLatency();
+            requests.increment();
+            tokens.add(chunk.size());
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (String token : chunk) {
+                double roll = random.nextDouble();
+                if (roll < invalidTokenRate) {
+                    invalid.add(token);
+                } else if (roll < invalidTokenRate + transientFailureRate) {
+                    retryable.add(token);
+                } else if (roll < invalidTokenRate + transientFailureRate + permanentFailureRate) {
+                    failed.add(token);
+                } else {
+                    success++;
+                }
+            }
+        }
+
+        delivered.add(success);
+        String error = !retryable.isEmpty() ? "UNAVAILABLE" : !failed.isEmpty() ? "THIRD_PARTY_AUTH_ERROR" : null;
+        return new Result(success, invalid, retryable, failed, error);
+    }
+
+    @Override
+    public String sendToTopic(String topic, String title, String body, Map<String, String> data,
+                              String collapseKey) {
+        simulateLatency();
+        requests.increment();
+        topicSends.increment();
+        return "fake/" + topic + "/" + topicSends.sum();
+    }
+
+    @Override
+    public int subscribeToTopic(List<String> tokenList, String topic) {
+        simulateLatency();
+        requests.increment();
+        topicSubscriptions.add(tokenList.size());
+        return tokenList.size();
+    }
+
+    @Override
+    public int unsubscribeFromTopic(List<String> tokenList, String topic) {
+        simulateLatency();
+        requests.increment();
+        topicSubscriptions.add(-tokenList.size());
+        return tokenList.size();
+    }
+
+    /**
+     * Totales de lo que se "envió"
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.sum());
+        stats.put("tokens", tokens.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("topicSends", topicSends.sum());
+        stats.put("topicSubscriptions", topicSubscriptions.sum());
+        return stats;
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMs;
+        if (jitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
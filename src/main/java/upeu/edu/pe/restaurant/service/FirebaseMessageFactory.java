@@ -0,0 +1,135 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.AndroidNotification;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Armado de mensajes FCM a partir de plantillas por tipo de notificación.
+ *
+ * La configuración de plataforma (prioridad y canal en Android, sonido y badge en iOS) es la misma
+ * para todos los mensajes de un tipo: se construye una vez y se comparte, porque los objetos del SDK
+ * son inmutables. Por mensaje solo se crean el Notification con título y cuerpo y, si lleva clave de
+ * agrupación, su propia configuración de plataforma. El tipo se toma de data["type"].
+ */
+final class FirebaseMessageFactory {
+
+    private static final String DEFAULT_CHANNEL = "high_importance_channel";
+
+    /**
+     * Configuración estática de plataforma de un tipo de notificación
+     */
+    private record PlatformTemplate(AndroidConfig.Priority priority, String channelId,
+                                    AndroidConfig android, ApnsConfig apns) {
+
+        static PlatformTemplate of(AndroidConfig.Priority priority, String channelId) {
+            return new PlatformTemplate(priority, channelId,
+                    androidConfig(priority, channelId, null), apnsConfig(null));
+        }
+
+        AndroidConfig android(String collapseKey) {
+            return collapseKey == null ? android : androidConfig(priority, channelId, collapseKey);
+        }
+
+        ApnsConfig apns(String collapseKey) {
+            return collapseKey == null ? apns : apnsConfig(collapseKey);
+        }
+    }
+
+    private static final PlatformTemplate DEFAULT_TEMPLATE =
+            PlatformTemplate.of(AndroidConfig.Priority.HIGH, DEFAULT_CHANNEL);
+
+    private static final Map<String, PlatformTemplate> TEMPLATES = Map.of(
+            NotificationTemplates.ORDER_STATUS, DEFAULT_TEMPLATE,
+            NotificationTemplates.SPECIAL_OFFER, PlatformTemplate.of(AndroidConfig.Priority.HIGH, DEFAULT_CHANNEL),
+            NotificationTemplates.NEW_RESTAURANT, PlatformTemplate.of(AndroidConfig.Priority.HIGH, DEFAULT_CHANNEL)
+    );
+
+    private FirebaseMessageFactory() {
+    }
+
+    /**
+     * Mensaje para un bloque de hasta 500 tokens
+     */
+    static MulticastMessage multicast(List<String> tokens, String title, String body,
+                                      Map<String, String> data, String collapseKey) {
+        PlatformTemplate template = templateFor(data);
+        MulticastMessage.Builder builder = MulticastMessage.builder()
+                .setNotification(notification(title, body))
+                .setAndroidConfig(template.android(collapseKey))
+                .setApnsConfig(template.apns(collapseKey))
+                .addAllTokens(tokens);
+        if (data != null && !data.isEmpty()) {
+            builder.putAllData(data);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Mensaje para un token o un topic (exactamente uno de los dos)
+     */
+    static Message single(String token, String topic, String title, String body,
+                          Map<String, String> data, String collapseKey) {
+        PlatformTemplate template = templateFor(data);
+        Message.Builder builder = Message.builder()
+                .setNotification(notification(title, body))
+                .setAndroidConfig(template.android(collapseKey))
+                .setApnsConfig(template.apns(collapseKey));
+        if (token != null) {
+            builder.setToken(token);
+        } else {
+            builder.setTopic(topic);
+        }
+        if (data != null && !data.isEmpty()) {
+            builder.putAllData(data);
+        }
+        return builder.build();
+    }
+
+    private static PlatformTemplate templateFor(Map<String, String> data) {
+        String type = data != null ? data.get("type") : null;
+        return type != null ? TEMPLATES.getOrDefault(type, DEFAULT_TEMPLATE) : DEFAULT_TEMPLATE;
+    }
+
+    private static Notification notification(String title, String body) {
+        return Notification.builder()
+                .setTitle(title)
+                .setBody(body)
+                .build();
+    }
+
+    /**
+     * Con collapseKey la notificación reemplaza en el dispositivo a la anterior con la misma clave
+     */
+    private static AndroidConfig androidConfig(AndroidConfig.Priority priority, String channelId, String collapseKey) {
+        AndroidNotification.Builder notification = AndroidNotification.builder()
+                .setSound("default")
+                .setChannelId(channelId);
+        AndroidConfig.Builder config = AndroidConfig.builder()
+                .setPriority(priority);
+        if (collapseKey != null) {
+            notification.setTag(collapseKey);
+            config.setCollapseKey(collapseKey);
+        }
+        return config.setNotification(notification.build()).build();
+    }
+
+    private static ApnsConfig apnsConfig(String collapseKey) {
+        ApnsConfig.Builder config = ApnsConfig.builder()
+                .setAps(Aps.builder()
+                        .setSound("default")
+                        .setBadge(1)
+                        .build());
+        if (collapseKey != null) {
+            config.putHeader("apns-collapse-id", collapseKey);
+        }
+        return config.build();
+    }
+}
@@ -4,22 +4,24 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.messaging.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import upeu.edu.pe.restaurant.entity.FCMToken;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-public class FirebaseMessagingService {
+@ConditionalOnProperty(name = "notifications.transport", havingValue = "firebase", matchIfMissing = true)
+public class FirebaseMessagingService implements PushTransport {
 
     private final FirebaseApp firebaseApp;
+    private final FirebaseMessaging messaging;
     
     public FirebaseMessagingService(@Autowired(required = false) FirebaseApp firebaseApp) {
         this.firebaseApp = firebaseApp;
+        this.messaging = firebaseApp != null ? FirebaseMessaging.getInstance(firebaseApp) : null;
         if (firebaseApp == null) {
             log.warn("⚠️ FirebaseApp no disponible. Las notificaciones push no funcionarán.");
         }
@@ -35,31 +37,7 @@ public class FirebaseMessagingService {
         }
 
         try {
-            Message.Builder messageBuilder = Message.builder()
-                    .setToken(token)
-                    .setNotification(Notification.builder()
-                            .setTitle(title)
-                            .setBody(body)
-                            .build())
-                    .setAndroidConfig(AndroidConfig.builder()
-                            .setPriority(AndroidConfig.Priority.HIGH)
-                            .setNotification(AndroidNotification.builder()
-                                    .setSound("default")
-                                    .setChannelId("high_importance_channel")
-                                    .build())
-                            .build())
-                    .setApnsConfig(ApnsConfig.builder()
-                            .setAps(Aps.builder()
-                                    .setSound("default")
-                                    .setBadge(1)
-                                    .build())
-                            .build());
-
-            if (data != null && !data.isEmpty()) {
-                messageBuilder.putAllData(data);
-            }
-
-            String response = FirebaseMessaging.getInstance(firebaseApp).send(messageBuilder.build());
+            String response = messaging.send(FirebaseMessageFactory.single(token, null, title, body, data, null));
             log.info("✅ Notification sent successfully: {}", response);
 
         } catch (FirebaseMessagingException e) {
@@ -69,185 +47,164 @@ public class FirebaseMessagingService {
     }
 
     /**
-     * Enviar notificación a múltiples tokens (batch)
+     * Enviar notificación a múltiples tokens, en solicitudes de hasta 500 tokens
      */
-    public BatchResponse sendNotificationToMultipleTokens(
+    @Override
+    public PushTransport.Result send(
             List<String> tokens, 
             String title, 
             String body, 
             Map<String, String> data) {
-        
-        if (!isFirebaseInitialized()) {
-            log.warn("Firebase not initialized. Skipping notification to {} tokens", tokens.size());
-            return null;
-        }
+        return send(tokens, title, body, data, null);
+    }
 
+    /**
+     * Enviar notificación a múltiples tokens con clave de agrupación (collapse key en Android,
+     * tag de la notificación y apns-collapse-id en iOS)
+     */
+    @Override
+    public PushTransport.Result send(
+            List<String> tokens, 
+            String title, 
+            String body, 
+            Map<String, String> data,
+            String collapseKey) {
+        
         if (tokens == null || tokens.isEmpty()) {
             log.warn("No tokens provided for notification");
-            return null;
+            return PushTransport.Result.success(0);
         }
 
-        // Firebase limita a 500 tokens por request
-        if (tokens.size() > 500) {
-            log.warn("Token list exceeds 500. Only first 500 will be used.");
-            tokens = tokens.subList(0, 500);
+        if (!isFirebaseInitialized()) {
+            log.warn("Firebase not initialized. Skipping notification to {} tokens", tokens.size());
+            return PushTransport.Result.failed(tokens, "firebase_not_initialized");
         }
 
-        try {
-            MulticastMessage.Builder messageBuilder = MulticastMessage.builder()
-                    .setNotification(Notification.builder()
-                            .setTitle(title)
-                            .setBody(body)
-                            .build())
-                    .setAndroidConfig(AndroidConfig.builder()
-                            .setPriority(AndroidConfig.Priority.HIGH)
-                            .setNotification(AndroidNotification.builder()
-                                    .setSound("default")
-                                    .setChannelId("high_importance_channel")
-                                    .build())
-                            .build())
-                    .setApnsConfig(ApnsConfig.builder()
-                            .setAps(Aps.builder()
-                                    .setSound("default")
-                                    .setBadge(1)
-                                    .build())
-                            .build())
-                    .addAllTokens(tokens);
-
-            if (data != null && !data.isEmpty()) {
-                messageBuilder.putAllData(data);
-            }
-
-            BatchResponse response = FirebaseMessaging.getInstance(firebaseApp)
-                    .sendMulticast(messageBuilder.build());
-
-            log.info("✅ Batch notification sent: {} success, {} failure out of {}",
-                    response.getSuccessCount(),
-                    response.getFailureCount(),
-                    tokens.size());
+        int success = 0;
+        List<String> invalidTokens = new ArrayList<>();
+        List<String> retryableTokens = new ArrayList<>();
+        List<String> failedTokens = new ArrayList<>();
+        String lastError = null;
 
-            // Procesar tokens fallidos
-            if (response.getFailureCount() > 0) {
-                handleFailedTokens(response, tokens);
+        // Firebase limita a 500 tokens por request
+        for (int from = 0; from < tokens.size(); from += MAX_TOKENS) {
+            List<String> chunk = tokens.subList(from, Math.min(from + MAX_TOKENS, tokens.size()));
+            try {
+                BatchResponse response = sendNotificationToMultipleTokens(chunk, title, body, data, collapseKey);
+                success += response.getSuccessCount();
+
+                List<SendResponse> responses = response.getResponses();
+                for (int i = 0; i < responses.size() && i < chunk.size(); i++) {
+                    FirebaseMessagingException exception = responses.get(i).getException();
+                    if (responses.get(i).isSuccessful() || exception == null) {
+                        continue;
+                    }
+                    lastError = errorName(exception);
+                    if (isInvalidTokenError(exception)) {
+                        invalidTokens.add(chunk.get(i));
+                    } else if (isTransientError(exception)) {
+                        retryableTokens.add(chunk.get(i));
+                    } else {
+                        failedTokens.add(chunk.get(i));
+                    }
+                }
+            } catch (FirebaseMessagingException e) {
+                log.error("❌ Error sending batch notification: {}", e.getMessage());
+                lastError = errorName(e);
+                if (isTransientError(e)) {
+                    retryableTokens.addAll(chunk);
+                } else {
+                    failedTokens.addAll(chunk);
+                }
             }
-
-            return response;
-
-        } catch (FirebaseMessagingException e) {
-            log.error("❌ Error sending batch notification: {}", e.getMessage());
-            return null;
         }
+
+        return new PushTransport.Result(success, invalidTokens, retryableTokens, failedTokens, lastError);
     }
 
     /**
-     * Enviar notificación de cambio de estado de pedido
+     * Enviar notificación a un bloque de hasta 500 tokens (batch)
      */
-    public void sendOrderStatusNotification(
-            List<FCMToken> tokens,
-            Long orderId,
-            String status,
-            String statusText) {
-
-        if (tokens == null || tokens.isEmpty()) {
-            log.warn("No tokens available for order status notification");
-            return;
-        }
-
-        String title = getOrderStatusTitle(status);
-        String body = String.format(getOrderStatusBody(status), orderId);
+    private BatchResponse sendNotificationToMultipleTokens(
+            List<String> tokens, 
+            String title, 
+            String body, 
+            Map<String, String> data,
+            String collapseKey) throws FirebaseMessagingException {
 
-        Map<String, String> data = Map.of(
-                "type", "order_status",
-                "id", orderId.toString(),
-                "status", status,
-                "click_action", "FLUTTER_NOTIFICATION_CLICK"
-        );
+        BatchResponse response = messaging.sendEachForMulticast(
+                FirebaseMessageFactory.multicast(tokens, title, body, data, collapseKey));
 
-        List<String> tokenStrings = tokens.stream()
-                .map(FCMToken::getToken)
-                .collect(Collectors.toList());
+        log.info("✅ Batch notification sent: {} success, {} failure out of {}",
+                response.getSuccessCount(),
+                response.getFailureCount(),
+                tokens.size());
 
-        sendNotificationToMultipleTokens(tokenStrings, title, body, data);
+        return response;
     }
 
     /**
-     * Enviar notificación de oferta especial
+     * Enviar notificación a un topic: una sola solicitud para toda la audiencia
      */
-    public void sendSpecialOfferNotification(
-            List<FCMToken> tokens,
-            String offerTitle,
-            String offerDescription,
-            String couponId) {
-
-        if (tokens == null || tokens.isEmpty()) {
-            log.warn("No tokens available for special offer notification");
-            return;
+    @Override
+    public String sendToTopic(String topic, String title, String body, Map<String, String> data,
+                              String collapseKey) {
+        if (!isFirebaseInitialized()) {
+            log.warn("Firebase not initialized. Skipping notification to topic: {}", topic);
+            return null;
         }
 
-        Map<String, String> data = Map.of(
-                "type", "special_offer",
-                "id", couponId != null ? couponId : "",
-                "click_action", "FLUTTER_NOTIFICATION_CLICK"
-        );
-
-        List<String> tokenStrings = tokens.stream()
-                .map(FCMToken::getToken)
-                .collect(Collectors.toList());
-
-        sendNotificationToMultipleTokens(tokenStrings, "🎁 " + offerTitle, offerDescription, data);
+        try {
+            String response = messaging.send(FirebaseMessageFactory.single(null, topic, title, body, data, collapseKey));
+            log.info("✅ Topic notification sent to {}: {}", topic, response);
+            return response;
+        } catch (FirebaseMessagingException e) {
+            log.error("❌ Error sending notification to topic {}: {}", topic, e.getMessage());
+            throw new IllegalStateException("Error enviando al topic " + topic + ": " + errorName(e), e);
+        }
     }
 
     /**
-     * Enviar notificación de nuevo restaurante
+     * Suscribir un bloque de hasta 1000 tokens a un topic
      */
-    public void sendNewRestaurantNotification(
-            List<FCMToken> tokens,
-            Long restaurantId,
-            String restaurantName) {
-
-        if (tokens == null || tokens.isEmpty()) {
-            log.warn("No tokens available for new restaurant notification");
-            return;
+    @Override
+    public int subscribeToTopic(List<String> tokens, String topic) {
+        if (!isFirebaseInitialized() || tokens.isEmpty()) {
+            return 0;
+        }
+        try {
+            TopicManagementResponse response = messaging.subscribeToTopic(tokens, topic);
+            logTopicErrors("subscribe", topic, response);
+            return response.getSuccessCount();
+        } catch (FirebaseMessagingException e) {
+            throw new TopicException("Error suscribiendo tokens al topic " + topic + ": " + errorName(e),
+                    isTransientError(e), e);
         }
-
-        String title = "🏪 ¡Nuevo restaurante disponible!";
-        String body = String.format("Descubre la deliciosa comida de %s", restaurantName);
-
-        Map<String, String> data = Map.of(
-                "type", "new_restaurant",
-                "id", restaurantId.toString(),
-                "click_action", "FLUTTER_NOTIFICATION_CLICK"
-        );
-
-        List<String> tokenStrings = tokens.stream()
-                .map(FCMToken::getToken)
-                .collect(Collectors.toList());
-
-        sendNotificationToMultipleTokens(tokenStrings, title, body, data);
     }
 
     /**
-     * Obtener tokens inválidos de una respuesta batch
+     * Quitar un bloque de hasta 1000 tokens de un topic
      */
-    public List<String> getInvalidTokens(BatchResponse response, List<String> originalTokens) {
-        List<String> invalidTokens = new ArrayList<>();
-
-        if (response == null || response.getResponses() == null) {
-            return invalidTokens;
+    @Override
+    public int unsubscribeFromTopic(List<String> tokens, String topic) {
+        if (!isFirebaseInitialized() || tokens.isEmpty()) {
+            return 0;
         }
-
-        List<SendResponse> responses = response.getResponses();
-        for (int i = 0; i < responses.size(); i++) {
-            SendResponse sendResponse = responses.get(i);
-            if (!sendResponse.isSuccessful() && i < originalTokens.size()) {
-                FirebaseMessagingException exception = sendResponse.getException();
-                if (exception != null && isInvalidTokenError(exception)) {
-                    invalidTokens.add(originalTokens.get(i));
-                }
-            }
+        try {
+            TopicManagementResponse response = messaging.unsubscribeFromTopic(tokens, topic);
+            logTopicErrors("unsubscribe", topic, response);
+            return response.getSuccessCount();
+        } catch (FirebaseMessagingException e) {
+            throw new TopicException("Error quitando tokens del topic " + topic + ": " + errorName(e),
+                    isTransientError(e), e);
         }
+    }
 
-        return invalidTokens;
+    private void logTopicErrors(String operation, String topic, TopicManagementResponse response) {
+        if (response.getFailureCount() > 0) {
+            log.warn("Topic {} [{}]: {} tokens fallidos (primer error: {})", operation, topic,
+                    response.getFailureCount(), response.getErrors().get(0).getReason());
+        }
     }
 
     /**
@@ -257,19 +214,6 @@ public class FirebaseMessagingService {
         return firebaseApp != null;
     }
 
-    /**
-     * Manejar tokens fallidos
-     */
-    private void handleFailedTokens(BatchResponse response, List<String> tokens) {
-        List<String> invalidTokens = getInvalidTokens(response, tokens);
-
-        if (!invalidTokens.isEmpty()) {
-            log.warn("Found {} invalid tokens that should be cleaned up", invalidTokens.size());
-            // Los tokens inválidos deberían ser marcados como inactivos en la base de datos
-            // Esto se manejará desde NotificationService
-        }
-    }
-
     /**
      * Manejar errores de mensajería
      */
@@ -287,6 +231,9 @@ public class FirebaseMessagingService {
      * Verificar si es un error de token inválido
      */
     private boolean isInvalidTokenError(FirebaseMessagingException e) {
+        if (e.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED) {
+            return true;
+        }
         String errorCode = e.getErrorCode().name();
         return errorCode.equals("INVALID_ARGUMENT") ||
                 errorCode.equals("REGISTRATION_TOKEN_NOT_REGISTERED") ||
@@ -294,30 +241,23 @@ public class FirebaseMessagingService {
     }
 
     /**
-     * Obtener título según estado del pedido
+     * Verificar si es un error transitorio del servicio (vale la pena reintentar)
      */
-    private String getOrderStatusTitle(String status) {
-        return switch (status.toLowerCase()) {
-            case "confirmed" -> "✅ Pedido confirmado";
-            case "preparing" -> "👨‍🍳 Preparando tu pedido";
-            case "on_the_way" -> "🚚 ¡Tu pedido está en camino!";
-            case "delivered" -> "🎉 ¡Pedido entregado!";
-            case "cancelled" -> "❌ Pedido cancelado";
-            default -> "📦 Actualización de pedido";
-        };
+    private boolean isTransientError(FirebaseMessagingException e) {
+        MessagingErrorCode messagingCode = e.getMessagingErrorCode();
+        if (messagingCode != null) {
+            return messagingCode == MessagingErrorCode.UNAVAILABLE ||
+                    messagingCode == MessagingErrorCode.INTERNAL ||
+                    messagingCode == MessagingErrorCode.QUOTA_EXCEEDED;
+        }
+        String errorCode = e.getErrorCode().name();
+        return errorCode.equals("UNAVAILABLE") ||
+                errorCode.equals("INTERNAL") ||
+                errorCode.equals("DEADLINE_EXCEEDED") ||
+                errorCode.equals("RESOURCE_EXHAUSTED");
     }
 
-    /**
-     * Obtener cuerpo del mensaje según estado del pedido
-     */
-    private String getOrderStatusBody(String status) {
-        return switch (status.toLowerCase()) {
-            case "confirmed" -> "Tu pedido #%d ha sido confirmado y está siendo preparado";
-            case "preparing" -> "El restaurante está preparando tu pedido #%d";
-            case "on_the_way" -> "El repartidor está en camino con tu pedido #%d";
-            case "delivered" -> "Tu pedido #%d ha sido entregado. ¡Buen provecho!";
-            case "cancelled" -> "Tu pedido #%d ha sido cancelado";
-            default -> "Tu pedido #%d ha sido actualizado";
-        };
+    private String errorName(FirebaseMessagingException e) {
+        return e.getMessagingErrorCode() != null ? e.getMessagingErrorCode().name() : e.getErrorCode().name();
     }
 }
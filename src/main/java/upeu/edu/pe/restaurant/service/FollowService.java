@@ -0,0 +1,238 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import upeu.edu.pe.restaurant.dto.FollowDTO;
+import upeu.edu.pe.restaurant.entity.Follow;
+import upeu.edu.pe.restaurant.event.FCMTokenChangedEvent;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+import upeu.edu.pe.restaurant.repository.FollowRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Seguimiento de restaurantes y categorías.
+ *
+ * Cada destino seguido es un topic de FCM: los tokens activos del usuario se suscriben al seguir,
+ * se quitan al dejar de seguir y los tokens que el usuario registra después se suscriben a todo lo
+ * que sigue. Así una oferta llega a todos los seguidores con una sola solicitud a FCM. La tabla
+ * follows es la fuente de verdad (pantalla de suscripciones y registro en la bandeja).
+ */
+@Slf4j
+@Service
+public class FollowService {
+    
+    private static final int FOLLOWER_PAGE_SIZE = 1000;
+    // FCM admite topics de hasta 900 caracteres; queda margen para el prefijo del tipo
+    private static final int MAX_TOPIC_KEY_LENGTH = 800;
+    
+    private final FollowRepository followRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final FCMTokenService fcmTokenService;
+    private final TopicSubscriptionBatcher subscriptions;
+    private final PushTransport transport;
+    private final TransactionCallbacks transactionCallbacks;
+    
+    public FollowService(
+            FollowRepository followRepository,
+            RestaurantRepository restaurantRepository,
+            FCMTokenService fcmTokenService,
+            TopicSubscriptionBatcher subscriptions,
+            PushTransport transport,
+            TransactionCallbacks transactionCallbacks) {
+        this.followRepository = followRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.fcmTokenService = fcmTokenService;
+        this.subscriptions = subscriptions;
+        this.transport = transport;
+        this.transactionCallbacks = transactionCallbacks;
+    }
+    
+    /**
+     * Seguir un restaurante
+     */
+    @Transactional
+    public FollowDTO followRestaurant(Long userId, Long restaurantId) {
+        if (!restaurantRepository.existsById(restaurantId)) {
+            throw new ResourceNotFoundException("Restaurante", "id", restaurantId);
+        }
+        return follow(userId, Follow.TargetType.RESTAURANT, restaurantId.toString());
+    }
+    
+    /**
+     * Seguir una categoría
+     */
+    @Transactional
+    public FollowDTO followCategory(Long userId, String category) {
+        return follow(userId, Follow.TargetType.CATEGORY, normalizeCategory(category));
+    }
+    
+    /**
+     * Dejar de seguir un restaurante
+     */
+    @Transactional
+    public void unfollowRestaurant(Long userId, Long restaurantId) {
+        unfollow(userId, Follow.TargetType.RESTAURANT, restaurantId.toString());
+    }
+    
+    /**
+     * Dejar de seguir una categoría
+     */
+    @Transactional
+    public void unfollowCategory(Long userId, String category) {
+        unfollow(userId, Follow.TargetType.CATEGORY, normalizeCategory(category));
+    }
+    
+    /**
+     * Restaurantes y categorías que sigue el usuario
+     */
+    public List<FollowDTO> getFollows(Long userId) {
+        return followRepository.findByUserIdOrderByCreatedAtDesc(userId)
+                .stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Enviar una notificación a todos los seguidores de un destino: una sola solicitud a FCM
+     */
+    public String sendToFollowers(Follow.TargetType type, String key, String title, String body,
+                                  Map<String, String> data, String collapseKey) {
+        return transport.sendToTopic(topicFor(type, key), title, body, data, collapseKey);
+    }
+    
+    /**
+     * Recorrer los seguidores de un destino por páginas (keyset sobre el id)
+     */
+    public long forEachFollower(Follow.TargetType type, String key, Consumer<Long> action) {
+        long afterId = 0;
+        long count = 0;
+        while (true) {
+            List<FollowRepository.FollowerView> page = followRepository
+                    .findByTargetTypeAndTargetKeyAndIdGreaterThanOrderByIdAsc(type, key, afterId, Limit.of(FOLLOWER_PAGE_SIZE));
+            for (FollowRepository.FollowerView follower : page) {
+                action.accept(follower.getUserId());
+            }
+            count += page.size();
+            if (page.size() < FOLLOWER_PAGE_SIZE) {
+                return count;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+    
+    /**
+     * Mantener las suscripciones de un token que se activa o se da de baja (después del commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenChanged(FCMTokenChangedEvent event) {
+        List<Follow> follows = followRepository.findByUserIdOrderByCreatedAtDesc(event.getUserId());
+        for (Follow follow : follows) {
+            String topic = topicFor(follow.getTargetType(), follow.getTargetKey());
+            if (event.getType() == FCMTokenChangedEvent.Type.ACTIVATED) {
+                subscriptions.subscribe(List.of(event.getToken()), topic);
+            } else {
+                subscriptions.unsubscribe(List.of(event.getToken()), topic);
+            }
+        }
+    }
+    
+    /**
+     * Nombre del topic de FCM de un destino (FCM admite [a-zA-Z0-9-_.~%]). La clave va
+     * codificada en UTF-8 con porcentajes: claves distintas ("cafe" y "café") dan topics distintos.
+     * Si la clave codificada no cabe en el límite de FCM se usa su SHA-256 precedido de "~"
+     * (la codificación nunca produce "~", así que no choca con ninguna clave codificada).
+     */
+    public static String topicFor(Follow.TargetType type, String key) {
+        String safeKey = URLEncoder.encode(key, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A");
+        if (safeKey.length() > MAX_TOPIC_KEY_LENGTH) {
+            safeKey = "~" + sha256Hex(key);
+        }
+        return type.name().toLowerCase(Locale.ROOT) + "_" + safeKey;
+    }
+    
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+    
+    /**
+     * Nombre de categoría normalizado (minúsculas, sin espacios sobrantes)
+     */
+    public static String normalizeCategory(String category) {
+        if (category == null || category.isBlank()) {
+            throw new BadRequestException("category", category, "La categoría es requerida");
+        }
+        String normalized = category.trim().toLowerCase(Locale.ROOT);
+        if (normalized.length() > 100) {
+            throw new BadRequestException("category", category, "La categoría es demasiado larga");
+        }
+        return normalized;
+    }
+    
+    // ========== MÉTODOS AUXILIARES ==========
+    
+    private FollowDTO follow(Long userId, Follow.TargetType type, String key) {
+        Follow follow = followRepository.findByUserIdAndTargetTypeAndTargetKey(userId, type, key)
+                .orElse(null);
+        if (follow != null) {
+            return convertToDTO(follow);
+        }
+        
+        follow = new Follow();
+        follow.setUserId(userId);
+        follow.setTargetType(type);
+        follow.setTargetKey(key);
+        Follow saved = followRepository.save(follow);
+        
+        String topic = topicFor(type, key);
+        List<String> tokens = Arrays.asList(fcmTokenService.getActiveTokenValues(userId));
+        transactionCallbacks.afterCommit(() -> subscriptions.subscribe(tokens, topic));
+        
+        log.info("⭐ Usuario ID {} sigue {} {}", userId, type, key);
+        return convertToDTO(saved);
+    }
+    
+    private void unfollow(Long userId, Follow.TargetType type, String key) {
+        Follow follow = followRepository.findByUserIdAndTargetTypeAndTargetKey(userId, type, key)
+                .orElseThrow(() -> new ResourceNotFoundException("Seguimiento", "destino", type + " " + key));
+        followRepository.delete(follow);
+        
+        String topic = topicFor(type, key);
+        List<String> tokens = Arrays.asList(fcmTokenService.getActiveTokenValues(userId));
+        transactionCallbacks.afterCommit(() -> subscriptions.unsubscribe(tokens, topic));
+        
+        log.info("Usuario ID {} dejó de seguir {} {}", userId, type, key);
+    }
+    
+    private FollowDTO convertToDTO(Follow follow) {
+        return new FollowDTO(
+                follow.getId(),
+                follow.getTargetType().name(),
+                follow.getTargetKey(),
+                topicFor(follow.getTargetType(), follow.getTargetKey()),
+                follow.getCreatedAt());
+    }
+    
+}
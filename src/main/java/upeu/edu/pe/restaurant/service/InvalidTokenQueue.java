@@ -0,0 +1,152 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.cache.FCMTokenRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Desactivación diferida de los tokens que FCM rechaza.
+ *
+ * Quien envía solo deja los tokens en la cola y sigue: se quitan al instante del registro en
+ * memoria (no se vuelven a usar) y se desactivan en la base de datos con un UPDATE ... IN (...)
+ * por cada {@code chunk-size} tokens, cuando se junta un bloque, cada {@code flush-interval-ms}
+ * y al apagar la aplicación. Un token que el usuario vuelve a registrar mientras espera en la
+ * cola no se desactiva: el UPDATE solo toca tokens sin cambios desde que FCM los rechazó.
+ */
+@Slf4j
+@Service
+public class InvalidTokenQueue {
+    
+    private final FCMTokenService fcmTokenService;
+    private final FCMTokenRegistry tokenRegistry;
+    private final int chunkSize;
+    
+    private final ConcurrentLinkedQueue<Rejected> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService flusher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("invalid-tokens-"));
+    
+    // Métricas
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deactivated = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder failedUpdates = new LongAdder();
+    
+    private record Rejected(String token, LocalDateTime rejectedAt) {}
+    
+    public InvalidTokenQueue(
+            FCMTokenService fcmTokenService,
+            FCMTokenRegistry tokenRegistry,
+            @Value("${notifications.invalid-tokens.chunk-size:1000}") int chunkSize) {
+        this.fcmTokenService = fcmTokenService;
+        this.tokenRegistry = tokenRegistry;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+    
+    /**
+     * Encolar tokens rechazados por FCM para desactivarlos
+     */
+    public void submit(Collection<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        LocalDateTime rejectedAt = LocalDateTime.now();
+        tokenRegistry.removeAll(tokens);
+        tokens.forEach(token -> queue.offer(new Rejected(token, rejectedAt)));
+        submitted.add(tokens.size());
+        
+        if (pending.addAndGet(tokens.size()) >= chunkSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${notifications.invalid-tokens.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        if (pending.get() > 0) {
+            flush();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+    
+    /**
+     * Desactivar todo lo pendiente, un UPDATE por bloque; un solo hilo a la vez
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (true) {
+                List<Rejected> chunk = new ArrayList<>(Math.min(chunkSize, Math.max(1, pending.get())));
+                Rejected rejected;
+                while (chunk.size() < chunkSize && (rejected = queue.poll()) != null) {
+                    chunk.add(rejected);
+                }
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                pending.addAndGet(-chunk.size());
+                
+                // Cada token con su propio rechazo (el más reciente si llegó dos veces)
+                Map<String, LocalDateTime> rejectedAtByToken = new LinkedHashMap<>();
+                for (Rejected r : chunk) {
+                    rejectedAtByToken.merge(r.token(), r.rejectedAt(), (a, b) -> a.isAfter(b) ? a : b);
+                }
+                try {
+                    deactivated.add(fcmTokenService.deactivateTokens(rejectedAtByToken));
+                    updates.increment();
+                } catch (RuntimeException e) {
+                    // Se reintentan en el próximo ciclo
+                    failedUpdates.increment();
+                    chunk.forEach(queue::offer);
+                    pending.addAndGet(chunk.size());
+                    log.error("❌ Error desactivando {} tokens inválidos: {}", chunk.size(), e.getMessage());
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Métricas de la cola
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.get());
+        stats.put("submitted", submitted.sum());
+        stats.put("deactivated", deactivated.sum());
+        stats.put("updates", updates.sum());
+        stats.put("failedUpdates", failedUpdates.sum());
+        return stats;
+    }
+}
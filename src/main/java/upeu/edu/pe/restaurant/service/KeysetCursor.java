@@ -0,0 +1,32 @@
+package upeu.edu.pe.restaurant.service;
+
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de paginación keyset sobre (fecha, id) descendentes, compartido por los
+ * listados paginados (bandeja de notificaciones, reseñas de restaurante y de usuario)
+ */
+public record KeysetCursor(LocalDateTime at, Long id) {
+    
+    public String encode() {
+        String raw = at + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("cursor", cursor, "Cursor de paginación inválido");
+        }
+    }
+}
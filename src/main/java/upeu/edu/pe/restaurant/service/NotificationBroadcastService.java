@@ -0,0 +1,186 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.dto.BroadcastJobDTO;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
+import upeu.edu.pe.restaurant.dto.NotificationDTO;
+import upeu.edu.pe.restaurant.repository.FCMTokenRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Envío de notificaciones a todos los dispositivos registrados.
+ *
+ * Recorre fcm_tokens por id en páginas del tamaño de un multicast, envía hasta
+ * {@code notifications.broadcast.parallelism} bloques a la vez y deja en InvalidTokenQueue
+ * los tokens que Firebase rechaza. Los envíos a un conjunto de usuarios (segmentos) usan el
+ * mismo fan-out, leyendo los tokens de esos usuarios por lotes.
+ *
+ * Los envíos pedidos por HTTP se encolan con {@link #submit}: corren de a uno en un hilo propio
+ * (los bloques ya usan notificationExecutor, y un coordinador esperando ahí podría dejar sin
+ * hilos a sus propios bloques) y su estado se consulta por id.
+ */
+@Slf4j
+@Service
+public class NotificationBroadcastService {
+
+    private final FCMTokenRepository fcmTokenRepository;
+    private final InvalidTokenQueue invalidTokenQueue;
+    private final PushTransport pushTransport;
+    private final TaskExecutor notificationExecutor;
+    private final int chunkSize;
+    private final int parallelism;
+    private final BroadcastFanOut fanOut;
+
+    private static final int MAX_TRACKED_JOBS = 100;
+
+    private final ExecutorService jobRunner =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("broadcast-job-"));
+
+    // Últimos envíos por id, en orden de llegada
+    private final Map<String, BroadcastJobDTO> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BroadcastJobDTO> eldest) {
+            return size() > MAX_TRACKED_JOBS;
+        }
+    });
+
+    public NotificationBroadcastService(
+            FCMTokenRepository fcmTokenRepository,
+            InvalidTokenQueue invalidTokenQueue,
+            PushTransport pushTransport,
+            @Qualifier("notificationExecutor") TaskExecutor notificationExecutor,
+            @Value("${notifications.broadcast.chunk-size:500}") int chunkSize,
+            @Value("${notifications.broadcast.parallelism:8}") int parallelism) {
+        this.fcmTokenRepository = fcmTokenRepository;
+        this.invalidTokenQueue = invalidTokenQueue;
+        this.pushTransport = pushTransport;
+        this.notificationExecutor = notificationExecutor;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        BroadcastFanOut.TokenSource source = (after, limit) ->
+                (after == null
+                        ? fcmTokenRepository.findByIsActiveTrueOrderByUserIdAscIdAsc(Limit.of(limit))
+                        : fcmTokenRepository.findActivePageAfter(after.userId(), after.id(), Limit.of(limit)))
+                        .stream()
+                        .map(t -> new BroadcastFanOut.TokenRef(t.getId(), t.getUserId(), t.getToken()))
+                        .toList();
+        this.fanOut = new BroadcastFanOut(source, pushTransport, notificationExecutor,
+                chunkSize, parallelism, invalidTokenQueue::submit);
+    }
+
+    /**
+     * Enviar a todos los tokens activos; {@code onUsersNotified} recibe, por bloque, los usuarios alcanzados
+     */
+    public BroadcastResultDTO broadcast(NotificationDTO notificationDTO, Consumer<Set<Long>> onUsersNotified) {
+        log.info("📣 Iniciando broadcast: {}", notificationDTO.getTitle());
+
+        BroadcastResultDTO result = fanOut.run(
+                notificationDTO.getTitle(),
+                notificationDTO.getBody(),
+                notificationDTO.getData(),
+                onUsersNotified
+        );
+
+        log.info("✅ Broadcast completado: {} tokens en {} bloques ({} éxito, {} fallos, {} inválidos) en {} ms",
+                result.getTokens(), result.getChunks(), result.getSuccess(), result.getFailure(),
+                result.getInvalidTokens(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * Enviar a los tokens activos de los usuarios dados (ids en orden ascendente);
+     * {@code onUsersNotified} recibe, por bloque, los usuarios alcanzados
+     */
+    public BroadcastResultDTO sendToUsers(NotificationDTO notificationDTO, PrimitiveIterator.OfInt userIds,
+                                          Consumer<Set<Long>> onUsersNotified) {
+        BroadcastFanOut.TokenSource source = new BroadcastFanOut.UserTokenSource(userIds,
+                users -> fcmTokenRepository.findByIsActiveTrueAndUserIdInOrderByUserIdAscIdAsc(users)
+                        .stream()
+                        .map(t -> new BroadcastFanOut.TokenRef(t.getId(), t.getUserId(), t.getToken()))
+                        .toList(),
+                chunkSize);
+        BroadcastFanOut usersFanOut = new BroadcastFanOut(source, pushTransport, notificationExecutor,
+                chunkSize, parallelism, invalidTokenQueue::submit);
+
+        BroadcastResultDTO result = usersFanOut.run(
+                notificationDTO.getTitle(),
+                notificationDTO.getBody(),
+                notificationDTO.getData(),
+                onUsersNotified
+        );
+
+        log.info("✅ Envío a usuarios completado: {} usuarios, {} tokens en {} bloques ({} éxito, {} fallos) en {} ms",
+                result.getUsers(), result.getTokens(), result.getChunks(), result.getSuccess(),
+                result.getFailure(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * Encolar un envío masivo para correr en segundo plano; devuelve su estado inicial
+     */
+    public BroadcastJobDTO submit(String type, Supplier<BroadcastResultDTO> work) {
+        BroadcastJobDTO job = BroadcastJobDTO.builder()
+                .id(UUID.randomUUID().toString())
+                .type(type)
+                .status(BroadcastJobDTO.Status.QUEUED)
+                .submittedAt(LocalDateTime.now())
+                .build();
+        jobs.put(job.getId(), job);
+
+        jobRunner.execute(() -> {
+            jobs.put(job.getId(), job.toBuilder().status(BroadcastJobDTO.Status.RUNNING).build());
+            try {
+                BroadcastResultDTO result = work.get();
+                jobs.put(job.getId(), job.toBuilder()
+                        .status(BroadcastJobDTO.Status.COMPLETED)
+                        .finishedAt(LocalDateTime.now())
+                        .result(result)
+                        .build());
+            } catch (RuntimeException e) {
+                log.error("❌ Envío {} ({}) falló: {}", job.getId(), type, e.getMessage(), e);
+                jobs.put(job.getId(), job.toBuilder()
+                        .status(BroadcastJobDTO.Status.FAILED)
+                        .finishedAt(LocalDateTime.now())
+                        .error(e.getMessage())
+                        .build());
+            }
+        });
+        log.info("📣 Envío {} encolado ({})", job.getId(), type);
+        return job;
+    }
+
+    /**
+     * Estado de un envío encolado (solo los últimos {@value #MAX_TRACKED_JOBS})
+     */
+    public Optional<BroadcastJobDTO> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Los envíos en curso terminan su bloque actual; los encolados se descartan
+        int pending = jobRunner.shutdownNow().size();
+        if (pending > 0) {
+            log.warn("⚠️ {} envíos masivos encolados se descartaron al apagar", pending);
+        }
+    }
+}
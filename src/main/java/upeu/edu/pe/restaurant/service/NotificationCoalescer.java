@@ -0,0 +1,118 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupa notificaciones que se reemplazan entre sí (p. ej. los cambios de estado de un mismo pedido).
+ *
+ * El primer envío de una clave abre una ventana de {@code coalesce-window-ms}; los que llegan dentro
+ * de la ventana reemplazan al pendiente y al cerrarse solo sale el último. Con una ventana de 0 se
+ * envía de inmediato. Al apagar la aplicación se envía todo lo pendiente; {@code @DependsOn} hace
+ * que Spring lo destruya antes que el dispatcher, el escritor del log y el registro de tokens.
+ */
+@Slf4j
+@Service
+@DependsOn({"notificationDispatcher", "notificationLogWriter", "FCMTokenService"})
+public class NotificationCoalescer {
+    
+    private final long windowMs;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("notification-coalescer-"));
+    
+    // Métricas
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    
+    public NotificationCoalescer(@Value("${notifications.coalesce-window-ms:3000}") long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+    
+    /**
+     * Programar el envío de {@code key}; reemplaza al que siga pendiente para la misma clave
+     */
+    public void submit(String key, Runnable send) {
+        submitted.increment();
+        if (windowMs == 0) {
+            emit(send);
+            return;
+        }
+        
+        boolean[] opened = {false};
+        pending.compute(key, (k, current) -> {
+            if (current == null) {
+                opened[0] = true;
+                return new Pending(send);
+            }
+            coalesced.increment();
+            current.send = send;
+            return current;
+        });
+        
+        if (opened[0]) {
+            try {
+                scheduler.schedule(() -> flush(key), windowMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush(key);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pending.keySet().forEach(this::flush);
+    }
+    
+    /**
+     * Métricas del agrupador
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowMs", windowMs);
+        stats.put("pending", pending.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("emitted", emitted.sum());
+        return stats;
+    }
+    
+    private void flush(String key) {
+        Pending current = pending.remove(key);
+        if (current != null) {
+            emit(current.send);
+        }
+    }
+    
+    private void emit(Runnable send) {
+        emitted.increment();
+        try {
+            send.run();
+        } catch (RuntimeException e) {
+            log.error("❌ Error enviando notificación agrupada: {}", e.getMessage(), e);
+        }
+    }
+    
+    private static final class Pending {
+        private volatile Runnable send;
+        
+        private Pending(Runnable send) {
+            this.send = send;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import upeu.edu.pe.restaurant.entity.NotificationDeadLetter;
+import upeu.edu.pe.restaurant.repository.NotificationDeadLetterRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cola de envíos push en segundo plano.
+ *
+ * Los servicios encolan la notificación ya resuelta (tokens, título, cuerpo) y vuelven de inmediato;
+ * un pool fijo de workers la envía. Los tokens con errores transitorios de FCM (UNAVAILABLE, INTERNAL,
+ * QUOTA_EXCEEDED) se reintentan con espera exponencial; los que agotan los reintentos, los que fallan
+ * por otros motivos y los que no caben en la cola se guardan en notification_dead_letters.
+ * Los dead letters no se escriben en el hilo que los produce (un worker o, con la cola llena, el
+ * llamador dentro de afterCommit): se acumulan en memoria y un hilo propio los guarda por lotes en
+ * una transacción propia. Caben como mucho queue-capacity pendientes; los que exceden se
+ * descartan (se cuentan en deadLettersDropped). Al apagar se guardan los que quedan.
+ */
+@Slf4j
+@Service
+public class NotificationDispatcher {
+
+    private static final int DEAD_LETTER_BATCH_SIZE = 500;
+
+    /**
+     * Notificación pendiente de envío
+     */
+    public record PushJob(Long userId, String type, List<String> tokens, String title, String body,
+                          Map<String, String> data, String collapseKey, int attempt, long createdAtNanos) {
+
+        PushJob retry(List<String> pendingTokens) {
+            return new PushJob(userId, type, pendingTokens, title, body, data, collapseKey, attempt + 1, createdAtNanos);
+        }
+
+        PushJob withTokens(List<String> someTokens) {
+            return new PushJob(userId, type, someTokens, title, body, data, collapseKey, attempt, createdAtNanos);
+        }
+    }
+
+    private final PushTransport transport;
+    private final InvalidTokenQueue invalidTokenQueue;
+    private final NotificationDeadLetterRepository deadLetterRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate newTransaction;
+
+    private final BlockingQueue<PushJob> queue;
+    private final int queueCapacity;
+    private final int workers;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long shutdownTimeoutMs;
+
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private ExecutorService deadLetterWriter;
+    private volatile boolean running;
+
+    // Reintentos programados que aún no volvieron a la cola (para no perderlos al apagar)
+    private final Set<RetryTask> scheduledRetries = ConcurrentHashMap.newKeySet();
+
+    // Dead letters pendientes de guardar
+    private final ConcurrentLinkedQueue<NotificationDeadLetter> pendingDeadLetters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingDeadLetterCount = new AtomicInteger();
+    private final AtomicBoolean deadLetterFlushRequested = new AtomicBoolean();
+
+    // Métricas
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    private final LongAdder deadLettersDropped = new LongAdder();
+    private final LongAdder deliveredTokens = new LongAdder();
+    private final LongAdder invalidTokens = new LongAdder();
+    private final LongAdder failedTokens = new LongAdder();
+    private final LongAdder latencyTotalMs = new LongAdder();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+
+    public NotificationDispatcher(
+            PushTransport transport,
+            InvalidTokenQueue invalidTokenQueue,
+            NotificationDeadLetterRepository deadLetterRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${notifications.dispatcher.queue-capacity:10000}") int queueCapacity,
+            @Value("${notifications.dispatcher.workers:8}") int workers,
+            @Value("${notifications.dispatcher.max-attempts:5}") int maxAttempts,
+            @Value("${notifications.dispatcher.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${notifications.dispatcher.max-backoff-ms:60000}") long maxBackoffMs,
+            @Value("${notifications.dispatcher.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.transport = transport;
+        this.invalidTokenQueue = invalidTokenQueue;
+        this.deadLetterRepository = deadLetterRepository;
+        this.objectMapper = objectMapper;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.workers = Math.max(1, workers);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        workerPool = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("push-dispatcher-"));
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::workLoop);
+        }
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("push-retry-"));
+        deadLetterWriter = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("push-dead-letter-"));
+        log.info("📮 Dispatcher de notificaciones iniciado ({} workers, cola de {})", workers, queueCapacity);
+    }
+
+    /**
+     * Vaciar la cola antes de apagar; los reintentos programados que no alcanzan a salir van a dead letters
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // shutdownNow devuelve los envoltorios del scheduler, no las tareas: se usa el registro propio
+        retryScheduler.shutdownNow();
+        for (RetryTask task : scheduledRetries) {
+            if (scheduledRetries.remove(task)) {
+                pendingRetries.decrementAndGet();
+                deadLetter(task.job, "shutdown");
+                complete(task.job);
+            }
+        }
+        running = false;
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("⚠️ Dispatcher detenido con {} notificaciones en cola", queue.size());
+            workerPool.shutdownNow();
+        }
+        deadLetterWriter.shutdown();
+        deadLetterWriter.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+        flushDeadLetters();
+    }
+
+    /**
+     * Encolar una notificación; si hay una transacción activa se encola al confirmarse
+     */
+    public void dispatch(Long userId, String type, List<String> tokens, String title, String body,
+                         Map<String, String> data) {
+        dispatch(userId, type, tokens, title, body, data, null);
+    }
+
+    /**
+     * Encolar una notificación que reemplaza en el dispositivo a la anterior con la misma collapseKey
+     */
+    public void dispatch(Long userId, String type, List<String> tokens, String title, String body,
+                         Map<String, String> data, String collapseKey) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        PushJob job = new PushJob(userId, type, List.copyOf(tokens), title, body, data, collapseKey,
+                1, System.nanoTime());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(job);
+                }
+            });
+        } else {
+            enqueue(job);
+        }
+    }
+
+    /**
+     * Métricas del dispatcher
+     */
+    public Map<String, Object> getStats() {
+        long done = completed.sum();
+        long delivered = deliveredTokens.sum();
+        long failed = failedTokens.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("workers", workers);
+        stats.put("pendingRetries", pendingRetries.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", done);
+        stats.put("retries", retries.sum());
+        stats.put("deadLetters", deadLetters.sum());
+        stats.put("deadLettersPending", pendingDeadLetterCount.get());
+        stats.put("deadLettersDropped", deadLettersDropped.sum());
+        stats.put("deliveredTokens", delivered);
+        stats.put("invalidTokens", invalidTokens.sum());
+        stats.put("failedTokens", failed);
+        stats.put("failureRate", delivered + failed == 0 ? 0.0 : (double) failed / (delivered + failed));
+        stats.put("avgLatencyMs", done == 0 ? 0 : latencyTotalMs.sum() / done);
+        stats.put("maxLatencyMs", maxLatencyMs.get());
+        return stats;
+    }
+
+    private void enqueue(PushJob job) {
+        if (queue.offer(job)) {
+            enqueued.increment();
+        } else {
+            rejected.increment();
+            log.warn("⚠️ Cola de notificaciones llena ({}); notificación a usuario ID {} enviada a dead letters",
+                    queueCapacity, job.userId());
+            deadLetter(job, "queue_full");
+            complete(job);
+        }
+    }
+
+    private void workLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PushJob job = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    process(job);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("❌ Error en worker de notificaciones: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void process(PushJob job) {
+        PushTransport.Result result;
+        try {
+            result = transport.send(job.tokens(), job.title(), job.body(), job.data(), job.collapseKey());
+        } catch (RuntimeException e) {
+            result = PushTransport.Result.failed(job.tokens(), e.getMessage());
+        }
+
+        deliveredTokens.add(result.successCount());
+
+        if (!result.invalidTokens().isEmpty()) {
+            invalidTokens.add(result.invalidTokens().size());
+            invalidTokenQueue.submit(result.invalidTokens());
+        }
+
+        if (!result.failedTokens().isEmpty()) {
+            deadLetter(job.withTokens(result.failedTokens()), result.error());
+        }
+
+        if (!result.retryableTokens().isEmpty()) {
+            if (job.attempt() < maxAttempts) {
+                scheduleRetry(job.retry(result.retryableTokens()), result.error());
+                return;
+            }
+            deadLetter(job.withTokens(result.retryableTokens()), "retries_exhausted: " + result.error());
+        }
+
+        complete(job);
+    }
+
+    private void scheduleRetry(PushJob job, String error) {
+        // Espera exponencial con jitter: entre la mitad y el total de initial * 2^(intento-2)
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(job.attempt() - 2, 20));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        retries.increment();
+        pendingRetries.incrementAndGet();
+        log.warn("🔁 Reintento {} de {} para {} tokens (usuario ID {}) en {} ms: {}",
+                job.attempt(), maxAttempts, job.tokens().size(), job.userId(), delay, error);
+        RetryTask task = new RetryTask(job);
+        scheduledRetries.add(task);
+        try {
+            retryScheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            if (scheduledRetries.remove(task)) {
+                pendingRetries.decrementAndGet();
+                deadLetter(job, "shutdown");
+                complete(job);
+            }
+        }
+    }
+
+    private void complete(PushJob job) {
+        long latency = (System.nanoTime() - job.createdAtNanos()) / 1_000_000;
+        completed.increment();
+        latencyTotalMs.add(latency);
+        maxLatencyMs.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Registrar un dead letter; lo guarda el hilo de dead letters
+     */
+    private void deadLetter(PushJob job, String error) {
+        deadLetters.increment();
+        failedTokens.add(job.tokens().size());
+
+        NotificationDeadLetter letter = new NotificationDeadLetter();
+        letter.setUserId(job.userId());
+        letter.setNotificationType(job.type());
+        letter.setTitle(job.title());
+        letter.setBody(job.body());
+        letter.setTokens(String.join("\n", job.tokens()));
+        letter.setTokenCount(job.tokens().size());
+        letter.setAttempts(job.attempt());
+        letter.setError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        if (job.data() != null) {
+            try {
+                letter.setData(objectMapper.writeValueAsString(job.data()));
+            } catch (JsonProcessingException e) {
+                log.warn("⚠️ Datos de la notificación fallida no serializables (usuario ID {}): {}",
+                        job.userId(), e.getMessage());
+            }
+        }
+
+        if (pendingDeadLetterCount.incrementAndGet() > queueCapacity) {
+            pendingDeadLetterCount.decrementAndGet();
+            deadLettersDropped.increment();
+            log.error("❌ Demasiados dead letters pendientes; descartado el del usuario ID {}", job.userId());
+            return;
+        }
+        pendingDeadLetters.offer(letter);
+
+        if (deadLetterFlushRequested.compareAndSet(false, true)) {
+            try {
+                deadLetterWriter.execute(() -> {
+                    deadLetterFlushRequested.set(false);
+                    flushDeadLetters();
+                });
+            } catch (RejectedExecutionException e) {
+                // Apagando: stop() guarda lo pendiente
+                deadLetterFlushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Guardar los dead letters pendientes por lotes, cada lote en una transacción propia
+     */
+    private synchronized void flushDeadLetters() {
+        while (true) {
+            List<NotificationDeadLetter> batch = new ArrayList<>();
+            NotificationDeadLetter letter;
+            while (batch.size() < DEAD_LETTER_BATCH_SIZE && (letter = pendingDeadLetters.poll()) != null) {
+                batch.add(letter);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            pendingDeadLetterCount.addAndGet(-batch.size());
+            try {
+                newTransaction.executeWithoutResult(status -> deadLetterRepository.saveAll(batch));
+            } catch (RuntimeException e) {
+                deadLettersDropped.add(batch.size());
+                log.error("❌ No se pudieron guardar {} notificaciones fallidas: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reintento programado: vuelve a la cola cuando vence la espera
+     */
+    private final class RetryTask implements Runnable {
+        private final PushJob job;
+
+        private RetryTask(PushJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            if (!scheduledRetries.remove(this)) {
+                // stop() ya lo envió a dead letters
+                return;
+            }
+            pendingRetries.decrementAndGet();
+            if (!queue.offer(job)) {
+                rejected.increment();
+                deadLetter(job, "queue_full");
+                complete(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.entity.NotificationLog;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Escritura diferida de notifications_log.
+ *
+ * Las filas se acumulan en una cola sin bloqueos y se insertan por lotes con un único
+ * INSERT ... SELECT FROM unnest(...) por lote: cuando se juntan {@code batch-size} filas, cada
+ * {@code flush-interval-ms} y siempre al apagar la aplicación. Una fila aparece en la bandeja
+ * como mucho un intervalo después de registrarse.
+ *
+ * Si un lote falla por una fila inválida (violación de integridad) se parte en mitades hasta
+ * aislarla y solo esa fila se descarta. Si falla por la base de datos, el lote pasa al frente de
+ * la cola y cada fila se descarta después de {@code max-attempts} intentos. El buffer guarda como
+ * mucho {@code max-buffered} filas: al llenarse el que escribe vacía el buffer él mismo, y si la
+ * base de datos viene fallando la fila nueva se descarta (se cuenta en {@code overflowed}).
+ */
+@Slf4j
+@Service
+public class NotificationLogWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications_log (user_id, notification_type, title, body, data, sent_at) " +
+            "SELECT * FROM unnest(?::bigint[], ?::text[], ?::text[], ?::text[], ?::text[], ?::timestamp[])";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int maxBuffered;
+    private final int maxAttempts;
+
+    private final ConcurrentLinkedQueue<NotificationLog> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean databaseFailing;
+
+    // Filas de lotes fallidos y sus intentos; solo se tocan con flushLock tomado
+    private final Deque<NotificationLog> retry = new ArrayDeque<>();
+    private final Map<NotificationLog, Integer> attempts = new IdentityHashMap<>();
+    private final ExecutorService flusher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("notification-log-"));
+
+    // Métricas
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder flushTotalMs = new LongAdder();
+    private final AtomicLong maxFlushMs = new AtomicLong();
+    private final AtomicInteger maxBatch = new AtomicInteger();
+    private final AtomicInteger lastBatch = new AtomicInteger();
+
+    public NotificationLogWriter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${notifications.log.batch-size:1000}") int batchSize,
+            @Value("${notifications.log.max-buffered:100000}") int maxBuffered,
+            @Value("${notifications.log.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBuffered = Math.max(this.batchSize, maxBuffered);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Agregar una fila al buffer; se inserta en el próximo lote
+     */
+    public void append(NotificationLog row) {
+        if (row.getSentAt() == null) {
+            row.setSentAt(LocalDateTime.now());
+        }
+        if (pending.get() >= maxBuffered) {
+            // La base de datos no da abasto: el que escribe espera en lugar de llenar la memoria,
+            // salvo que venga fallando; entonces la fila nueva se descarta
+            if (!databaseFailing) {
+                flush();
+            }
+            if (pending.get() >= maxBuffered) {
+                if (overflowed.sum() % 10_000 == 0) {
+                    log.warn("⚠️ Buffer del log de notificaciones lleno ({} filas), descartando filas nuevas",
+                            pending.get());
+                }
+                overflowed.increment();
+                return;
+            }
+        }
+        buffer.offer(row);
+        appended.increment();
+        int size = pending.incrementAndGet();
+
+        if (size >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.log.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (pending.get() > 0) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (pending.get() > 0) {
+            log.warn("⚠️ {} filas del log de notificaciones no se pudieron escribir al apagar", pending.get());
+        }
+        log.info("📝 Log de notificaciones vaciado al apagar ({} filas escritas)", written.sum());
+    }
+
+    /**
+     * Insertar todo lo pendiente, por lotes de batch-size; un solo hilo inserta a la vez.
+     * Primero van las filas de lotes fallidos, después las del buffer.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (true) {
+                List<NotificationLog> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, pending.get())));
+                NotificationLog row;
+                while (batch.size() < batchSize && (row = retry.poll()) != null) {
+                    batch.add(row);
+                }
+                while (batch.size() < batchSize && (row = buffer.poll()) != null) {
+                    batch.add(row);
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                pending.addAndGet(-batch.size());
+
+                if (!write(batch)) {
+                    // La base de datos está fallando: se reintenta en el próximo ciclo
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Métricas del escritor
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.get());
+        stats.put("appended", appended.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batchCount);
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("overflowed", overflowed.sum());
+        stats.put("lastBatchSize", lastBatch.get());
+        stats.put("maxBatchSize", maxBatch.get());
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : written.sum() / batchCount);
+        stats.put("avgFlushMs", batchCount == 0 ? 0 : flushTotalMs.sum() / batchCount);
+        stats.put("maxFlushMs", maxFlushMs.get());
+        return stats;
+    }
+
+    /**
+     * Insertar un lote; false si la base de datos falla y el lote quedó para reintentar.
+     * Un lote con una fila inválida se parte en mitades hasta aislarla y descartarla.
+     */
+    private boolean write(List<NotificationLog> batch) {
+        DataAccessException error = insert(batch);
+        if (error == null) {
+            databaseFailing = false;
+            if (!attempts.isEmpty()) {
+                batch.forEach(attempts::remove);
+            }
+            return true;
+        }
+
+        if (error instanceof DataIntegrityViolationException) {
+            if (batch.size() == 1) {
+                attempts.remove(batch.get(0));
+                dropped.increment();
+                log.warn("⚠️ Fila de notificación descartada (usuario {}): {}",
+                        batch.get(0).getUserId(), error.getMessage());
+                return true;
+            }
+            int half = batch.size() / 2;
+            List<NotificationLog> second = batch.subList(half, batch.size());
+            if (!write(batch.subList(0, half))) {
+                requeue(second, false);
+                return false;
+            }
+            return write(second);
+        }
+
+        databaseFailing = true;
+        requeue(batch, true);
+        return false;
+    }
+
+    /**
+     * Devolver filas al frente de la cola; si cuentan como intento fallido, las que llegaron
+     * a max-attempts se descartan
+     */
+    private void requeue(List<NotificationLog> rows, boolean failedAttempt) {
+        int discarded = 0;
+        for (NotificationLog row : rows) {
+            if (failedAttempt && attempts.merge(row, 1, Integer::sum) >= maxAttempts) {
+                attempts.remove(row);
+                discarded++;
+                continue;
+            }
+            retry.addLast(row);
+        }
+        pending.addAndGet(rows.size() - discarded);
+        if (discarded > 0) {
+            dropped.add(discarded);
+            log.warn("⚠️ {} filas de notificación descartadas tras {} intentos", discarded, maxAttempts);
+        }
+    }
+
+    private DataAccessException insert(List<NotificationLog> batch) {
+        int size = batch.size();
+        Long[] userIds = new Long[size];
+        String[] types = new String[size];
+        String[] titles = new String[size];
+        String[] bodies = new String[size];
+        String[] data = new String[size];
+        Timestamp[] sentAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            NotificationLog row = batch.get(i);
+            userIds[i] = row.getUserId();
+            types[i] = row.getNotificationType();
+            titles[i] = row.getTitle();
+            bodies[i] = row.getBody();
+            data[i] = row.getData();
+            sentAt[i] = Timestamp.valueOf(row.getSentAt());
+        }
+
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+                ps.setArray(1, connection.createArrayOf("bigint", userIds));
+                ps.setArray(2, connection.createArrayOf("text", types));
+                ps.setArray(3, connection.createArrayOf("text", titles));
+                ps.setArray(4, connection.createArrayOf("text", bodies));
+                ps.setArray(5, connection.createArrayOf("text", data));
+                ps.setArray(6, connection.createArrayOf("timestamp", sentAt));
+                return ps;
+            });
+        } catch (DataAccessException e) {
+            failedBatches.increment();
+            log.error("❌ Error insertando lote de {} notificaciones: {}", size, e.getMessage());
+            return e;
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        written.add(size);
+        batches.increment();
+        flushTotalMs.add(elapsedMs);
+        maxFlushMs.accumulateAndGet(elapsedMs, Math::max);
+        lastBatch.set(size);
+        maxBatch.accumulateAndGet(size, Math::max);
+        log.debug("📝 {} notificaciones registradas en {} ms", size, elapsedMs);
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.entity.NotificationDailySummary;
+import upeu.edu.pe.restaurant.repository.NotificationDailySummaryRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retención de notifications_log.
+ *
+ * Borra las notificaciones leídas con más de {@code read-days} días (y las no leídas con más de
+ * {@code unread-days}, si se configura) por lotes de {@code batch-size} filas. Cada lote es una
+ * sola sentencia que elige las filas con FOR UPDATE SKIP LOCKED, las borra y acumula sus conteos
+ * en notification_daily_summaries (usuario, tipo, día), así que los bloqueos duran lo que dura un
+ * lote y el resumen nunca cuenta dos veces la misma fila. Las filas del log sin usuario se resumen
+ * bajo {@link NotificationDailySummary#NO_USER}: un NULL nunca choca en ON CONFLICT y cada purga
+ * insertaría otro resumen. Entre lotes se hace una pausa para no
+ * competir con la escritura del log. La purga corre en un hilo propio: ni el cron ni el endpoint
+ * de administración la esperan, y no ocupa el scheduler que comparten los demás @Scheduled.
+ *
+ * La tabla no se particiona por sent_at: el esquema lo genera Hibernate (ddl-auto=update), que no
+ * crea tablas particionadas. Con la purga periódica el tamaño de la tabla y de sus índices queda
+ * acotado por el volumen de los últimos días; si hiciera falta particionar, la migración debe
+ * crear notifications_log como PARTITION BY RANGE (sent_at) y este job pasaría a soltar
+ * particiones completas en lugar de borrar por lotes.
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+    
+    private static final String PURGE_SQL =
+            "WITH batch AS (" +
+            "  SELECT id FROM notifications_log" +
+            "  WHERE sent_at < ? AND (read_at IS NOT NULL OR sent_at < ?)" +
+            "  LIMIT ? FOR UPDATE SKIP LOCKED" +
+            "), deleted AS (" +
+            "  DELETE FROM notifications_log n USING batch b WHERE n.id = b.id" +
+            "  RETURNING n.user_id, n.notification_type, n.sent_at, n.read_at" +
+            "), summarized AS (" +
+            "  INSERT INTO notification_daily_summaries (user_id, notification_type, day, notification_count, read_count)" +
+            "  SELECT COALESCE(user_id, " + NotificationDailySummary.NO_USER + "), notification_type," +
+            "    CAST(sent_at AS date), COUNT(*), COUNT(read_at)" +
+            "  FROM deleted GROUP BY COALESCE(user_id, " + NotificationDailySummary.NO_USER + ")," +
+            "    notification_type, CAST(sent_at AS date)" +
+            "  ON CONFLICT (user_id, notification_type, day) DO UPDATE SET" +
+            "    notification_count = notification_daily_summaries.notification_count + EXCLUDED.notification_count," +
+            "    read_count = notification_daily_summaries.read_count + EXCLUDED.read_count" +
+            ") " +
+            "SELECT COUNT(*) FROM deleted";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationDailySummaryRepository summaryRepository;
+    private final int readDays;
+    private final int unreadDays;
+    private final int batchSize;
+    private final int maxBatches;
+    private final long pauseMillis;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runner =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("notification-retention-"));
+    
+    // Métricas
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final AtomicLong lastRunMs = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    
+    public NotificationRetentionService(
+            JdbcTemplate jdbcTemplate,
+            NotificationDailySummaryRepository summaryRepository,
+            @Value("${notifications.retention.read-days:30}") int readDays,
+            @Value("${notifications.retention.unread-days:180}") int unreadDays,
+            @Value("${notifications.retention.batch-size:5000}") int batchSize,
+            @Value("${notifications.retention.max-batches-per-run:1000}") int maxBatches,
+            @Value("${notifications.retention.batch-pause-ms:100}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.summaryRepository = summaryRepository;
+        this.readDays = Math.max(1, readDays);
+        this.unreadDays = unreadDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatches = Math.max(1, maxBatches);
+        this.pauseMillis = pauseMillis;
+    }
+    
+    /**
+     * Lanzar la purga programada en el hilo de retención
+     */
+    @Scheduled(cron = "${notifications.retention.cron:0 45 3 * * *}")
+    public void scheduledPurge() {
+        start();
+    }
+    
+    /**
+     * Lanzar la purga en segundo plano; false si ya hay una en curso
+     */
+    public boolean start() {
+        if (running.get()) {
+            return false;
+        }
+        try {
+            runner.execute(this::purge);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Purgar y resumir las notificaciones vencidas en el hilo actual; devuelve las filas borradas
+     */
+    public long purge() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("La retención de notificaciones ya está en curso");
+            return 0;
+        }
+        
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int batchCount = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp readCutoff = Timestamp.valueOf(now.minusDays(readDays));
+            // unread-days <= 0: las no leídas no se borran nunca
+            Timestamp unreadCutoff = unreadDays > 0
+                    ? Timestamp.valueOf(now.minusDays(Math.max(unreadDays, readDays)))
+                    : Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0));
+            
+            while (batchCount < maxBatches) {
+                Long removed = jdbcTemplate.queryForObject(PURGE_SQL, Long.class, readCutoff, unreadCutoff, batchSize);
+                long count = removed != null ? removed : 0;
+                if (count == 0) {
+                    break;
+                }
+                total += count;
+                batchCount++;
+                batches.increment();
+                deleted.add(count);
+                
+                if (count < batchSize) {
+                    break;
+                }
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.error("❌ Error en la retención de notificaciones: {}", e.getMessage());
+        } finally {
+            runs.increment();
+            lastRunDeleted.set(total);
+            lastRunMs.set(System.currentTimeMillis() - start);
+            lastRunAt = LocalDateTime.now();
+            running.set(false);
+        }
+        
+        log.info("🧹 Retención de notificaciones: {} filas borradas y resumidas en {} lotes ({} ms)",
+                total, batchCount, lastRunMs.get());
+        return total;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // Interrumpe la pausa entre lotes; el lote en curso termina o se revierte entero
+        runner.shutdownNow();
+    }
+    
+    /**
+     * Historial resumido de un usuario (días ya purgados del log)
+     */
+    public List<NotificationDailySummary> getDailySummary(Long userId, int days) {
+        return summaryRepository.findByUserIdAndDayGreaterThanEqualOrderByDayDesc(
+                userId, LocalDate.now().minusDays(Math.max(1, days)));
+    }
+    
+    /**
+     * Métricas de la retención
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("readDays", readDays);
+        stats.put("unreadDays", unreadDays);
+        stats.put("batchSize", batchSize);
+        stats.put("runs", runs.sum());
+        stats.put("batches", batches.sum());
+        stats.put("deleted", deleted.sum());
+        stats.put("lastRunDeleted", lastRunDeleted.get());
+        stats.put("lastRunMs", lastRunMs.get());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+}
@@ -2,46 +2,86 @@ package upeu.edu.pe.restaurant.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.firebase.messaging.BatchResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.cache.UnreadCountCache;
+import upeu.edu.pe.restaurant.dto.BroadcastJobDTO;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
 import upeu.edu.pe.restaurant.dto.NotificationDTO;
-import upeu.edu.pe.restaurant.entity.FCMToken;
+import upeu.edu.pe.restaurant.dto.NotificationLogDTO;
+import upeu.edu.pe.restaurant.dto.NotificationPageDTO;
+import upeu.edu.pe.restaurant.entity.Follow;
+import upeu.edu.pe.restaurant.entity.NotificationDeadLetter;
 import upeu.edu.pe.restaurant.entity.NotificationLog;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+import upeu.edu.pe.restaurant.repository.NotificationDeadLetterRepository;
 import upeu.edu.pe.restaurant.repository.NotificationLogRepository;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class NotificationService {
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final NotificationLogRepository notificationLogRepository;
+    private final NotificationLogWriter logWriter;
+    private final UnreadCountCache unreadCountCache;
     private final FCMTokenService fcmTokenService;
-    private final FirebaseMessagingService firebaseMessagingService;
+    private final NotificationDispatcher dispatcher;
+    private final NotificationCoalescer coalescer;
+    private final NotificationDeadLetterRepository deadLetterRepository;
+    private final NotificationBroadcastService broadcastService;
+    private final FollowService followService;
     private final ObjectMapper objectMapper;
+    private final TransactionCallbacks transactionCallbacks;
     
     public NotificationService(
         NotificationLogRepository notificationLogRepository,
+        NotificationLogWriter logWriter,
+        UnreadCountCache unreadCountCache,
         FCMTokenService fcmTokenService,
-        @Autowired(required = false) FirebaseMessagingService firebaseMessagingService,
-        ObjectMapper objectMapper
+        NotificationDispatcher dispatcher,
+        NotificationCoalescer coalescer,
+        NotificationDeadLetterRepository deadLetterRepository,
+        NotificationBroadcastService broadcastService,
+        FollowService followService,
+        ObjectMapper objectMapper,
+        TransactionCallbacks transactionCallbacks
     ) {
         this.notificationLogRepository = notificationLogRepository;
+        this.logWriter = logWriter;
+        this.unreadCountCache = unreadCountCache;
         this.fcmTokenService = fcmTokenService;
-        this.firebaseMessagingService = firebaseMessagingService;
+        this.dispatcher = dispatcher;
+        this.coalescer = coalescer;
+        this.deadLetterRepository = deadLetterRepository;
+        this.broadcastService = broadcastService;
+        this.followService = followService;
         this.objectMapper = objectMapper;
+        this.transactionCallbacks = transactionCallbacks;
     }
     
     /**
-     * Enviar notificación a un usuario usando Firebase Cloud Messaging
+     * Enviar notificación a un usuario (o a todos si userId es null) usando Firebase Cloud Messaging.
+     * Sin transacción propia: un broadcast puede tardar minutos y cada escritura usa la suya.
      */
-    @Transactional
     public void sendNotification(NotificationDTO notificationDTO) {
         Long userId = notificationDTO.getUserId();
         
@@ -49,79 +89,57 @@ public class NotificationService {
             // Enviar a usuario específico
             sendToUser(userId, notificationDTO);
         } else {
-            // TODO: Enviar a todos los usuarios (broadcast)
-            log.info("Envío broadcast no implementado aún");
+            broadcast(notificationDTO);
         }
     }
     
     /**
-     * Enviar notificación a un usuario específico con FCM
+     * Enviar notificación a todos los dispositivos registrados y registrarla para cada usuario alcanzado
+     */
+    public BroadcastResultDTO broadcast(NotificationDTO notificationDTO) {
+        return broadcastService.broadcast(notificationDTO,
+                userIds -> userIds.forEach(userId -> logNotification(userId, notificationDTO)));
+    }
+    
+    /**
+     * Encolar un broadcast para correr en segundo plano; el estado se consulta con {@link #getBroadcastJob}
+     */
+    public BroadcastJobDTO submitBroadcast(NotificationDTO notificationDTO) {
+        return broadcastService.submit("broadcast", () -> broadcast(notificationDTO));
+    }
+    
+    /**
+     * Estado de un envío masivo encolado
+     */
+    public BroadcastJobDTO getBroadcastJob(String jobId) {
+        return broadcastService.getJob(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Envío", "id", jobId));
+    }
+    
+    /**
+     * Enviar notificación a un usuario específico con FCM (el envío sale por el dispatcher)
      */
     private void sendToUser(Long userId, NotificationDTO notificationDTO) {
-        // Verificar si Firebase está configurado
-        if (firebaseMessagingService == null) {
-            log.warn("⚠️ Firebase no configurado. No se puede enviar notificación a usuario ID: {}", userId);
-            logNotification(userId, notificationDTO);
-            return;
-        }
-        
         // Obtener tokens activos del usuario
-        List<FCMToken> tokens = fcmTokenService.getActiveTokensByUserId(userId);
+        List<String> tokens = activeTokens(userId);
         
         if (tokens.isEmpty()) {
             log.warn("No se encontraron tokens activos para usuario ID: {}", userId);
             return;
         }
         
-        // Extraer strings de tokens
-        List<String> tokenStrings = tokens.stream()
-                .map(FCMToken::getToken)
-                .collect(Collectors.toList());
-        
-        // Enviar notificación usando Firebase
-        BatchResponse response = firebaseMessagingService.sendNotificationToMultipleTokens(
-                tokenStrings,
-                notificationDTO.getTitle(),
-                notificationDTO.getBody(),
-                notificationDTO.getData()
-        );
-        
-        // Limpiar tokens inválidos si hay fallos
-        if (response != null && response.getFailureCount() > 0) {
-            List<String> invalidTokens = firebaseMessagingService.getInvalidTokens(response, tokenStrings);
-            cleanupInvalidTokens(invalidTokens);
-        }
-        
         // Registrar notificación en el log
         logNotification(userId, notificationDTO);
         
-        log.info("✅ Notificación enviada a usuario ID: {} (tokens: {}, éxito: {}, fallos: {})", 
-                userId, 
-                tokens.size(),
-                response != null ? response.getSuccessCount() : 0,
-                response != null ? response.getFailureCount() : 0);
-    }
-    
-    /**
-     * Limpiar tokens inválidos
-     */
-    @Transactional
-    public void cleanupInvalidTokens(List<String> invalidTokens) {
-        if (invalidTokens == null || invalidTokens.isEmpty()) {
-            return;
-        }
-        
-        for (String token : invalidTokens) {
-            fcmTokenService.deactivateToken(token);
-        }
+        dispatcher.dispatch(userId, notificationDTO.getType(), tokens,
+                notificationDTO.getTitle(), notificationDTO.getBody(), notificationDTO.getData());
         
-        log.info("🧹 Limpiados {} tokens inválidos", invalidTokens.size());
+        log.info("✅ Notificación encolada para usuario ID: {} (tokens: {})", userId, tokens.size());
     }
     
     /**
-     * Registrar notificación en el log
+     * Registrar notificación en el log (escritura diferida por lotes)
      */
-    @Transactional
     public void logNotification(Long userId, NotificationDTO notificationDTO) {
         NotificationLog log = new NotificationLog();
         log.setUserId(userId);
@@ -137,51 +155,24 @@ public class NotificationService {
             }
         }
         
-        notificationLogRepository.save(log);
+        logWriter.append(log);
+        if (userId != null) {
+            unreadCountCache.increment(userId);
+        }
     }
     
     /**
-     * Notificar cambio de estado de pedido
+     * Notificar cambio de estado de pedido. Los cambios del mismo pedido dentro de la ventana de
+     * agrupación se reducen al último estado (un solo push y una sola fila en el log).
      */
-    @Transactional
     public void notifyOrderStatusChange(Long userId, Long orderId, String newStatus) {
         if (userId == null || orderId == null || newStatus == null) {
             log.warn("Parámetros inválidos para notificación de pedido");
             return;
         }
         
-        // Obtener tokens activos del usuario
-        List<FCMToken> tokens = fcmTokenService.getActiveTokensByUserId(userId);
-        
-        if (tokens.isEmpty()) {
-            log.warn("No se encontraron tokens activos para usuario ID: {} (pedido #{})", userId, orderId);
-            return;
-        }
-        
-        // Enviar notificación usando Firebase
-        firebaseMessagingService.sendOrderStatusNotification(
-                tokens,
-                orderId,
-                newStatus,
-                getStatusText(newStatus)
-        );
-        
-        // Registrar en el log
-        NotificationDTO dto = new NotificationDTO();
-        dto.setUserId(userId);
-        dto.setType("order_status");
-        dto.setTitle(getOrderStatusTitle(newStatus));
-        dto.setBody(String.format(getOrderStatusBody(newStatus), orderId));
-        dto.setData(Map.of(
-                "type", "order_status",
-                "id", orderId.toString(),
-                "status", newStatus
-        ));
-        
-        logNotification(userId, dto);
-        
-        log.info("📱 Notificación de pedido enviada a usuario ID: {} (pedido #{}, estado: {})", 
-                userId, orderId, newStatus);
+        transactionCallbacks.afterCommit(() -> coalescer.submit("order:" + userId + ":" + orderId,
+                () -> sendOrderStatus(userId, orderId, newStatus)));
     }
     
     /**
@@ -189,32 +180,27 @@ public class NotificationService {
      */
     @Transactional
     public void notifySpecialOffer(Long userId, String offerTitle, String offerDescription, String couponId) {
-        List<FCMToken> tokens = fcmTokenService.getActiveTokensByUserId(userId);
+        List<String> tokens = activeTokens(userId);
         
         if (tokens.isEmpty()) {
             log.warn("No se encontraron tokens activos para usuario ID: {}", userId);
             return;
         }
         
-        firebaseMessagingService.sendSpecialOfferNotification(
-                tokens,
-                offerTitle,
-                offerDescription,
-                couponId
-        );
-        
         // Registrar en el log
         NotificationDTO dto = new NotificationDTO();
         dto.setUserId(userId);
-        dto.setType("special_offer");
-        dto.setTitle("🎁 " + offerTitle);
-        dto.setBody(offerDescription);
+        NotificationTemplates.Text text = NotificationTemplates.specialOffer(offerTitle, offerDescription);
+        dto.setType(NotificationTemplates.SPECIAL_OFFER);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
         dto.setData(Map.of(
-                "type", "special_offer",
+                "type", NotificationTemplates.SPECIAL_OFFER,
                 "id", couponId != null ? couponId : ""
         ));
         
         logNotification(userId, dto);
+        dispatchWithClickAction(dto, tokens, null);
     }
     
     /**
@@ -222,98 +208,315 @@ public class NotificationService {
      */
     @Transactional
     public void notifyNewRestaurant(Long userId, Long restaurantId, String restaurantName) {
-        List<FCMToken> tokens = fcmTokenService.getActiveTokensByUserId(userId);
+        List<String> tokens = activeTokens(userId);
         
         if (tokens.isEmpty()) {
             log.warn("No se encontraron tokens activos para usuario ID: {}", userId);
             return;
         }
         
-        firebaseMessagingService.sendNewRestaurantNotification(
-                tokens,
-                restaurantId,
-                restaurantName
-        );
-        
         // Registrar en el log
         NotificationDTO dto = new NotificationDTO();
         dto.setUserId(userId);
-        dto.setType("new_restaurant");
-        dto.setTitle("🏪 ¡Nuevo restaurante disponible!");
-        dto.setBody(String.format("Descubre la deliciosa comida de %s", restaurantName));
+        NotificationTemplates.Text text = NotificationTemplates.newRestaurant(restaurantName);
+        dto.setType(NotificationTemplates.NEW_RESTAURANT);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
         dto.setData(Map.of(
-                "type", "new_restaurant",
+                "type", NotificationTemplates.NEW_RESTAURANT,
                 "id", restaurantId.toString()
         ));
         
         logNotification(userId, dto);
+        dispatchWithClickAction(dto, tokens, null);
+    }
+    
+    /**
+     * Anunciar una oferta a todos los seguidores de un restaurante: un solo envío al topic del
+     * restaurante, sin importar la cantidad de seguidores. Devuelve cuántos seguidores la recibieron.
+     */
+    public long notifyRestaurantFollowers(Long restaurantId, String offerTitle, String offerDescription,
+                                          String couponId) {
+        NotificationDTO dto = new NotificationDTO();
+        NotificationTemplates.Text text = NotificationTemplates.specialOffer(offerTitle, offerDescription);
+        dto.setType(NotificationTemplates.SPECIAL_OFFER);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
+        dto.setData(Map.of(
+                "type", NotificationTemplates.SPECIAL_OFFER,
+                "id", couponId != null ? couponId : "",
+                "restaurant_id", restaurantId.toString(),
+                "click_action", "FLUTTER_NOTIFICATION_CLICK"
+        ));
+        
+        String key = restaurantId.toString();
+        followService.sendToFollowers(Follow.TargetType.RESTAURANT, key, dto.getTitle(), dto.getBody(),
+                dto.getData(), "offer_" + restaurantId);
+        long followers = followService.forEachFollower(Follow.TargetType.RESTAURANT, key,
+                userId -> logNotification(userId, dto));
+        
+        log.info("🎁 Oferta del restaurante ID {} enviada a sus {} seguidores", restaurantId, followers);
+        return followers;
+    }
+    
+    /**
+     * Encolar una oferta a un conjunto de usuarios para correr en segundo plano (ver {@link #notifyUsersOffer})
+     */
+    public BroadcastJobDTO submitUsersOffer(PrimitiveIterator.OfInt userIds, String offerTitle,
+                                            String offerDescription, String couponId) {
+        return broadcastService.submit("segment-offer",
+                () -> notifyUsersOffer(userIds, offerTitle, offerDescription, couponId));
+    }
+    
+    /**
+     * Enviar una oferta a un conjunto de usuarios (por ejemplo, un segmento), con ids en orden
+     * ascendente: los tokens se leen por lotes y salen en bloques multicast como un broadcast, y
+     * cada usuario alcanzado queda registrado en su bandeja.
+     */
+    public BroadcastResultDTO notifyUsersOffer(PrimitiveIterator.OfInt userIds, String offerTitle,
+                                               String offerDescription, String couponId) {
+        NotificationDTO dto = new NotificationDTO();
+        NotificationTemplates.Text text = NotificationTemplates.specialOffer(offerTitle, offerDescription);
+        dto.setType(NotificationTemplates.SPECIAL_OFFER);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
+        dto.setData(Map.of(
+                "type", NotificationTemplates.SPECIAL_OFFER,
+                "id", couponId != null ? couponId : "",
+                "click_action", "FLUTTER_NOTIFICATION_CLICK"
+        ));
+        
+        return broadcastService.sendToUsers(dto, userIds,
+                users -> users.forEach(userId -> logNotification(userId, dto)));
+    }
+    
+    /**
+     * Anunciar un restaurante nuevo a los seguidores de sus categorías (un envío por categoría,
+     * al confirmar la transacción). Quien sigue varias de las categorías ve una sola notificación.
+     */
+    public void notifyNewRestaurantToFollowers(Long restaurantId, String restaurantName, Collection<String> categories) {
+        if (restaurantId == null || categories == null || categories.isEmpty()) {
+            return;
+        }
+        List<String> snapshot = List.copyOf(categories);
+        transactionCallbacks.afterCommit(() -> sendNewRestaurantToFollowers(restaurantId, restaurantName, snapshot));
     }
     
     /**
-     * Obtener notificaciones de un usuario
+     * Obtener una página de la bandeja del usuario (paginación por cursor sobre sent_at, id)
      */
-    public List<NotificationLog> getUserNotifications(Long userId) {
-        return notificationLogRepository.findByUserIdOrderBySentAtDesc(userId);
+    public NotificationPageDTO getInbox(Long userId, String cursor, Integer limit, boolean unreadOnly) {
+        int size = normalizePageSize(limit);
+        Pageable pageable = PageRequest.of(0, size + 1);
+        
+        List<NotificationLog> notifications;
+        if (cursor == null || cursor.isBlank()) {
+            notifications = unreadOnly
+                    ? notificationLogRepository.findByUserIdAndReadAtIsNullOrderBySentAtDescIdDesc(userId, pageable)
+                    : notificationLogRepository.findByUserIdOrderBySentAtDescIdDesc(userId, pageable);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            notifications = unreadOnly
+                    ? notificationLogRepository.findUnreadInboxAfter(userId, after.at(), after.id(), pageable)
+                    : notificationLogRepository.findInboxAfter(userId, after.at(), after.id(), pageable);
+        }
+        
+        return toPage(notifications, size);
     }
     
     /**
-     * Obtener notificaciones no leídas
+     * Marcar como leída una notificación del usuario
      */
-    public List<NotificationLog> getUnreadNotifications(Long userId) {
-        return notificationLogRepository.findByUserIdAndReadAtIsNullOrderBySentAtDesc(userId);
+    @Transactional
+    public void markAsRead(Long userId, Long notificationId) {
+        int updated = notificationLogRepository.markAsRead(userId, notificationId, LocalDateTime.now());
+        
+        if (updated == 0) {
+            // Ya estaba leída, o no existe / es de otro usuario
+            if (!notificationLogRepository.existsByIdAndUserId(notificationId, userId)) {
+                throw new ResourceNotFoundException("Notificación", "id", notificationId);
+            }
+            return;
+        }
+        
+        transactionCallbacks.afterCommit(() -> unreadCountCache.decrement(userId, 1));
     }
     
     /**
-     * Marcar notificación como leída
+     * Marcar como leídas todas las notificaciones del usuario, o solo hasta upToId (inclusive),
+     * con un único UPDATE
      */
     @Transactional
-    public void markAsRead(Long notificationId) {
-        NotificationLog notification = notificationLogRepository.findById(notificationId)
-                .orElseThrow(() -> new RuntimeException("Notificación no encontrada"));
+    public int markAllAsRead(Long userId, Long upToId) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated;
+        
+        if (upToId == null) {
+            updated = notificationLogRepository.markAllAsRead(userId, now);
+            transactionCallbacks.afterCommit(() -> unreadCountCache.reset(userId));
+        } else {
+            updated = notificationLogRepository.markAsReadUpTo(userId, upToId, now);
+            transactionCallbacks.afterCommit(() -> unreadCountCache.decrement(userId, updated));
+        }
         
-        notification.setReadAt(LocalDateTime.now());
-        notificationLogRepository.save(notification);
+        log.info("📬 {} notificaciones marcadas como leídas para usuario ID: {}", updated, userId);
+        return updated;
     }
     
     /**
-     * Contar notificaciones no leídas
+     * Contar notificaciones no leídas (contador en memoria)
      */
     public long countUnread(Long userId) {
-        return notificationLogRepository.countByUserIdAndReadAtIsNull(userId);
+        return unreadCountCache.get(userId);
+    }
+    
+    /**
+     * Métricas del dispatcher de envíos
+     */
+    public Map<String, Object> getDispatcherStats() {
+        return dispatcher.getStats();
+    }
+    
+    /**
+     * Métricas del escritor del log de notificaciones
+     */
+    public Map<String, Object> getLogWriterStats() {
+        return logWriter.getStats();
+    }
+    
+    /**
+     * Últimas notificaciones que no se pudieron entregar
+     */
+    public List<NotificationDeadLetter> getDeadLetters() {
+        return deadLetterRepository.findTop100ByOrderByFailedAtDesc();
+    }
+    
+    /**
+     * Métricas de los contadores de no leídas
+     */
+    public Map<String, Object> getUnreadCacheStats() {
+        return unreadCountCache.getStats();
+    }
+    
+    /**
+     * Métricas del agrupador de notificaciones
+     */
+    public Map<String, Object> getCoalescerStats() {
+        return coalescer.getStats();
     }
     
     // ========== MÉTODOS AUXILIARES ==========
     
-    private String getStatusText(String status) {
-        return switch (status.toLowerCase()) {
-            case "confirmed" -> "confirmado";
-            case "preparing" -> "en preparación";
-            case "on_the_way" -> "en camino";
-            case "delivered" -> "entregado";
-            case "cancelled" -> "cancelado";
-            default -> "actualizado";
-        };
+    private NotificationPageDTO toPage(List<NotificationLog> notifications, int size) {
+        boolean hasMore = notifications.size() > size;
+        List<NotificationLog> pageItems = hasMore ? notifications.subList(0, size) : notifications;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            NotificationLog last = pageItems.get(pageItems.size() - 1);
+            nextCursor = new KeysetCursor(last.getSentAt(), last.getId()).encode();
+        }
+        
+        List<NotificationLogDTO> items = pageItems.stream()
+                .map(n -> new NotificationLogDTO(n.getId(), n.getNotificationType(), n.getTitle(),
+                        n.getBody(), n.getData(), n.getSentAt(), n.getReadAt()))
+                .collect(Collectors.toList());
+        return new NotificationPageDTO(items, nextCursor, hasMore);
+    }
+    
+    private int normalizePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * Registrar y encolar la notificación de un estado de pedido (ya agrupada)
+     */
+    private void sendOrderStatus(Long userId, Long orderId, String newStatus) {
+        // Obtener tokens activos del usuario
+        List<String> tokens = activeTokens(userId);
+        
+        if (tokens.isEmpty()) {
+            log.warn("No se encontraron tokens activos para usuario ID: {} (pedido #{})", userId, orderId);
+            return;
+        }
+        
+        // Registrar en el log
+        NotificationDTO dto = new NotificationDTO();
+        dto.setUserId(userId);
+        NotificationTemplates.Text text = NotificationTemplates.orderStatus(newStatus, orderId);
+        dto.setType(NotificationTemplates.ORDER_STATUS);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
+        dto.setData(Map.of(
+                "type", NotificationTemplates.ORDER_STATUS,
+                "id", orderId.toString(),
+                "status", newStatus
+        ));
+        
+        logNotification(userId, dto);
+        
+        // Encolar el envío; reemplaza en el dispositivo la notificación anterior del mismo pedido
+        dispatchWithClickAction(dto, tokens, "order_" + orderId);
+        
+        log.info("📱 Notificación de pedido encolada para usuario ID: {} (pedido #{}, estado: {})", 
+                userId, orderId, newStatus);
+    }
+    
+    private void sendNewRestaurantToFollowers(Long restaurantId, String restaurantName, Collection<String> categories) {
+        NotificationDTO dto = new NotificationDTO();
+        NotificationTemplates.Text text = NotificationTemplates.newRestaurant(restaurantName);
+        dto.setType(NotificationTemplates.NEW_RESTAURANT);
+        dto.setTitle(text.title());
+        dto.setBody(text.body());
+        dto.setData(Map.of(
+                "type", NotificationTemplates.NEW_RESTAURANT,
+                "id", restaurantId.toString(),
+                "click_action", "FLUTTER_NOTIFICATION_CLICK"
+        ));
+        
+        Set<Long> notified = new HashSet<>();
+        Set<String> keys = new LinkedHashSet<>();
+        for (String category : categories) {
+            if (category != null && !category.isBlank()) {
+                keys.add(FollowService.normalizeCategory(category));
+            }
+        }
+        
+        for (String key : keys) {
+            try {
+                // Misma collapse key: el dispositivo reemplaza la notificación en lugar de repetirla
+                followService.sendToFollowers(Follow.TargetType.CATEGORY, key, dto.getTitle(), dto.getBody(),
+                        dto.getData(), "restaurant_" + restaurantId);
+            } catch (RuntimeException e) {
+                log.error("❌ Error anunciando el restaurante ID {} en la categoría {}: {}",
+                        restaurantId, key, e.getMessage());
+                continue;
+            }
+            followService.forEachFollower(Follow.TargetType.CATEGORY, key, userId -> {
+                if (notified.add(userId)) {
+                    logNotification(userId, dto);
+                }
+            });
+        }
+        
+        log.info("🏪 Restaurante ID {} anunciado a {} seguidores de {} categorías",
+                restaurantId, notified.size(), keys.size());
     }
     
-    private String getOrderStatusTitle(String status) {
-        return switch (status.toLowerCase()) {
-            case "confirmed" -> "✅ Pedido confirmado";
-            case "preparing" -> "👨‍🍳 Preparando tu pedido";
-            case "on_the_way" -> "🚚 ¡Tu pedido está en camino!";
-            case "delivered" -> "🎉 ¡Pedido entregado!";
-            case "cancelled" -> "❌ Pedido cancelado";
-            default -> "📦 Actualización de pedido";
-        };
+    private List<String> activeTokens(Long userId) {
+        return Arrays.asList(fcmTokenService.getActiveTokenValues(userId));
     }
     
-    private String getOrderStatusBody(String status) {
-        return switch (status.toLowerCase()) {
-            case "confirmed" -> "Tu pedido #%d ha sido confirmado y está siendo preparado";
-            case "preparing" -> "El restaurante está preparando tu pedido #%d";
-            case "on_the_way" -> "El repartidor está en camino con tu pedido #%d";
-            case "delivered" -> "Tu pedido #%d ha sido entregado. ¡Buen provecho!";
-            case "cancelled" -> "Tu pedido #%d ha sido cancelado";
-            default -> "Tu pedido #%d ha sido actualizado";
-        };
+    /**
+     * Encolar el envío push; la app abre la pantalla correspondiente con click_action
+     */
+    private void dispatchWithClickAction(NotificationDTO dto, List<String> tokens, String collapseKey) {
+        Map<String, String> data = new HashMap<>(dto.getData());
+        data.put("click_action", "FLUTTER_NOTIFICATION_CLICK");
+        dispatcher.dispatch(dto.getUserId(), dto.getType(), tokens, dto.getTitle(), dto.getBody(), data,
+                collapseKey);
     }
 }
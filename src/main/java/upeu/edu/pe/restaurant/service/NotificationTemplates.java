@@ -0,0 +1,75 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Textos de las notificaciones por tipo, preparados una sola vez.
+ *
+ * Los cuerpos con el número de pedido se guardan partidos en prefijo y sufijo, así cada mensaje
+ * se arma con una concatenación en lugar de interpretar un formato.
+ */
+final class NotificationTemplates {
+
+    static final String ORDER_STATUS = "order_status";
+    static final String SPECIAL_OFFER = "special_offer";
+    static final String NEW_RESTAURANT = "new_restaurant";
+
+    /**
+     * Título y cuerpo de una notificación
+     */
+    record Text(String title, String body) {}
+
+    private record OrderStatusTemplate(String title, String bodyPrefix, String bodySuffix) {
+
+        static OrderStatusTemplate of(String title, String bodyFormat) {
+            int placeholder = bodyFormat.indexOf("%d");
+            return new OrderStatusTemplate(title, bodyFormat.substring(0, placeholder),
+                    bodyFormat.substring(placeholder + 2));
+        }
+
+        Text render(Long orderId) {
+            return new Text(title, bodyPrefix + orderId + bodySuffix);
+        }
+    }
+
+    private static final Map<String, OrderStatusTemplate> ORDER_STATUS_TEMPLATES = Map.of(
+            "confirmed", OrderStatusTemplate.of("✅ Pedido confirmado",
+                    "Tu pedido #%d ha sido confirmado y está siendo preparado"),
+            "preparing", OrderStatusTemplate.of("👨‍🍳 Preparando tu pedido",
+                    "El restaurante está preparando tu pedido #%d"),
+            "on_the_way", OrderStatusTemplate.of("🚚 ¡Tu pedido está en camino!",
+                    "El repartidor está en camino con tu pedido #%d"),
+            "delivered", OrderStatusTemplate.of("🎉 ¡Pedido entregado!",
+                    "Tu pedido #%d ha sido entregado. ¡Buen provecho!"),
+            "cancelled", OrderStatusTemplate.of("❌ Pedido cancelado",
+                    "Tu pedido #%d ha sido cancelado")
+    );
+
+    private static final OrderStatusTemplate ORDER_UPDATED =
+            OrderStatusTemplate.of("📦 Actualización de pedido", "Tu pedido #%d ha sido actualizado");
+
+    private NotificationTemplates() {
+    }
+
+    /**
+     * Cambio de estado de un pedido (estados desconocidos usan el texto genérico)
+     */
+    static Text orderStatus(String status, Long orderId) {
+        return ORDER_STATUS_TEMPLATES.getOrDefault(status.toLowerCase(Locale.ROOT), ORDER_UPDATED).render(orderId);
+    }
+
+    /**
+     * Oferta especial
+     */
+    static Text specialOffer(String offerTitle, String offerDescription) {
+        return new Text("🎁 " + offerTitle, offerDescription);
+    }
+
+    /**
+     * Nuevo restaurante
+     */
+    static Text newRestaurant(String restaurantName) {
+        return new Text("🏪 ¡Nuevo restaurante disponible!", "Descubre la deliciosa comida de " + restaurantName);
+    }
+}
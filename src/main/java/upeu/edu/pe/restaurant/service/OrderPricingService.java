@@ -0,0 +1,147 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import upeu.edu.pe.restaurant.cache.MenuPriceCache;
+import upeu.edu.pe.restaurant.dto.CreateOrderRequest;
+import upeu.edu.pe.restaurant.dto.OrderPricingDTO;
+import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
+import upeu.edu.pe.restaurant.exception.InvalidOrderException;
+import upeu.edu.pe.restaurant.exception.ProductNotAvailableException;
+import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cálculo autoritativo del precio de un pedido: subtotal con precios del menú, promoción del
+ * restaurante, cupón y costo de delivery según distancia. Todo sale de la tabla de precios en
+ * memoria; los precios y totales que envíe el cliente se ignoran.
+ */
+@Slf4j
+@Service
+public class OrderPricingService {
+    
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    
+    private final MenuPriceCache menuPriceCache;
+    private final CouponService couponService;
+    private final LocationService locationService;
+    private final BigDecimal defaultDeliveryFee;
+    private final double includedKm;
+    private final BigDecimal feePerKm;
+    
+    public OrderPricingService(
+            MenuPriceCache menuPriceCache,
+            CouponService couponService,
+            LocationService locationService,
+            @Value("${pricing.delivery.default-fee:2.50}") BigDecimal defaultDeliveryFee,
+            @Value("${pricing.delivery.included-km:3}") double includedKm,
+            @Value("${pricing.delivery.fee-per-km:0.50}") BigDecimal feePerKm) {
+        this.menuPriceCache = menuPriceCache;
+        this.couponService = couponService;
+        this.locationService = locationService;
+        this.defaultDeliveryFee = defaultDeliveryFee;
+        this.includedKm = includedKm;
+        this.feePerKm = feePerKm;
+    }
+    
+    /**
+     * Cotizar un pedido
+     *
+     * @param couponCode        cupón opcional; si no aplica, se informa en coupon y no se descuenta
+     * @param deliveryLatitude  ubicación de entrega opcional, para el recargo por distancia
+     */
+    public OrderPricingDTO price(Long userId, Long restaurantId, List<CreateOrderRequest.OrderItemRequest> items,
+                                 String couponCode, Double deliveryLatitude, Double deliveryLongitude) {
+        MenuPriceCache.RestaurantMenu menu = menuPriceCache.get(restaurantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Restaurante", "id", restaurantId));
+        if (!menu.active()) {
+            throw new InvalidOrderException("restaurantId", "El restaurante no está disponible");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        
+        // Subtotal con precios del menú
+        List<OrderPricingDTO.Line> lines = new ArrayList<>(items.size());
+        Set<String> categories = new HashSet<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CreateOrderRequest.OrderItemRequest item : items) {
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new InvalidOrderException("items", "La cantidad de cada producto debe ser mayor a 0");
+            }
+            MenuPriceCache.MenuPrice price = menu.items().get(item.getProductId());
+            if (price == null) {
+                throw new InvalidOrderException("items",
+                        "El producto " + item.getProductId() + " no pertenece a este restaurante");
+            }
+            if (!price.available()) {
+                throw new ProductNotAvailableException(price.id(), price.name());
+            }
+            
+            BigDecimal lineTotal = price.price().multiply(BigDecimal.valueOf(item.getQuantity()));
+            lines.add(new OrderPricingDTO.Line(price.id(), price.name(), price.price(), item.getQuantity(), lineTotal));
+            subtotal = subtotal.add(lineTotal);
+            if (price.category() != null) {
+                categories.add(price.category());
+            }
+        }
+        
+        // Promoción del restaurante
+        int promotionPercentage = menu.promotionPercentage(now);
+        BigDecimal promotionDiscount = subtotal.multiply(BigDecimal.valueOf(promotionPercentage))
+                .divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        BigDecimal discounted = subtotal.subtract(promotionDiscount);
+        
+        // Cupón sobre el subtotal con promoción
+        CouponValidationResponse coupon = null;
+        BigDecimal couponDiscount = BigDecimal.ZERO;
+        if (couponCode != null && !couponCode.isBlank()) {
+            coupon = couponService.validateCoupon(couponCode, discounted, restaurantId, categories, userId);
+            if (coupon.getValid()) {
+                couponDiscount = coupon.getDiscount().setScale(2, RoundingMode.HALF_UP);
+            }
+        }
+        
+        // Delivery
+        Double distanceKm = null;
+        if (deliveryLatitude != null && deliveryLongitude != null
+                && menu.latitude() != null && menu.longitude() != null) {
+            distanceKm = locationService.calculateDistance(
+                    menu.latitude(), menu.longitude(), deliveryLatitude, deliveryLongitude);
+        }
+        BigDecimal deliveryFee = deliveryFee(menu, distanceKm);
+        
+        BigDecimal total = discounted.subtract(couponDiscount).max(BigDecimal.ZERO).add(deliveryFee);
+        
+        return OrderPricingDTO.builder()
+                .restaurantId(restaurantId)
+                .items(lines)
+                .subtotal(subtotal)
+                .promotionPercentage(promotionPercentage)
+                .promotionDiscount(promotionDiscount)
+                .coupon(coupon)
+                .couponDiscount(couponDiscount)
+                .distanceKm(distanceKm)
+                .deliveryFee(deliveryFee)
+                .total(total)
+                .build();
+    }
+    
+    /**
+     * Tarifa base del restaurante más un recargo por cada km (o fracción) fuera del radio incluido
+     */
+    private BigDecimal deliveryFee(MenuPriceCache.RestaurantMenu menu, Double distanceKm) {
+        BigDecimal fee = menu.deliveryFee() != null ? menu.deliveryFee() : defaultDeliveryFee;
+        if (distanceKm != null && distanceKm > includedKm) {
+            long extraKm = (long) Math.ceil(distanceKm - includedKm);
+            fee = fee.add(feePerKm.multiply(BigDecimal.valueOf(extraKm)));
+        }
+        return fee.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -1,18 +1,29 @@
 package upeu.edu.pe.restaurant.service;
 
+import com.stripe.exception.StripeException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.dto.CheckoutRequest;
 import upeu.edu.pe.restaurant.dto.CreateOrderRequest;
 import upeu.edu.pe.restaurant.dto.OrderDTO;
 import upeu.edu.pe.restaurant.dto.OrderItemDTO;
+import upeu.edu.pe.restaurant.dto.OrderPricingDTO;
 import upeu.edu.pe.restaurant.entity.*;
+import upeu.edu.pe.restaurant.event.OrderPlacedEvent;
 import upeu.edu.pe.restaurant.repository.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
@@ -21,8 +32,10 @@ public class OrderService {
     private final UserRepository userRepository;
     private final RestaurantRepository restaurantRepository;
     private final MenuItemRepository menuItemRepository;
-    private final OrderItemRepository orderItemRepository;
     private final NotificationService notificationService;
+    private final OrderPricingService pricingService;
+    private final PaymentService paymentService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public OrderDTO createOrder(String userEmail, CreateOrderRequest request) {
@@ -34,18 +47,23 @@ public class OrderService {
         Restaurant restaurant = restaurantRepository.findById(request.getRestaurantId())
                 .orElseThrow(() -> new RuntimeException("Restaurante no encontrado"));
         
+        // Precios y totales calculados en el servidor (tabla de precios en memoria)
+        OrderPricingDTO pricing = pricingService.price(user.getId(), restaurant.getId(), request.getItems(),
+                null, request.getDeliveryLatitude(), request.getDeliveryLongitude());
+        
         // Crear orden
         Order order = new Order();
         order.setUser(user);
         order.setRestaurant(restaurant);
-        order.setTotalAmount(request.getTotalAmount());
+        applyPricing(order, pricing);
         order.setDeliveryAddress(request.getDeliveryAddress());
         order.setNotes(request.getNotes());
         
-        // ✅ Si tiene Payment Intent ID, marcar como CONFIRMED (pago exitoso)
+        // ✅ Si tiene Payment Intent ID, marcar como CONFIRMED solo si Stripe cobró el total calculado aquí
         if (request.getPaymentIntentId() != null && !request.getPaymentIntentId().isEmpty()) {
-            order.setStatus(Order.Status.CONFIRMED);
-            order.setPaymentStatus("completed");
+            boolean paid = isPaidInFull(request.getPaymentIntentId(), pricing);
+            order.setStatus(paid ? Order.Status.CONFIRMED : Order.Status.PENDING);
+            order.setPaymentStatus(paid ? "completed" : "pending");
             order.setPaymentIntentId(request.getPaymentIntentId());
             order.setPaymentMethod(request.getPaymentMethod() != null ? request.getPaymentMethod() : "card");
         } else {
@@ -55,34 +73,41 @@ public class OrderService {
             order.setPaymentMethod(request.getPaymentMethod() != null ? request.getPaymentMethod() : "cash");
         }
         
-        // Guardar orden primero
-        Order savedOrder = orderRepository.save(order);
+        // Productos en una sola consulta; los precios ya vienen de la cotización
+        addItems(order, pricing, loadMenuItems(pricing));
         
-        // Crear items de la orden - Evitar ConcurrentModificationException
-        // Crear lista temporal primero
-        for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            MenuItem menuItem = menuItemRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
-            
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(savedOrder);
-            orderItem.setMenuItem(menuItem);
-            orderItem.setQuantity(itemRequest.getQuantity());
-            orderItem.setPrice(itemRequest.getPrice());
-            
-            // Guardar item individualmente
-            orderItemRepository.save(orderItem);
-            
-            // Agregar usando el método auxiliar para evitar ConcurrentModificationException
-            savedOrder.addOrderItem(orderItem);
-        }
-        
-        // Guardar orden con items
-        Order finalOrder = orderRepository.save(savedOrder);
+        // Los items se insertan en cascada con la orden
+        Order finalOrder = orderRepository.save(order);
+        publishOrderPlaced(finalOrder);
         
         return convertToDTO(finalOrder);
     }
     
+    /**
+     * Crear la orden de un checkout con entidades ya validadas y el precio ya calculado.
+     * Corre dentro de la transacción del checkout, junto con el canje del cupón.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OrderDTO createCheckoutOrder(User user, Restaurant restaurant, Map<Long, MenuItem> menuItems,
+                                        CheckoutRequest request, OrderPricingDTO pricing, String paymentIntentId) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setRestaurant(restaurant);
+        applyPricing(order, pricing);
+        order.setDeliveryAddress(request.getDeliveryAddress());
+        order.setNotes(request.getNotes());
+        order.setStatus(Order.Status.PENDING);
+        order.setPaymentStatus("pending");
+        order.setPaymentIntentId(paymentIntentId);
+        order.setPaymentMethod(paymentIntentId != null ? "card" : "cash");
+        addItems(order, pricing, menuItems);
+        
+        // Los items se insertan en cascada con la orden
+        Order saved = orderRepository.save(order);
+        publishOrderPlaced(saved);
+        return convertToDTO(saved);
+    }
+    
     @Transactional(readOnly = true)
     public List<OrderDTO> getUserOrders(String userEmail) {
         User user = userRepository.findByEmail(userEmail)
@@ -194,6 +219,63 @@ public class OrderService {
         }
     }
     
+    /**
+     * Si Stripe no confirma el monto (o no responde) la orden queda PENDING hasta que se actualice el pago
+     */
+    private boolean isPaidInFull(String paymentIntentId, OrderPricingDTO pricing) {
+        try {
+            return paymentService.isPaidInFull(paymentIntentId, PaymentService.toMinorUnits(pricing.getTotal()));
+        } catch (StripeException e) {
+            log.warn("No se pudo verificar el pago {}: {}", paymentIntentId, e.getMessage());
+            return false;
+        }
+    }
+    
+    private Map<Long, MenuItem> loadMenuItems(OrderPricingDTO pricing) {
+        List<Long> ids = pricing.getItems().stream()
+                .map(OrderPricingDTO.Line::getProductId)
+                .distinct()
+                .toList();
+        Map<Long, MenuItem> menuItems = new HashMap<>();
+        for (MenuItem menuItem : menuItemRepository.findAllById(ids)) {
+            menuItems.put(menuItem.getId(), menuItem);
+        }
+        return menuItems;
+    }
+    
+    private void applyPricing(Order order, OrderPricingDTO pricing) {
+        order.setSubtotal(pricing.getSubtotal());
+        order.setDiscountAmount(pricing.getDiscount());
+        order.setDeliveryFee(pricing.getDeliveryFee());
+        order.setTotalAmount(pricing.getTotal());
+    }
+    
+    private void addItems(Order order, OrderPricingDTO pricing, Map<Long, MenuItem> menuItems) {
+        for (OrderPricingDTO.Line line : pricing.getItems()) {
+            MenuItem menuItem = menuItems.get(line.getProductId());
+            if (menuItem == null) {
+                throw new RuntimeException("Producto no encontrado");
+            }
+            OrderItem orderItem = new OrderItem();
+            orderItem.setMenuItem(menuItem);
+            orderItem.setQuantity(line.getQuantity());
+            orderItem.setPrice(line.getUnitPrice());
+            order.addOrderItem(orderItem);
+        }
+    }
+    
+    /**
+     * Avisar a los segmentos de usuarios (se procesa después del commit)
+     */
+    private void publishOrderPlaced(Order order) {
+        Restaurant restaurant = order.getRestaurant();
+        List<String> categories = restaurant.getCategories() != null
+                ? List.copyOf(restaurant.getCategories())
+                : List.of();
+        eventPublisher.publishEvent(new OrderPlacedEvent(order.getId(), order.getUser().getId(),
+                restaurant.getId(), categories, order.getCreatedAt()));
+    }
+
     private OrderDTO convertToDTO(Order order) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
@@ -203,8 +285,10 @@ public class OrderService {
         dto.setRestaurantName(order.getRestaurant().getName());
         dto.setRestaurantImage(order.getRestaurant().getImageUrl());
         dto.setStatus(order.getStatus().name());
-        dto.setSubtotal(order.getTotalAmount()); // Simplificado
-        dto.setDeliveryFee(java.math.BigDecimal.valueOf(2.50));
+        // Órdenes anteriores al cálculo en servidor no tienen desglose
+        dto.setSubtotal(order.getSubtotal() != null ? order.getSubtotal() : order.getTotalAmount());
+        dto.setDiscount(order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO);
+        dto.setDeliveryFee(order.getDeliveryFee() != null ? order.getDeliveryFee() : BigDecimal.ZERO);
         dto.setTotalAmount(order.getTotalAmount());
         dto.setDeliveryAddress(order.getDeliveryAddress());
         dto.setNotes(order.getNotes());
@@ -11,6 +11,8 @@ import upeu.edu.pe.restaurant.dto.PaymentIntentRequest;
 import upeu.edu.pe.restaurant.dto.PaymentIntentResponse;
 
 import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -95,6 +97,36 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Verifica que un Payment Intent esté pagado y por el monto esperado
+     * 
+     * @param paymentIntentId ID del Payment Intent
+     * @param expectedAmount Monto que debió cobrarse (en centavos)
+     * @return true si el pago se completó por exactamente ese monto
+     * @throws StripeException Si hay un error con Stripe
+     */
+    public boolean isPaidInFull(String paymentIntentId, long expectedAmount) throws StripeException {
+        try {
+            PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId);
+            boolean paid = "succeeded".equals(intent.getStatus()) && intent.getAmount() == expectedAmount;
+            if (!paid) {
+                log.warn("Payment Intent {} no coincide: estado {}, monto {} (esperado {})",
+                        paymentIntentId, intent.getStatus(), intent.getAmount(), expectedAmount);
+            }
+            return paid;
+        } catch (StripeException e) {
+            log.error("Error al verificar el pago: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Monto en centavos (unidad mínima de la moneda) como lo cobra Stripe
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
     /**
      * Cancela un Payment Intent
      * 
@@ -3,6 +3,7 @@ package upeu.edu.pe.restaurant.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.cache.MenuPriceCache;
 import upeu.edu.pe.restaurant.dto.ProductDTO;
 import upeu.edu.pe.restaurant.entity.MenuItem;
 import upeu.edu.pe.restaurant.entity.Restaurant;
@@ -18,6 +19,7 @@ public class ProductService {
     
     private final MenuItemRepository menuItemRepository;
     private final RestaurantRepository restaurantRepository;
+    private final MenuPriceCache menuPriceCache;
     
     @Transactional(readOnly = true)
     public List<ProductDTO> getProductsByRestaurant(Long restaurantId) {
@@ -66,6 +68,7 @@ public class ProductService {
         menuItem.setRestaurant(restaurant);
         menuItem.setIsAvailable(true);
         MenuItem saved = menuItemRepository.save(menuItem);
+        menuPriceCache.invalidate(restaurantId);
         return convertToDTO(saved);
     }
     
@@ -82,14 +85,15 @@ public class ProductService {
         existing.setIsAvailable(menuItem.getIsAvailable());
         
         MenuItem updated = menuItemRepository.save(existing);
+        menuPriceCache.invalidate(updated.getRestaurant().getId());
         return convertToDTO(updated);
     }
     
     @Transactional
     public void deleteProduct(Long id) {
-        if (!menuItemRepository.existsById(id)) {
-            throw new RuntimeException("Producto no encontrado");
-        }
-        menuItemRepository.deleteById(id);
+        MenuItem existing = menuItemRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+        menuItemRepository.delete(existing);
+        menuPriceCache.invalidate(existing.getRestaurant().getId());
     }
 }
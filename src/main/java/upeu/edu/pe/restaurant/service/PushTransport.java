@@ -0,0 +1,101 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transporte de notificaciones push: envía una misma notificación a un grupo de tokens.
+ *
+ * La implementación se elige con {@code notifications.transport}: {@code firebase} (por defecto)
+ * usa FCM y {@code fake} simula el servicio en memoria para pruebas de carga.
+ */
+public interface PushTransport {
+
+    /**
+     * Límite de tokens por solicitud multicast de FCM
+     */
+    int MAX_TOKENS = 500;
+
+    /**
+     * Límite de tokens por solicitud de alta o baja en un topic de FCM
+     */
+    int MAX_TOPIC_TOKENS = 1000;
+
+    /**
+     * Enviar a los tokens indicados; las implementaciones dividen las listas mayores a {@link #MAX_TOKENS}
+     */
+    Result send(List<String> tokens, String title, String body, Map<String, String> data);
+
+    /**
+     * Enviar con clave de agrupación: el dispositivo reemplaza la notificación anterior con la misma
+     * clave en lugar de apilarlas. Los transportes que no la soportan la ignoran.
+     */
+    default Result send(List<String> tokens, String title, String body, Map<String, String> data,
+                        String collapseKey) {
+        return send(tokens, title, body, data);
+    }
+
+    /**
+     * Enviar una notificación a todos los suscritos a un topic (una sola solicitud, sin importar la
+     * audiencia); devuelve el id del mensaje
+     */
+    String sendToTopic(String topic, String title, String body, Map<String, String> data, String collapseKey);
+
+    /**
+     * Suscribir hasta {@link #MAX_TOPIC_TOKENS} tokens a un topic; devuelve cuántos se suscribieron
+     *
+     * @throws TopicException si el proveedor rechaza la solicitud
+     */
+    int subscribeToTopic(List<String> tokens, String topic);
+
+    /**
+     * Quitar hasta {@link #MAX_TOPIC_TOKENS} tokens de un topic; devuelve cuántos se quitaron
+     *
+     * @throws TopicException si el proveedor rechaza la solicitud
+     */
+    int unsubscribeFromTopic(List<String> tokens, String topic);
+
+    /**
+     * Error de una operación sobre un topic; {@code retryable} si fue transitorio del proveedor
+     */
+    class TopicException extends RuntimeException {
+
+        private final boolean retryable;
+
+        public TopicException(String message, boolean retryable, Throwable cause) {
+            super(message, cause);
+            this.retryable = retryable;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    /**
+     * Resultado de un envío. Los tokens fallidos se separan en: inválidos (desactivar),
+     * reintentables (errores transitorios del proveedor) y fallidos sin reintento.
+     */
+    record Result(int successCount,
+                  List<String> invalidTokens,
+                  List<String> retryableTokens,
+                  List<String> failedTokens,
+                  String error) {
+
+        public static Result success(int tokens) {
+            return new Result(tokens, List.of(), List.of(), List.of(), null);
+        }
+
+        public static Result failed(List<String> tokens, String error) {
+            return new Result(0, List.of(), List.of(), List.copyOf(tokens), error);
+        }
+
+        public static Result retryable(List<String> tokens, String error) {
+            return new Result(0, List.of(), List.copyOf(tokens), List.of(), error);
+        }
+
+        public int failureCount() {
+            return invalidTokens.size() + retryableTokens.size() + failedTokens.size();
+        }
+    }
+}
@@ -3,21 +3,23 @@ package upeu.edu.pe.restaurant.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
 import upeu.edu.pe.restaurant.entity.RestaurantSchedule;
 import upeu.edu.pe.restaurant.repository.RestaurantScheduleRepository;
-import upeu.edu.pe.restaurant.repository.ReviewRepository;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RestaurantEnrichmentService {
     
     private final RestaurantScheduleRepository scheduleRepository;
-    private final ReviewRepository reviewRepository;
+    private final RestaurantRatingService ratingService;
     
     /**
      * Enriquece un restaurante con datos calculados dinámicamente
@@ -31,7 +33,15 @@ public class RestaurantEnrichmentService {
      * Enriquece una lista de restaurantes
      */
     public void enrichRestaurants(List<Restaurant> restaurants) {
-        restaurants.forEach(this::enrichRestaurant);
+        // Agregados de rating de toda la lista en una sola consulta
+        Map<Long, RestaurantRatingStats> stats = ratingService.getStats(
+                restaurants.stream().map(Restaurant::getId).collect(Collectors.toList()));
+        
+        for (Restaurant restaurant : restaurants) {
+            enrichWithScheduleInfo(restaurant);
+            RestaurantRatingStats restaurantStats = stats.get(restaurant.getId());
+            restaurant.setReviewCount(restaurantStats != null ? restaurantStats.getReviewCount().intValue() : 0);
+        }
     }
     
     /**
@@ -65,10 +75,10 @@ public class RestaurantEnrichmentService {
     }
     
     /**
-     * Agrega el contador de reseñas
+     * Agrega el contador de reseñas (desde el agregado incremental)
      */
     private void enrichWithReviewCount(Restaurant restaurant) {
-        long count = reviewRepository.countByRestaurantId(restaurant.getId());
+        long count = ratingService.getReviewCount(restaurant.getId());
         restaurant.setReviewCount((int) count);
     }
     
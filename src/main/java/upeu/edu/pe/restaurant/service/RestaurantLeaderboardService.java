@@ -0,0 +1,497 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
+import upeu.edu.pe.restaurant.event.RestaurantChangedEvent;
+import upeu.edu.pe.restaurant.event.ReviewChangedEvent;
+import upeu.edu.pe.restaurant.repository.RestaurantRatingStatsRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRatingStatsRepository.RatingTotals;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ranking de restaurantes por puntaje bayesiano:
+ *
+ *   score = (C * m + suma) / (C + n)
+ *
+ * donde m es el promedio global, n el número de reseñas del restaurante y C el peso
+ * del prior. Así, dos reseñas de 5 estrellas no superan a cien reseñas de 4.8.
+ *
+ * Los puntajes se guardan en conjuntos ordenados por categoría, por rango de precio, por
+ * categoría y precio, y por categoría y celda geográfica (cuadrícula de
+ * {@value #CELL_DEGREES} grados). Un top-N con cualquier combinación de filtros recorre un
+ * solo conjunto: O(log n + N). Un top-N cercano mezcla en orden los conjuntos de las c celdas
+ * que cubren el radio y solo calcula la distancia de los restaurantes de esas celdas; con un
+ * radio que cubre más de {@value #MAX_NEAR_CELLS} celdas se recorre la categoría completa.
+ *
+ * Las escrituras se serializan y las lecturas no bloquean. Un cambio de puntaje agrega la
+ * entrada nueva antes de publicar el restaurante y de quitar la vieja; las lecturas descartan
+ * las entradas que no coinciden con el puntaje publicado, así no se pierde ni se repite
+ * ningún restaurante. Reconstruir o recalcular todos los puntajes arma índices nuevos y los
+ * reemplaza de una vez.
+ * Solo se indexan restaurantes activos; cada cambio de reseña o de restaurante relee
+ * su fila, y un restaurante desactivado o eliminado sale del índice.
+ */
+@Slf4j
+@Service
+public class RestaurantLeaderboardService {
+
+    private static final String ALL = "*";
+    static final double CELL_DEGREES = 0.1;
+    static final int MAX_NEAR_CELLS = 400;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final RestaurantRepository restaurantRepository;
+    private final RestaurantRatingStatsRepository statsRepository;
+    private final LocationService locationService;
+    private final double priorWeight;
+    private final double rescoreThreshold;
+
+    private volatile Indexes indexes = new Indexes();
+
+    // Totales de los restaurantes del ranking para el promedio m
+    private double globalSum;
+    private long globalCount;
+    // Promedio con el que se calcularon los puntajes actuales
+    private volatile double scoredMean;
+    // Restaurantes con cambios mientras se reconstruye; se releen sobre el índice nuevo
+    private Set<Long> changedDuringRebuild;
+
+    public RestaurantLeaderboardService(
+            RestaurantRepository restaurantRepository,
+            RestaurantRatingStatsRepository statsRepository,
+            LocationService locationService,
+            @Value("${leaderboard.prior-weight:10}") double priorWeight,
+            @Value("${leaderboard.rescore-threshold:0.05}") double rescoreThreshold) {
+        this.restaurantRepository = restaurantRepository;
+        this.statsRepository = statsRepository;
+        this.locationService = locationService;
+        this.priorWeight = priorWeight;
+        this.rescoreThreshold = rescoreThreshold;
+    }
+
+    /**
+     * Reconstruir el ranking completo desde la base de datos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${leaderboard.rebuild-interval-ms:3600000}", initialDelayString = "${leaderboard.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+
+        try {
+            List<Restaurant> active = restaurantRepository.findByIsActiveTrue();
+            Map<Long, RestaurantRatingStats> stats = new HashMap<>();
+            for (RestaurantRatingStats s : statsRepository.findAll()) {
+                stats.put(s.getRestaurantId(), s);
+            }
+
+            synchronized (this) {
+                globalSum = 0;
+                globalCount = 0;
+
+                List<RankedRestaurant> ranked = new ArrayList<>(active.size());
+                for (Restaurant restaurant : active) {
+                    RestaurantRatingStats s = stats.get(restaurant.getId());
+                    double sum = s != null ? s.getRatingSum().doubleValue() : 0;
+                    long count = s != null ? s.getReviewCount() : 0;
+                    globalSum += sum;
+                    globalCount += count;
+                    ranked.add(new RankedRestaurant(restaurant, sum, count));
+                }
+                scoredMean = currentMean();
+                Indexes fresh = new Indexes();
+                for (RankedRestaurant r : ranked) {
+                    fresh.add(r.withScore(bayesianScore(r.sum(), r.count())));
+                }
+                indexes = fresh;
+
+                // Cambios confirmados mientras se leía la base: la lectura pudo no verlos
+                for (Long restaurantId : changedDuringRebuild) {
+                    refresh(restaurantId);
+                }
+                if (!changedDuringRebuild.isEmpty()) {
+                    rescoreAll();
+                }
+                changedDuringRebuild = null;
+            }
+
+            log.info("🏆 Ranking reconstruido: {} restaurantes, promedio global {}",
+                    indexes.restaurants.size(), String.format("%.2f", scoredMean));
+        } catch (Exception e) {
+            log.error("Error al reconstruir el ranking de restaurantes: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Actualizar el ranking cuando una reseña cambia (después del commit)
+     */
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        boolean sameRating = event.getOldRating() != null && event.getNewRating() != null
+                && event.getOldRating().compareTo(event.getNewRating()) == 0;
+        if (sameRating) {
+            return;
+        }
+        onRestaurantChanged(event.getRestaurantId());
+    }
+
+    /**
+     * Releer un restaurante creado, editado, desactivado o eliminado (después del commit)
+     */
+    @TransactionalEventListener
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        onRestaurantChanged(event.getRestaurantId());
+    }
+
+    /**
+     * Top-N por categoría y/o rango de precio (null = sin filtro)
+     */
+    public List<Long> topRated(String category, String priceRange, int limit) {
+        Indexes idx = indexes;
+        boolean byCategory = category != null && !category.isBlank();
+        boolean byPrice = priceRange != null && !priceRange.isBlank();
+
+        NavigableSet<Entry> source;
+        if (byCategory && byPrice) {
+            source = idx.byCategoryAndPrice.get(key(normalize(category), priceRange.trim()));
+        } else if (byCategory) {
+            source = idx.byCategory.get(normalize(category));
+        } else if (byPrice) {
+            source = idx.byPriceRange.get(priceRange.trim());
+        } else {
+            source = idx.byCategory.get(ALL);
+        }
+        if (source == null) {
+            return List.of();
+        }
+
+        List<Long> result = new ArrayList<>(limit);
+        for (Entry entry : source) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (idx.isCurrent(entry, idx.restaurants.get(entry.restaurantId()))) {
+                result.add(entry.restaurantId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Top-N dentro de un radio (km) alrededor de una ubicación, opcionalmente por categoría
+     */
+    public List<Long> topRatedNear(double latitude, double longitude, double radiusKm, String category, int limit) {
+        Indexes idx = indexes;
+        String categoryKey = category != null && !category.isBlank() ? normalize(category) : ALL;
+
+        // Celdas que cubren el cuadrado del radio; demasiadas: se recorre la categoría completa
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double lonDelta = radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        long minLat = cell(latitude - latDelta);
+        long maxLat = cell(latitude + latDelta);
+        long minLon = cell(longitude - lonDelta);
+        long maxLon = cell(longitude + lonDelta);
+
+        List<NavigableSet<Entry>> sources = new ArrayList<>();
+        if ((maxLat - minLat + 1) * (maxLon - minLon + 1) > MAX_NEAR_CELLS) {
+            NavigableSet<Entry> all = idx.byCategory.get(categoryKey);
+            if (all != null) {
+                sources.add(all);
+            }
+        } else {
+            for (long latCell = minLat; latCell <= maxLat; latCell++) {
+                for (long lonCell = minLon; lonCell <= maxLon; lonCell++) {
+                    NavigableSet<Entry> set = idx.byCategoryAndCell.get(key(categoryKey, latCell + ":" + lonCell));
+                    if (set != null) {
+                        sources.add(set);
+                    }
+                }
+            }
+        }
+
+        // Mezcla en orden de puntaje: la cabeza de cada celda en un heap
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (NavigableSet<Entry> set : sources) {
+            Head.next(set.iterator(), heads);
+        }
+
+        List<Long> result = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            Entry entry = head.entry();
+            Head.next(head.rest(), heads);
+
+            RankedRestaurant ranked = idx.restaurants.get(entry.restaurantId());
+            if (!idx.isCurrent(entry, ranked) || ranked.latitude() == null || ranked.longitude() == null
+                    || !seen.add(entry.restaurantId())) {
+                continue;
+            }
+            double distance = locationService.calculateDistance(
+                    latitude, longitude, ranked.latitude(), ranked.longitude());
+            if (distance <= radiusKm) {
+                result.add(entry.restaurantId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puntaje bayesiano actual de un restaurante (null si no está indexado)
+     */
+    public Double getScore(Long restaurantId) {
+        RankedRestaurant ranked = indexes.restaurants.get(restaurantId);
+        return ranked != null ? ranked.score() : null;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private synchronized void onRestaurantChanged(Long restaurantId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(restaurantId);
+        }
+        refresh(restaurantId);
+
+        // Si el promedio global se movió lo suficiente, recalcular todos los puntajes en memoria
+        if (Math.abs(currentMean() - scoredMean) > rescoreThreshold) {
+            rescoreAll();
+        }
+    }
+
+    /**
+     * Reemplazar la entrada de un restaurante con lo que hay en la base (se llama con el lock tomado).
+     * Se leen valores absolutos, así que aplicar dos veces el mismo cambio no lo cuenta doble.
+     */
+    private void refresh(Long restaurantId) {
+        Indexes idx = indexes;
+        RankedRestaurant current = idx.restaurants.get(restaurantId);
+        if (current != null) {
+            globalSum -= current.sum();
+            globalCount -= current.count();
+        }
+
+        Optional<Restaurant> restaurant = restaurantRepository.findById(restaurantId)
+                .filter(r -> Boolean.TRUE.equals(r.getIsActive()));
+        if (restaurant.isEmpty()) {
+            // Eliminado o desactivado: sale del ranking
+            if (current != null) {
+                idx.remove(current);
+            }
+            return;
+        }
+
+        Optional<RatingTotals> totals = statsRepository.findTotals(restaurantId);
+        double sum = totals.map(t -> t.getRatingSum().doubleValue()).orElse(0.0);
+        long count = totals.map(RatingTotals::getReviewCount).orElse(0L);
+        globalSum += sum;
+        globalCount += count;
+
+        RankedRestaurant updated = new RankedRestaurant(restaurant.get(), sum, count)
+                .withScore(bayesianScore(sum, count));
+        if (current != null) {
+            idx.replace(current, updated);
+        } else {
+            idx.add(updated);
+        }
+    }
+
+    private double currentMean() {
+        return globalCount > 0 ? globalSum / globalCount : 0;
+    }
+
+    private double bayesianScore(double sum, long count) {
+        return (priorWeight * scoredMean + sum) / (priorWeight + count);
+    }
+
+    /**
+     * Recalcular todos los puntajes en índices nuevos y reemplazarlos de una vez
+     */
+    private void rescoreAll() {
+        scoredMean = currentMean();
+        Indexes fresh = new Indexes();
+        for (RankedRestaurant ranked : indexes.restaurants.values()) {
+            fresh.add(ranked.withScore(bayesianScore(ranked.sum(), ranked.count())));
+        }
+        indexes = fresh;
+    }
+
+    private static long cell(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static String cellOf(RankedRestaurant ranked) {
+        if (ranked.latitude() == null || ranked.longitude() == null) {
+            return null;
+        }
+        return cell(ranked.latitude()) + ":" + cell(ranked.longitude());
+    }
+
+    private static String key(String first, String second) {
+        return first + "|" + second;
+    }
+
+    private static String normalize(String category) {
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Conjuntos ordenados del ranking y el restaurante publicado de cada id
+     */
+    private static final class Indexes {
+        private final Map<Long, RankedRestaurant> restaurants = new ConcurrentHashMap<>();
+        private final Map<String, NavigableSet<Entry>> byCategory = new ConcurrentHashMap<>();
+        private final Map<String, NavigableSet<Entry>> byPriceRange = new ConcurrentHashMap<>();
+        private final Map<String, NavigableSet<Entry>> byCategoryAndPrice = new ConcurrentHashMap<>();
+        private final Map<String, NavigableSet<Entry>> byCategoryAndCell = new ConcurrentHashMap<>();
+
+        /**
+         * La entrada corresponde al puntaje publicado de su restaurante
+         */
+        boolean isCurrent(Entry entry, RankedRestaurant ranked) {
+            return ranked != null && ranked.score() == entry.score();
+        }
+
+        /**
+         * Agregar las entradas del restaurante y después publicarlo
+         */
+        void add(RankedRestaurant ranked) {
+            Entry entry = entryOf(ranked);
+            setsOf(ranked, true).forEach(set -> set.add(entry));
+            restaurants.put(ranked.id(), ranked);
+        }
+
+        /**
+         * Entrada nueva, luego publicar, luego quitar la vieja: ninguna lectura lo pierde
+         */
+        void replace(RankedRestaurant previous, RankedRestaurant updated) {
+            add(updated);
+            Entry old = entryOf(previous);
+            // Mismo puntaje: la entrada nueva es igual a la vieja y se queda donde sigue
+            Set<NavigableSet<Entry>> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            if (old.equals(entryOf(updated))) {
+                kept.addAll(setsOf(updated, false));
+            }
+            for (NavigableSet<Entry> set : setsOf(previous, false)) {
+                if (!kept.contains(set)) {
+                    set.remove(old);
+                }
+            }
+        }
+
+        /**
+         * Despublicar el restaurante y quitar sus entradas
+         */
+        void remove(RankedRestaurant ranked) {
+            restaurants.remove(ranked.id());
+            Entry entry = entryOf(ranked);
+            setsOf(ranked, false).forEach(set -> set.remove(entry));
+        }
+
+        private List<NavigableSet<Entry>> setsOf(RankedRestaurant ranked, boolean create) {
+            List<NavigableSet<Entry>> sets = new ArrayList<>();
+            String cell = cellOf(ranked);
+            List<String> categories = new ArrayList<>(ranked.categories().size() + 1);
+            categories.add(ALL);
+            categories.addAll(ranked.categories());
+            for (String category : categories) {
+                collect(byCategory, category, create, sets);
+                if (ranked.priceRange() != null) {
+                    collect(byCategoryAndPrice, key(category, ranked.priceRange()), create, sets);
+                }
+                if (cell != null) {
+                    collect(byCategoryAndCell, key(category, cell), create, sets);
+                }
+            }
+            if (ranked.priceRange() != null) {
+                collect(byPriceRange, ranked.priceRange(), create, sets);
+            }
+            return sets;
+        }
+
+        private static void collect(Map<String, NavigableSet<Entry>> index, String key, boolean create,
+                                    List<NavigableSet<Entry>> sets) {
+            NavigableSet<Entry> set = create
+                    ? index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>())
+                    : index.get(key);
+            if (set != null) {
+                sets.add(set);
+            }
+        }
+
+        private static Entry entryOf(RankedRestaurant ranked) {
+            return new Entry(ranked.score(), ranked.id());
+        }
+    }
+
+    /**
+     * Cabeza de una celda en la mezcla del top-N cercano
+     */
+    private record Head(Entry entry, Iterator<Entry> rest) implements Comparable<Head> {
+        static void next(Iterator<Entry> iterator, PriorityQueue<Head> heads) {
+            if (iterator.hasNext()) {
+                heads.offer(new Head(iterator.next(), iterator));
+            }
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return entry.compareTo(other.entry);
+        }
+    }
+
+    /**
+     * Posición en un conjunto ordenado: mayor puntaje primero, desempate por id
+     */
+    private record Entry(double score, long restaurantId) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(restaurantId, other.restaurantId);
+        }
+    }
+
+    /**
+     * Estado inmutable de un restaurante dentro del ranking
+     */
+    private record RankedRestaurant(long id, Set<String> categories, String priceRange,
+                                    Double latitude, Double longitude,
+                                    double sum, long count, double score) {
+
+        RankedRestaurant(Restaurant restaurant, double sum, long count) {
+            this(restaurant.getId(), normalizedCategories(restaurant.getCategories()),
+                    restaurant.getPriceRange(), restaurant.getLatitude(), restaurant.getLongitude(),
+                    sum, count, 0);
+        }
+
+        RankedRestaurant withScore(double newScore) {
+            return new RankedRestaurant(id, categories, priceRange, latitude, longitude, sum, count, newScore);
+        }
+
+        private static Set<String> normalizedCategories(Set<String> categories) {
+            if (categories == null || categories.isEmpty()) {
+                return Set.of();
+            }
+            Set<String> normalized = new HashSet<>();
+            for (String category : categories) {
+                normalized.add(normalize(category));
+            }
+            return Set.copyOf(normalized);
+        }
+    }
+}
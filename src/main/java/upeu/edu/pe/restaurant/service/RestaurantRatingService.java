@@ -0,0 +1,140 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
+import upeu.edu.pe.restaurant.repository.RestaurantRatingStatsRepository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantiene el agregado de calificaciones de cada restaurante con aritmética de deltas,
+ * de modo que las estadísticas y listados no necesiten AVG/COUNT/GROUP BY sobre reviews
+ */
+@Slf4j
+@Service
+public class RestaurantRatingService {
+
+    private final RestaurantRatingStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public RestaurantRatingService(RestaurantRatingStatsRepository statsRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Construir o corregir los agregados al iniciar (restaurantes con reseñas previas a este
+     * agregado, o cuya fila nació de un delta antes del backfill). Corre con tráfico: la tabla
+     * queda bloqueada contra applyDelta mientras se recalcula, así ningún delta se pierde ni se
+     * cuenta dos veces.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        try {
+            Integer fixed = transactionTemplate.execute(status -> {
+                statsRepository.lockForBackfill();
+                int rows = statsRepository.backfillFromReviews();
+                if (rows > 0) {
+                    statsRepository.syncAllRestaurantRatings();
+                }
+                return rows;
+            });
+            if (fixed != null && fixed > 0) {
+                log.info("⭐ Agregados de rating construidos o corregidos para {} restaurantes", fixed);
+            }
+        } catch (Exception e) {
+            log.error("Error al construir agregados de rating: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registrar una nueva reseña
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewCreated(Long restaurantId, BigDecimal rating) {
+        long[] buckets = new long[RestaurantRatingStats.BUCKETS];
+        buckets[RestaurantRatingStats.bucketOf(rating)] = 1;
+        apply(restaurantId, rating, 1, buckets);
+    }
+
+    /**
+     * Registrar el cambio de calificación de una reseña existente
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewUpdated(Long restaurantId, BigDecimal oldRating, BigDecimal newRating) {
+        if (oldRating.compareTo(newRating) == 0) {
+            return;
+        }
+        long[] buckets = new long[RestaurantRatingStats.BUCKETS];
+        buckets[RestaurantRatingStats.bucketOf(oldRating)] -= 1;
+        buckets[RestaurantRatingStats.bucketOf(newRating)] += 1;
+        apply(restaurantId, newRating.subtract(oldRating), 0, buckets);
+    }
+
+    /**
+     * Registrar la eliminación de una reseña
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewDeleted(Long restaurantId, BigDecimal rating) {
+        long[] buckets = new long[RestaurantRatingStats.BUCKETS];
+        buckets[RestaurantRatingStats.bucketOf(rating)] = -1;
+        apply(restaurantId, rating.negate(), -1, buckets);
+    }
+
+    /**
+     * Obtener el agregado de un restaurante (vacío si no tiene reseñas)
+     */
+    @Transactional(readOnly = true)
+    public RestaurantRatingStats getStats(Long restaurantId) {
+        return statsRepository.findById(restaurantId)
+                .orElseGet(() -> emptyStats(restaurantId));
+    }
+
+    /**
+     * Obtener los agregados de varios restaurantes en una sola consulta
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, RestaurantRatingStats> getStats(Collection<Long> restaurantIds) {
+        Map<Long, RestaurantRatingStats> result = new HashMap<>();
+        for (RestaurantRatingStats stats : statsRepository.findAllById(restaurantIds)) {
+            result.put(stats.getRestaurantId(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * Total de reseñas de un restaurante
+     */
+    @Transactional(readOnly = true)
+    public long getReviewCount(Long restaurantId) {
+        return statsRepository.findById(restaurantId)
+                .map(RestaurantRatingStats::getReviewCount)
+                .orElse(0L);
+    }
+
+    private void apply(Long restaurantId, BigDecimal sumDelta, long countDelta, long[] buckets) {
+        statsRepository.applyDelta(restaurantId, sumDelta, countDelta,
+                buckets[0], buckets[1], buckets[2], buckets[3], buckets[4], buckets[5]);
+        statsRepository.syncRestaurantRating(restaurantId);
+    }
+
+    private RestaurantRatingStats emptyStats(Long restaurantId) {
+        RestaurantRatingStats stats = new RestaurantRatingStats();
+        stats.setRestaurantId(restaurantId);
+        return stats;
+    }
+}
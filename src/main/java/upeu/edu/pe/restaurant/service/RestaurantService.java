@@ -1,16 +1,22 @@
 package upeu.edu.pe.restaurant.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import upeu.edu.pe.restaurant.cache.MenuPriceCache;
 import upeu.edu.pe.restaurant.dto.RestaurantDTO;
 import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.event.RestaurantChangedEvent;
 import upeu.edu.pe.restaurant.repository.MenuItemRepository;
 import upeu.edu.pe.restaurant.repository.RestaurantRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +26,10 @@ public class RestaurantService {
     private final RestaurantRepository restaurantRepository;
     private final MenuItemRepository menuItemRepository;
     private final RestaurantEnrichmentService enrichmentService;
+    private final RestaurantLeaderboardService leaderboardService;
+    private final MenuPriceCache menuPriceCache;
+    private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional(readOnly = true)
     public List<RestaurantDTO> getAllRestaurants() {
@@ -99,6 +109,40 @@ public class RestaurantService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Mejor calificados según puntaje bayesiano, por categoría/precio o cerca de una ubicación
+     */
+    @Transactional(readOnly = true)
+    public List<RestaurantDTO> getTopRatedRestaurants(
+            String category, String priceRange,
+            Double latitude, Double longitude, Double radiusKm,
+            int limit) {
+        
+        List<Long> rankedIds;
+        if (latitude != null && longitude != null) {
+            rankedIds = leaderboardService.topRatedNear(
+                    latitude, longitude, radiusKm != null ? radiusKm : 10.0, category, limit);
+        } else {
+            rankedIds = leaderboardService.topRated(category, priceRange, limit);
+        }
+        
+        Map<Long, Restaurant> byId = restaurantRepository.findAllById(rankedIds)
+                .stream()
+                .collect(Collectors.toMap(Restaurant::getId, Function.identity()));
+        
+        // Respetar el orden del ranking; uno desactivado aún no releído por el ranking se omite
+        List<Restaurant> restaurants = rankedIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .filter(r -> Boolean.TRUE.equals(r.getIsActive()))
+                .collect(Collectors.toList());
+        enrichmentService.enrichRestaurants(restaurants);
+        
+        return restaurants.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
     private RestaurantDTO convertToDTO(Restaurant restaurant) {
         RestaurantDTO dto = new RestaurantDTO();
         dto.setId(restaurant.getId());
@@ -154,6 +198,11 @@ public class RestaurantService {
         restaurant.setIsActive(true);
         restaurant.setRating(java.math.BigDecimal.ZERO);
         Restaurant saved = restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(saved.getId()));
+        
+        // 🔔 Avisar a los seguidores de sus categorías
+        notificationService.notifyNewRestaurantToFollowers(saved.getId(), saved.getName(), saved.getCategories());
+        
         return convertToDTO(saved);
     }
     
@@ -169,6 +218,8 @@ public class RestaurantService {
         existing.setImageUrl(restaurant.getImageUrl());
         
         Restaurant updated = restaurantRepository.save(existing);
+        menuPriceCache.invalidate(id);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(id));
         return convertToDTO(updated);
     }
     
@@ -178,5 +229,7 @@ public class RestaurantService {
             throw new RuntimeException("Restaurante no encontrado");
         }
         restaurantRepository.deleteById(id);
+        menuPriceCache.invalidate(id);
+        eventPublisher.publishEvent(new RestaurantChangedEvent(id));
     }
 }
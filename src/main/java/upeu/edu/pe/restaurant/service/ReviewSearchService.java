@@ -0,0 +1,109 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import upeu.edu.pe.restaurant.entity.Review;
+import upeu.edu.pe.restaurant.event.ReviewChangedEvent;
+import upeu.edu.pe.restaurant.repository.ReviewRepository;
+import upeu.edu.pe.restaurant.search.ReviewInvertedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Búsqueda de texto completo sobre comentarios de reseñas.
+ * Mantiene un ReviewInvertedIndex construido al iniciar y actualizado con cada
+ * ReviewChangedEvent; se reconstruye periódicamente para descartar documentos eliminados.
+ */
+@Slf4j
+@Service
+public class ReviewSearchService {
+    
+    private static final int BUILD_BATCH_SIZE = 1000;
+    
+    private final ReviewRepository reviewRepository;
+    
+    private volatile ReviewInvertedIndex index = new ReviewInvertedIndex();
+    
+    // Eventos recibidos durante una reconstrucción, para reaplicarlos sobre el índice nuevo
+    private List<ReviewChangedEvent> pendingDuringRebuild;
+    
+    public ReviewSearchService(ReviewRepository reviewRepository) {
+        this.reviewRepository = reviewRepository;
+    }
+    
+    /**
+     * Construir el índice desde la base de datos en lotes por id
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${review-search.rebuild-cron:0 30 4 * * *}")
+    public void rebuild() {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        
+        try {
+            ReviewInvertedIndex fresh = new ReviewInvertedIndex();
+            long lastId = 0;
+            List<Review> batch;
+            do {
+                batch = reviewRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (Review review : batch) {
+                    fresh.upsert(review.getId(), review.getRestaurantId(),
+                            review.getRating().doubleValue(), review.getComment());
+                    lastId = review.getId();
+                }
+            } while (batch.size() == BUILD_BATCH_SIZE);
+            
+            synchronized (this) {
+                for (ReviewChangedEvent event : pendingDuringRebuild) {
+                    apply(fresh, event);
+                }
+                index = fresh;
+                pendingDuringRebuild = null;
+            }
+            
+            log.info("🔎 Índice de reseñas construido: {} reseñas, {} términos", fresh.size(), fresh.termCount());
+        } catch (Exception e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            log.error("Error al construir el índice de reseñas: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Actualizar el índice cuando una reseña cambia (después del commit)
+     */
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        synchronized (this) {
+            apply(index, event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        }
+    }
+    
+    /**
+     * Buscar reseñas por texto; devuelve los ids ordenados por relevancia BM25
+     */
+    public List<ReviewInvertedIndex.Hit> search(String query, Long restaurantId,
+                                                Double minRating, Double maxRating, int limit) {
+        return index.search(query, restaurantId, minRating, maxRating, limit);
+    }
+    
+    private void apply(ReviewInvertedIndex target, ReviewChangedEvent event) {
+        if (event.getType() == ReviewChangedEvent.Type.DELETED) {
+            target.remove(event.getReviewId());
+        } else {
+            target.upsert(event.getReviewId(), event.getRestaurantId(),
+                    event.getNewRating().doubleValue(), event.getComment());
+        }
+    }
+}
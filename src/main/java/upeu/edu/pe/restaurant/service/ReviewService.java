@@ -3,21 +3,32 @@ package upeu.edu.pe.restaurant.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import upeu.edu.pe.restaurant.dto.ReviewDTO;
+import upeu.edu.pe.restaurant.dto.ReviewPageDTO;
+import upeu.edu.pe.restaurant.dto.ReviewSearchHitDTO;
 import upeu.edu.pe.restaurant.dto.ReviewStatisticsDTO;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
 import upeu.edu.pe.restaurant.entity.Review;
+import upeu.edu.pe.restaurant.event.ReviewChangedEvent;
 import upeu.edu.pe.restaurant.exception.BadRequestException;
 import upeu.edu.pe.restaurant.exception.DuplicateResourceException;
 import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
 import upeu.edu.pe.restaurant.repository.ReviewRepository;
+import upeu.edu.pe.restaurant.repository.UserRepository;
+import upeu.edu.pe.restaurant.search.ReviewInvertedIndex;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +36,23 @@ public class ReviewService {
     
     private final ReviewRepository reviewRepository;
     private final ObjectMapper objectMapper;
+    private final RestaurantRatingService ratingService;
+    private final UserRepository userRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReviewSearchService reviewSearchService;
+    
+    // Lector reutilizable para la columna JSON de imágenes
+    private ObjectReader imagesReader;
+    
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int RECENT_REVIEWS_LIMIT = 5;
+    
+    @PostConstruct
+    public void init() {
+        imagesReader = objectMapper.readerFor(new TypeReference<List<String>>() {});
+    }
     
     /**
      * Crear una nueva reseña
@@ -59,6 +87,10 @@ public class ReviewService {
         }
         
         Review savedReview = reviewRepository.save(review);
+        ratingService.onReviewCreated(savedReview.getRestaurantId(), savedReview.getRating());
+        eventPublisher.publishEvent(new ReviewChangedEvent(
+                ReviewChangedEvent.Type.CREATED, savedReview.getId(), savedReview.getUserId(), savedReview.getRestaurantId(),
+                null, savedReview.getRating(), savedReview.getComment()));
         
         return convertToDTO(savedReview);
     }
@@ -68,9 +100,7 @@ public class ReviewService {
      */
     public List<ReviewDTO> getReviewsByRestaurantId(Long restaurantId) {
         List<Review> reviews = reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(restaurantId);
-        return reviews.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(reviews);
     }
     
     /**
@@ -78,9 +108,78 @@ public class ReviewService {
      */
     public List<ReviewDTO> getReviewsByUserId(Long userId) {
         List<Review> reviews = reviewRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return reviews.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(reviews);
+    }
+    
+    /**
+     * Obtener una página de reseñas de un restaurante (paginación por cursor)
+     */
+    public ReviewPageDTO getRestaurantReviewPage(Long restaurantId, String cursor, Integer limit) {
+        int size = normalizePageSize(limit);
+        Pageable pageable = PageRequest.of(0, size + 1);
+        
+        List<Review> reviews;
+        if (cursor == null || cursor.isBlank()) {
+            reviews = reviewRepository.findByRestaurantIdOrderByCreatedAtDescIdDesc(restaurantId, pageable);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            reviews = reviewRepository.findRestaurantFeedAfter(restaurantId, after.at(), after.id(), pageable);
+        }
+        
+        return toPage(reviews, size);
+    }
+    
+    /**
+     * Obtener una página de reseñas de un usuario (paginación por cursor)
+     */
+    public ReviewPageDTO getUserReviewPage(Long userId, String cursor, Integer limit) {
+        int size = normalizePageSize(limit);
+        Pageable pageable = PageRequest.of(0, size + 1);
+        
+        List<Review> reviews;
+        if (cursor == null || cursor.isBlank()) {
+            reviews = reviewRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, pageable);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            reviews = reviewRepository.findUserFeedAfter(userId, after.at(), after.id(), pageable);
+        }
+        
+        return toPage(reviews, size);
+    }
+    
+    /**
+     * Buscar reseñas por texto del comentario, con filtros de restaurante y calificación
+     */
+    public List<ReviewSearchHitDTO> searchReviews(String query, Long restaurantId,
+                                                  BigDecimal minRating, BigDecimal maxRating, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("q", query, "El texto de búsqueda es requerido");
+        }
+        
+        List<ReviewInvertedIndex.Hit> hits = reviewSearchService.search(
+                query, restaurantId,
+                minRating != null ? minRating.doubleValue() : null,
+                maxRating != null ? maxRating.doubleValue() : null,
+                normalizePageSize(limit));
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Long> ids = hits.stream().map(ReviewInvertedIndex.Hit::reviewId).toList();
+        Map<Long, ReviewDTO> byId = new HashMap<>();
+        for (ReviewDTO dto : convertToDTOs(reviewRepository.findAllById(ids))) {
+            byId.put(dto.getId(), dto);
+        }
+        
+        // Respetar el orden de relevancia
+        List<ReviewSearchHitDTO> result = new ArrayList<>(hits.size());
+        for (ReviewInvertedIndex.Hit hit : hits) {
+            ReviewDTO dto = byId.get(hit.reviewId());
+            if (dto != null) {
+                result.add(new ReviewSearchHitDTO(dto, hit.score()));
+            }
+        }
+        return result;
     }
     
     /**
@@ -114,43 +213,25 @@ public class ReviewService {
     public ReviewStatisticsDTO getRestaurantStatistics(Long restaurantId) {
         ReviewStatisticsDTO statistics = new ReviewStatisticsDTO();
         
-        // Calcular rating promedio
-        BigDecimal avgRating = reviewRepository.calculateAverageRatingByRestaurantId(restaurantId);
-        if (avgRating != null) {
-            statistics.setAverageRating(avgRating.setScale(1, RoundingMode.HALF_UP));
-        } else {
-            statistics.setAverageRating(BigDecimal.ZERO);
-        }
+        // Leer el agregado incremental (sin AVG/COUNT/GROUP BY sobre reviews)
+        RestaurantRatingStats stats = ratingService.getStats(restaurantId);
+        statistics.setAverageRating(stats.average(1));
+        statistics.setTotalReviews(stats.getReviewCount());
         
-        // Contar total de reseñas
-        long totalReviews = reviewRepository.countByRestaurantId(restaurantId);
-        statistics.setTotalReviews(totalReviews);
-        
-        // Obtener distribución de ratings
-        List<Object[]> distribution = reviewRepository.getRatingDistribution(restaurantId);
         Map<Integer, Long> ratingDistribution = new HashMap<>();
-        
-        // Inicializar con 0
         for (int i = 1; i <= 5; i++) {
-            ratingDistribution.put(i, 0L);
+            ratingDistribution.put(i, stats.countForBucket(i));
         }
-        
-        // Llenar con datos reales
-        for (Object[] row : distribution) {
-            Integer rating = ((Number) row[0]).intValue();
-            Long count = ((Number) row[1]).longValue();
-            ratingDistribution.put(rating, count);
+        if (stats.countForBucket(0) > 0) {
+            ratingDistribution.put(0, stats.countForBucket(0));
         }
         
         statistics.setRatingDistribution(ratingDistribution);
         
-        // Obtener reseñas recientes (últimas 5)
-        List<Review> recentReviews = reviewRepository.findByRestaurantIdOrderByCreatedAtDesc(restaurantId);
-        List<ReviewDTO> recentReviewsDTO = recentReviews.stream()
-                .limit(5)
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        statistics.setRecentReviews(recentReviewsDTO);
+        // Obtener reseñas recientes (últimas 5, limitadas en la base de datos)
+        List<Review> recentReviews = reviewRepository.findByRestaurantIdOrderByCreatedAtDescIdDesc(
+                restaurantId, PageRequest.of(0, RECENT_REVIEWS_LIMIT));
+        statistics.setRecentReviews(convertToDTOs(recentReviews));
         
         return statistics;
     }
@@ -178,8 +259,11 @@ public class ReviewService {
             throw new BadRequestException("No tienes permiso para editar esta reseña");
         }
         
+        BigDecimal oldRating = review.getRating();
+        
         // Actualizar campos
         if (reviewDTO.getRating() != null) {
+            ratingService.onReviewUpdated(review.getRestaurantId(), review.getRating(), reviewDTO.getRating());
             review.setRating(reviewDTO.getRating());
         }
         if (reviewDTO.getComment() != null) {
@@ -194,6 +278,10 @@ public class ReviewService {
         }
         
         Review updatedReview = reviewRepository.save(review);
+        eventPublisher.publishEvent(new ReviewChangedEvent(
+                ReviewChangedEvent.Type.UPDATED, updatedReview.getId(), updatedReview.getUserId(),
+                updatedReview.getRestaurantId(),
+                oldRating, updatedReview.getRating(), updatedReview.getComment()));
         
         return convertToDTO(updatedReview);
     }
@@ -212,44 +300,100 @@ public class ReviewService {
         }
         
         reviewRepository.delete(review);
+        ratingService.onReviewDeleted(review.getRestaurantId(), review.getRating());
+        eventPublisher.publishEvent(new ReviewChangedEvent(
+                ReviewChangedEvent.Type.DELETED, review.getId(), review.getUserId(), review.getRestaurantId(),
+                review.getRating(), null, null));
+    }
+    
+    /**
+     * Construir la página a partir de size + 1 filas (la fila extra indica si hay más)
+     */
+    private ReviewPageDTO toPage(List<Review> reviews, int size) {
+        boolean hasMore = reviews.size() > size;
+        List<Review> pageItems = hasMore ? reviews.subList(0, size) : reviews;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            Review last = pageItems.get(pageItems.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        
+        return new ReviewPageDTO(convertToDTOs(pageItems), nextCursor, hasMore);
+    }
+    
+    private int normalizePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
     
     /**
      * Convertir entidad a DTO
      */
     private ReviewDTO convertToDTO(Review review) {
-        ReviewDTO dto = new ReviewDTO();
-        dto.setId(review.getId());
-        dto.setOrderId(review.getOrderId());
-        dto.setUserId(review.getUserId());
-        dto.setRestaurantId(review.getRestaurantId());
-        dto.setRating(review.getRating());
-        dto.setComment(review.getComment());
-        dto.setCreatedAt(review.getCreatedAt());
-        dto.setUpdatedAt(review.getUpdatedAt());
-        
-        // Obtener userName desde la relación User
-        if (review.getUser() != null) {
-            dto.setUserName(review.getUser().getName());
+        return convertToDTOs(List.of(review)).get(0);
+    }
+    
+    /**
+     * Convertir una lista de entidades a DTO resolviendo nombres de autor y
+     * restaurante en lote (una consulta por tipo, sin cargar relaciones LAZY)
+     */
+    private List<ReviewDTO> convertToDTOs(List<Review> reviews) {
+        if (reviews.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        // Obtener restaurantName desde la relación Restaurant
-        if (review.getRestaurant() != null) {
-            dto.setRestaurantName(review.getRestaurant().getName());
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> restaurantIds = new HashSet<>();
+        for (Review review : reviews) {
+            userIds.add(review.getUserId());
+            restaurantIds.add(review.getRestaurantId());
         }
         
-        // Convertir JSON string a lista de imágenes
-        if (review.getImages() != null && !review.getImages().isEmpty()) {
-            try {
-                List<String> images = objectMapper.readValue(review.getImages(), new TypeReference<List<String>>() {});
-                dto.setImages(images);
-            } catch (JsonProcessingException e) {
-                dto.setImages(new ArrayList<>());
-            }
-        } else {
-            dto.setImages(new ArrayList<>());
+        Map<Long, String> userNames = toNameMap(userRepository.findNamesByIds(userIds));
+        Map<Long, String> restaurantNames = toNameMap(restaurantRepository.findNamesByIds(restaurantIds));
+        
+        List<ReviewDTO> result = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            ReviewDTO dto = new ReviewDTO();
+            dto.setId(review.getId());
+            dto.setOrderId(review.getOrderId());
+            dto.setUserId(review.getUserId());
+            dto.setRestaurantId(review.getRestaurantId());
+            dto.setRating(review.getRating());
+            dto.setComment(review.getComment());
+            dto.setCreatedAt(review.getCreatedAt());
+            dto.setUpdatedAt(review.getUpdatedAt());
+            dto.setUserName(userNames.get(review.getUserId()));
+            dto.setRestaurantName(restaurantNames.get(review.getRestaurantId()));
+            dto.setImages(parseImages(review.getImages()));
+            result.add(dto);
         }
         
-        return dto;
+        return result;
+    }
+    
+    private Map<Long, String> toNameMap(List<Object[]> rows) {
+        Map<Long, String> names = new HashMap<>();
+        for (Object[] row : rows) {
+            names.put(((Number) row[0]).longValue(), (String) row[1]);
+        }
+        return names;
+    }
+    
+    /**
+     * Convertir JSON string a lista de imágenes
+     */
+    private List<String> parseImages(String images) {
+        if (images == null || images.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return imagesReader.readValue(images);
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
     }
 }
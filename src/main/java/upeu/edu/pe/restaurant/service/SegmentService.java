@@ -0,0 +1,349 @@
+package upeu.edu.pe.restaurant.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import upeu.edu.pe.restaurant.entity.Order;
+import upeu.edu.pe.restaurant.event.OrderPlacedEvent;
+import upeu.edu.pe.restaurant.event.ReviewChangedEvent;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.repository.OrderRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+import upeu.edu.pe.restaurant.repository.ReviewRepository;
+import upeu.edu.pe.restaurant.segment.SegmentIndex;
+import upeu.edu.pe.restaurant.segment.UserBitmap;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Segmentos de usuarios para campañas de ofertas.
+ *
+ * Mantiene un SegmentIndex construido al iniciar (pedidos no cancelados y reseñas) y
+ * actualizado con cada OrderPlacedEvent / ReviewChangedEvent; se reconstruye cada noche para
+ * descartar días fuera de la ventana, pedidos cancelados y reseñas eliminadas.
+ *
+ * Segmentos disponibles ({@code N} = días hacia atrás, hasta {@code segments.retention-days}):
+ * customers, ordered:N, reviewed:N, low-rating:N, restaurant:{id}:N, category:{nombre}:N.
+ * Una campaña combina segmentos como (OR de include) AND (cada require) ANDNOT (OR de exclude);
+ * por ejemplo "sin pedidos en 14 días" es include=customers, exclude=ordered:14.
+ */
+@Slf4j
+@Service
+public class SegmentService {
+
+    public static final String CUSTOMERS = "customers";
+    private static final String ORDERED = "ordered";
+    private static final String REVIEWED = "reviewed";
+    private static final String LOW_RATING = "low-rating";
+    private static final String RESTAURANT_PREFIX = "restaurant:";
+    private static final String CATEGORY_PREFIX = "category:";
+
+    private static final BigDecimal LOW_RATING_MAX = BigDecimal.valueOf(2);
+    private static final int BUILD_BATCH_SIZE = 5000;
+
+    private final OrderRepository orderRepository;
+    private final ReviewRepository reviewRepository;
+    private final RestaurantRepository restaurantRepository;
+    private final int retentionDays;
+
+    private volatile SegmentIndex index = new SegmentIndex();
+
+    // Eventos recibidos durante una reconstrucción, para reaplicarlos sobre el índice nuevo
+    private List<Object> pendingDuringRebuild;
+
+    // Métricas
+    private final LongAdder ordersApplied = new LongAdder();
+    private final LongAdder reviewsApplied = new LongAdder();
+    private final LongAdder skippedUserIds = new LongAdder();
+    private final LongAdder resolutions = new LongAdder();
+    private volatile long lastRebuildMs;
+    private volatile long lastResolveMicros;
+
+    /**
+     * Usuarios de un segmento y el tiempo que tomó calcularlo
+     */
+    public record Resolution(UserBitmap users, long elapsedMicros) {
+        public long size() {
+            return users.cardinality();
+        }
+    }
+
+    public SegmentService(
+            OrderRepository orderRepository,
+            ReviewRepository reviewRepository,
+            RestaurantRepository restaurantRepository,
+            @Value("${segments.retention-days:90}") int retentionDays) {
+        this.orderRepository = orderRepository;
+        this.reviewRepository = reviewRepository;
+        this.restaurantRepository = restaurantRepository;
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    /**
+     * Construir los segmentos desde la base de datos en lotes por id
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${segments.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            SegmentIndex fresh = new SegmentIndex();
+            LocalDate since = windowStart();
+
+            Map<Long, List<String>> categories = new HashMap<>();
+            for (Object[] row : restaurantRepository.findAllCategoryPairs()) {
+                categories.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+
+            long lastId = 0;
+            List<OrderRepository.OrderActivityView> orders;
+            do {
+                orders = orderRepository.findActivityAfter(lastId, Order.Status.CANCELLED,
+                        PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (OrderRepository.OrderActivityView order : orders) {
+                    recordOrder(fresh, since, order.getUserId(), order.getRestaurantId(),
+                            categories.getOrDefault(order.getRestaurantId(), List.of()), order.getCreatedAt());
+                    lastId = order.getId();
+                }
+            } while (orders.size() == BUILD_BATCH_SIZE);
+
+            lastId = 0;
+            List<ReviewRepository.ReviewActivityView> reviews;
+            do {
+                reviews = reviewRepository.findActivityAfter(lastId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                for (ReviewRepository.ReviewActivityView review : reviews) {
+                    recordReview(fresh, since, review.getUserId(), review.getRestaurantId(),
+                            review.getRating(), review.getCreatedAt());
+                    lastId = review.getId();
+                }
+            } while (reviews.size() == BUILD_BATCH_SIZE);
+
+            synchronized (this) {
+                for (Object event : pendingDuringRebuild) {
+                    apply(fresh, event);
+                }
+                index = fresh;
+                pendingDuringRebuild = null;
+            }
+
+            lastRebuildMs = System.currentTimeMillis() - start;
+            log.info("🎯 Segmentos construidos en {} ms: {}", lastRebuildMs, fresh.getStats());
+        } catch (Exception e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            log.error("Error al construir los segmentos de usuarios: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Agregar el pedido a los segmentos (después del commit)
+     */
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        onActivity(event);
+    }
+
+    /**
+     * Agregar la reseña a los segmentos (después del commit); las eliminaciones se
+     * reflejan en la próxima reconstrucción
+     */
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (event.getType() != ReviewChangedEvent.Type.DELETED) {
+            onActivity(event);
+        }
+    }
+
+    /**
+     * Usuarios de (OR de include) AND (cada require) ANDNOT (OR de exclude)
+     */
+    public Resolution resolve(Collection<String> include, Collection<String> require, Collection<String> exclude) {
+        if (include == null || include.isEmpty()) {
+            throw new BadRequestException("include", include, "Se requiere al menos un segmento");
+        }
+
+        long start = System.nanoTime();
+        SegmentIndex current = index;
+
+        UserBitmap users = union(current, include);
+        if (require != null) {
+            for (String segment : require) {
+                users = users.and(segment(current, segment));
+            }
+        }
+        if (exclude != null && !exclude.isEmpty()) {
+            users = users.andNot(union(current, exclude));
+        }
+
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+        resolutions.increment();
+        lastResolveMicros = elapsedMicros;
+        return new Resolution(users, elapsedMicros);
+    }
+
+    /**
+     * Métricas de los segmentos
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(index.getStats());
+        stats.put("retentionDays", retentionDays);
+        stats.put("ordersApplied", ordersApplied.sum());
+        stats.put("reviewsApplied", reviewsApplied.sum());
+        stats.put("skippedUserIds", skippedUserIds.sum());
+        stats.put("resolutions", resolutions.sum());
+        stats.put("lastResolveMicros", lastResolveMicros);
+        stats.put("lastRebuildMs", lastRebuildMs);
+        return stats;
+    }
+
+    private void onActivity(Object event) {
+        synchronized (this) {
+            apply(index, event);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+        }
+    }
+
+    private UserBitmap union(SegmentIndex current, Collection<String> segments) {
+        UserBitmap result = new UserBitmap();
+        for (String segment : segments) {
+            result = result.or(segment(current, segment));
+        }
+        return result;
+    }
+
+    /**
+     * Usuarios de un segmento por nombre (ver la documentación de la clase)
+     */
+    private UserBitmap segment(SegmentIndex current, String name) {
+        String segment = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        if (segment.equals(CUSTOMERS)) {
+            return current.customers();
+        }
+
+        int colon = segment.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new BadRequestException("segment", name, "Segmento inválido");
+        }
+        String dimension = dimension(name, segment.substring(0, colon));
+        int days;
+        try {
+            days = Integer.parseInt(segment.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("segment", name, "La ventana del segmento debe ser un número de días");
+        }
+        if (days < 1 || days > retentionDays) {
+            throw new BadRequestException("segment", name,
+                    "La ventana del segmento debe estar entre 1 y " + retentionDays + " días");
+        }
+
+        return current.activeSince(dimension, LocalDate.now().minusDays(days - 1));
+    }
+
+    private static String dimension(String name, String dimension) {
+        if (dimension.equals(ORDERED) || dimension.equals(REVIEWED) || dimension.equals(LOW_RATING)) {
+            return dimension;
+        }
+        if (dimension.startsWith(RESTAURANT_PREFIX)) {
+            try {
+                return RESTAURANT_PREFIX + Long.parseLong(dimension.substring(RESTAURANT_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("segment", name, "Id de restaurante inválido");
+            }
+        }
+        if (dimension.startsWith(CATEGORY_PREFIX)) {
+            return CATEGORY_PREFIX + FollowService.normalizeCategory(dimension.substring(CATEGORY_PREFIX.length()));
+        }
+        throw new BadRequestException("segment", name, "Segmento desconocido");
+    }
+
+    private void apply(SegmentIndex target, Object event) {
+        LocalDate since = windowStart();
+        if (event instanceof OrderPlacedEvent order) {
+            recordOrder(target, since, order.getUserId(), order.getRestaurantId(), order.getCategories(),
+                    order.getCreatedAt());
+            ordersApplied.increment();
+        } else if (event instanceof ReviewChangedEvent review) {
+            recordReview(target, since, review.getUserId(), review.getRestaurantId(), review.getNewRating(),
+                    LocalDateTime.now());
+            reviewsApplied.increment();
+        }
+    }
+
+    private void recordOrder(SegmentIndex target, LocalDate since, Long userId, Long restaurantId,
+                             Collection<String> categories, LocalDateTime createdAt) {
+        int id = bitmapId(userId);
+        if (id < 0) {
+            return;
+        }
+        LocalDate day = createdAt != null ? createdAt.toLocalDate() : LocalDate.now();
+        if (day.isBefore(since)) {
+            target.addCustomer(id);
+            return;
+        }
+
+        target.add(ORDERED, id, day);
+        target.add(RESTAURANT_PREFIX + restaurantId, id, day);
+        if (categories != null) {
+            for (String category : categories) {
+                if (category != null && !category.isBlank()) {
+                    target.add(CATEGORY_PREFIX + category.trim().toLowerCase(Locale.ROOT), id, day);
+                }
+            }
+        }
+    }
+
+    private void recordReview(SegmentIndex target, LocalDate since, Long userId, Long restaurantId,
+                              BigDecimal rating, LocalDateTime createdAt) {
+        int id = bitmapId(userId);
+        if (id < 0) {
+            return;
+        }
+        LocalDate day = createdAt != null ? createdAt.toLocalDate() : LocalDate.now();
+        if (day.isBefore(since)) {
+            target.addCustomer(id);
+            return;
+        }
+
+        target.add(REVIEWED, id, day);
+        if (rating != null && rating.compareTo(LOW_RATING_MAX) <= 0) {
+            target.add(LOW_RATING, id, day);
+        }
+    }
+
+    /**
+     * Los bitmaps guardan enteros de 31 bits; ids mayores quedan fuera de los segmentos
+     */
+    private int bitmapId(Long userId) {
+        if (userId == null || userId < 0 || userId > Integer.MAX_VALUE) {
+            skippedUserIds.increment();
+            return -1;
+        }
+        return userId.intValue();
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now().minusDays(retentionDays - 1);
+    }
+}
@@ -0,0 +1,166 @@
+package upeu.edu.pe.restaurant.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Altas y bajas de tokens en topics de FCM, agrupadas.
+ *
+ * Los cambios se encolan y cada {@code flush-interval-ms} se aplican con una solicitud por topic y
+ * por bloque de hasta 1000 tokens. Si un mismo token entra y sale de un topic antes del envío,
+ * solo cuenta la última operación. Un bloque que falla por un error transitorio se reintenta en
+ * el próximo ciclo, antes que los cambios encolados después (un cambio más nuevo del mismo token
+ * lo reemplaza), hasta {@code max-attempts} veces; los errores definitivos se descartan.
+ */
+@Slf4j
+@Service
+public class TopicSubscriptionBatcher {
+    
+    private record Change(String topic, String token, boolean subscribe) {}
+    
+    private record Key(String topic, String token) {}
+    
+    private record Pending(boolean subscribe, int attempts) {}
+    
+    private final PushTransport transport;
+    private final int maxAttempts;
+    
+    private final ConcurrentLinkedQueue<Change> queue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    // Cambios de bloques fallidos, por delante de la cola; solo se tocan con flushLock tomado
+    private final Map<Key, Pending> retry = new LinkedHashMap<>();
+    
+    // Métricas
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder subscribed = new LongAdder();
+    private final LongAdder unsubscribed = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    
+    public TopicSubscriptionBatcher(
+            PushTransport transport,
+            @Value("${notifications.topics.max-attempts:5}") int maxAttempts) {
+        this.transport = transport;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+    
+    public void subscribe(Collection<String> tokens, String topic) {
+        tokens.forEach(token -> queue.offer(new Change(topic, token, true)));
+        queued.add(tokens.size());
+    }
+    
+    public void unsubscribe(Collection<String> tokens, String topic) {
+        tokens.forEach(token -> queue.offer(new Change(topic, token, false)));
+        queued.add(tokens.size());
+    }
+    
+    @Scheduled(fixedDelayString = "${notifications.topics.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        flush();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+    
+    /**
+     * Aplicar los cambios pendientes: una solicitud por topic, operación y bloque de 1000 tokens
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            // Último cambio por (topic, token): primero los reintentos, los cambios nuevos los reemplazan
+            Map<Key, Pending> latest = new LinkedHashMap<>(retry);
+            retry.clear();
+            Change change;
+            while ((change = queue.poll()) != null) {
+                latest.put(new Key(change.topic(), change.token()), new Pending(change.subscribe(), 0));
+            }
+            if (latest.isEmpty()) {
+                return;
+            }
+            
+            Map<String, List<String>> toSubscribe = new LinkedHashMap<>();
+            Map<String, List<String>> toUnsubscribe = new LinkedHashMap<>();
+            latest.forEach((key, pending) -> (pending.subscribe() ? toSubscribe : toUnsubscribe)
+                    .computeIfAbsent(key.topic(), t -> new ArrayList<>())
+                    .add(key.token()));
+            
+            toSubscribe.forEach((topic, tokens) -> apply(topic, tokens, true, latest));
+            toUnsubscribe.forEach((topic, tokens) -> apply(topic, tokens, false, latest));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Métricas del agrupador
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", queue.size() + retry.size());
+        stats.put("queued", queued.sum());
+        stats.put("requests", requests.sum());
+        stats.put("subscribed", subscribed.sum());
+        stats.put("unsubscribed", unsubscribed.sum());
+        stats.put("failedRequests", failedRequests.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+    
+    private void apply(String topic, List<String> tokens, boolean subscribe, Map<Key, Pending> latest) {
+        for (int from = 0; from < tokens.size(); from += PushTransport.MAX_TOPIC_TOKENS) {
+            List<String> chunk = tokens.subList(from, Math.min(from + PushTransport.MAX_TOPIC_TOKENS, tokens.size()));
+            try {
+                requests.increment();
+                if (subscribe) {
+                    subscribed.add(transport.subscribeToTopic(chunk, topic));
+                } else {
+                    unsubscribed.add(transport.unsubscribeFromTopic(chunk, topic));
+                }
+            } catch (RuntimeException e) {
+                failedRequests.increment();
+                log.error("❌ Error actualizando {} tokens en el topic {}: {}", chunk.size(), topic, e.getMessage());
+                boolean retryable = !(e instanceof PushTransport.TopicException topicError) || topicError.isRetryable();
+                requeue(topic, chunk, retryable, latest);
+            }
+        }
+    }
+    
+    /**
+     * Dejar un bloque fallido para el próximo ciclo; se descarta si el error no es transitorio
+     * o si ya agotó sus intentos
+     */
+    private void requeue(String topic, List<String> chunk, boolean retryable, Map<Key, Pending> latest) {
+        int discarded = 0;
+        for (String token : chunk) {
+            Key key = new Key(topic, token);
+            Pending pending = latest.get(key);
+            int attempts = pending.attempts() + 1;
+            if (!retryable || attempts >= maxAttempts) {
+                discarded++;
+                continue;
+            }
+            retry.put(key, new Pending(pending.subscribe(), attempts));
+        }
+        if (discarded > 0) {
+            dropped.add(discarded);
+            log.warn("⚠️ {} cambios del topic {} descartados", discarded, topic);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Acciones diferidas al commit de la transacción actual.
+ *
+ * Las cachés en memoria, las suscripciones a topics y los envíos solo deben reflejar
+ * escrituras confirmadas: si la transacción se revierte, la acción no se ejecuta.
+ */
+@Component
+public class TransactionCallbacks {
+    
+    /**
+     * Ejecutar al confirmar la transacción actual (o de inmediato si no hay una)
+     */
+    public void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
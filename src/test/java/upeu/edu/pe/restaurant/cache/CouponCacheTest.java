@@ -0,0 +1,91 @@
+package upeu.edu.pe.restaurant.cache;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.entity.Coupon;
+import upeu.edu.pe.restaurant.repository.CouponRepository;
+import upeu.edu.pe.restaurant.repository.CouponUsageRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponCacheTest {
+
+	private final CouponRepository couponRepository = mock(CouponRepository.class);
+	private final CouponCache cache = new CouponCache(couponRepository, mock(CouponUsageRepository.class),
+			60, 100, 0.01, 30);
+
+	private static Coupon coupon(long id, String code) {
+		Coupon coupon = new Coupon();
+		coupon.setId(id);
+		coupon.setCode(code);
+		coupon.setDiscountType(Coupon.DiscountType.PERCENTAGE);
+		coupon.setDiscountValue(BigDecimal.TEN);
+		coupon.setIsActive(true);
+		return coupon;
+	}
+
+	@Test
+	void codeCreatedWhileTheFilterIsRebuiltIsNotLost() {
+		when(couponRepository.findCodesExpiringAfter(any())).thenAnswer(invocation -> {
+			// Creado mientras corre la consulta: no aparece en su resultado
+			cache.addCode("nuevo10");
+			return List.of("VIEJO5");
+		});
+		when(couponRepository.findByCodeIgnoreCase("NUEVO10")).thenReturn(Optional.of(coupon(2, "NUEVO10")));
+
+		cache.rebuildFilter();
+
+		assertTrue(cache.get("NUEVO10").isPresent());
+		assertEquals(2, cache.getFilterStats().get("codes"));
+		assertTrue(cache.get("NO-EXISTE").isEmpty());
+		assertEquals(1L, cache.getFilterStats().get("rejected"));
+	}
+
+	@Test
+	void leastRecentlyUsedCouponIsEvictedAtCapacity() {
+		CouponCache small = new CouponCache(couponRepository, mock(CouponUsageRepository.class), 60, 2, 0.01, 30);
+		when(couponRepository.findByCodeIgnoreCase("A")).thenReturn(Optional.of(coupon(1, "A")));
+		when(couponRepository.findByCodeIgnoreCase("B")).thenReturn(Optional.of(coupon(2, "B")));
+		when(couponRepository.findByCodeIgnoreCase("C")).thenReturn(Optional.of(coupon(3, "C")));
+
+		small.get("A");
+		small.get("B");
+		small.get("A");
+		small.get("C");
+
+		// B fue el menos usado: A sigue en caché y B vuelve a la base de datos
+		assertEquals(2, small.size());
+		small.get("A");
+		small.get("B");
+		verify(couponRepository, times(1)).findByCodeIgnoreCase("A");
+		verify(couponRepository, times(2)).findByCodeIgnoreCase("B");
+	}
+
+	@Test
+	void userUsageOfSeveralCouponsIsLoadedInOneQuery() {
+		CouponUsageRepository usageRepository = mock(CouponUsageRepository.class);
+		CouponCache withUsage = new CouponCache(couponRepository, usageRepository, 60, 100, 0.01, 30);
+		CouponUsageRepository.CouponUsageCount usedTwice = mock(CouponUsageRepository.CouponUsageCount.class);
+		when(usedTwice.getCouponId()).thenReturn(1L);
+		when(usedTwice.getUsageCount()).thenReturn(2L);
+		when(usageRepository.countByUserIdGroupedByCoupon(7L, List.of(1L, 2L))).thenReturn(List.of(usedTwice));
+
+		assertEquals(Map.of(1L, 2L, 2L, 0L), withUsage.userUsageCounts(7L, List.of(1L, 2L)));
+		// Ya en caché: sin otra consulta
+		assertEquals(2L, withUsage.userUsageCount(7L, 1L));
+		assertEquals(0L, withUsage.userUsageCount(7L, 2L));
+		verify(usageRepository, times(1)).countByUserIdGroupedByCoupon(any(), any());
+		verify(usageRepository, never()).countByUserIdAndCouponId(any(), any());
+	}
+}
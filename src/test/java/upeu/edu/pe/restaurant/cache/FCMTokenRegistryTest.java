@@ -0,0 +1,67 @@
+package upeu.edu.pe.restaurant.cache;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.repository.FCMTokenRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FCMTokenRegistryTest {
+
+	private final FCMTokenRepository repository = mock(FCMTokenRepository.class);
+
+	@Test
+	void tokensAreLoadedOnceAndKeptInSyncWithChanges() {
+		when(repository.findActiveTokenValuesByUserId(1L)).thenReturn(List.of("a", "b"));
+		when(repository.findActiveTokenValuesByUserId(2L)).thenReturn(List.of("c"));
+		FCMTokenRegistry registry = new FCMTokenRegistry(repository, 100);
+
+		assertArrayEquals(new String[]{"a", "b"}, registry.get(1L));
+		registry.get(2L);
+
+		registry.add(1L, "d");
+		registry.remove("a");
+		registry.add(2L, "b"); // el token pasa a otro usuario
+		registry.removeAll(List.of("c", "desconocido"));
+
+		assertArrayEquals(new String[]{"d"}, registry.get(1L));
+		assertArrayEquals(new String[]{"b"}, registry.get(2L));
+		verify(repository, times(1)).findActiveTokenValuesByUserId(1L);
+		verify(repository, times(1)).findActiveTokenValuesByUserId(2L);
+	}
+
+	@Test
+	void leastRecentlyUsedUserIsEvicted() {
+		when(repository.findActiveTokenValuesByUserId(1L)).thenReturn(List.of("a"));
+		when(repository.findActiveTokenValuesByUserId(2L)).thenReturn(List.of("b"));
+		when(repository.findActiveTokenValuesByUserId(3L)).thenReturn(List.of("c"));
+		FCMTokenRegistry registry = new FCMTokenRegistry(repository, 2);
+
+		registry.get(1L);
+		registry.get(2L);
+		registry.get(1L); // 2 queda como el menos usado
+		registry.get(3L);
+
+		assertEquals(2, registry.getStats().get("users"));
+		assertEquals(1L, registry.getStats().get("evictions"));
+		registry.get(1L);
+		registry.get(2L);
+		verify(repository, times(1)).findActiveTokenValuesByUserId(1L);
+		verify(repository, times(2)).findActiveTokenValuesByUserId(2L);
+	}
+
+	@Test
+	void userNotLoadedIsNotCachedOnAdd() {
+		when(repository.findActiveTokenValuesByUserId(5L)).thenReturn(List.of("x", "y"));
+		FCMTokenRegistry registry = new FCMTokenRegistry(repository, 100);
+
+		registry.add(5L, "y");
+		assertArrayEquals(new String[]{"x", "y"}, registry.get(5L));
+	}
+}
@@ -0,0 +1,71 @@
+package upeu.edu.pe.restaurant.cache;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.repository.NotificationLogRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UnreadCountCacheTest {
+
+	private final NotificationLogRepository repository = mock(NotificationLogRepository.class);
+
+	@Test
+	void countIsLoadedOnceAndThenMaintainedInMemory() {
+		when(repository.countByUserIdAndReadAtIsNull(7L)).thenReturn(3L);
+		UnreadCountCache cache = new UnreadCountCache(repository, 100, 0);
+
+		cache.increment(7L); // sin cargar: se ignora, lo cuenta la carga
+		assertEquals(3, cache.get(7L));
+		cache.increment(7L);
+		cache.increment(7L);
+		cache.decrement(7L, 1);
+		assertEquals(4, cache.get(7L));
+		cache.reset(7L);
+		assertEquals(0, cache.get(7L));
+
+		verify(repository, times(1)).countByUserIdAndReadAtIsNull(7L);
+	}
+
+	@Test
+	void reconcileFixesOnlyQuietCounters() throws InterruptedException {
+		when(repository.countByUserIdAndReadAtIsNull(1L)).thenReturn(5L);
+		when(repository.countByUserIdAndReadAtIsNull(2L)).thenReturn(5L);
+		when(repository.countUnreadByUserIds(anyCollection()))
+				.thenReturn(List.of(new Object[]{1L, 9L}, new Object[]{2L, 9L}));
+
+		UnreadCountCache cache = new UnreadCountCache(repository, 100, 50);
+		cache.get(1L);
+		cache.get(2L);
+		Thread.sleep(60);
+		cache.increment(2L); // recién modificado: no se toca
+
+		cache.reconcile();
+
+		assertEquals(9, cache.get(1L));
+		assertEquals(6, cache.get(2L));
+	}
+
+	@Test
+	void leastRecentlyUsedCounterIsEvictedAtCapacity() {
+		UnreadCountCache cache = new UnreadCountCache(repository, 2, 0);
+
+		cache.get(1L);
+		cache.get(2L);
+		cache.get(1L);
+		cache.get(3L);
+
+		// El usuario 2 fue el menos consultado: se vuelve a contar, el 1 no
+		assertEquals(2, cache.getStats().get("size"));
+		cache.get(1L);
+		cache.get(2L);
+		verify(repository, times(1)).countByUserIdAndReadAtIsNull(1L);
+		verify(repository, times(2)).countByUserIdAndReadAtIsNull(2L);
+	}
+}
@@ -0,0 +1,121 @@
+package upeu.edu.pe.restaurant.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReviewInvertedIndexTest {
+
+	@Test
+	void deletedReviewsDoNotLowerTheIdfOfTheirTerms() {
+		ReviewInvertedIndex index = new ReviewInvertedIndex();
+		index.upsert(1, 10, 5, "pizza excelente");
+		index.upsert(2, 10, 4, "servicio lento");
+		index.upsert(3, 10, 4, "postre rico");
+		double before = index.search("pizza", null, null, null, 10).get(0).score();
+
+		for (long reviewId = 100; reviewId < 120; reviewId++) {
+			index.upsert(reviewId, 20, 3, "pizza fria");
+			index.upsert(reviewId + 1000, 20, 3, "servicio amable");
+		}
+		for (long reviewId = 100; reviewId < 120; reviewId++) {
+			index.remove(reviewId);
+			index.remove(reviewId + 1000);
+		}
+
+		List<ReviewInvertedIndex.Hit> hits = index.search("pizza", null, null, null, 10);
+		assertEquals(1, hits.size());
+		assertEquals(before, hits.get(0).score(), 1e-9);
+	}
+
+	@Test
+	void editingAReviewCountsItsTermsOnce() {
+		ReviewInvertedIndex index = new ReviewInvertedIndex();
+		index.upsert(1, 10, 5, "pizza excelente");
+		index.upsert(2, 10, 4, "servicio lento");
+		double before = index.search("pizza", null, null, null, 10).get(0).score();
+
+		index.upsert(1, 10, 5, "pizza excelente");
+		index.upsert(1, 10, 5, "pizza excelente");
+
+		assertEquals(before, index.search("pizza", null, null, null, 10).get(0).score(), 1e-9);
+	}
+
+	@Test
+	void postingsRoundTripThroughTheVarintEncoding() {
+		int[] docIds = {0, 1, 127, 128, 16_511, 2_113_663, Integer.MAX_VALUE};
+		int[] frequencies = {1, 300, 2, 1, 70_000, 5, 1};
+		ReviewInvertedIndex.Postings postings = new ReviewInvertedIndex.Postings();
+		for (int i = 0; i < docIds.length; i++) {
+			postings.add(docIds[i], frequencies[i]);
+		}
+
+		ReviewInvertedIndex.Postings.Cursor cursor = postings.cursor();
+		for (int i = 0; i < docIds.length; i++) {
+			assertTrue(cursor.next());
+			assertEquals(docIds[i], cursor.docId());
+			assertEquals(frequencies[i], cursor.frequency());
+		}
+		assertFalse(cursor.next());
+		assertEquals(docIds.length, postings.size());
+	}
+
+	@Test
+	void consecutiveDocumentsTakeTwoBytesPerPosting() {
+		ReviewInvertedIndex.Postings postings = new ReviewInvertedIndex.Postings();
+		for (int docId = 0; docId < 100; docId++) {
+			postings.add(docId, 1);
+		}
+
+		assertEquals(200, postings.byteSize());
+	}
+
+	@Test
+	void bm25RanksRarerTermsAndDenserMatchesFirst() {
+		ReviewInvertedIndex index = new ReviewInvertedIndex();
+		// "pizza" aparece en todas; "trufa" solo en una
+		index.upsert(1, 10, 5, "pizza trufa");
+		index.upsert(2, 10, 5, "pizza pizza pizza");
+		index.upsert(3, 10, 5, "pizza masa horno servicio mesa terraza");
+		index.upsert(4, 10, 5, "pizza");
+
+		List<Long> byRarity = index.search("pizza trufa", null, null, null, 10).stream()
+				.map(ReviewInvertedIndex.Hit::reviewId).toList();
+		assertEquals(1L, byRarity.get(0));
+
+		List<Long> byDensity = index.search("pizza", null, null, null, 10).stream()
+				.map(ReviewInvertedIndex.Hit::reviewId).toList();
+		assertEquals(List.of(2L, 4L, 1L, 3L), byDensity);
+	}
+
+	@Test
+	void idfFollowsAddsAndRemoves() {
+		ReviewInvertedIndex index = new ReviewInvertedIndex();
+		index.upsert(1, 10, 5, "trufa");
+		index.upsert(2, 10, 5, "helado");
+		index.upsert(3, 10, 5, "helado");
+		index.upsert(4, 10, 5, "helado");
+		// N = 4, n = 1; documento de largo medio: el puntaje es el idf
+		assertEquals(idf(4, 1), score(index, "trufa"), 1e-9);
+
+		index.upsert(5, 10, 5, "trufa");
+		index.upsert(6, 10, 5, "trufa");
+		assertEquals(idf(6, 3), score(index, "trufa"), 1e-9);
+
+		index.remove(5);
+		index.remove(6);
+		assertEquals(idf(4, 1), score(index, "trufa"), 1e-9);
+	}
+
+	private static double idf(int documents, int withTerm) {
+		return Math.log(1 + (documents - withTerm + 0.5) / (withTerm + 0.5));
+	}
+
+	private static double score(ReviewInvertedIndex index, String query) {
+		return index.search(query, null, null, null, 10).get(0).score();
+	}
+}
@@ -0,0 +1,39 @@
+package upeu.edu.pe.restaurant.segment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SegmentIndexTest {
+
+	private static List<Integer> values(UserBitmap bitmap) {
+		List<Integer> values = new ArrayList<>();
+		bitmap.forEach(values::add);
+		return values;
+	}
+
+	@Test
+	void windowSeesNewActivityAfterBeingCached() {
+		SegmentIndex index = new SegmentIndex();
+		LocalDate today = LocalDate.now();
+		index.add("ordered", 1, today.minusDays(3));
+		index.add("ordered", 2, today.minusDays(10));
+		index.add("ordered", 3, today);
+
+		assertEquals(List.of(1, 3), values(index.activeSince("ordered", today.minusDays(6))));
+		assertEquals(1, index.getStats().get("cachedWindows"));
+
+		// Hoy se suma en cada consulta; un día pasado descarta la ventana guardada
+		index.add("ordered", 4, today);
+		index.add("ordered", 5, today.minusDays(1));
+		index.add("ordered", 6, today.minusDays(30));
+
+		assertEquals(List.of(1, 3, 4, 5), values(index.activeSince("ordered", today.minusDays(6))));
+		assertEquals(List.of(1, 2, 3, 4, 5, 6), values(index.customers()));
+		assertEquals(List.of(), values(index.activeSince("reviewed", today.minusDays(6))));
+	}
+}
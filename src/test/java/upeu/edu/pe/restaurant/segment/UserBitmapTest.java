@@ -0,0 +1,109 @@
+package upeu.edu.pe.restaurant.segment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserBitmapTest {
+
+	/**
+	 * Conjunto aleatorio con tramos densos (contenedores de bits) y dispersos (arreglos)
+	 */
+	private static BitSet randomSet(Random random) {
+		BitSet set = new BitSet();
+		for (int chunk = 0; chunk < 8; chunk++) {
+			int base = chunk << 16;
+			int count = random.nextBoolean() ? 20_000 : 300;
+			for (int i = 0; i < count; i++) {
+				set.set(base + random.nextInt(1 << 16));
+			}
+		}
+		return set;
+	}
+
+	private static UserBitmap toBitmap(BitSet set) {
+		UserBitmap bitmap = new UserBitmap();
+		set.stream().forEach(bitmap::add);
+		return bitmap;
+	}
+
+	private static void assertSameValues(BitSet expected, UserBitmap actual) {
+		assertEquals(expected.cardinality(), actual.cardinality());
+		List<Integer> values = new ArrayList<>();
+		actual.forEach(values::add);
+		assertEquals(expected.stream().boxed().toList(), values);
+
+		List<Integer> iterated = new ArrayList<>();
+		PrimitiveIterator.OfInt iterator = actual.iterator();
+		while (iterator.hasNext()) {
+			iterated.add(iterator.nextInt());
+		}
+		assertEquals(values, iterated);
+	}
+
+	@Test
+	void setOperationsMatchBitSet() {
+		Random random = new Random(42);
+		for (int round = 0; round < 5; round++) {
+			BitSet a = randomSet(random);
+			BitSet b = randomSet(random);
+			UserBitmap left = toBitmap(a);
+			UserBitmap right = toBitmap(b);
+
+			BitSet and = (BitSet) a.clone();
+			and.and(b);
+			BitSet or = (BitSet) a.clone();
+			or.or(b);
+			BitSet andNot = (BitSet) a.clone();
+			andNot.andNot(b);
+
+			assertSameValues(and, left.and(right));
+			assertSameValues(or, left.or(right));
+			assertSameValues(andNot, left.andNot(right));
+			// Los operandos no cambian
+			assertSameValues(a, left);
+			assertSameValues(b, right);
+
+			UserBitmap accumulated = left.copy();
+			accumulated.orInPlace(right);
+			accumulated.orInPlace(left);
+			assertSameValues(or, accumulated);
+			assertSameValues(b, right);
+		}
+	}
+
+	@Test
+	void containerSwitchesBetweenArrayAndBitsAsItGrowsAndShrinks() {
+		UserBitmap bitmap = new UserBitmap();
+		for (int i = 0; i < 10_000; i++) {
+			bitmap.add(i * 3);
+		}
+		assertEquals(10_000, bitmap.cardinality());
+		long dense = bitmap.sizeInBytes();
+
+		for (int i = 0; i < 10_000; i += 2) {
+			bitmap.remove(i * 3);
+		}
+		assertEquals(5_000, bitmap.cardinality());
+		assertTrue(bitmap.contains(3));
+		assertFalse(bitmap.contains(0));
+
+		for (int i = 1; i < 10_000; i += 2) {
+			bitmap.remove(i * 3);
+		}
+		assertTrue(bitmap.isEmpty());
+
+		UserBitmap sparse = UserBitmap.of(1, 1_000_000, 2_000_000_000);
+		assertTrue(sparse.sizeInBytes() < dense);
+		assertTrue(sparse.contains(2_000_000_000));
+		assertEquals(3, sparse.cardinality());
+	}
+}
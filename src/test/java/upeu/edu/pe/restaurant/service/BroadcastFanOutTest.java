@@ -0,0 +1,172 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BroadcastFanOutTest {
+
+	private static final int TOKENS = 2_345;
+	private static final int PARALLELISM = 4;
+
+	/**
+	 * Tokens en memoria: usuario = id / 2 (dos dispositivos por usuario), cada 100 uno inválido
+	 */
+	private static final List<BroadcastFanOut.TokenRef> ALL = new ArrayList<>();
+
+	static {
+		for (long id = 1; id <= TOKENS; id++) {
+			ALL.add(new BroadcastFanOut.TokenRef(id, id / 2, "token-" + id));
+		}
+	}
+
+	private static BroadcastFanOut.TokenSource keyset() {
+		return (after, limit) -> ALL.stream()
+				.filter(t -> after == null || t.userId() > after.userId()
+						|| (t.userId() == after.userId() && t.id() > after.id()))
+				.limit(limit)
+				.toList();
+	}
+
+	@Test
+	void sendsEveryTokenInBoundedChunks() {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		Set<String> delivered = ConcurrentHashMap.newKeySet();
+		Set<String> deactivated = ConcurrentHashMap.newKeySet();
+		List<Long> notifiedUsers = new ArrayList<>();
+
+		SendOnlyTransport fakeSender = (tokens, title, body, data) -> {
+			assertTrue(tokens.size() <= PushTransport.MAX_TOKENS);
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			List<String> invalid = tokens.stream().filter(t -> t.endsWith("00")).toList();
+			delivered.addAll(tokens);
+			inFlight.decrementAndGet();
+			return new PushTransport.Result(tokens.size() - invalid.size(), invalid, List.of(), List.of(), null);
+		};
+
+		try {
+			BroadcastFanOut fanOut = new BroadcastFanOut(keyset(), fakeSender, executor,
+					500, PARALLELISM, deactivated::addAll);
+			BroadcastResultDTO result = fanOut.run("Título", "Cuerpo", Map.of(), users -> {
+				synchronized (notifiedUsers) {
+					notifiedUsers.addAll(users);
+				}
+			});
+
+			assertEquals(TOKENS, result.getTokens());
+			assertEquals(5, result.getChunks());
+			assertEquals(TOKENS, delivered.size());
+			assertEquals(23, result.getInvalidTokens());
+			assertEquals(23, deactivated.size());
+			assertEquals(TOKENS - 23, result.getSuccess());
+			assertEquals(23, result.getFailure());
+			assertTrue(maxInFlight.get() <= PARALLELISM);
+
+			// Cada usuario se registra una sola vez aunque tenga tokens en dos bloques
+			assertEquals(TOKENS / 2 + 1, notifiedUsers.size());
+			assertEquals(notifiedUsers.size(), Set.copyOf(notifiedUsers).size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void failedChunkIsCountedAndDoesNotStopTheBroadcast() {
+		AtomicInteger calls = new AtomicInteger();
+		SendOnlyTransport flakySender = (tokens, title, body, data) -> {
+			if (calls.incrementAndGet() == 2) {
+				throw new IllegalStateException("FCM no disponible");
+			}
+			return PushTransport.Result.success(tokens.size());
+		};
+
+		BroadcastFanOut fanOut = new BroadcastFanOut(keyset(), flakySender, Runnable::run,
+				500, PARALLELISM, tokens -> {});
+		BroadcastResultDTO result = fanOut.run("Título", "Cuerpo", Map.of(), users -> {});
+
+		assertEquals(5, result.getChunks());
+		assertEquals(500, result.getFailure());
+		assertEquals(TOKENS - 500, result.getSuccess());
+	}
+
+	@Test
+	void userTokenSourceSendsOnlyTheGivenUsers() {
+		// Usuarios pares, tres tokens cada uno: las páginas cortan a usuarios por la mitad
+		List<Integer> userIds = new ArrayList<>();
+		for (int userId = 0; userId < 1_000; userId += 2) {
+			userIds.add(userId);
+		}
+		AtomicInteger lookups = new AtomicInteger();
+		BroadcastFanOut.TokenSource source = new BroadcastFanOut.UserTokenSource(
+				userIds.stream().mapToInt(Integer::intValue).iterator(),
+				users -> {
+					lookups.incrementAndGet();
+					List<BroadcastFanOut.TokenRef> refs = new ArrayList<>();
+					for (Long userId : users) {
+						for (int device = 0; device < 3; device++) {
+							refs.add(new BroadcastFanOut.TokenRef(0, userId, "token-" + userId + "-" + device));
+						}
+					}
+					return refs;
+				},
+				100);
+		Set<String> delivered = ConcurrentHashMap.newKeySet();
+		List<Long> notifiedUsers = new ArrayList<>();
+
+		BroadcastFanOut fanOut = new BroadcastFanOut(source, (SendOnlyTransport) (tokens, title, body, data) -> {
+			delivered.addAll(tokens);
+			return PushTransport.Result.success(tokens.size());
+		}, Runnable::run, 500, PARALLELISM, tokens -> {});
+		BroadcastResultDTO result = fanOut.run("Título", "Cuerpo", Map.of(), notifiedUsers::addAll);
+
+		assertEquals(1_500, result.getTokens());
+		assertEquals(3, result.getChunks());
+		assertEquals(1_500, delivered.size());
+		assertEquals(500, result.getUsers());
+		assertEquals(500, Set.copyOf(notifiedUsers).size());
+		assertTrue(notifiedUsers.stream().allMatch(userId -> userId % 2 == 0));
+		assertEquals(5, lookups.get());
+	}
+
+	@Test
+	void userSpanningSeveralChunksIsCountedOnce() {
+		// Usuario 1 con 1.200 tokens (tres bloques de 500), luego usuario 2 con uno
+		List<BroadcastFanOut.TokenRef> tokens = new ArrayList<>();
+		for (long id = 1; id <= 1_200; id++) {
+			tokens.add(new BroadcastFanOut.TokenRef(id, 1, "token-" + id));
+		}
+		tokens.add(new BroadcastFanOut.TokenRef(1_201, 2, "token-1201"));
+		BroadcastFanOut.TokenSource source = (after, limit) -> tokens.stream()
+				.filter(t -> after == null || t.id() > after.id())
+				.limit(limit)
+				.toList();
+		List<Long> notifiedUsers = new ArrayList<>();
+
+		BroadcastFanOut fanOut = new BroadcastFanOut(source,
+				(SendOnlyTransport) (batch, title, body, data) -> PushTransport.Result.success(batch.size()),
+				Runnable::run, 500, PARALLELISM, invalid -> {});
+		BroadcastResultDTO result = fanOut.run("Título", "Cuerpo", Map.of(), notifiedUsers::addAll);
+
+		assertEquals(3, result.getChunks());
+		assertEquals(2, result.getUsers());
+		assertEquals(List.of(1L, 2L), notifiedUsers);
+	}
+}
@@ -0,0 +1,71 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import upeu.edu.pe.restaurant.cache.CouponCache;
+import upeu.edu.pe.restaurant.dto.BulkCouponProgressDTO;
+import upeu.edu.pe.restaurant.dto.request.BulkCouponRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponBulkServiceTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final CouponCache couponCache = mock(CouponCache.class);
+	private final CouponBulkService service = new CouponBulkService(jdbcTemplate, couponCache, 100, 1_000_000);
+
+	private static BulkCouponRequest request(int quantity) {
+		BulkCouponRequest request = new BulkCouponRequest();
+		request.setQuantity(quantity);
+		request.setPrefix("VERANO-");
+		request.setDiscountType("FIXED");
+		request.setDiscountValue(BigDecimal.TEN);
+		return request;
+	}
+
+	@Test
+	void failureMidStreamEndsWithAnErrorLine() {
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class)))
+				.thenReturn(100)
+				.thenThrow(new DataAccessResourceFailureException("sin conexión"));
+		BulkCouponRequest request = request(300);
+		List<BulkCouponProgressDTO> lines = new ArrayList<>();
+
+		BulkCouponProgressDTO result = service.generate(request, service.prepare(request), lines::add);
+
+		assertEquals(2, lines.size());
+		assertNull(lines.get(0).getError());
+		BulkCouponProgressDTO last = lines.get(1);
+		assertTrue(last.getDone());
+		assertEquals(100, last.getInserted());
+		assertNotNull(last.getError());
+		assertEquals(last, result);
+	}
+
+	@Test
+	void saturatedFilterIsRebuiltAfterTheBulkInsert() {
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenReturn(100);
+		when(couponCache.isFilterSaturated()).thenReturn(false, true);
+		BulkCouponRequest request = request(100);
+
+		service.generate(request, service.prepare(request), progress -> {});
+		verify(couponCache, never()).rebuildFilter();
+
+		service.generate(request, service.prepare(request), progress -> {});
+		verify(couponCache).rebuildFilter();
+	}
+}
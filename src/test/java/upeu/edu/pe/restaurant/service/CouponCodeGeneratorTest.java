@@ -0,0 +1,37 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CouponCodeGeneratorTest {
+
+	@Test
+	void coversWholeSpaceWithoutCollisions() {
+		CouponCodeGenerator generator = new CouponCodeGenerator("T-", "ABC", 6, 42L);
+
+		Set<String> codes = new HashSet<>();
+		for (long i = 0; i < generator.domainSize(); i++) {
+			String code = generator.code(i);
+			assertTrue(code.matches("T-[ABC]{6}"), code);
+			codes.add(code);
+		}
+
+		assertEquals(729, generator.domainSize());
+		assertEquals(generator.domainSize(), codes.size());
+	}
+
+	@Test
+	void differentKeysProduceDifferentSequences() {
+		CouponCodeGenerator first = new CouponCodeGenerator("", CouponCodeGenerator.DEFAULT_ALPHABET, 8, 1L);
+		CouponCodeGenerator second = new CouponCodeGenerator("", CouponCodeGenerator.DEFAULT_ALPHABET, 8, 2L);
+
+		assertEquals(first.code(0), new CouponCodeGenerator("", CouponCodeGenerator.DEFAULT_ALPHABET, 8, 1L).code(0));
+		assertNotEquals(first.code(0), second.code(0));
+	}
+}
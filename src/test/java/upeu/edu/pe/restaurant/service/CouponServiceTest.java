@@ -0,0 +1,122 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.cache.CouponCache;
+import upeu.edu.pe.restaurant.dto.request.BestCouponRequest;
+import upeu.edu.pe.restaurant.dto.response.CouponValidationResponse;
+import upeu.edu.pe.restaurant.entity.Coupon;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.exception.ResourceNotFoundException;
+import upeu.edu.pe.restaurant.repository.CouponRepository;
+import upeu.edu.pe.restaurant.repository.CouponUsageRepository;
+import upeu.edu.pe.restaurant.repository.MenuItemRepository;
+import upeu.edu.pe.restaurant.repository.OrderRepository;
+import upeu.edu.pe.restaurant.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponServiceTest {
+
+	private final CouponRedemptionService redemptionService = mock(CouponRedemptionService.class);
+	private final CouponCache couponCache = mock(CouponCache.class);
+	private final OrderRepository orderRepository = mock(OrderRepository.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final CouponService service = new CouponService(mock(CouponRepository.class),
+			mock(CouponUsageRepository.class), userRepository, redemptionService, couponCache,
+			mock(MenuItemRepository.class), orderRepository);
+
+	private static CouponRule firstOrderCoupon(long id, String code, int discount) {
+		Coupon coupon = new Coupon();
+		coupon.setId(id);
+		coupon.setCode(code);
+		coupon.setDiscountType(Coupon.DiscountType.FIXED);
+		coupon.setDiscountValue(BigDecimal.valueOf(discount));
+		coupon.setMinimumAmount(BigDecimal.ZERO);
+		coupon.setIsActive(true);
+		coupon.setFirstOrderOnly(true);
+		return CouponRule.from(coupon);
+	}
+
+	private static Coupon withUserLimit(long id, String code, int discount) {
+		Coupon coupon = new Coupon();
+		coupon.setId(id);
+		coupon.setCode(code);
+		coupon.setDiscountType(Coupon.DiscountType.FIXED);
+		coupon.setDiscountValue(BigDecimal.valueOf(discount));
+		coupon.setMinimumAmount(BigDecimal.ZERO);
+		coupon.setIsActive(true);
+		coupon.setUserUsageLimit(1);
+		return coupon;
+	}
+
+	@Test
+	void bestCouponCountsPreviousOrdersOncePerRequest() {
+		when(couponCache.suggestable()).thenReturn(List.of(
+				firstOrderCoupon(1, "BIENVENIDA5", 5),
+				firstOrderCoupon(2, "BIENVENIDA10", 10),
+				firstOrderCoupon(3, "BIENVENIDA3", 3)));
+		when(orderRepository.countByUserId(7L)).thenReturn(0L);
+		BestCouponRequest request = new BestCouponRequest();
+		request.setCartTotal(BigDecimal.valueOf(50));
+
+		CouponValidationResponse best = service.findBestCoupon(request, 7L);
+
+		assertTrue(best.getValid());
+		assertEquals("BIENVENIDA10", best.getCode());
+		verify(orderRepository, times(1)).countByUserId(7L);
+	}
+
+	@Test
+	void bestCouponLoadsUserUsageOfAllCandidatesAtOnce() {
+		when(couponCache.suggestable()).thenReturn(List.of(
+				CouponRule.from(withUserLimit(1, "UNAVEZ10", 10)),
+				CouponRule.from(withUserLimit(2, "UNAVEZ5", 5)),
+				firstOrderCoupon(3, "BIENVENIDA3", 3)));
+		when(orderRepository.countByUserId(7L)).thenReturn(0L);
+		when(couponCache.userUsageCounts(7L, List.of(1L, 2L))).thenReturn(Map.of(1L, 1L, 2L, 0L));
+		BestCouponRequest request = new BestCouponRequest();
+		request.setCartTotal(BigDecimal.valueOf(50));
+
+		CouponValidationResponse best = service.findBestCoupon(request, 7L);
+
+		assertEquals("UNAVEZ5", best.getCode());
+		verify(couponCache, never()).userUsageCount(anyLong(), anyLong());
+	}
+
+	@Test
+	void redemptionReevaluatesTheCouponConditions() {
+		when(couponCache.get("BIENVENIDA10")).thenReturn(Optional.of(firstOrderCoupon(2, "BIENVENIDA10", 10)));
+		// La orden del canje más un pedido anterior: ya no es el primero
+		when(orderRepository.countByUserId(7L)).thenReturn(2L);
+
+		assertThrows(BadRequestException.class, () -> service.useCoupon("BIENVENIDA10", 7L, 99L,
+				BigDecimal.valueOf(50), 1L, Set.of("pizza")));
+		verify(redemptionService, never()).redeem(anyLong(), any());
+	}
+
+	@Test
+	void redemptionByUnknownUserFailsBeforeConsumingTheCoupon() {
+		when(couponCache.get("BIENVENIDA10")).thenReturn(Optional.of(firstOrderCoupon(2, "BIENVENIDA10", 10)));
+		when(orderRepository.countByUserId(7L)).thenReturn(1L);
+		when(userRepository.findById(7L)).thenReturn(Optional.empty());
+
+		assertThrows(ResourceNotFoundException.class, () -> service.useCoupon("BIENVENIDA10", 7L, 99L,
+				BigDecimal.valueOf(50), 1L, Set.of("pizza")));
+		verify(redemptionService, never()).redeem(anyLong(), any());
+	}
+}
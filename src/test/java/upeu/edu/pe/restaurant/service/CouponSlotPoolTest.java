@@ -0,0 +1,128 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CouponSlotPoolTest {
+
+	private static final int USAGE_LIMIT = 1000;
+	private static final int THREADS = 64;
+	private static final int ATTEMPTS = 5000;
+
+	/**
+	 * Simula el UPDATE condicional: concede el bloque completo o, cerca del límite, de a uno
+	 */
+	private static CouponSlotPool.SlotSource conditionalUpdate(AtomicInteger usageCount) {
+		return requested -> {
+			while (true) {
+				int current = usageCount.get();
+				int granted = current + requested <= USAGE_LIMIT ? requested : (current < USAGE_LIMIT ? 1 : 0);
+				if (granted == 0) {
+					return 0;
+				}
+				if (usageCount.compareAndSet(current, current + granted)) {
+					return granted;
+				}
+			}
+		};
+	}
+
+	@Test
+	void concurrentRedemptionsNeverOversell() throws InterruptedException {
+		AtomicInteger usageCount = new AtomicInteger();
+		CouponSlotPool pool = new CouponSlotPool(8, 50, conditionalUpdate(usageCount), conditionalUpdate(usageCount));
+		AtomicInteger redeemed = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		for (int i = 0; i < ATTEMPTS; i++) {
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if (pool.tryAcquire() != CouponSlotPool.Acquisition.SOLD_OUT) {
+					redeemed.incrementAndGet();
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(USAGE_LIMIT, redeemed.get());
+		assertEquals(USAGE_LIMIT, usageCount.get());
+		assertEquals(0, pool.available());
+	}
+
+	@Test
+	void releasedSlotsAreReusedAndDrained() {
+		AtomicInteger usageCount = new AtomicInteger();
+		CouponSlotPool pool = new CouponSlotPool(4, 10, conditionalUpdate(usageCount), conditionalUpdate(usageCount));
+
+		assertEquals(CouponSlotPool.Acquisition.POOLED, pool.tryAcquire());
+		assertEquals(10, usageCount.get());
+		assertEquals(9, pool.available());
+
+		assertTrue(pool.release());
+		assertEquals(10, pool.available());
+		assertEquals(10, pool.drain());
+		assertEquals(0, pool.available());
+	}
+
+	@Test
+	void threadsDoNotWaitForABlockBeingReserved() throws Exception {
+		AtomicInteger usageCount = new AtomicInteger();
+		CountDownLatch reserving = new CountDownLatch(1);
+		CountDownLatch finishReserve = new CountDownLatch(1);
+		CouponSlotPool.SlotSource slowBlock = requested -> {
+			reserving.countDown();
+			try {
+				finishReserve.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return conditionalUpdate(usageCount).reserve(requested);
+		};
+		CouponSlotPool pool = new CouponSlotPool(4, 10, slowBlock, conditionalUpdate(usageCount));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<CouponSlotPool.Acquisition> leader = executor.submit(pool::tryAcquire);
+		assertTrue(reserving.await(5, TimeUnit.SECONDS));
+
+		// Con el bloque todavía en camino, el uso sale directo de la base de datos
+		assertEquals(CouponSlotPool.Acquisition.DIRECT, pool.tryAcquire());
+		assertEquals(1, usageCount.get());
+
+		finishReserve.countDown();
+		assertEquals(CouponSlotPool.Acquisition.POOLED, leader.get(5, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(11, usageCount.get());
+		assertEquals(9, pool.available());
+	}
+
+	@Test
+	void closedPoolStopsHandingOutSlots() {
+		AtomicInteger usageCount = new AtomicInteger();
+		CouponSlotPool pool = new CouponSlotPool(4, 10, conditionalUpdate(usageCount), conditionalUpdate(usageCount));
+
+		assertEquals(CouponSlotPool.Acquisition.POOLED, pool.tryAcquire());
+		assertEquals(9, pool.close());
+
+		assertEquals(CouponSlotPool.Acquisition.DIRECT, pool.tryAcquire());
+		assertFalse(pool.release());
+		assertEquals(0, pool.available());
+	}
+}
@@ -0,0 +1,34 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.entity.Follow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FollowServiceTest {
+
+	private static final String FCM_TOPIC = "[a-zA-Z0-9-_.~%]{1,900}";
+
+	@Test
+	void accentedCategoriesGetTheirOwnTopic() {
+		String cafe = FollowService.topicFor(Follow.TargetType.CATEGORY, "cafe");
+		String cafeAccented = FollowService.topicFor(Follow.TargetType.CATEGORY, "café");
+		String spaced = FollowService.topicFor(Follow.TargetType.CATEGORY, "comida rápida");
+
+		assertEquals("category_cafe", cafe);
+		assertEquals("category_caf%C3%A9", cafeAccented);
+		assertEquals("category_comida%20r%C3%A1pida", spaced);
+		assertNotEquals(FollowService.topicFor(Follow.TargetType.CATEGORY, "comida_r_pida"), spaced);
+		assertTrue(spaced.matches(FCM_TOPIC));
+	}
+
+	@Test
+	void keyTooLongForFcmIsHashed() {
+		String topic = FollowService.topicFor(Follow.TargetType.CATEGORY, "中".repeat(100));
+
+		assertEquals("category_~".length() + 64, topic.length());
+		assertTrue(topic.matches(FCM_TOPIC));
+	}
+}
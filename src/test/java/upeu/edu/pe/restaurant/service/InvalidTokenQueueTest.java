@@ -0,0 +1,79 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import upeu.edu.pe.restaurant.cache.FCMTokenRegistry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InvalidTokenQueueTest {
+
+	private final FCMTokenService tokenService = mock(FCMTokenService.class);
+	private final FCMTokenRegistry registry = mock(FCMTokenRegistry.class);
+
+	@Test
+	void tokensLeaveTheRegistryAtOnceAndAreDeactivatedInChunks() {
+		when(tokenService.deactivateTokens(anyMap())).thenAnswer(inv -> inv.getArgument(0, Map.class).size());
+		InvalidTokenQueue queue = new InvalidTokenQueue(tokenService, registry, 3);
+
+		queue.submit(List.of("a", "b"));
+		verify(registry).removeAll(List.of("a", "b"));
+		queue.submit(List.of("c", "d", "e", "f", "g"));
+
+		queue.flush();
+		verify(tokenService, times(3)).deactivateTokens(anyMap());
+		assertEquals(0, queue.getStats().get("pending"));
+		assertEquals(7L, queue.getStats().get("deactivated"));
+	}
+
+	@Test
+	void failedUpdateKeepsTokensForTheNextFlush() {
+		when(tokenService.deactivateTokens(anyMap()))
+				.thenThrow(new RuntimeException("sin conexión"))
+				.thenReturn(2);
+		InvalidTokenQueue queue = new InvalidTokenQueue(tokenService, registry, 1000);
+
+		queue.submit(List.of("a", "b"));
+		queue.flush();
+		assertEquals(2, queue.getStats().get("pending"));
+
+		queue.flush();
+		assertEquals(0, queue.getStats().get("pending"));
+		assertEquals(2L, queue.getStats().get("deactivated"));
+	}
+
+	@Test
+	void eachTokenIsDeactivatedAgainstItsOwnRejectionTime() throws InterruptedException {
+		when(tokenService.deactivateTokens(anyMap())).thenReturn(2);
+		InvalidTokenQueue queue = new InvalidTokenQueue(tokenService, registry, 1000);
+
+		LocalDateTime before = LocalDateTime.now();
+		queue.submit(List.of("a"));
+		Thread.sleep(5);
+		queue.submit(List.of("b"));
+		Thread.sleep(5);
+		queue.submit(List.of("a"));
+		queue.flush();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Map<String, LocalDateTime>> rejectedAt = ArgumentCaptor.forClass(Map.class);
+		verify(tokenService).deactivateTokens(rejectedAt.capture());
+		Map<String, LocalDateTime> byToken = rejectedAt.getValue();
+		assertEquals(List.of("a", "b"), List.copyOf(byToken.keySet()));
+		assertFalse(byToken.get("b").isBefore(before));
+		// "a" se rechazó dos veces: cuenta el rechazo más reciente, posterior al de "b"
+		assertTrue(byToken.get("a").isAfter(byToken.get("b")));
+		assertFalse(byToken.get("a").isAfter(LocalDateTime.now()));
+	}
+}
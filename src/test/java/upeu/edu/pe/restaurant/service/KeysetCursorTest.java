@@ -0,0 +1,25 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+	@Test
+	void roundTripsTimestampAndId() {
+		KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_000_000), 42L);
+
+		assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode("no-es-base64!"));
+		assertThrows(BadRequestException.class, () -> KeysetCursor.decode("c2luLXNlcGFyYWRvcg"));
+	}
+}
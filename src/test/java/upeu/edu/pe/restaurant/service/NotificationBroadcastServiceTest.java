@@ -0,0 +1,74 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.dto.BroadcastJobDTO;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
+import upeu.edu.pe.restaurant.repository.FCMTokenRepository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class NotificationBroadcastServiceTest {
+
+	private final NotificationBroadcastService service = new NotificationBroadcastService(
+			mock(FCMTokenRepository.class), mock(InvalidTokenQueue.class), mock(PushTransport.class),
+			Runnable::run, 500, 4);
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void submittedJobRunsInTheBackgroundAndReportsItsResult() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		BroadcastJobDTO job = service.submit("broadcast", () -> {
+			await(release);
+			return BroadcastResultDTO.builder().tokens(1_000).success(990).build();
+		});
+
+		// El llamador no espera al envío
+		assertEquals(BroadcastJobDTO.Status.QUEUED, job.getStatus());
+		release.countDown();
+
+		BroadcastJobDTO done = awaitFinished(job.getId());
+		assertEquals(BroadcastJobDTO.Status.COMPLETED, done.getStatus());
+		assertEquals(990, done.getResult().getSuccess());
+	}
+
+	@Test
+	void failedJobKeepsTheError() throws InterruptedException {
+		BroadcastJobDTO job = service.submit("segment-offer", () -> {
+			throw new IllegalStateException("sin conexión");
+		});
+
+		BroadcastJobDTO done = awaitFinished(job.getId());
+		assertEquals(BroadcastJobDTO.Status.FAILED, done.getStatus());
+		assertEquals("sin conexión", done.getError());
+	}
+
+	private BroadcastJobDTO awaitFinished(String jobId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (System.currentTimeMillis() < deadline) {
+			BroadcastJobDTO job = service.getJob(jobId).orElseThrow();
+			if (job.getFinishedAt() != null) {
+				return job;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("El envío no terminó a tiempo");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.AnnotationBeanNameGenerator;
+import org.springframework.context.annotation.DependsOn;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NotificationCoalescerTest {
+
+	private final List<String> sent = new CopyOnWriteArrayList<>();
+	private NotificationCoalescer coalescer;
+
+	@AfterEach
+	void stop() {
+		coalescer.shutdown();
+	}
+
+	private void awaitSent(int expected) throws InterruptedException {
+		for (int i = 0; i < 200 && sent.size() < expected; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	void onlyTheLatestStatusInsideTheWindowIsSent() throws InterruptedException {
+		coalescer = new NotificationCoalescer(100);
+
+		coalescer.submit("order:1:10", () -> sent.add("CONFIRMED"));
+		coalescer.submit("order:1:10", () -> sent.add("PREPARING"));
+		coalescer.submit("order:1:11", () -> sent.add("otro pedido"));
+		coalescer.submit("order:1:10", () -> sent.add("ON_THE_WAY"));
+		awaitSent(2);
+
+		assertEquals(2, sent.size());
+		assertEquals(true, sent.contains("ON_THE_WAY"));
+		assertEquals(true, sent.contains("otro pedido"));
+		assertEquals(2L, coalescer.getStats().get("coalesced"));
+	}
+
+	@Test
+	void pendingNotificationsAreSentOnShutdown() {
+		coalescer = new NotificationCoalescer(60_000);
+
+		coalescer.submit("order:1:10", () -> sent.add("CONFIRMED"));
+		coalescer.submit("order:1:10", () -> sent.add("DELIVERED"));
+		coalescer.shutdown();
+
+		assertEquals(List.of("DELIVERED"), sent);
+	}
+
+	@Test
+	void zeroWindowSendsImmediately() {
+		coalescer = new NotificationCoalescer(0);
+
+		coalescer.submit("order:1:10", () -> sent.add("CONFIRMED"));
+		coalescer.submit("order:1:10", () -> sent.add("PREPARING"));
+
+		assertEquals(List.of("CONFIRMED", "PREPARING"), sent);
+	}
+
+	@Test
+	void isDestroyedBeforeTheBeansItFlushesInto() {
+		coalescer = new NotificationCoalescer(0);
+		AnnotationBeanNameGenerator names = AnnotationBeanNameGenerator.INSTANCE;
+		DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+		List<String> expected = List.of(NotificationDispatcher.class, NotificationLogWriter.class, FCMTokenService.class)
+				.stream()
+				.map(type -> names.generateBeanName(new AnnotatedGenericBeanDefinition(type), registry))
+				.toList();
+
+		assertEquals(expected, List.of(NotificationCoalescer.class.getAnnotation(DependsOn.class).value()));
+	}
+}
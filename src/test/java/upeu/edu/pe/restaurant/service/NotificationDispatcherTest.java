@@ -0,0 +1,173 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import upeu.edu.pe.restaurant.entity.NotificationDeadLetter;
+import upeu.edu.pe.restaurant.repository.NotificationDeadLetterRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+	private final InvalidTokenQueue invalidTokens = mock(InvalidTokenQueue.class);
+	private final NotificationDeadLetterRepository deadLetters = mock(NotificationDeadLetterRepository.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	// Dead letters guardados y el hilo que los guardó
+	private final List<NotificationDeadLetter> saved = new CopyOnWriteArrayList<>();
+	private final Set<String> savingThreads = ConcurrentHashMap.newKeySet();
+	private NotificationDispatcher dispatcher;
+
+	{
+		when(deadLetters.saveAll(anyList())).thenAnswer(invocation -> {
+			List<NotificationDeadLetter> batch = invocation.getArgument(0);
+			saved.addAll(batch);
+			savingThreads.add(Thread.currentThread().getName());
+			return batch;
+		});
+	}
+
+	private NotificationDispatcher start(PushTransport sender, int maxAttempts) {
+		return start(sender, maxAttempts, 1);
+	}
+
+	private NotificationDispatcher start(PushTransport sender, int maxAttempts, long backoffMs) {
+		return start(sender, maxAttempts, backoffMs, 100);
+	}
+
+	private NotificationDispatcher start(PushTransport sender, int maxAttempts, long backoffMs, int queueCapacity) {
+		dispatcher = new NotificationDispatcher(sender, invalidTokens, deadLetters, new ObjectMapper(),
+				transactionManager, queueCapacity, 2, maxAttempts, backoffMs, backoffMs * 5, 1000);
+		dispatcher.start();
+		return dispatcher;
+	}
+
+	@AfterEach
+	void stop() throws InterruptedException {
+		dispatcher.stop();
+	}
+
+	private void awaitCompleted(long expected) throws InterruptedException {
+		for (int i = 0; i < 200 && (long) dispatcher.getStats().get("completed") < expected; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, dispatcher.getStats().get("completed"));
+	}
+
+	@Test
+	void transientFailuresAreRetriedOnlyForPendingTokens() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		SendOnlyTransport sender = (tokens, title, body, data) -> {
+			if (calls.incrementAndGet() < 3) {
+				// Primer token entregado; el segundo falla con UNAVAILABLE
+				List<String> pending = tokens.subList(tokens.size() - 1, tokens.size());
+				return new PushTransport.Result(tokens.size() - 1, List.of(), pending, List.of(), "UNAVAILABLE");
+			}
+			assertEquals(1, tokens.size());
+			return PushTransport.Result.success(tokens.size());
+		};
+
+		start(sender, 5).dispatch(1L, "general", List.of("a", "b"), "Título", "Cuerpo", Map.of());
+		awaitCompleted(1);
+
+		Map<String, Object> stats = dispatcher.getStats();
+		assertEquals(3, calls.get());
+		assertEquals(2L, stats.get("retries"));
+		assertEquals(0L, stats.get("deadLetters"));
+		verify(deadLetters, never()).saveAll(any());
+	}
+
+	@Test
+	void exhaustedRetriesAndPermanentErrorsGoToDeadLetters() throws InterruptedException {
+		SendOnlyTransport sender = (tokens, title, body, data) -> new PushTransport.Result(0,
+				tokens.contains("invalid") ? List.of("invalid") : List.of(),
+				List.of("retry"),
+				tokens.contains("failed") ? List.of("failed") : List.of(),
+				"INTERNAL");
+
+		start(sender, 2).dispatch(1L, "general", List.of("invalid", "retry", "failed"), "Título", "Cuerpo", Map.of());
+		awaitCompleted(1);
+
+		Map<String, Object> stats = dispatcher.getStats();
+		// Intento 1: "failed" a dead letters y reintento de "retry"; intento 2: "retry" agota los reintentos
+		assertEquals(1L, stats.get("retries"));
+		assertEquals(2L, stats.get("deadLetters"));
+		assertEquals(1.0, (double) stats.get("failureRate"));
+		verify(invalidTokens, times(1)).submit(List.of("invalid"));
+		awaitSaved(2);
+		assertEquals(List.of("failed", "retry"), saved.stream().map(NotificationDeadLetter::getTokens).toList());
+	}
+
+	@Test
+	void pendingRetriesGoToDeadLettersOnShutdown() throws InterruptedException {
+		SendOnlyTransport sender = (tokens, title, body, data) ->
+				new PushTransport.Result(0, List.of(), tokens, List.of(), "UNAVAILABLE");
+
+		start(sender, 5, 60_000).dispatch(1L, "general", List.of("a"), "Título", "Cuerpo", Map.of());
+		for (int i = 0; i < 200 && (int) dispatcher.getStats().get("pendingRetries") == 0; i++) {
+			Thread.sleep(10);
+		}
+		dispatcher.stop();
+
+		Map<String, Object> stats = dispatcher.getStats();
+		assertEquals(0, stats.get("pendingRetries"));
+		assertEquals(1L, stats.get("deadLetters"));
+		assertEquals(1L, stats.get("completed"));
+		// stop() guarda lo pendiente antes de volver
+		assertEquals(1, saved.size());
+		// Guardado en una transacción propia (también sirve desde afterCommit)
+		verify(transactionManager).getTransaction(argThat(definition ->
+				definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+	}
+
+	@Test
+	void jobRejectedByAFullQueueIsNotWrittenOnTheCallerThread() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		SendOnlyTransport sender = (tokens, title, body, data) -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return PushTransport.Result.success(tokens.size());
+		};
+		start(sender, 1, 1, 1);
+
+		// Dos workers ocupados y la cola (de 1) llena: el cuarto se rechaza
+		for (long userId = 1; userId <= 4; userId++) {
+			dispatcher.dispatch(userId, "general", List.of("t" + userId), "Título", "Cuerpo", Map.of());
+			Thread.sleep(50);
+		}
+		awaitSaved(1);
+		release.countDown();
+
+		assertEquals(1L, dispatcher.getStats().get("rejected"));
+		assertEquals(4L, saved.get(0).getUserId());
+		assertEquals(Set.of("push-dead-letter-1"), savingThreads);
+	}
+
+	private void awaitSaved(int expected) throws InterruptedException {
+		for (int i = 0; i < 200 && saved.size() < expected; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, saved.size());
+	}
+}
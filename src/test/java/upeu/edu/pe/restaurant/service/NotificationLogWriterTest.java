@@ -0,0 +1,147 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import upeu.edu.pe.restaurant.entity.NotificationLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationLogWriterTest {
+
+	private static NotificationLog row(long userId) {
+		NotificationLog log = new NotificationLog();
+		log.setUserId(userId);
+		log.setNotificationType("general");
+		log.setTitle("Título");
+		log.setBody("Cuerpo");
+		return log;
+	}
+
+	@Test
+	void flushWritesPendingRowsInBatches() throws InterruptedException {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		NotificationLogWriter writer = new NotificationLogWriter(jdbcTemplate, 1000, 100_000, 5);
+
+		for (long i = 0; i < 2500; i++) {
+			writer.append(row(i));
+		}
+		writer.shutdown();
+
+		// Al menos tres INSERT (nunca más de 1000 filas por lote) y nada pendiente después de apagar
+		verify(jdbcTemplate, atLeast(3)).update(any(PreparedStatementCreator.class));
+		Map<String, Object> stats = writer.getStats();
+		assertEquals(0, stats.get("pending"));
+		assertEquals(2500L, stats.get("written"));
+		assertEquals(1000, stats.get("maxBatchSize"));
+	}
+
+	@Test
+	void failedBatchStaysBufferedForTheNextFlush() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class)))
+				.thenThrow(new DataAccessResourceFailureException("sin conexión"))
+				.thenReturn(10);
+		NotificationLogWriter writer = new NotificationLogWriter(jdbcTemplate, 1000, 100_000, 5);
+
+		for (long i = 0; i < 10; i++) {
+			writer.append(row(i));
+		}
+		writer.flush();
+		assertEquals(10, writer.getStats().get("pending"));
+		assertEquals(1L, writer.getStats().get("failedBatches"));
+
+		writer.flush();
+		assertEquals(0, writer.getStats().get("pending"));
+		assertEquals(10L, writer.getStats().get("written"));
+	}
+
+	@Test
+	void invalidRowIsIsolatedAndDroppedWithoutLosingTheRestOfTheBatch() throws Exception {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenAnswer(invocation -> {
+			Long[] userIds = userIds(invocation.getArgument(0));
+			if (Arrays.asList(userIds).contains(7L)) {
+				throw new DataIntegrityViolationException("valor demasiado largo");
+			}
+			return userIds.length;
+		});
+		NotificationLogWriter writer = new NotificationLogWriter(jdbcTemplate, 1000, 100_000, 5);
+
+		for (long i = 0; i < 16; i++) {
+			writer.append(row(i));
+		}
+		writer.flush();
+
+		Map<String, Object> stats = writer.getStats();
+		assertEquals(0, stats.get("pending"));
+		assertEquals(15L, stats.get("written"));
+		assertEquals(1L, stats.get("dropped"));
+	}
+
+	@Test
+	void rowsAreDroppedAfterMaxAttempts() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class)))
+				.thenThrow(new DataAccessResourceFailureException("sin conexión"));
+		NotificationLogWriter writer = new NotificationLogWriter(jdbcTemplate, 1000, 100_000, 3);
+
+		for (long i = 0; i < 10; i++) {
+			writer.append(row(i));
+		}
+		for (int i = 0; i < 5; i++) {
+			writer.flush();
+		}
+
+		// Tres intentos y después nada más: las filas ya no vuelven a la cola
+		verify(jdbcTemplate, times(3)).update(any(PreparedStatementCreator.class));
+		assertEquals(0, writer.getStats().get("pending"));
+		assertEquals(10L, writer.getStats().get("dropped"));
+	}
+
+	@Test
+	void fullBufferDropsNewRowsWhileTheDatabaseIsFailing() {
+		JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+		when(jdbcTemplate.update(any(PreparedStatementCreator.class)))
+				.thenThrow(new DataAccessResourceFailureException("sin conexión"));
+		NotificationLogWriter writer = new NotificationLogWriter(jdbcTemplate, 10, 20, 100);
+
+		for (long i = 0; i < 50; i++) {
+			writer.append(row(i));
+		}
+
+		// El lote en vuelo del hilo de fondo puede dejar pasar alguna fila de más, pero no muchas
+		Map<String, Object> stats = writer.getStats();
+		long overflowed = (Long) stats.get("overflowed");
+		assertTrue(overflowed >= 20, "descartadas: " + overflowed);
+		assertEquals(50L, (Long) stats.get("appended") + overflowed);
+	}
+
+	private static Long[] userIds(PreparedStatementCreator creator) throws Exception {
+		Connection connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+		Long[][] captured = new Long[1][];
+		when(connection.createArrayOf(eq("bigint"), any())).thenAnswer(invocation -> {
+			captured[0] = (Long[]) invocation.getArgument(1);
+			return null;
+		});
+		creator.createPreparedStatement(connection);
+		return captured[0];
+	}
+}
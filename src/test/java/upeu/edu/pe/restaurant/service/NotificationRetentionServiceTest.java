@@ -0,0 +1,101 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import upeu.edu.pe.restaurant.entity.NotificationDailySummary;
+import upeu.edu.pe.restaurant.repository.NotificationDailySummaryRepository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationRetentionServiceTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+	private NotificationRetentionService service(int batchSize, int maxBatches) {
+		return new NotificationRetentionService(jdbcTemplate, mock(NotificationDailySummaryRepository.class),
+				30, 180, batchSize, maxBatches, 0);
+	}
+
+	@Test
+	void purgeRunsBatchesUntilOneComesBackShort() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(), any(), any()))
+				.thenReturn(100L, 100L, 40L);
+
+		long deleted = service(100, 10).purge();
+
+		assertEquals(240, deleted);
+		verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Long.class), any(), any(), any());
+	}
+
+	@Test
+	void purgeStopsAtMaxBatchesPerRun() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(), any(), any())).thenReturn(100L);
+
+		NotificationRetentionService service = service(100, 2);
+		assertEquals(200, service.purge());
+		assertEquals(2L, service.getStats().get("batches"));
+	}
+
+	@Test
+	void failedBatchEndsTheRunKeepingWhatWasDeleted() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(), any(), any()))
+				.thenReturn(100L)
+				.thenThrow(new DataAccessResourceFailureException("sin conexión"));
+
+		NotificationRetentionService service = service(100, 10);
+		assertEquals(100, service.purge());
+		assertEquals(false, service.getStats().get("running"));
+	}
+
+	@Test
+	void startRunsThePurgeInTheBackgroundOnce() throws InterruptedException {
+		CountDownLatch inBatch = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(), any(), any())).thenAnswer(invocation -> {
+			inBatch.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return 10L;
+		});
+
+		NotificationRetentionService service = service(100, 10);
+		try {
+			assertTrue(service.start());
+			assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+			assertFalse(service.start());
+			assertEquals(true, service.getStats().get("running"));
+
+			release.countDown();
+			for (int i = 0; i < 200 && (Boolean) service.getStats().get("running"); i++) {
+				Thread.sleep(10);
+			}
+			assertEquals(10L, service.getStats().get("lastRunDeleted"));
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void rowsWithoutUserAreSummarizedUnderASentinelSoReRunsConflict() {
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		when(jdbcTemplate.queryForObject(sql.capture(), eq(Long.class), any(), any(), any())).thenReturn(0L);
+
+		service(100, 10).purge();
+
+		assertTrue(sql.getValue().contains("GROUP BY COALESCE(user_id, " + NotificationDailySummary.NO_USER + ")"));
+		assertFalse(sql.getValue().contains("GROUP BY user_id"));
+	}
+}
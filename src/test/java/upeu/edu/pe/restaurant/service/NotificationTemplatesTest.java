@@ -0,0 +1,24 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NotificationTemplatesTest {
+
+	@Test
+	void orderStatusTextMatchesTheStatus() {
+		NotificationTemplates.Text text = NotificationTemplates.orderStatus("ON_THE_WAY", 42L);
+
+		assertEquals("🚚 ¡Tu pedido está en camino!", text.title());
+		assertEquals("El repartidor está en camino con tu pedido #42", text.body());
+	}
+
+	@Test
+	void unknownStatusFallsBackToGenericUpdate() {
+		NotificationTemplates.Text text = NotificationTemplates.orderStatus("PENDING", 7L);
+
+		assertEquals("📦 Actualización de pedido", text.title());
+		assertEquals("Tu pedido #7 ha sido actualizado", text.body());
+	}
+}
@@ -0,0 +1,98 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.transaction.PlatformTransactionManager;
+import upeu.edu.pe.restaurant.dto.BroadcastResultDTO;
+import upeu.edu.pe.restaurant.repository.NotificationDeadLetterRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Rendimiento de extremo a extremo del envío de notificaciones sobre el transporte simulado.
+ *
+ * No corre con el resto de las pruebas; ejecutar con:
+ * mvn test -Dtest=NotificationThroughputBenchmark -Dbenchmark=true [-Dbenchmark.jobs=20000 -Dbenchmark.latency-ms=50 ...]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NotificationThroughputBenchmark {
+
+	private static final int JOBS = Integer.getInteger("benchmark.jobs", 20_000);
+	private static final int TOKENS_PER_JOB = Integer.getInteger("benchmark.tokens-per-job", 2);
+	private static final int BROADCAST_TOKENS = Integer.getInteger("benchmark.broadcast-tokens", 100_000);
+	private static final int WORKERS = Integer.getInteger("benchmark.workers", 8);
+	private static final long LATENCY_MS = Long.getLong("benchmark.latency-ms", 50);
+	private static final long JITTER_MS = Long.getLong("benchmark.jitter-ms", 20);
+	private static final double INVALID_RATE = Double.parseDouble(System.getProperty("benchmark.invalid-rate", "0.01"));
+	private static final double TRANSIENT_RATE = Double.parseDouble(System.getProperty("benchmark.transient-rate", "0.01"));
+
+	private static FakePushTransport transport() {
+		return new FakePushTransport(LATENCY_MS, JITTER_MS, INVALID_RATE, TRANSIENT_RATE, 0.0);
+	}
+
+	@Test
+	void dispatcherThroughput() throws InterruptedException {
+		NotificationDispatcher dispatcher = new NotificationDispatcher(transport(), mock(InvalidTokenQueue.class),
+				mock(NotificationDeadLetterRepository.class), new ObjectMapper(),
+				mock(PlatformTransactionManager.class), JOBS, WORKERS, 5, 10, 100, 60_000);
+		dispatcher.start();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < JOBS; i++) {
+			List<String> tokens = new ArrayList<>(TOKENS_PER_JOB);
+			for (int t = 0; t < TOKENS_PER_JOB; t++) {
+				tokens.add("token-" + i + "-" + t);
+			}
+			dispatcher.dispatch((long) i, "order_status", tokens, "Título", "Cuerpo", Map.of("id", String.valueOf(i)));
+		}
+		long enqueueNanos = System.nanoTime() - start;
+
+		while ((long) dispatcher.getStats().get("completed") < JOBS) {
+			Thread.sleep(20);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Map<String, Object> stats = dispatcher.getStats();
+		dispatcher.stop();
+
+		System.out.printf("Dispatcher: %d notificaciones (%d tokens c/u), %d workers, latencia FCM %d±%d ms%n",
+				JOBS, TOKENS_PER_JOB, WORKERS, LATENCY_MS, JITTER_MS);
+		System.out.printf("  encolado: %.1f µs por notificación%n", enqueueNanos / 1e3 / JOBS);
+		System.out.printf("  rendimiento: %.0f notificaciones/s en %.2f s%n", JOBS / seconds, seconds);
+		System.out.printf("  métricas: %s%n", stats);
+	}
+
+	@Test
+	void broadcastThroughput() {
+		List<BroadcastFanOut.TokenRef> all = new ArrayList<>(BROADCAST_TOKENS);
+		for (long id = 1; id <= BROADCAST_TOKENS; id++) {
+			all.add(new BroadcastFanOut.TokenRef(id, id, "token-" + id));
+		}
+		// Keyset en memoria: usuario = id y los ids son consecutivos, así que la página empieza en el último id
+		BroadcastFanOut.TokenSource source = (after, limit) -> {
+			long afterId = after != null ? after.id() : 0;
+			return all.subList((int) Math.min(afterId, all.size()), (int) Math.min(afterId + limit, all.size()));
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+		try {
+			BroadcastFanOut fanOut = new BroadcastFanOut(source, transport(), executor,
+					PushTransport.MAX_TOKENS, WORKERS, tokens -> {});
+			BroadcastResultDTO result = fanOut.run("Título", "Cuerpo", Map.of(), users -> {});
+
+			System.out.printf("Broadcast: %d tokens en %d bloques, %d en paralelo%n",
+					result.getTokens(), result.getChunks(), WORKERS);
+			System.out.printf("  rendimiento: %.0f tokens/s en %d ms%n",
+					result.getTokens() * 1000.0 / Math.max(1, result.getElapsedMs()), result.getElapsedMs());
+			System.out.printf("  resultado: %s%n", result);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package upeu.edu.pe.restaurant.service;
+
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.AndroidNotification;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Memoria asignada por mensaje al armar un broadcast: configuración de plataforma construida en
+ * cada envío (como antes) contra las plantillas precompiladas de FirebaseMessageFactory.
+ *
+ * No corre con el resto de las pruebas; ejecutar con:
+ * mvn test -Dtest=PushMessageAllocationBenchmark -Dbenchmark=true [-Dbenchmark.broadcast-tokens=1000000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PushMessageAllocationBenchmark {
+
+	private static final int BROADCAST_TOKENS = Integer.getInteger("benchmark.broadcast-tokens", 1_000_000);
+	private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+	private static final Map<String, String> DATA = Map.of("type", "order_status", "id", "42", "status", "on_the_way");
+
+	private static final List<String> CHUNK = new ArrayList<>();
+
+	static {
+		for (int i = 0; i < PushTransport.MAX_TOKENS; i++) {
+			CHUNK.add("token-" + i);
+		}
+	}
+
+	// Armado anterior: todos los builders de plataforma por mensaje
+	private static MulticastMessage perMessageConfig(int i) {
+		NotificationTemplates.Text text = NotificationTemplates.orderStatus("on_the_way", (long) i);
+		return MulticastMessage.builder()
+				.setNotification(Notification.builder()
+						.setTitle(text.title())
+						.setBody(text.body())
+						.build())
+				.setAndroidConfig(AndroidConfig.builder()
+						.setPriority(AndroidConfig.Priority.HIGH)
+						.setNotification(AndroidNotification.builder()
+								.setSound("default")
+								.setChannelId("high_importance_channel")
+								.build())
+						.build())
+				.setApnsConfig(ApnsConfig.builder()
+						.setAps(Aps.builder()
+								.setSound("default")
+								.setBadge(1)
+								.build())
+						.build())
+				.addAllTokens(CHUNK)
+				.putAllData(DATA)
+				.build();
+	}
+
+	private static MulticastMessage precompiled(int i) {
+		NotificationTemplates.Text text = NotificationTemplates.orderStatus("on_the_way", (long) i);
+		return FirebaseMessageFactory.multicast(CHUNK, text.title(), text.body(), DATA, null);
+	}
+
+	@Test
+	void allocationPerMessage() {
+		int messages = Math.max(1, BROADCAST_TOKENS / PushTransport.MAX_TOKENS);
+
+		// Calentamiento
+		measure(PushMessageAllocationBenchmark::perMessageConfig, messages);
+		measure(PushMessageAllocationBenchmark::precompiled, messages);
+
+		long before = Long.MAX_VALUE;
+		long after = Long.MAX_VALUE;
+		for (int r = 0; r < ROUNDS; r++) {
+			before = Math.min(before, measure(PushMessageAllocationBenchmark::perMessageConfig, messages));
+			after = Math.min(after, measure(PushMessageAllocationBenchmark::precompiled, messages));
+		}
+
+		System.out.printf("Broadcast de %d tokens: %d mensajes multicast de %d tokens%n",
+				BROADCAST_TOKENS, messages, PushTransport.MAX_TOKENS);
+		System.out.printf("  configuración por mensaje: %d bytes/mensaje%n", before / messages);
+		System.out.printf("  plantillas precompiladas:  %d bytes/mensaje (%.1f%% menos)%n",
+				after / messages, 100.0 * (before - after) / before);
+	}
+
+	private static long measure(IntFunction<MulticastMessage> build, int messages) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int sink = 0;
+
+		long start = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < messages; i++) {
+			sink += build.apply(i).hashCode() & 1;
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - start;
+
+		if (sink < 0) {
+			System.out.println(sink);
+		}
+		return allocated;
+	}
+}
@@ -0,0 +1,158 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.entity.Restaurant;
+import upeu.edu.pe.restaurant.entity.RestaurantRatingStats;
+import upeu.edu.pe.restaurant.event.RestaurantChangedEvent;
+import upeu.edu.pe.restaurant.event.ReviewChangedEvent;
+import upeu.edu.pe.restaurant.repository.RestaurantRatingStatsRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRatingStatsRepository.RatingTotals;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RestaurantLeaderboardServiceTest {
+
+	private final RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+	private final RestaurantRatingStatsRepository statsRepository = mock(RestaurantRatingStatsRepository.class);
+	private final RestaurantLeaderboardService service = new RestaurantLeaderboardService(
+			restaurantRepository, statsRepository, new LocationService(restaurantRepository), 10, 0.05);
+
+	private static Restaurant restaurant(long id, boolean active) {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setId(id);
+		restaurant.setIsActive(active);
+		restaurant.setCategories(Set.of("Pizza"));
+		return restaurant;
+	}
+
+	private static Restaurant restaurant(long id, String category, String priceRange, double lat, double lon) {
+		Restaurant restaurant = restaurant(id, true);
+		restaurant.setCategories(Set.of(category));
+		restaurant.setPriceRange(priceRange);
+		restaurant.setLatitude(lat);
+		restaurant.setLongitude(lon);
+		return restaurant;
+	}
+
+	private static RestaurantRatingStats stats(long restaurantId, double sum, long count) {
+		RestaurantRatingStats stats = new RestaurantRatingStats();
+		stats.setRestaurantId(restaurantId);
+		stats.setRatingSum(BigDecimal.valueOf(sum));
+		stats.setReviewCount(count);
+		return stats;
+	}
+
+	private static RatingTotals totals(double sum, long count) {
+		return new RatingTotals() {
+			@Override
+			public BigDecimal getRatingSum() {
+				return BigDecimal.valueOf(sum);
+			}
+
+			@Override
+			public Long getReviewCount() {
+				return count;
+			}
+		};
+	}
+
+	private static ReviewChangedEvent created(long restaurantId, double rating) {
+		return new ReviewChangedEvent(ReviewChangedEvent.Type.CREATED, 1L, 1L, restaurantId,
+				null, BigDecimal.valueOf(rating), "ok");
+	}
+
+	@Test
+	void deactivatedRestaurantLeavesTheRanking() {
+		when(restaurantRepository.findByIsActiveTrue()).thenReturn(List.of(restaurant(1, true), restaurant(2, true)));
+		when(statsRepository.findAll()).thenReturn(List.of(stats(1, 50, 10), stats(2, 40, 10)));
+		service.rebuild();
+		assertEquals(List.of(1L, 2L), service.topRated("pizza", null, 10));
+
+		when(restaurantRepository.findById(1L)).thenReturn(Optional.of(restaurant(1, false)));
+		service.onRestaurantChanged(new RestaurantChangedEvent(1L));
+
+		assertEquals(List.of(2L), service.topRated("pizza", null, 10));
+		assertEquals(List.of(2L), service.topRated(null, null, 10));
+		assertNull(service.getScore(1L));
+	}
+
+	@Test
+	void reviewCommittedDuringRebuildIsNotLost() {
+		when(restaurantRepository.findByIsActiveTrue()).thenReturn(List.of(restaurant(1, true)));
+		when(restaurantRepository.findById(1L)).thenReturn(Optional.of(restaurant(1, true)));
+		when(statsRepository.findTotals(1L)).thenReturn(Optional.of(totals(45, 10)));
+		// La lectura del rebuild no ve la reseña nueva; su evento llega antes del reemplazo
+		when(statsRepository.findAll()).thenAnswer(invocation -> {
+			service.onReviewChanged(created(1, 5));
+			return List.of(stats(1, 40, 9));
+		});
+
+		service.rebuild();
+		double score = service.getScore(1L);
+		assertEquals((10 * 4.5 + 45) / (10 + 10), score, 1e-9);
+
+		// Un evento repetido relee la misma fila: no cuenta doble
+		service.onReviewChanged(created(1, 5));
+		assertEquals(score, service.getScore(1L), 1e-9);
+	}
+
+	@Test
+	void categoryAndPriceRangeAreFilteredTogether() {
+		when(restaurantRepository.findByIsActiveTrue()).thenReturn(List.of(
+				restaurant(1, "Pizza", "$$", -12.05, -77.04),
+				restaurant(2, "Pizza", "$", -12.05, -77.04),
+				restaurant(3, "Sushi", "$$", -12.05, -77.04)));
+		when(statsRepository.findAll()).thenReturn(List.of(stats(1, 40, 10), stats(2, 50, 10), stats(3, 50, 10)));
+		service.rebuild();
+
+		assertEquals(List.of(1L), service.topRated("pizza", "$$", 10));
+		assertEquals(List.of(3L, 1L), service.topRated(null, "$$", 10));
+		assertEquals(List.of(), service.topRated("pizza", "$$$", 10));
+	}
+
+	@Test
+	void nearQueryMergesCellsInScoreOrderWithinTheRadius() {
+		when(restaurantRepository.findByIsActiveTrue()).thenReturn(List.of(
+				// Celdas distintas dentro de 5 km
+				restaurant(1, "Pizza", "$", -12.049, -77.049),
+				restaurant(2, "Pizza", "$", -12.051, -77.051),
+				restaurant(3, "Pizza", "$", -12.030, -77.030),
+				// Fuera del radio
+				restaurant(4, "Pizza", "$", -12.500, -77.500)));
+		when(statsRepository.findAll()).thenReturn(List.of(
+				stats(1, 30, 10), stats(2, 45, 10), stats(3, 40, 10), stats(4, 50, 10)));
+		service.rebuild();
+
+		assertEquals(List.of(2L, 3L, 1L), service.topRatedNear(-12.05, -77.05, 5, "pizza", 10));
+		assertEquals(List.of(2L, 3L), service.topRatedNear(-12.05, -77.05, 5, null, 2));
+		// Radio con demasiadas celdas: recorre la categoría completa
+		assertEquals(List.of(4L, 2L, 3L, 1L), service.topRatedNear(-12.05, -77.05, 500, "pizza", 10));
+	}
+
+	@Test
+	void rescoreSwapsInFreshSetsWithoutTouchingTheOnesBeingRead() {
+		when(restaurantRepository.findByIsActiveTrue()).thenReturn(List.of(restaurant(1, true), restaurant(2, true)));
+		when(statsRepository.findAll()).thenReturn(List.of(stats(1, 50, 10), stats(2, 10, 10)));
+		service.rebuild();
+		double before = service.getScore(2L);
+
+		// Una reseña mueve el promedio global por encima del umbral: se recalcula todo
+		when(restaurantRepository.findById(1L)).thenReturn(Optional.of(restaurant(1, true)));
+		when(statsRepository.findTotals(1L)).thenReturn(Optional.of(totals(450, 100)));
+		service.onReviewChanged(created(1, 5));
+
+		assertEquals(List.of(1L, 2L), service.topRated("pizza", null, 10));
+		assertEquals((10 * (460.0 / 110) + 10) / 20, service.getScore(2L), 1e-9);
+		assertNotEquals(before, service.getScore(2L));
+	}
+}
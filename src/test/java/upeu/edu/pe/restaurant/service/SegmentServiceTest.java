@@ -0,0 +1,96 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import upeu.edu.pe.restaurant.entity.Order;
+import upeu.edu.pe.restaurant.event.OrderPlacedEvent;
+import upeu.edu.pe.restaurant.exception.BadRequestException;
+import upeu.edu.pe.restaurant.repository.OrderRepository;
+import upeu.edu.pe.restaurant.repository.RestaurantRepository;
+import upeu.edu.pe.restaurant.repository.ReviewRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentServiceTest {
+
+	private final OrderRepository orderRepository = mock(OrderRepository.class);
+	private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+	private final RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+	private final SegmentService service = new SegmentService(orderRepository, reviewRepository, restaurantRepository, 90);
+
+	private static OrderRepository.OrderActivityView order(long id, long userId, long restaurantId, int daysAgo) {
+		return new OrderRepository.OrderActivityView() {
+			public Long getId() { return id; }
+			public Long getUserId() { return userId; }
+			public Long getRestaurantId() { return restaurantId; }
+			public LocalDateTime getCreatedAt() { return LocalDateTime.now().minusDays(daysAgo); }
+		};
+	}
+
+	private static ReviewRepository.ReviewActivityView review(long id, long userId, String rating, int daysAgo) {
+		return new ReviewRepository.ReviewActivityView() {
+			public Long getId() { return id; }
+			public Long getUserId() { return userId; }
+			public Long getRestaurantId() { return 10L; }
+			public BigDecimal getRating() { return new BigDecimal(rating); }
+			public LocalDateTime getCreatedAt() { return LocalDateTime.now().minusDays(daysAgo); }
+		};
+	}
+
+	private List<Integer> users(List<String> include, List<String> require, List<String> exclude) {
+		List<Integer> users = new ArrayList<>();
+		service.resolve(include, require, exclude).users().forEach(users::add);
+		return users;
+	}
+
+	@BeforeEach
+	void rebuild() {
+		when(restaurantRepository.findAllCategoryPairs()).thenReturn(List.of(
+				new Object[]{10L, "Pizza"}, new Object[]{11L, " Sushi "}));
+		when(orderRepository.findActivityAfter(eq(0L), eq(Order.Status.CANCELLED), any())).thenReturn(List.of(
+				order(1, 1, 10, 0),
+				order(2, 2, 11, 20),
+				order(3, 3, 10, 200)));
+		when(reviewRepository.findActivityAfter(eq(0L), any())).thenReturn(List.of(
+				review(1, 4, "1.5", 0),
+				review(2, 1, "4.5", 3)));
+		service.rebuild();
+	}
+
+	@Test
+	void combinesSegmentsWithAndOrAndNot() {
+		// Clientes sin pedidos en los últimos 14 días
+		assertEquals(List.of(2, 3, 4), users(List.of("customers"), null, List.of("ordered:14")));
+		assertEquals(List.of(1), users(List.of("category:pizza:30"), null, null));
+		assertEquals(List.of(2), users(List.of("ordered:30"), List.of("category:SUSHI:30"), null));
+		assertEquals(List.of(1, 4), users(List.of("restaurant:10:7", "low-rating:7"), null, null));
+		assertEquals(List.of(1), users(List.of("reviewed:7"), null, List.of("low-rating:7")));
+	}
+
+	@Test
+	void ordersAreAddedIncrementally() {
+		service.onOrderPlaced(new OrderPlacedEvent(4L, 5L, 12L, List.of("Pizza", "Postres"), LocalDateTime.now()));
+
+		assertEquals(List.of(1, 5), users(List.of("category:pizza:1"), null, null));
+		assertEquals(List.of(5), users(List.of("category:postres:1"), null, null));
+		assertEquals(1L, service.getStats().get("ordersApplied"));
+	}
+
+	@Test
+	void rejectsUnknownSegmentsAndWindowsBeyondRetention() {
+		assertThrows(BadRequestException.class, () -> users(List.of("bought:7"), null, null));
+		assertThrows(BadRequestException.class, () -> users(List.of("ordered:365"), null, null));
+		assertThrows(BadRequestException.class, () -> users(List.of("restaurant:abc:7"), null, null));
+		assertThrows(BadRequestException.class, () -> users(List.of(), null, null));
+	}
+}
@@ -0,0 +1,27 @@
+package upeu.edu.pe.restaurant.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transporte de prueba escrito como lambda: solo envía a tokens, sin topics
+ */
+@FunctionalInterface
+interface SendOnlyTransport extends PushTransport {
+
+	@Override
+	default String sendToTopic(String topic, String title, String body, Map<String, String> data,
+			String collapseKey) {
+		throw new UnsupportedOperationException("Sin topics en esta prueba");
+	}
+
+	@Override
+	default int subscribeToTopic(List<String> tokens, String topic) {
+		throw new UnsupportedOperationException("Sin topics en esta prueba");
+	}
+
+	@Override
+	default int unsubscribeFromTopic(List<String> tokens, String topic) {
+		throw new UnsupportedOperationException("Sin topics en esta prueba");
+	}
+}
@@ -0,0 +1,101 @@
+package upeu.edu.pe.restaurant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TopicSubscriptionBatcherTest {
+
+	private final PushTransport transport = mock(PushTransport.class);
+
+	@Test
+	void changesAreGroupedPerTopicInChunksOfAThousand() {
+		when(transport.subscribeToTopic(anyList(), eq("restaurant_1"))).thenAnswer(inv -> inv.getArgument(0, List.class).size());
+		TopicSubscriptionBatcher batcher = new TopicSubscriptionBatcher(transport, 3);
+
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < 2500; i++) {
+			tokens.add("token-" + i);
+		}
+		batcher.subscribe(tokens, "restaurant_1");
+		batcher.flush();
+
+		verify(transport, times(3)).subscribeToTopic(anyList(), eq("restaurant_1"));
+		assertEquals(2500L, batcher.getStats().get("subscribed"));
+	}
+
+	@Test
+	void onlyTheLastChangePerTokenAndTopicIsApplied() {
+		TopicSubscriptionBatcher batcher = new TopicSubscriptionBatcher(transport, 3);
+
+		batcher.subscribe(List.of("a"), "category_pizza");
+		batcher.unsubscribe(List.of("a"), "category_pizza");
+		batcher.flush();
+
+		verify(transport, never()).subscribeToTopic(anyList(), eq("category_pizza"));
+		verify(transport).unsubscribeFromTopic(List.of("a"), "category_pizza");
+	}
+
+	@Test
+	void failedChunkIsRetriedOnTheNextFlush() {
+		when(transport.subscribeToTopic(anyList(), eq("restaurant_1")))
+				.thenThrow(new PushTransport.TopicException("UNAVAILABLE", true, null))
+				.thenReturn(2);
+		TopicSubscriptionBatcher batcher = new TopicSubscriptionBatcher(transport, 3);
+
+		batcher.subscribe(List.of("a", "b"), "restaurant_1");
+		batcher.flush();
+		assertEquals(2, batcher.getStats().get("pending"));
+
+		batcher.flush();
+		assertEquals(0, batcher.getStats().get("pending"));
+		assertEquals(2L, batcher.getStats().get("subscribed"));
+	}
+
+	@Test
+	void newerChangeReplacesAFailedOneInsteadOfBeingOverwrittenByIt() {
+		when(transport.subscribeToTopic(anyList(), eq("restaurant_1")))
+				.thenThrow(new PushTransport.TopicException("UNAVAILABLE", true, null));
+		TopicSubscriptionBatcher batcher = new TopicSubscriptionBatcher(transport, 3);
+
+		batcher.subscribe(List.of("a"), "restaurant_1");
+		batcher.flush();
+		batcher.unsubscribe(List.of("a"), "restaurant_1");
+		batcher.flush();
+
+		// El alta fallida es más vieja que la baja: gana la baja y el alta no se reintenta
+		verify(transport, times(1)).subscribeToTopic(anyList(), eq("restaurant_1"));
+		verify(transport).unsubscribeFromTopic(List.of("a"), "restaurant_1");
+		assertEquals(0, batcher.getStats().get("pending"));
+	}
+
+	@Test
+	void failedChangesAreDroppedAfterMaxAttemptsOrOnPermanentErrors() {
+		when(transport.subscribeToTopic(anyList(), eq("restaurant_1")))
+				.thenThrow(new PushTransport.TopicException("UNAVAILABLE", true, null));
+		when(transport.subscribeToTopic(anyList(), eq("restaurant_2")))
+				.thenThrow(new PushTransport.TopicException("SENDER_ID_MISMATCH", false, null));
+		TopicSubscriptionBatcher batcher = new TopicSubscriptionBatcher(transport, 3);
+
+		batcher.subscribe(List.of("a"), "restaurant_1");
+		batcher.subscribe(List.of("b"), "restaurant_2");
+		for (int i = 0; i < 5; i++) {
+			batcher.flush();
+		}
+
+		verify(transport, times(3)).subscribeToTopic(anyList(), eq("restaurant_1"));
+		verify(transport, times(1)).subscribeToTopic(anyList(), eq("restaurant_2"));
+		assertEquals(0, batcher.getStats().get("pending"));
+		assertEquals(2L, batcher.getStats().get("dropped"));
+	}
+}